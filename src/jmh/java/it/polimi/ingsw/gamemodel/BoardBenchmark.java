@@ -0,0 +1,148 @@
+package it.polimi.ingsw.gamemodel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import it.polimi.ingsw.exceptions.CardException;
+import it.polimi.ingsw.utils.CardsManager;
+import it.polimi.ingsw.utils.Pair;
+
+/**
+ * Measures the board operations performed on every move, on the board of the first player of a match in the middle
+ * or at the end of the game. Run it with the GC profiler (the default of the jmh profile) to also get the allocation
+ * rate
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+    @Param({"mid", "late"})
+    public String stage;
+
+    private Board board;
+    private List<PlacementMove> moves;
+    private int nextMove;
+
+    // Positions checked by verifyCardPlacement, both legal and not, and the cards checked in them
+    private int[] candidatesX;
+    private int[] candidatesY;
+    private int nextCandidate;
+    private List<PlayableCard> hand;
+
+    private GoldCard cornerGold;
+    private GoldCard resourceGold;
+    private PositionRequirement positionRequirement;
+    private QuantityRequirement quantityRequirement;
+    private int lastX;
+    private int lastY;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int turns = stage.equals("mid") ? MatchFixtures.MID_GAME_TURNS : MatchFixtures.LATE_GAME_TURNS;
+        Match match = MatchFixtures.matchAfter(turns, 42);
+        board = match.getPlayers().getFirst().getBoard();
+
+        // every card of the registry in every legal position, so that all the placement checks are exercised
+        List<PlayableCard> cards = List.copyOf(CardsManager.getInstance().getPlayableCards().values());
+        moves = board.legalMoves(cards);
+
+        // the legal positions and their neighbours
+        List<Pair<Integer, Integer>> positions = board.legalPositions();
+        candidatesX = new int[positions.size() * 5];
+        candidatesY = new int[positions.size() * 5];
+        int[][] offsets = {{0, 0}, {1, 0}, {0, 1}, {2, 0}, {0, 2}};
+        for (int i = 0; i < positions.size(); i++) {
+            for (int j = 0; j < offsets.length; j++) {
+                candidatesX[i * offsets.length + j] = positions.get(i).first() + offsets[j][0];
+                candidatesY[i * offsets.length + j] = positions.get(i).second() + offsets[j][1];
+            }
+        }
+        hand = board.getCurrentHand();
+
+        CardsManager manager = CardsManager.getInstance();
+        for (GoldCard gold : manager.getGoldCards().values()) {
+            if (gold.getMultiplier() == Symbol.CORNER_OBJ) {
+                cornerGold = gold;
+            } else if (gold.getMultiplier().isBasicResource()) {
+                resourceGold = gold;
+            }
+        }
+        for (Objective objective : manager.getObjectives().values()) {
+            switch (objective.getReq()) {
+                case PositionRequirement req -> positionRequirement = req;
+                case QuantityRequirement req -> quantityRequirement = req;
+                default -> {
+                }
+            }
+        }
+
+        lastX = board.getPlacedX(board.getPlacedCardsCount() - 1);
+        lastY = board.getPlacedY(board.getPlacedCardsCount() - 1);
+    }
+
+    /**
+     * Fresh copy of the board for each invocation of {@link #placeCard(PlacementState)}, which changes it
+     */
+    @State(Scope.Thread)
+    public static class PlacementState {
+        private Board board;
+
+        @Setup(Level.Invocation)
+        public void copyBoard(BoardBenchmark benchmark) {
+            board = MatchFixtures.copy(benchmark.board);
+        }
+    }
+
+    private PlacementMove nextMove() {
+        PlacementMove move = moves.get(nextMove);
+        nextMove = (nextMove + 1) % moves.size();
+        return move;
+    }
+
+    @Benchmark
+    public PlacementOutcome verifyCardPlacement() throws CardException {
+        int candidate = nextCandidate;
+        nextCandidate = (nextCandidate + 1) % candidatesX.length;
+
+        PlayableCard card = hand.get(candidate % hand.size());
+        Side side = (candidate & 1) == 0 ? Side.FRONT : Side.BACK;
+        return board.verifyCardPlacement(candidatesX[candidate], candidatesY[candidate], card, side);
+    }
+
+    @Benchmark
+    public int placeCard(PlacementState placement) throws CardException {
+        PlacementMove move = nextMove();
+        return placement.board.placeCard(move.coords().first(), move.coords().second(), move.card(), move.side(), 100);
+    }
+
+    @Benchmark
+    public void calculatePoints(Blackhole blackhole) {
+        blackhole.consume(cornerGold.calculatePoints(board, lastX, lastY));
+        blackhole.consume(resourceGold.calculatePoints(board, lastX, lastY));
+    }
+
+    @Benchmark
+    public int positionRequirementCached() {
+        return positionRequirement.timesMet(board);
+    }
+
+    @Benchmark
+    public int positionRequirementFromScratch() throws Exception {
+        // a new requirement has no matcher yet, so the whole board is checked
+        return new PositionRequirement(positionRequirement.getReqs()).timesMet(board);
+    }
+
+    @Benchmark
+    public int quantityRequirement() {
+        return quantityRequirement.timesMet(board);
+    }
+
+    @Benchmark
+    public List<PlacementMove> legalMoves() {
+        return board.legalMoves(board.getCurrentHand());
+    }
+}
@@ -0,0 +1,61 @@
+package it.polimi.ingsw.gamemodel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import it.polimi.ingsw.utils.Pair;
+
+/**
+ * Measures the match operations of a turn and the final ranking, on a copy of a match in the middle or at the end of
+ * the game, so that every invocation starts from the same state
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchBenchmark {
+    @Param({"mid", "late"})
+    public String stage;
+
+    private Match original;
+    private PlacementMove move;
+    private int moveCardIndex;
+    private DrawSource source;
+
+    private Match match;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int turns = stage.equals("mid") ? MatchFixtures.MID_GAME_TURNS : MatchFixtures.LATE_GAME_TURNS;
+        original = MatchFixtures.matchAfter(turns, 42);
+
+        // the card in the copies is a different object, so the move is stored by its hand index
+        Board board = original.getCurrentPlayer().getBoard();
+        move = board.legalMoves(board.getCurrentHand()).getFirst();
+        moveCardIndex = board.getCurrentHand().indexOf(move.card());
+        source = original.getVisiblePlayableCards().get(DrawSource.FIRST_VISIBLE) != null
+                ? DrawSource.FIRST_VISIBLE
+                : DrawSource.THIRD_VISIBLE;
+    }
+
+    @Setup(Level.Invocation)
+    public void copyMatch() {
+        match = MatchFixtures.copy(original);
+    }
+
+    @Benchmark
+    public PlayableCard makeMoveAndDrawCard() throws Exception {
+        PlayableCard card = match.getCurrentPlayer().getBoard().getCurrentHand().get(moveCardIndex);
+
+        match.makeMove(move.coords(), card, move.side());
+        return match.drawCard(source);
+    }
+
+    @Benchmark
+    public List<Pair<Player, Boolean>> decideWinner() {
+        match.decideWinner();
+        return match.getPlayersFinalRanking();
+    }
+}
@@ -0,0 +1,62 @@
+package it.polimi.ingsw.gamemodel;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the compact snapshots of a match, in the middle or at the end of the game, with its Java serialization,
+ * both when writing and when restoring the match
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchSnapshotBenchmark {
+    @Param({"mid", "late"})
+    public String stage;
+
+    private Match match;
+    private byte[] snapshot;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int turns = stage.equals("mid") ? MatchFixtures.MID_GAME_TURNS : MatchFixtures.LATE_GAME_TURNS;
+        match = MatchFixtures.matchAfter(turns, 42);
+        snapshot = writeSnapshot();
+        serialized = serialize();
+    }
+
+    @Benchmark
+    public byte[] writeSnapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            match.writeSnapshot(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Match readSnapshot() throws IOException {
+        return Match.readSnapshot(new DataInputStream(new ByteArrayInputStream(snapshot)));
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(match);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Match deserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return (Match) in.readObject();
+        }
+    }
+}
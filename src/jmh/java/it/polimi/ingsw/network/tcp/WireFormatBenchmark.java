@@ -0,0 +1,63 @@
+package it.polimi.ingsw.network.tcp;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import it.polimi.ingsw.network.messages.Message;
+import it.polimi.ingsw.network.messages.responses.MatchResumedMessage;
+import it.polimi.ingsw.network.messages.responses.SomeonePlayedCardMessage;
+import it.polimi.ingsw.utils.MessageBinaryCodecTest;
+
+/**
+ * Compares the encoding and decoding of the {@link WireFormat} values on the most frequent message
+ * ({@link SomeonePlayedCardMessage}) and on the biggest one ({@link MatchResumedMessage})
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+    @Param({"played", "resumed"})
+    public String message;
+
+    @Param({"JSON", "BINARY"})
+    public WireFormat format;
+
+    private Message msg;
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        msg = message.equals("played")
+                ? MessageBinaryCodecTest.someonePlayedCard()
+                : MessageBinaryCodecTest.matchResumed();
+
+        byte[] frame = format.encode(msg);
+        // The decoders take the content of the frame, without the framing
+        content = format == WireFormat.JSON
+                ? Arrays.copyOf(frame, frame.length - 1)
+                : Arrays.copyOfRange(frame, frame.length - contentLength(frame), frame.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return format.encode(msg);
+    }
+
+    @Benchmark
+    public Message decode() {
+        return format.decode(content, content.length);
+    }
+
+    // Length of the content of a binary frame, read from its prefix
+    private static int contentLength(byte[] frame) {
+        int length = 0;
+        for (int i = 0, shift = 0; ; i++, shift += 7) {
+            length |= (frame[i] & 0x7F) << shift;
+            if ((frame[i] & 0x80) == 0)
+                return length;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package it.polimi.ingsw.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import it.polimi.ingsw.network.messages.Message;
+import it.polimi.ingsw.network.messages.responses.ResponseMessage;
+
+/**
+ * Compares the ways of parsing the most frequent message (a played card) and the biggest one (a resumed match): the
+ * tree based parsing {@link MessageJsonParser} used to do, looking the class up among the permitted subclasses of every
+ * message, against its current streaming parsing and the {@link MessageBinaryCodec}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageJsonParserBenchmark {
+    @Param({"played", "resumed"})
+    public String message;
+
+    private String json;
+    private byte[] binary;
+
+    private final MessageJsonParser parser = MessageJsonParser.getInstance();
+    private final MessageBinaryCodec codec = new MessageBinaryCodec();
+    private final Gson gson = new Gson();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Message msg = message.equals("played")
+                ? MessageBinaryCodecTest.someonePlayedCard()
+                : MessageBinaryCodecTest.matchResumed();
+        json = parser.toJson(msg);
+        binary = codec.encode(msg);
+    }
+
+    @Benchmark
+    public Message treeParse() {
+        JsonObject messageObject = JsonParser.parseString(json).getAsJsonObject();
+        String type = messageObject.get("response").getAsString();
+        Class<?> resultClass = Arrays.stream(ResponseMessage.class.getPermittedSubclasses())
+                .filter(a -> type.equals(a.getSimpleName().replace("Message", "")))
+                .findFirst()
+                .orElseThrow();
+        return (Message) gson.fromJson(messageObject, resultClass);
+    }
+
+    @Benchmark
+    public Message streamingParse() {
+        return parser.toMessage(json);
+    }
+
+    @Benchmark
+    public Message binaryDecode() {
+        return codec.decode(binary, 0, binary.length);
+    }
+}
@@ -5,6 +5,7 @@ import it.polimi.ingsw.client.network.NetworkHandler;
 import it.polimi.ingsw.gamemodel.*;
 import it.polimi.ingsw.utils.AvailableMatch;
 import it.polimi.ingsw.utils.LeaderboardEntry;
+import it.polimi.ingsw.utils.LobbyUpdate;
 import it.polimi.ingsw.utils.Pair;
 import it.polimi.ingsw.utils.RequestStatus;
 
@@ -346,6 +347,28 @@ public abstract class GraphicalView {
         this.availableMatches = availableMatches;
     }
 
+    /**
+     * Receive a change of the available matches, after having subscribed to the lobby
+     * @param update the change of a match
+     */
+    public void lobbyUpdated(LobbyUpdate update) {
+        List<AvailableMatch> matches = new ArrayList<>(this.availableMatches == null ? List.of() : this.availableMatches);
+        matches.removeIf(match -> match.name().equals(update.matchName()));
+        if (!update.isRemoval())
+            matches.add(update.match());
+
+        this.availableMatches = matches;
+        this.availableMatchesChanged(matches);
+    }
+
+    /**
+     * Shows the user the new list of available matches, after a change received from the lobby.
+     * Does nothing by default, views which don't show the matches continuously can ignore the changes
+     * @param availableMatches the list of available matches
+     */
+    protected void availableMatchesChanged(List<AvailableMatch> availableMatches) {
+    }
+
     /**
      * Give the user its initial card.
      *
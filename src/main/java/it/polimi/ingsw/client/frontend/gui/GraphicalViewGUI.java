@@ -469,6 +469,11 @@ public class GraphicalViewGUI extends GraphicalView {
     @Override
     public void receiveAvailableMatches(List<AvailableMatch> availableMatches) {
         super.receiveAvailableMatches(availableMatches);
+        this.availableMatchesChanged(availableMatches);
+    }
+
+    @Override
+    protected void availableMatchesChanged(List<AvailableMatch> availableMatches) {
         lastAvailableMatches = availableMatches;
         Platform.runLater(() -> lobbySceneController.updateMatches(availableMatches));
     }
@@ -479,7 +484,9 @@ public class GraphicalViewGUI extends GraphicalView {
      */
     public void setLobbySceneController(LobbySceneController lobbySceneController) {
         this.lobbySceneController = lobbySceneController;
-        this.getAvailableMatches();
+        // The lobby receives the matches once, then only their changes
+        this.setLastRequestStatus(RequestStatus.PENDING);
+        this.networkHandler.subscribeLobby();
     }
 
     /**
@@ -5,17 +5,14 @@ import it.polimi.ingsw.controllers.PlayerController;
 import it.polimi.ingsw.gamemodel.*;
 import it.polimi.ingsw.server.Server;
 import it.polimi.ingsw.utils.AvailableMatch;
+import it.polimi.ingsw.utils.HeartbeatWheel;
 import it.polimi.ingsw.utils.LeaderboardEntry;
+import it.polimi.ingsw.utils.LobbyUpdate;
 import it.polimi.ingsw.utils.Pair;
 
 import java.time.Duration;
-import java.time.temporal.Temporal;
-import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Class used by a generic client to receive from and transmit to a remote {@link Server} instance and a
@@ -23,12 +20,15 @@ import java.util.concurrent.TimeUnit;
  * It represents an abstract layer, being implemented by: {@link NetworkHandlerRMI} and {@link NetworkHandlerTCP}.
  */
 public abstract class NetworkHandler implements RemoteViewInterface {
+    private static final Duration PING_INTERVAL = Duration.ofSeconds(2);
+    private static final Duration PING_TIMEOUT = Duration.ofSeconds(10);
+
     protected final GraphicalView graphicalView;
     protected String username;
     protected final String ipAddress;
     protected final int port;
     protected boolean connected = false;
-    protected Temporal lastPing;
+    private volatile HeartbeatWheel.Heartbeat heartbeat;
 
     /**
      * Initialize the instance all its internal attributes.
@@ -47,29 +47,41 @@ public abstract class NetworkHandler implements RemoteViewInterface {
      * Periodically check the connection status
      */
     public void startConnectionCheck() {
-        // Create a thread pool of 1 thread
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
-
-        Runnable pingServer = () -> {
-            if (!connected) {
-                // If the connection lost is already acknowledged, shutdown the executor
-                executor.shutdown();
-
-            } else {
-                Temporal now = Calendar.getInstance().getTime().toInstant();
+        if (heartbeat != null)
+            heartbeat.cancel();
+
+        // Ping every two seconds, the connection is lost if no ping succeeds for ten seconds
+        heartbeat = HeartbeatWheel.getInstance().watch(PING_TIMEOUT, PING_INTERVAL, () -> {
+            if (!connected)
+                // If the connection lost is already acknowledged, stop checking
+                stopConnectionCheck();
+            else
                 ping();
-                if (Duration.between(lastPing, now).toMillis() > 10000) {
-                    // If there is a connection error, notify the client and shutdown the executor
-                    disconnect();
-                    graphicalView.notifyConnectionLost();
-                    executor.shutdown();
-                }
+        }, () -> {
+            if (connected) {
+                disconnect();
+                graphicalView.notifyConnectionLost();
             }
-        };
+        });
+        heartbeat.beat();
+    }
+
+    /**
+     * Records that the server answered a ping, so the connection is still alive.
+     */
+    protected void pongReceived() {
+        HeartbeatWheel.Heartbeat current = heartbeat;
+        if (current != null)
+            current.beat();
+    }
 
-        // Check every two second for connectivity
-        lastPing = Calendar.getInstance().getTime().toInstant();
-        executor.scheduleAtFixedRate(pingServer, 0, 2, TimeUnit.SECONDS);
+    /**
+     * Stops checking the connection status.
+     */
+    private void stopConnectionCheck() {
+        HeartbeatWheel.Heartbeat current = heartbeat;
+        if (current != null)
+            current.cancel();
     }
 
     /**
@@ -86,6 +98,13 @@ public abstract class NetworkHandler implements RemoteViewInterface {
      */
     public abstract void getAvailableMatches();
 
+    /**
+     * Asks to receive the available matches and then every change to them, until a match is joined.
+     * The matches are received through {@link #receiveAvailableMatches(List)}, the changes through
+     * {@link #lobbyUpdated(LobbyUpdate)}.
+     */
+    public abstract void subscribeLobby();
+
     /**
      * Checks for connectivity.
      *
@@ -108,6 +127,13 @@ public abstract class NetworkHandler implements RemoteViewInterface {
      */
     public abstract void joinMatch(String matchName);
 
+    /**
+     * Asks to fill a seat of a match with a bot, played by the server.
+     *
+     * @param matchName the match's name
+     */
+    public abstract void addBot(String matchName);
+
     /**
      * Draws an initial card for the player.
      */
@@ -186,6 +212,15 @@ public abstract class NetworkHandler implements RemoteViewInterface {
         graphicalView.receiveAvailableMatches(availableMatches);
     }
 
+    /**
+     * Receives a change of the available matches.
+     *
+     * @param update The change of a match
+     */
+    public void lobbyUpdated(LobbyUpdate update) {
+        graphicalView.lobbyUpdated(update);
+    }
+
     /**
      * Notifies that the match has just started.
      * Furthermore, gives to the receiving object all the information (parameters) needed to show to the current match
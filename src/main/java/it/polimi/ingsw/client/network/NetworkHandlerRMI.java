@@ -5,8 +5,6 @@ import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
-import java.time.temporal.Temporal;
-import java.util.Calendar;
 import java.util.List;
 import it.polimi.ingsw.client.frontend.GraphicalView;
 import it.polimi.ingsw.controllers.PlayerController;
@@ -53,6 +51,32 @@ public class NetworkHandlerRMI extends NetworkHandler {
         }
     }
 
+    /**
+     * Exports this object, so that the server can call it, only if it was not previously exported.
+     *
+     * @throws RemoteException If the object could not be exported
+     */
+    private void export() throws RemoteException {
+        if (!exported) {
+            UnicastRemoteObject.exportObject(this, 0);
+            exported = true;
+        }
+    }
+
+    /**
+     * Stops receiving the lobby changes, if subscribed.
+     */
+    private void stopLobbyUpdates() {
+        if (!exported)
+            return;
+
+        try {
+            server.unsubscribeLobby(this);
+        } catch (RemoteException e) {
+            // The server will drop the subscription by itself once it can't reach this view
+        }
+    }
+
     /**
      * Asks the server to send a list of {@link AvailableMatch}.
      */
@@ -66,6 +90,19 @@ public class NetworkHandlerRMI extends NetworkHandler {
         }
     }
 
+    /**
+     * Asks the server to send the available matches and then every change to them.
+     */
+    @Override
+    public void subscribeLobby() {
+        try {
+            this.export();
+            server.subscribeLobby(this);
+        } catch (Exception e) {
+            this.graphicalView.notifyError(e);
+        }
+    }
+
     /**
      * Asks to join a match.
      *
@@ -75,12 +112,9 @@ public class NetworkHandlerRMI extends NetworkHandler {
     public void joinMatch(String matchName) {
         try {
             controller = server.joinMatch(matchName, this.username);
+            this.stopLobbyUpdates();
 
-            // Export the object only if it was not previously exported
-            if (!exported) {
-                UnicastRemoteObject.exportObject(this, 0);
-                exported = true;
-            }
+            this.export();
             controller.registerView(this);
         } catch (Exception e) {
             this.graphicalView.notifyError(e);
@@ -103,6 +137,20 @@ public class NetworkHandlerRMI extends NetworkHandler {
         }
     }
 
+    /**
+     * Asks to fill a seat of a match with a bot, played by the server.
+     *
+     * @param matchName the match's name
+     */
+    @Override
+    public void addBot(String matchName) {
+        try {
+            server.addBot(matchName);
+        } catch (Exception e) {
+            this.graphicalView.notifyError(e);
+        }
+    }
+
     /**
      * Draws an initial card for the player.
      */
@@ -231,7 +279,7 @@ public class NetworkHandlerRMI extends NetworkHandler {
     public boolean ping() {
         try {
             controller.ping();
-            super.lastPing = Calendar.getInstance().getTime().toInstant();
+            this.pongReceived();
             return true;
         } catch (RemoteException e) {
             return false;
@@ -3,7 +3,6 @@ package it.polimi.ingsw.client.network;
 import java.io.IOException;
 import java.net.Socket;
 import java.rmi.RemoteException;
-import java.util.Calendar;
 
 import it.polimi.ingsw.client.frontend.GraphicalView;
 import it.polimi.ingsw.controllers.PlayerControllerTCP;
@@ -11,21 +10,28 @@ import it.polimi.ingsw.gamemodel.DrawSource;
 import it.polimi.ingsw.gamemodel.Objective;
 import it.polimi.ingsw.gamemodel.PlayableCard;
 import it.polimi.ingsw.gamemodel.Side;
+import it.polimi.ingsw.network.messages.HeartbeatMessage;
 import it.polimi.ingsw.network.messages.Message;
 import it.polimi.ingsw.network.messages.actions.*;
 import it.polimi.ingsw.network.tcp.ClientReceiver;
+import it.polimi.ingsw.network.tcp.ConnectionThreadMode;
 import it.polimi.ingsw.network.tcp.IOHandler;
+import it.polimi.ingsw.network.tcp.WireFormat;
 import it.polimi.ingsw.server.Server;
 import it.polimi.ingsw.utils.AvailableMatch;
 import it.polimi.ingsw.utils.Pair;
 
 /**
  * Class used by a generic client to receive from and transmit to a remote {@link Server} instance
- * and a remote {@link PlayerControllerTCP} instance using the TCP protocol.
+ * and a remote {@link PlayerControllerTCP} instance using the TCP protocol. The messages are sent
+ * in the {@link WireFormat} chosen through the {@value WireFormat#PROPERTY} system property, if the
+ * server accepts it.
  */
 public class NetworkHandlerTCP extends NetworkHandler {
     private final IOHandler io;
     private final Socket socket;
+    // Sequence number of the last match event received, only written by the receiver thread
+    private volatile Long lastSequence;
 
     /**
      * Initialize the instance all its internal attributes.
@@ -41,7 +47,8 @@ public class NetworkHandlerTCP extends NetworkHandler {
         super(graphicalView, ipAddress, port);
         this.socket = new Socket(ipAddress, port);
         this.io = new IOHandler(socket);
-        new Thread(new ClientReceiver(this, socket)).start();
+        this.io.negotiate(WireFormat.fromSystemProperty());
+        ConnectionThreadMode.fromSystemProperty().start("tcp-receiver", new ClientReceiver(this, socket));
         connected = true;
     }
 
@@ -80,6 +87,14 @@ public class NetworkHandlerTCP extends NetworkHandler {
         this.sendMessage(new GetAvailableMatchesMessage(this.username));
     }
 
+    /**
+     * Asks the server to send the available matches and then every change to them.
+     */
+    @Override
+    public void subscribeLobby() {
+        this.sendMessage(new SubscribeLobbyMessage(this.username));
+    }
+
     /**
      * Asks to create a match.
      *
@@ -101,6 +116,47 @@ public class NetworkHandlerTCP extends NetworkHandler {
         this.sendMessage(new JoinMatchMessage(this.username, matchName));
     }
 
+    /**
+     * Asks to rejoin a match after the connection has been lost, so that the server sends only the
+     * events following the given one, if it still has them, instead of the whole match state.
+     *
+     * @param matchName the match's name
+     * @param lastSequence the sequence number of the last match event received by the previous
+     *        connection (see {@link #getLastSequence()}), null if unknown
+     */
+    public void rejoinMatch(String matchName, Long lastSequence) {
+        this.sendMessage(new JoinMatchMessage(this.username, matchName, lastSequence));
+    }
+
+    /**
+     * Gets the sequence number of the last match event received, to be given to
+     * {@link #rejoinMatch(String, Long)} when the connection is lost.
+     *
+     * @return The sequence number of the last match event, null if none has been received
+     */
+    public Long getLastSequence() {
+        return this.lastSequence;
+    }
+
+    /**
+     * Records the sequence number of the last match event received.
+     *
+     * @param lastSequence The sequence number of the match event
+     */
+    public void setLastSequence(Long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
+    /**
+     * Asks to fill a seat of a match with a bot, played by the server.
+     *
+     * @param matchName the match's name
+     */
+    @Override
+    public void addBot(String matchName) {
+        this.sendMessage(new AddBotMessage(this.username, matchName));
+    }
+
     /**
      * Draws an initial card for the player.
      */
@@ -196,7 +252,7 @@ public class NetworkHandlerTCP extends NetworkHandler {
     @Override
     public boolean ping() {
         try {
-            io.writeMsg("ping");
+            io.writeMsg(HeartbeatMessage.PING);
             return true;
         } catch (IOException e) {
             return false;
@@ -207,7 +263,7 @@ public class NetworkHandlerTCP extends NetworkHandler {
      * Confirm that the ping was successful
      */
     public void pong() {
-        this.lastPing = Calendar.getInstance().getTime().toInstant();
+        this.pongReceived();
     }
 
     /**
@@ -3,6 +3,7 @@ package it.polimi.ingsw.client.network;
 import it.polimi.ingsw.gamemodel.*;
 import it.polimi.ingsw.utils.AvailableMatch;
 import it.polimi.ingsw.utils.LeaderboardEntry;
+import it.polimi.ingsw.utils.LobbyUpdate;
 import it.polimi.ingsw.utils.Pair;
 
 import java.rmi.Remote;
@@ -67,6 +68,15 @@ public interface RemoteViewInterface extends Remote {
      */
     void receiveAvailableMatches(List<AvailableMatch> availableMatches) throws RemoteException;
 
+    /**
+     * Receives a change of the available matches, after they've been received through
+     * {@link #receiveAvailableMatches(List)} because of a lobby subscription.
+     *
+     * @param update The change of a match
+     * @throws RemoteException If the remote view is not reachable any more
+     */
+    void lobbyUpdated(LobbyUpdate update) throws RemoteException;
+
     /**
      * Gives to the receiving graphical view (the client) its initial card.
      *
@@ -5,19 +5,20 @@ import it.polimi.ingsw.exceptions.ChosenMatchException;
 import it.polimi.ingsw.exceptions.WrongNameException;
 import it.polimi.ingsw.exceptions.WrongStateException;
 import it.polimi.ingsw.gamemodel.Match;
+import it.polimi.ingsw.gamemodel.MatchCommand;
+import it.polimi.ingsw.gamemodel.MatchEventDispatcher;
+import it.polimi.ingsw.gamemodel.MatchMailbox;
 import it.polimi.ingsw.gamemodel.MatchObserver;
 import it.polimi.ingsw.gamemodel.Player;
 import it.polimi.ingsw.utils.GuiUtil;
+import it.polimi.ingsw.utils.HeartbeatWheel;
 
 import java.rmi.RemoteException;
 import java.time.Duration;
-import java.time.temporal.Temporal;
-import java.util.Calendar;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Controller for a match player, the only agent needing a view and so a controller in this
@@ -29,10 +30,24 @@ import java.util.concurrent.TimeUnit;
  * {@link #PlayerController(String, Match)}; this is needed to allow this class to behave as a
  * bridge between a view and a match.
  */
-public abstract sealed class PlayerController implements MatchObserver permits PlayerControllerRMI, PlayerControllerTCP {
+public abstract sealed class PlayerController implements MatchObserver permits PlayerControllerBot, PlayerControllerRMI, PlayerControllerTCP {
+    // Time without pings after which the remote view is considered disconnected
+    private static final Duration PING_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Name of the system property setting the seconds a disconnected player has to rejoin a started match before
+     * being removed from it, 0 to remove the player right away.
+     */
+    public static final String RECONNECT_GRACE_PROPERTY = "reconnect.grace";
+    private static final Duration RECONNECT_GRACE = Duration.ofSeconds(Long.getLong(RECONNECT_GRACE_PROPERTY, 30));
+
+    // Disconnected players waiting to rejoin their match, with the time they have left
+    private static final Map<Player, HeartbeatWheel.Heartbeat> reconnectDeadlines = new ConcurrentHashMap<>();
+
     protected Player player;
     protected final Match match;
-    private Temporal lastPing;
+    private final HeartbeatWheel.Heartbeat heartbeat;
+    private final AtomicBoolean connectionLost = new AtomicBoolean();
 
     /**
      * Instantiates the internal Player with the given username and sets the internal Match reference to
@@ -43,22 +58,24 @@ public abstract sealed class PlayerController implements MatchObserver permits P
      * @param match    The match to which this PlayerClass must pertain
      */
     public PlayerController(String username, Match match) {
+        this(username, match, true);
+    }
+
+    /**
+     * Instantiates the internal Player with the given username and sets the internal Match reference to
+     * the given one, optionally checking the connection with the remote view.
+     *
+     * @param username        The username of the new player of the Match
+     * @param match           The match to which this PlayerClass must pertain
+     * @param watchConnection Whether the player should be removed when the remote view stops pinging
+     */
+    protected PlayerController(String username, Match match, boolean watchConnection) {
         this.player = new Player(username, match);
         this.match = match;
 
-        // Check periodically if the connection with the remote view (NetworkHandler) is still alive
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
-
-        Runnable checkConnectivity = () -> {
-            Temporal now = Calendar.getInstance().getTime().toInstant();
-
-            if (lastPing != null && Duration.between(lastPing, now).toMillis() > 10000) {
-                match.removePlayer(player);
-                executor.shutdown();
-            }
-        };
-
-        executor.scheduleAtFixedRate(checkConnectivity, 0, 5, TimeUnit.SECONDS);
+        // The player is disconnected if the remote view (NetworkHandler) stops pinging
+        this.heartbeat = !watchConnection ? null : HeartbeatWheel.getInstance().watch(PING_TIMEOUT,
+                this::connectionLost);
     }
 
     /**
@@ -81,6 +98,44 @@ public abstract sealed class PlayerController implements MatchObserver permits P
      * @throws IllegalArgumentException     If the player is already in the match or too many players would be in the match
      */
     public void sendJoined() throws IllegalArgumentException, AlreadyUsedUsernameException, WrongStateException, ChosenMatchException, WrongNameException {
+        sendJoined(null);
+    }
+
+    /**
+     * Tries to effectively join a match, like {@link #sendJoined()}. When rejoining the match, the view is notified
+     * only of the events following the given one, if they're still kept by the match, instead of the whole match
+     * state.
+     *
+     * @param lastSequence The sequence number of the last match event received by the view, null if unknown
+     * @throws AlreadyUsedUsernameException If the username is already taken
+     * @throws WrongStateException          If the match currently does not accept new players
+     * @throws ChosenMatchException         If the chosen match is not valid
+     * @throws WrongNameException           If the chosen username is not acceptable due to alphabetical restrictions
+     * @throws IllegalArgumentException     If the player is already in the match or too many players would be in the match
+     */
+    public void sendJoined(Long lastSequence) throws IllegalArgumentException, AlreadyUsedUsernameException, WrongStateException, ChosenMatchException, WrongNameException {
+        boolean joined = false;
+        try {
+            this.join(lastSequence);
+            joined = true;
+        } finally {
+            // A rejected controller is dropped by its caller, so it mustn't be disconnected when the pings stop
+            if (!joined)
+                this.stopWatchingConnection();
+        }
+    }
+
+    /**
+     * Adds this controller and its player to the match, or rejoins the match, see {@link #sendJoined(Long)}.
+     *
+     * @param lastSequence The sequence number of the last match event received by the view, null if unknown
+     * @throws AlreadyUsedUsernameException If the username is already taken
+     * @throws WrongStateException          If the match currently does not accept new players
+     * @throws ChosenMatchException         If the chosen match is not valid
+     * @throws WrongNameException           If the chosen username is not acceptable due to alphabetical restrictions
+     * @throws IllegalArgumentException     If the player is already in the match or too many players would be in the match
+     */
+    private void join(Long lastSequence) throws IllegalArgumentException, AlreadyUsedUsernameException, WrongStateException, ChosenMatchException, WrongNameException {
         if (!GuiUtil.isValidName(this.player.getUsername())) {
             throw new WrongNameException("The match name must be alphanumeric with maximum 32 characters");
         }
@@ -89,7 +144,7 @@ public abstract sealed class PlayerController implements MatchObserver permits P
         }
 
         try {
-            synchronized (match) {
+            this.perform(() -> {
                 if (!match.isRejoinable()) {
                     match.subscribeObserver(this);
                     match.addPlayer(this.player);
@@ -102,25 +157,96 @@ public abstract sealed class PlayerController implements MatchObserver permits P
                             .findFirst();
                     if (playerOptional.isPresent()) {
                         player = playerOptional.get();
-                        player.setConnected(true);
-                        match.subscribeObserver(this);
-                        this.matchResumed();
+                        HeartbeatWheel.Heartbeat deadline = reconnectDeadlines.remove(player);
+                        if (deadline != null)
+                            deadline.cancel();
+
+                        match.rejoinPlayer(player);
+                        // The mailbox holds the match lock, so no event can be missed between the two
+                        if (!match.resumeObserver(this, lastSequence))
+                            this.matchResumed();
                     } else {
                         throw new WrongStateException("There is no disconnected player with this username");
                     }
                 }
-            }
+                return null;
+            });
         } catch (AlreadyUsedUsernameException | IllegalArgumentException e) {
             match.unsubscribeObserver(this);
             throw e;
+        } catch (WrongStateException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Unexpected failure while joining the match", e);
         }
     }
 
     /**
-     * Notifies the view that match has resumed after a server crash.
+     * Runs a command on the mailbox of the match (see {@link MatchMailbox}) and waits for it, so that the command
+     * doesn't contend with the other players' ones. Callers rethrow the exceptions they declare.
+     *
+     * @param command The command to run
+     * @param <T>     The type of the command result
+     * @return The result of the command
+     * @throws Exception The exception thrown by the command
+     */
+    protected <T> T perform(MatchCommand<T> command) throws Exception {
+        return match.getMailbox().call(command);
+    }
+
+    /**
+     * Notifies the view of the whole match state, when it rejoins the match after a server crash or a disconnection.
+     * Note: Called by the match mailbox, holding the match lock, so implementations only copy the state there and
+     * send it through the {@link MatchEventDispatcher}, never blocking the mailbox threads
+     * on the remote view.
      */
     public abstract void matchResumed();
 
+    /**
+     * Handles the loss of the connection with the remote view: this controller isn't notified anymore and, if the
+     * match is being played, the player has some time to rejoin it (see {@value #RECONNECT_GRACE_PROPERTY}), after
+     * which the player is removed. Otherwise the player is removed right away. Only the first call has effect.
+     */
+    public void connectionLost() {
+        if (!connectionLost.compareAndSet(false, true))
+            return;
+
+        this.stopWatchingConnection();
+        match.unsubscribeObserver(this);
+        Player lost = player;
+        match.getMailbox().submit(() -> {
+            if (RECONNECT_GRACE.isZero() || !match.disconnectPlayer(lost))
+                match.removePlayer(lost);
+            else
+                awaitReconnection(lost);
+            return null;
+        });
+    }
+
+    /**
+     * Removes a disconnected player from the match, unless it rejoins the match in time.
+     *
+     * @param lost The disconnected player
+     */
+    private void awaitReconnection(Player lost) {
+        HeartbeatWheel.Heartbeat[] deadline = new HeartbeatWheel.Heartbeat[1];
+        deadline[0] = HeartbeatWheel.getInstance().watch(RECONNECT_GRACE, () -> {
+            // Not removed if the player rejoined in the meantime
+            if (reconnectDeadlines.remove(lost, deadline[0]))
+                match.getMailbox().submit(() -> {
+                    if (!lost.isConnected())
+                        match.removePlayer(lost);
+                    return null;
+                });
+        });
+
+        HeartbeatWheel.Heartbeat previous = reconnectDeadlines.put(lost, deadline[0]);
+        if (previous != null)
+            previous.cancel();
+        // The time is counted from now
+        deadline[0].beat();
+    }
+
     /**
      * Pings the remote controller in order to perceive if the connection is still alive and working.
      * Always return true, since the false is implicit when returning a {@link RemoteException}
@@ -129,8 +255,17 @@ public abstract sealed class PlayerController implements MatchObserver permits P
      * @return True if the connection is alive, false otherwise
      */
     public boolean ping() {
-        lastPing = Calendar.getInstance().getTime().toInstant();
+        if (heartbeat != null)
+            heartbeat.beat();
 
         return true;
     }
+
+    /**
+     * Stops checking the connection with the remote view, e.g. because it has already been closed.
+     */
+    protected void stopWatchingConnection() {
+        if (heartbeat != null)
+            heartbeat.cancel();
+    }
 }
@@ -0,0 +1,234 @@
+package it.polimi.ingsw.controllers;
+
+import it.polimi.ingsw.exceptions.WrongChoiceException;
+import it.polimi.ingsw.exceptions.WrongStateException;
+import it.polimi.ingsw.exceptions.WrongTurnException;
+import it.polimi.ingsw.gamemodel.*;
+import it.polimi.ingsw.simulation.BotPolicy;
+import it.polimi.ingsw.simulation.MovePolicy;
+import it.polimi.ingsw.utils.Pair;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Subclass of {@link PlayerController} whose player is played by the server itself, used to fill the empty seats of a
+ * match (see {@link it.polimi.ingsw.server.Server#addBot(String)}).
+ * The bot has no view: it reacts to the match events, and when it's its turn it chooses what to do through a
+ * {@link BotPolicy}. Choosing a move happens on a pool shared by all the bots of the server and never holds the match
+ * lock, which is only taken to read the state of the match and to perform the chosen action; the time spent choosing
+ * a move is bounded, so that many bots can play on the same server.
+ * If the match rejects a move or a draw source, the bot tries the other ones; if it can't act at all, it leaves the
+ * match, since no one else could go on while it's the turn of the bot.
+ */
+public final class PlayerControllerBot extends PlayerController {
+    // Pool shared by all the bots, sized on the cores so that thinking bots never starve the other threads
+    private static final ForkJoinPool thinkers = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+
+    private final MovePolicy policy;
+    private final SplittableRandom random;
+    // Wake ups not handled yet: a bot acts on a single thread at a time, the one that found it at 0
+    private final AtomicInteger wakeUps;
+
+    /**
+     * Instantiates the internal Player with the given username and sets the internal Match reference to the given one.
+     * The bot joins the match calling {@link #sendJoined()}.
+     *
+     * @param username The username of the bot
+     * @param match    The match to which the bot must pertain
+     * @param budget   The maximum time spent choosing a move
+     */
+    public PlayerControllerBot(String username, Match match, Duration budget) {
+        this(username, match, new BotPolicy(match, budget));
+    }
+
+    /**
+     * Instantiates a bot choosing through the given policy.
+     * Note: Only used by tests, the bots of the server always use a {@link BotPolicy}.
+     *
+     * @param username The username of the bot
+     * @param match    The match to which the bot must pertain
+     * @param policy   The policy making the choices of the bot
+     */
+    PlayerControllerBot(String username, Match match, MovePolicy policy) {
+        super(username, match, false);
+
+        this.policy = policy;
+        this.random = new SplittableRandom();
+        this.wakeUps = new AtomicInteger();
+    }
+
+    /**
+     * Schedules the bot to check whether it has something to do, unless it's already running.
+     */
+    private void wakeUp() {
+        if (wakeUps.getAndIncrement() == 0)
+            thinkers.execute(this::play);
+    }
+
+    /**
+     * Performs actions until the bot has nothing left to do, then checks whether it has been woken up meanwhile.
+     */
+    private void play() {
+        int handled;
+
+        do {
+            handled = wakeUps.get();
+            try {
+                while (step()) ;
+            } catch (Exception e) {
+                System.err.println("Bot " + player.getUsername() + " failed to play, leaving the match: " + e.getMessage());
+                leave();
+                return;
+            }
+        } while (wakeUps.addAndGet(-handled) != 0);
+    }
+
+    /**
+     * Removes the bot from the match, which otherwise would wait for it forever: a bot has no connection, so it's
+     * never given time to rejoin.
+     */
+    private void leave() {
+        match.unsubscribeObserver(this);
+        match.getMailbox().submit(() -> {
+            match.removePlayer(player);
+            return null;
+        });
+    }
+
+    /**
+     * Performs the next action of the bot, if it's its turn. The actions needing no thought are run right away by the
+     * match mailbox, while the placement of a card is chosen outside of it: while it's the turn of the bot, no one else
+     * can change its board or its hand. A rejected move or draw source is replaced by another one.
+     *
+     * @return true if an action was performed, false if the bot has nothing to do
+     * @throws Exception if the match rejected every possible action or if a card of unknown type was found while
+     *                   choosing the placement
+     */
+    private boolean step() throws Exception {
+        // null if the bot has to place a card
+        Boolean acted = this.perform(() -> {
+            if (match.isFinished() || !player.equals(match.getCurrentPlayer()))
+                return false;
+
+            MatchState state = match.getCurrentState();
+            if (state instanceof AfterMoveState) {
+                List<DrawSource> sources = new ArrayList<>(match.getAvailableDrawSources());
+                for (int attempts = sources.size(); attempts > 0; attempts--) {
+                    DrawSource source = policy.chooseDrawSource(match, player, sources, random);
+                    try {
+                        player.drawCard(source);
+                        return true;
+                    } catch (WrongChoiceException e) {
+                        sources.remove(source);
+                    }
+                }
+                throw new WrongChoiceException("No draw source has been accepted");
+            }
+            if (!(state instanceof NextTurnState))
+                return false;
+
+            if (!match.isInitialTurnFinished()) {
+                InitialCard card = player.drawInitialCard();
+                player.chooseInitialCardSide(policy.chooseInitialSide(player, card, random));
+                return true;
+            }
+            if (!match.isStarted()) {
+                Pair<Objective, Objective> objectives = player.drawSecretObjectives();
+                player.chooseSecretObjective(policy.chooseSecretObjective(player, objectives, random));
+                return true;
+            }
+            return null;
+        });
+        if (acted != null)
+            return acted;
+
+        List<PlacementMove> moves = new ArrayList<>(
+                player.getBoard().legalMoves(List.copyOf(player.getBoard().getCurrentHand())));
+        // Each attempt discards the rejected move, so that the next one is chosen among the others
+        for (int attempts = moves.size(); attempts > 0; attempts--) {
+            PlacementMove move = policy.chooseMove(player, moves, random);
+            try {
+                this.perform(() -> {
+                    player.playCard(move.coords(), move.card(), move.side());
+                    return null;
+                });
+                return true;
+            } catch (WrongChoiceException e) {
+                moves.remove(move);
+            } catch (WrongTurnException | WrongStateException e) {
+                // The match went on meanwhile (e.g. someone quit), the next event wakes the bot up again
+                return false;
+            }
+        }
+        throw new WrongChoiceException("No move has been accepted");
+    }
+
+    /**
+     * A bot can't be resumed after a server crash, since it has no view to reconnect: its player stays disconnected.
+     */
+    @Override
+    public void matchResumed() {
+    }
+
+    @Override
+    public void matchStarted() {
+        wakeUp();
+    }
+
+    @Override
+    public void someoneJoined(Player someone) {
+    }
+
+    @Override
+    public void someoneQuit(Player someone) {
+        if (someone.equals(player))
+            match.unsubscribeObserver(this);
+    }
+
+    @Override
+    public void someoneDrewInitialCard(Player someone, InitialCard card) {
+    }
+
+    @Override
+    public void someoneSetInitialSide(Player someone, Side side, Map<Symbol, Integer> availableResources) {
+        wakeUp();
+    }
+
+    @Override
+    public void someoneDrewSecretObjective(Player someone, Pair<Objective, Objective> objectives) {
+    }
+
+    @Override
+    public void someoneChoseSecretObjective(Player someone, Objective objective) {
+        wakeUp();
+    }
+
+    @Override
+    public void someonePlayedCard(Player someone, Pair<Integer, Integer> coords, PlayableCard card, Side side) {
+    }
+
+    @Override
+    public void someoneDrewCard(Player someone, DrawSource source, PlayableCard card, PlayableCard replacementCard) {
+        wakeUp();
+    }
+
+    @Override
+    public void someoneSentBroadcastText(Player someone, String text) {
+    }
+
+    @Override
+    public void someoneSentPrivateText(Player someone, Player recipient, String text) {
+    }
+
+    @Override
+    public void matchFinished() {
+        match.unsubscribeObserver(this);
+    }
+}
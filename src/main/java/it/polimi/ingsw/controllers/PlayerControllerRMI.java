@@ -36,7 +36,7 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
     }
 
     /**
-     * Notifies the view that match has resumed after a server crash.
+     * Notifies the view of the whole match state, when it rejoins the match after a server crash or a disconnection.
      */
     @Override
     public void matchResumed() {
@@ -45,7 +45,7 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
         } else {
             // Get visible objectives, visible playable cards and visible decks top reigns
             Pair<Objective, Objective> visibleObjectives = match.getVisibleObjectives();
-            Map<DrawSource, PlayableCard> visiblePlayableCards = match.getVisiblePlayableCards();
+            Map<DrawSource, PlayableCard> visiblePlayableCards = new HashMap<>(match.getVisiblePlayableCards());
             Pair<Symbol, Symbol> decksTopReigns = match.getDecksTopReigns();
 
             // Create a map that matches each pawn colour to the corresponding player's username
@@ -66,18 +66,27 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
             // Fill the maps with proper values
             for (Player p : match.getPlayers()) {
                 playersUsernamesAndPawns.put(p.getUsername(), p.getPawnColor());
-                playersHands.put(p.getUsername(), p.getBoard().getCurrentHand());
+                playersHands.put(p.getUsername(), List.copyOf(p.getBoard().getCurrentHand()));
                 availableResources.put(p.getUsername(), p.getBoard().getAvailableResources());
                 playerPoints.put(p.getUsername(), p.getPoints());
-                playerBoards.put(p.getUsername(), p.getBoard().getPlacedCards());
+                playerBoards.put(p.getUsername(), new HashMap<>(p.getBoard().getPlacedCards()));
             }
 
-            try {
-                view.matchResumed(playersUsernamesAndPawns, playersHands, visibleObjectives, visiblePlayableCards, decksTopReigns,
-                        player.getSecretObjective(), availableResources, playerBoards, playerPoints, match.getCurrentPlayer().getUsername(), match.getCurrentState().getClass().equals(AfterMoveState.class));
-            } catch (RemoteException e) {
-                onConnectionError();
-            }
+            Objective secretObjective = player.getSecretObjective();
+            String currentPlayer = match.getCurrentPlayer().getUsername();
+            boolean drawPhase = match.getCurrentState().getClass().equals(AfterMoveState.class);
+
+            // Called while holding the match lock: the state is copied now, so that it's notified before any later
+            // match event, but the remote call is made by the dispatcher, without holding the lock
+            MatchEventDispatcher.getInstance().dispatch(this, observer -> {
+                try {
+                    view.matchResumed(playersUsernamesAndPawns, playersHands, visibleObjectives, visiblePlayableCards,
+                            decksTopReigns, secretObjective, availableResources, playerBoards, playerPoints,
+                            currentPlayer, drawPhase);
+                } catch (RemoteException e) {
+                    onConnectionError();
+                }
+            });
         }
     }
 
@@ -101,7 +110,7 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
 
     /**
      * Draws an initial card for the player. Since this is done through RMI, it just involves a call to
-     * {@link Player#drawInitialCard()}.
+     * {@link Player#drawInitialCard()}, run by the match mailbox.
      * Note that this method is supposed to be called by a view.
      *
      * @throws WrongStateException If the current match state doesn't allow drawing an initial card
@@ -109,12 +118,12 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
      */
     @Override
     public void drawInitialCard() throws WrongStateException, WrongTurnException, RemoteException {
-        player.drawInitialCard();
+        match.getMailbox().call(() -> player.drawInitialCard(), WrongStateException.class, WrongTurnException.class);
     }
 
     /**
      * Communicates the chosen initial card side. Since this is done through RMI, it just involves a call to
-     * {@link Player#chooseInitialCardSide(Side)}.
+     * {@link Player#chooseInitialCardSide(Side)}, run by the match mailbox.
      * Note that this method is supposed to be called by a view.
      *
      * @param side The side on which play the initial card drawn using {@link #drawInitialCard()}
@@ -123,12 +132,15 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
      */
     @Override
     public void chooseInitialCardSide(Side side) throws WrongStateException, WrongTurnException, RemoteException {
-        player.chooseInitialCardSide(side);
+        match.getMailbox().call(() -> {
+            player.chooseInitialCardSide(side);
+            return null;
+        }, WrongStateException.class, WrongTurnException.class);
     }
 
     /**
      * Draws two secret objectives. Since this is done through RMI, it just involves a call to
-     * {@link Player#drawSecretObjectives()}.
+     * {@link Player#drawSecretObjectives()}, run by the match mailbox.
      * Note that this method is supposed to be called by a view.
      *
      * @throws WrongStateException If the current match state doesn't allow drawing secret objectives
@@ -136,12 +148,12 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
      */
     @Override
     public void drawSecretObjectives() throws WrongStateException, WrongTurnException, RemoteException {
-        player.drawSecretObjectives();
+        match.getMailbox().call(() -> player.drawSecretObjectives(), WrongStateException.class, WrongTurnException.class);
     }
 
     /**
      * Communicates the chosen secret objective. Since this is done through RMI, it just involves a call to
-     * {@link Player#chooseSecretObjective(Objective)}.
+     * {@link Player#chooseSecretObjective(Objective)}, run by the match mailbox.
      * Note that this method is supposed to be called by a view.
      *
      * @param objective The chosen objective
@@ -151,12 +163,15 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
      */
     @Override
     public void chooseSecretObjective(Objective objective) throws WrongStateException, WrongTurnException, WrongChoiceException, RemoteException {
-        player.chooseSecretObjective(objective);
+        match.getMailbox().call(() -> {
+            player.chooseSecretObjective(objective);
+            return null;
+        }, WrongStateException.class, WrongTurnException.class, WrongChoiceException.class);
     }
 
     /**
      * Plays a card. Since this is done through RMI, it just involves a call to
-     * {@link Player#playCard(Pair, PlayableCard, Side)}.
+     * {@link Player#playCard(Pair, PlayableCard, Side)}, run by the match mailbox.
      * Note that this method is supposed to be called by a view.
      *
      * @param coords The coordinates on which to place the card
@@ -168,12 +183,15 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
      */
     @Override
     public void playCard(Pair<Integer, Integer> coords, PlayableCard card, Side side) throws WrongStateException, WrongTurnException, WrongChoiceException, RemoteException {
-        player.playCard(coords, card, side);
+        match.getMailbox().call(() -> {
+            player.playCard(coords, card, side);
+            return null;
+        }, WrongStateException.class, WrongTurnException.class, WrongChoiceException.class);
     }
 
     /**
      * Draws a card. Since this is done through RMI, it just involves a call to
-     * {@link Player#drawCard(DrawSource)}.
+     * {@link Player#drawCard(DrawSource)}, run by the match mailbox.
      * Note that this method is supposed to be called by a view.
      *
      * @param source The drawing source to draw the card from
@@ -184,24 +202,30 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
      */
     @Override
     public void drawCard(DrawSource source) throws HandException, WrongStateException, WrongTurnException, WrongChoiceException, RemoteException {
-        player.drawCard(source);
+        match.getMailbox().call(() -> {
+            player.drawCard(source);
+            return null;
+        }, HandException.class, WrongStateException.class, WrongTurnException.class, WrongChoiceException.class);
     }
 
     /**
      * Sends a broadcast in the chat. Since this is done through RMI, it just involves a call to
-     * {@link Player#sendBroadcastText(String)}.
+     * {@link Player#sendBroadcastText(String)}, run by the match mailbox.
      * Note that this method is supposed to be called by a view.
      *
      * @param text Text of the message
      */
     @Override
     public void sendBroadcastText(String text) throws RemoteException {
-        player.sendBroadcastText(text);
+        match.getMailbox().call(() -> {
+            player.sendBroadcastText(text);
+            return null;
+        }, RuntimeException.class);
     }
 
     /**
      * Sends a private message in the chat. Since this is done through RMI, it just involves a call to
-     * {@link Player#sendPrivateText(Player, String)} )}.
+     * {@link Player#sendPrivateText(Player, String)}, run by the match mailbox.
      * Note that this method is supposed to be called by a view.
      *
      * @param recipient username of the recipient
@@ -209,12 +233,13 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
      */
     @Override
     public void sendPrivateText(String recipient, String text) throws RemoteException {
-        if (match.getPlayers().stream().anyMatch(p -> p.getUsername().equals(recipient))) {
-            Player p = match.getPlayers().stream()
-                    .filter(pl -> pl.getUsername().equals(recipient))
-                    .toList().getFirst();
-            player.sendPrivateText(p, text);
-        }
+        match.getMailbox().call(() -> {
+            match.getPlayers().stream()
+                    .filter(p -> p.getUsername().equals(recipient))
+                    .findFirst()
+                    .ifPresent(p -> player.sendPrivateText(p, text));
+            return null;
+        }, RuntimeException.class);
     }
 
     /**
@@ -525,11 +550,11 @@ public final class PlayerControllerRMI extends PlayerController implements Playe
     }
 
     /**
-     * Removes the player linked to this PlayerControllerRMI instance when there's a connection error.
+     * Disconnects the player linked to this PlayerControllerRMI instance when there's a connection error, the player
+     * can rejoin the match for a while (see {@link PlayerController#connectionLost()}).
      */
     private void onConnectionError() {
-        match.unsubscribeObserver(this);
-        match.removePlayer(player);
+        this.connectionLost();
     }
 
     /**
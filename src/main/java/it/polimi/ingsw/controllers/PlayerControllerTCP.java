@@ -3,6 +3,7 @@ package it.polimi.ingsw.controllers;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import it.polimi.ingsw.exceptions.HandException;
 import it.polimi.ingsw.exceptions.WrongChoiceException;
@@ -12,16 +13,28 @@ import it.polimi.ingsw.gamemodel.*;
 import it.polimi.ingsw.network.messages.Message;
 import it.polimi.ingsw.network.messages.errors.ErrorMessage;
 import it.polimi.ingsw.network.messages.responses.*;
+import it.polimi.ingsw.network.tcp.EncodedMessage;
 import it.polimi.ingsw.network.tcp.IOHandler;
+import it.polimi.ingsw.utils.LeaderboardEntry;
 import it.polimi.ingsw.utils.Pair;
 import it.polimi.ingsw.utils.PlacedCardRecord;
 
 /**
  * Subclass of {@link PlayerController} that implements its abstract methods through TCP
- * interactions.
+ * interactions. The player's actions are submitted to the match mailbox without waiting for them,
+ * so the connection thread is never blocked by the other players' actions.
+ * The messages which are the same for every player are encoded only once per match event, by the
+ * first controller sending them, and the other controllers of the match write the same bytes.
  */
 public final class PlayerControllerTCP extends PlayerController {
+    // Keys of the encoded messages shared through the MatchEvent: the one for everybody, and the
+    // one for the players other than the one who did the action, when that one gets more details
+    private static final String PUBLIC_MESSAGE = "tcp-public";
+    private static final String OTHERS_MESSAGE = "tcp-others";
+
     private final IOHandler io;
+    // The event being notified, only used by the dispatcher, one event at a time
+    private MatchEvent currentEvent;
 
     /**
      * Instantiates the internal Player with the given username and sets the internal Match
@@ -44,18 +57,71 @@ public final class PlayerControllerTCP extends PlayerController {
      */
     private void sendMessage(Message msg) {
         try {
-            this.io.writeMsg(msg);
+            this.io.writeMsg(this.sequenced(msg));
+        } catch (Exception e) {
+            this.connectionError();
+        }
+    }
+
+    /**
+     * Utility method to send a message which is the same for every player notified of the current
+     * event: it's encoded by the first controller sending it, then only written by the others.
+     *
+     * @param key What the message is among the ones of the event
+     * @param msg Creates the message object, only called if it wasn't encoded yet
+     */
+    private void sendShared(String key, Supplier<Message> msg) {
+        MatchEvent event = this.currentEvent;
+        if (event == null) {
+            this.sendMessage(msg.get());
+            return;
+        }
+
+        try {
+            // Players using different wire formats can't share the same bytes
+            EncodedMessage encoded = event.shared(key + "/" + this.io.getWireFormat(),
+                    () -> this.io.encode(this.sequenced(msg.get())));
+            this.io.writeEncoded(encoded);
         } catch (Exception e) {
             this.connectionError();
         }
     }
 
     /**
-     * Utility method called when there's a connection error, it removes the player from the match.
+     * Utility method to stamp a message sent because of a match event with the event sequence
+     * number, which the view gives back when rejoining the match, to get only the events it missed.
+     *
+     * @param msg The message object to be sent
+     * @return The same message object
+     */
+    private Message sequenced(Message msg) {
+        MatchEvent event = this.currentEvent;
+        if (event != null && event.getSequence() != 0 && msg instanceof ResponseMessage response
+                && response.getSequence() == null) {
+            response.setSequence(event.getSequence());
+        }
+        return msg;
+    }
+
+    /**
+     * Utility method called when there's a connection error, the player can rejoin the match for a
+     * while (see {@link PlayerController#connectionLost()}).
      */
     private void connectionError() {
-        match.removePlayer(player);
-        match.unsubscribeObserver(this);
+        this.connectionLost();
+    }
+
+    /**
+     * Utility method to submit a command to the match mailbox (see {@link MatchMailbox}) without waiting for it: if
+     * the match rejects the command, a new {@link ErrorMessage} is sent with the exception content.
+     *
+     * @param command The command to run
+     */
+    private void submit(MatchCommand<?> command) {
+        match.getMailbox().submit(command).whenComplete((result, failure) -> {
+            if (failure instanceof Exception exception)
+                this.sendMessage(this.createErrorMessage(exception));
+        });
     }
 
     /**
@@ -68,12 +134,23 @@ public final class PlayerControllerTCP extends PlayerController {
         return new ErrorMessage(exception.getMessage(), exception.getClass().getName());
     }
 
+    /**
+     * Keeps the event about to be notified, so that the encoded messages can be shared with the
+     * other controllers.
+     *
+     * @param event The event about to be notified
+     */
+    @Override
+    public void beforeEvent(MatchEvent event) {
+        this.currentEvent = event;
+    }
+
     /**
      * Notifies that the match has just started. Note that is supposed to be called by the match.
      */
     @Override
     public void matchStarted() {
-        this.sendMessage(new MatchStartedMessage(match.getVisibleObjectives(),
+        this.sendShared(PUBLIC_MESSAGE, () -> new MatchStartedMessage(match.getVisibleObjectives(),
                 match.getVisiblePlayableCards(), match.getDecksTopReigns(), match.getPlayers()));
     }
 
@@ -88,7 +165,8 @@ public final class PlayerControllerTCP extends PlayerController {
      */
     @Override
     public void someoneJoined(Player someone) {
-        this.sendMessage(new SomeoneJoinedMessage(someone.getUsername(), match.getPlayers(),
+        this.sendShared(PUBLIC_MESSAGE, () -> new SomeoneJoinedMessage(someone.getUsername(),
+                match.getPlayers().stream().map(Player::getUsername).toList(),
                 match.getMaxPlayers()));
     }
 
@@ -101,8 +179,8 @@ public final class PlayerControllerTCP extends PlayerController {
      */
     @Override
     public void someoneQuit(Player someone) {
-        this.sendMessage(new SomeoneQuitMessage(someone.getUsername(), match.getPlayers().size(),
-                match.isFinished()));
+        this.sendShared(PUBLIC_MESSAGE, () -> new SomeoneQuitMessage(someone.getUsername(),
+                match.getPlayers().size(), match.isFinished()));
     }
 
     /**
@@ -117,7 +195,8 @@ public final class PlayerControllerTCP extends PlayerController {
      */
     @Override
     public void someoneDrewInitialCard(Player someone, InitialCard card) {
-        this.sendMessage(new SomeoneDrewInitialCardMessage(someone.getUsername(), card.getId()));
+        this.sendShared(PUBLIC_MESSAGE,
+                () -> new SomeoneDrewInitialCardMessage(someone.getUsername(), card.getId()));
     }
 
     /**
@@ -131,8 +210,8 @@ public final class PlayerControllerTCP extends PlayerController {
     @Override
     public void someoneSetInitialSide(Player someone, Side side,
             Map<Symbol, Integer> availableResources) {
-        this.sendMessage(
-                new SomeoneSetInitialSideMessage(someone.getUsername(), side, availableResources));
+        this.sendShared(PUBLIC_MESSAGE, () -> new SomeoneSetInitialSideMessage(someone.getUsername(),
+                side, availableResources));
     }
 
     /**
@@ -148,9 +227,14 @@ public final class PlayerControllerTCP extends PlayerController {
      */
     @Override
     public void someoneDrewSecretObjective(Player someone, Pair<Objective, Objective> objectives) {
-        Pair<Integer, Integer> IDs =
-                new Pair<>(objectives.first().getID(), objectives.second().getID());
-        this.sendMessage(new SomeoneDrewSecretObjectivesMessage(someone.getUsername(), IDs));
+        if (someone.equals(player)) {
+            Pair<Integer, Integer> IDs =
+                    new Pair<>(objectives.first().getID(), objectives.second().getID());
+            this.sendMessage(new SomeoneDrewSecretObjectivesMessage(someone.getUsername(), IDs));
+        } else {
+            this.sendShared(OTHERS_MESSAGE, () -> new SomeoneDrewSecretObjectivesMessage(
+                    someone.getUsername(), new Pair<>(null, null)));
+        }
     }
 
     /**
@@ -164,11 +248,12 @@ public final class PlayerControllerTCP extends PlayerController {
      */
     @Override
     public void someoneChoseSecretObjective(Player someone, Objective objective) {
-        Integer objectiveID = null;
         if (someone.equals(player))
-            objectiveID = objective.getID();
-        this.sendMessage(
-                new SomeoneChoseSecretObjectiveMessage(someone.getUsername(), objectiveID));
+            this.sendMessage(new SomeoneChoseSecretObjectiveMessage(someone.getUsername(),
+                    objective.getID()));
+        else
+            this.sendShared(OTHERS_MESSAGE,
+                    () -> new SomeoneChoseSecretObjectiveMessage(someone.getUsername(), null));
     }
 
     /**
@@ -184,8 +269,9 @@ public final class PlayerControllerTCP extends PlayerController {
     @Override
     public void someonePlayedCard(Player someone, Pair<Integer, Integer> coords, PlayableCard card,
             Side side) {
-        this.sendMessage(new SomeonePlayedCardMessage(someone.getUsername(), coords, card.getId(),
-                side, someone.getPoints(), someone.getBoard().getAvailableResources()));
+        this.sendShared(PUBLIC_MESSAGE, () -> new SomeonePlayedCardMessage(someone.getUsername(),
+                coords, card.getId(), side, someone.getPoints(),
+                someone.getBoard().getAvailableResources()));
     }
 
     /**
@@ -208,8 +294,9 @@ public final class PlayerControllerTCP extends PlayerController {
         if (replacementCard != null) {
             repId = replacementCard.getId();
         }
-        this.sendMessage(new SomeoneDrewCardMessage(someone.getUsername(), source, card.getId(),
-                repId, match.getDecksTopReigns()));
+        Integer replacementID = repId;
+        this.sendShared(PUBLIC_MESSAGE, () -> new SomeoneDrewCardMessage(someone.getUsername(),
+                source, card.getId(), replacementID, match.getDecksTopReigns()));
     }
 
     /**
@@ -220,8 +307,8 @@ public final class PlayerControllerTCP extends PlayerController {
      */
     @Override
     public void someoneSentBroadcastText(Player someone, String text) {
-        Message msg = new SomeoneSentBroadcastTextMessage(someone.getUsername(), text);
-        this.sendMessage(msg);
+        this.sendShared(PUBLIC_MESSAGE,
+                () -> new SomeoneSentBroadcastTextMessage(someone.getUsername(), text));
     }
 
     /**
@@ -247,7 +334,11 @@ public final class PlayerControllerTCP extends PlayerController {
      */
     @Override
     public void matchFinished() {
-        this.sendMessage(new MatchFinishedMessage(match.getPlayersFinalRanking()));
+        this.sendShared(PUBLIC_MESSAGE,
+                () -> new MatchFinishedMessage(match.getPlayersFinalRanking().stream()
+                        .map(p -> new LeaderboardEntry(p.first().getUsername(),
+                                p.first().getPoints(), p.second()))
+                        .toList()));
     }
 
 
@@ -257,11 +348,7 @@ public final class PlayerControllerTCP extends PlayerController {
      * exception content
      */
     public void drawInitialCard() {
-        try {
-            this.player.drawInitialCard();
-        } catch (WrongTurnException | WrongStateException e) {
-            this.sendMessage(this.createErrorMessage(e));
-        }
+        this.submit(() -> this.player.drawInitialCard());
     }
 
 
@@ -273,11 +360,10 @@ public final class PlayerControllerTCP extends PlayerController {
      * @param side The chosen card
      */
     public void chooseInitialCardSide(Side side) {
-        try {
+        this.submit(() -> {
             this.player.chooseInitialCardSide(side);
-        } catch (WrongTurnException | WrongStateException e) {
-            this.sendMessage(this.createErrorMessage(e));
-        }
+            return null;
+        });
     }
 
     /**
@@ -286,11 +372,7 @@ public final class PlayerControllerTCP extends PlayerController {
      * a new {@link ErrorMessage} is sent with the exception content
      */
     public void drawSecretObjectives() {
-        try {
-            this.player.drawSecretObjectives();
-        } catch (WrongTurnException | WrongStateException e) {
-            this.sendMessage(this.createErrorMessage(e));
-        }
+        this.submit(() -> this.player.drawSecretObjectives());
     }
 
     /**
@@ -301,11 +383,10 @@ public final class PlayerControllerTCP extends PlayerController {
      * @param objective The chosen objective
      */
     public void chooseSecretObjective(Objective objective) {
-        try {
+        this.submit(() -> {
             this.player.chooseSecretObjective(objective);
-        } catch (WrongChoiceException | WrongStateException | WrongTurnException e) {
-            this.sendMessage(this.createErrorMessage(e));
-        }
+            return null;
+        });
     }
 
     /**
@@ -317,11 +398,10 @@ public final class PlayerControllerTCP extends PlayerController {
      * @param side The chosen side
      */
     public void playCard(Pair<Integer, Integer> coords, PlayableCard card, Side side) {
-        try {
+        this.submit(() -> {
             this.player.playCard(coords, card, side);
-        } catch (WrongChoiceException | WrongStateException | WrongTurnException e) {
-            this.sendMessage(this.createErrorMessage(e));
-        }
+            return null;
+        });
     }
 
     /**
@@ -331,46 +411,51 @@ public final class PlayerControllerTCP extends PlayerController {
      * @param source The chosen source
      */
     public void drawCard(DrawSource source) {
-        try {
+        this.submit(() -> {
             this.player.drawCard(source);
-        } catch (HandException | WrongTurnException | WrongStateException
-                | WrongChoiceException e) {
-            this.sendMessage(this.createErrorMessage(e));
-        }
+            return null;
+        });
     }
 
     /**
-     * Sends a broadcast in the chat.
+     * Sends a broadcast in the chat, through the match mailbox.
      *
      * @param text Text of the message
      */
     public void sendBroadcastText(String text) {
-        this.player.sendBroadcastText(text);
+        this.submit(() -> {
+            this.player.sendBroadcastText(text);
+            return null;
+        });
     }
 
     /**
-     * Sends a private message in the chat.
+     * Sends a private message in the chat, through the match mailbox.
      *
      * @param recipientUsername username of the recipient
      * @param text text of the message
      */
     public void sendPrivateText(String recipientUsername, String text) {
-        Player recipient = null;
-        for (Player player : this.match.getPlayers()) {
-            if (player.getUsername().equals(recipientUsername)) {
-                recipient = player;
-                break;
+        this.submit(() -> {
+            Player recipient = null;
+            for (Player player : this.match.getPlayers()) {
+                if (player.getUsername().equals(recipientUsername)) {
+                    recipient = player;
+                    break;
+                }
             }
-        }
 
-        // if you want to send error if recipient does not exist, change here
-        if (recipient != null) {
-            this.player.sendPrivateText(recipient, text);
-        }
+            // if you want to send error if recipient does not exist, change here
+            if (recipient != null) {
+                this.player.sendPrivateText(recipient, text);
+            }
+            return null;
+        });
     }
 
     /**
-     * Notifies the view that match has resumed after a server crash.
+     * Notifies the view of the whole match state, when it rejoins the match after a server crash
+     * or a disconnection. Note that is supposed to be called holding the match lock.
      */
     @Override
     public void matchResumed() {
@@ -417,10 +502,14 @@ public final class PlayerControllerTCP extends PlayerController {
         drawPhase = this.match.getCurrentState().getClass().equals(AfterMoveState.class);
 
 
-        Message msg = new MatchResumedMessage(playersUsernamesAndPawns, playersHands,
+        ResponseMessage msg = new MatchResumedMessage(playersUsernamesAndPawns, playersHands,
                 visibleObjectives, visiblePlayableCards, decksTopReigns, secretObjective,
                 availableResources, placedCards, playerPoints, currentPlayer, drawPhase);
+        // The state includes every event up to now
+        msg.setSequence(this.match.getLastEventSequence());
 
-        this.sendMessage(msg);
+        // Called while holding the match lock: the message is queued before any later match event,
+        // but written to the socket by the dispatcher, without holding the lock
+        MatchEventDispatcher.getInstance().dispatch(this, observer -> this.sendMessage(msg));
     }
 }
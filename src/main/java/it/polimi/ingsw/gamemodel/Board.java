@@ -4,59 +4,285 @@ import it.polimi.ingsw.exceptions.CardException;
 import it.polimi.ingsw.exceptions.HandException;
 import it.polimi.ingsw.utils.Pair;
 
+import it.polimi.ingsw.utils.CardsManager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serial;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
- * Board is the class that contains all the information relative to a {@link Player}'s status
+ * Board is the class that contains all the information relative to a {@link Player}'s status.
+ * The placed cards are stored in a square grid centered in (0, 0), which grows when a card is placed outside of it,
+ * so that looking up a position never allocates; the grid is accessed through int coordinates, while
+ * {@link #getPlacedCards()} offers the same content as a read-only map.
+ * The board also keeps track of its frontier, ie the positions in which a card can be placed, updating it on every
+ * placement, so that legal positions and moves are listed without checking the whole board.
  */
 public class Board implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
-    private final List<PlayableCard> currentHand;
-    private final Map<Pair<Integer, Integer>, PlacedCard> placed;
-    private final Map<Symbol, Integer> availableResources;
+    // Initial distance from (0, 0) of the grid borders, enough for most matches
+    private static final int INITIAL_GRID_RADIUS = 8;
 
-    private static final Map<Pair<Integer, Integer>, Corner> diagonalOffsets = Map.of(
-            new Pair<>(-1, +1), Corner.BOTTOM_RIGHT,
-            new Pair<>(+1, +1), Corner.BOTTOM_LEFT,
-            new Pair<>(-1, -1), Corner.TOP_RIGHT,
-            new Pair<>(+1, -1), Corner.TOP_LEFT
-    );
+    private final List<PlayableCard> currentHand;
+    private final ResourceCounts availableResources;
+
+    // Placed cards, the one in (x, y) is stored at index (x + gridRadius) * gridSide + (y + gridRadius)
+    private PlacedCard[] grid;
+    private int gridRadius;
+    private int gridSide;
+
+    // For each cell of the grid: BLOCKED if it's occupied or its neighbours forbid placing a card in it, otherwise the
+    // index + 1 of the cell in the frontier, or 0 if it's not part of it
+    private int[] cellStates;
+    private static final int BLOCKED = -1;
+
+    // Coordinates of the positions in which a card can be placed, packed by packCoords(...)
+    private int[] frontier;
+    private int frontierCount;
+
+    // Coordinates of the placed cards in placement order, packed by packCoords(...)
+    private int[] placedCoords;
+    private int placedCount;
+
+    // Matchers of the position requirements checked on this board, updated on every placement
+    private final Map<PositionRequirement, PositionRequirementMatcher> matchers;
+
+    // Lazily created map view of the grid
+    private transient Map<Pair<Integer, Integer>, PlacedCard> placedView;
+
+    // Offsets of the diagonal neighbours, and the corner of each neighbour touching the card in the middle
+    private static final int[] DIAGONAL_X = {-1, +1, -1, +1};
+    private static final int[] DIAGONAL_Y = {+1, +1, -1, -1};
+    private static final Corner[] DIAGONAL_CORNERS = {
+            Corner.BOTTOM_RIGHT,
+            Corner.BOTTOM_LEFT,
+            Corner.TOP_RIGHT,
+            Corner.TOP_LEFT
+    };
 
     /**
      * Class constructor. No inputs taken as the board starts empty
      */
     public Board() {
         currentHand = new ArrayList<>();
-        placed = new HashMap<>();
-        availableResources = new HashMap<>();
-        for (Symbol s : Symbol.getBasicResources()) {
-            availableResources.put(s, 0);
-        }
+        gridRadius = INITIAL_GRID_RADIUS;
+        gridSide = 2 * gridRadius + 1;
+        grid = new PlacedCard[gridSide * gridSide];
+        cellStates = new int[gridSide * gridSide];
+        frontier = new int[16];
+        placedCoords = new int[16];
+        availableResources = new ResourceCounts();
+        matchers = new IdentityHashMap<>();
     }
 
     /**
-     * Getter for the total resources of a player
+     * Getter for the board's available resources
      *
-     * @return the resources of a player
+     * @return read-only copy of the amount of each basic resource, which can be safely sent to the clients
      */
     public Map<Symbol, Integer> getAvailableResources() {
-        return this.availableResources;
+        return this.availableResources.toMap();
+    }
+
+    /**
+     * Getter for the amount of a single resource, without copying them all
+     *
+     * @param symbol the resource
+     * @return the amount of the resource, 0 if it's not a basic resource
+     */
+    public int getAvailableResource(Symbol symbol) {
+        return this.availableResources.get(symbol);
     }
 
     /**
      * Getter for the board's placed cards
      *
-     * @return map containing all the placed cards indexed by their coordinates
+     * @return read-only map containing all the placed cards indexed by their coordinates, backed by the board
      */
     public Map<Pair<Integer, Integer>, PlacedCard> getPlacedCards() {
-        return this.placed;
+        if (this.placedView == null) {
+            this.placedView = new PlacedCardsView();
+        }
+        return this.placedView;
+    }
+
+    /**
+     * Getter for the card placed in the given coordinates
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the card placed in (x, y), null if there's none
+     */
+    public PlacedCard getPlacedCard(int x, int y) {
+        int index = gridIndex(x, y);
+        return index < 0 ? null : grid[index];
+    }
+
+    /**
+     * Checks whether a card has been placed in the given coordinates
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if a card is placed in (x, y), false otherwise
+     */
+    public boolean isOccupied(int x, int y) {
+        return getPlacedCard(x, y) != null;
+    }
+
+    /**
+     * Getter for the number of cards placed on the board, initial card included
+     *
+     * @return the number of placed cards
+     */
+    public int getPlacedCardsCount() {
+        return placedCount;
+    }
+
+    /**
+     * Checks whether a card can be placed in the given coordinates: they must be free, with no card on their sides, and at
+     * least a card on their diagonals, none of which has an empty corner towards them.
+     * Note that the requirement of the card to be placed is not checked
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the coordinates are part of the board's frontier, false otherwise
+     */
+    public boolean isLegalPosition(int x, int y) {
+        int index = gridIndex(x, y);
+        return index >= 0 && cellStates[index] > 0;
+    }
+
+    /**
+     * Lists the positions in which a card can be placed, in time proportional to their number
+     *
+     * @return the coordinates of the board's frontier
+     * @see #isLegalPosition(int, int)
+     */
+    public List<Pair<Integer, Integer>> legalPositions() {
+        List<Pair<Integer, Integer>> positions = new ArrayList<>(frontierCount);
+        for (int i = 0; i < frontierCount; i++) {
+            positions.add(new Pair<>(unpackX(frontier[i]), unpackY(frontier[i])));
+        }
+        return positions;
+    }
+
+    /**
+     * Lists all the valid placements of the given cards: every legal position for each card and each of its sides, provided
+     * that the requirement of gold cards is met when played on their front
+     *
+     * @param hand the cards to be placed, usually the player's hand
+     * @return the moves that {@link #verifyCardPlacement(int, int, Card, Side)} would consider valid
+     */
+    public List<PlacementMove> legalMoves(List<PlayableCard> hand) {
+        List<PlacementMove> moves = new ArrayList<>();
+        boolean[] frontAllowed = new boolean[hand.size()];
+
+        // the requirement only depends on the resources, so it's checked once per card
+        for (int c = 0; c < hand.size(); c++) {
+            frontAllowed[c] = !(hand.get(c) instanceof GoldCard gold) || gold.getRequirement().timesMet(this) > 0;
+        }
+
+        for (int i = 0; i < frontierCount; i++) {
+            Pair<Integer, Integer> coords = new Pair<>(unpackX(frontier[i]), unpackY(frontier[i]));
+            for (int c = 0; c < hand.size(); c++) {
+                if (frontAllowed[c]) {
+                    moves.add(new PlacementMove(coords, hand.get(c), Side.FRONT));
+                }
+                moves.add(new PlacementMove(coords, hand.get(c), Side.BACK));
+            }
+        }
+
+        return moves;
+    }
+
+    /**
+     * Computes the points a card would give if placed in the given coordinates, without placing it. The placement is
+     * assumed to be valid
+     *
+     * @param x    the x coordinate in which the card would be placed
+     * @param y    the y coordinate in which the card would be placed
+     * @param card the card to be placed
+     * @param side the side of the card to be placed
+     * @return the points {@link #placeCard(int, int, PlayableCard, Side, int)} would return
+     * @throws CardException if the card type is not known (neither a {@link ResourceCard} nor a {@link GoldCard})
+     */
+    public int previewPoints(int x, int y, PlayableCard card, Side side) throws CardException {
+        if (side != Side.FRONT) {
+            return 0;
+        }
+
+        return switch (card) {
+            case ResourceCard resource -> resource.getPoints();
+            case GoldCard gold -> switch (gold.getMultiplier()) {
+                case NO_MULT -> gold.getPoints();
+                case CORNER_OBJ -> {
+                    int covered = 0;
+                    for (int i = 0; i < DIAGONAL_CORNERS.length; i++) {
+                        if (isOccupied(x + DIAGONAL_X[i], y + DIAGONAL_Y[i])) {
+                            covered++;
+                        }
+                    }
+                    yield covered * gold.getPoints();
+                }
+                default -> previewResource(x, y, card, side, gold.getMultiplier()) * gold.getPoints();
+            };
+            default -> throw new CardException("Unknown card type: " + card.getClass() + "!");
+        };
+    }
+
+    /**
+     * Computes the amount of a resource the player would have if a card was placed in the given coordinates, without
+     * placing it. The placement is assumed to be valid
+     *
+     * @param x      the x coordinate in which the card would be placed
+     * @param y      the y coordinate in which the card would be placed
+     * @param card   the card to be placed
+     * @param side   the side of the card to be placed
+     * @param symbol the resource to count
+     * @return the amount of the resource after the placement, like {@link #getAvailableResource(Symbol)} would return it
+     * @throws CardException if a corner of the cards involved could not be read
+     */
+    public int previewResource(int x, int y, PlayableCard card, Side side, Symbol symbol) throws CardException {
+        CardFace face = card.getSide(side);
+        int amount = availableResources.get(symbol);
+
+        for (int i = 0; i < DIAGONAL_CORNERS.length; i++) {
+            if (getSymbolIfPresent(x + DIAGONAL_X[i], y + DIAGONAL_Y[i], DIAGONAL_CORNERS[i]) == symbol) {
+                amount--;
+            }
+            if (face.getCorner(DIAGONAL_CORNERS[i]) == symbol) {
+                amount++;
+            }
+        }
+        if (face.getCenter().contains(symbol)) {
+            amount++;
+        }
+        return amount;
+    }
+
+    /**
+     * Getter for the x coordinate of a placed card, so that the placed cards can be visited without allocations
+     *
+     * @param index the placement order of the card, between 0 (the initial card) and {@link #getPlacedCardsCount()} - 1
+     * @return the x coordinate of the card
+     */
+    public int getPlacedX(int index) {
+        return unpackX(placedCoords[index]);
+    }
+
+    /**
+     * Getter for the y coordinate of a placed card, so that the placed cards can be visited without allocations
+     *
+     * @param index the placement order of the card, between 0 (the initial card) and {@link #getPlacedCardsCount()} - 1
+     * @return the y coordinate of the card
+     */
+    public int getPlacedY(int index) {
+        return unpackY(placedCoords[index]);
     }
 
     /**
@@ -103,17 +329,15 @@ public class Board implements Serializable {
      * @throws CardException if the (0, 0) position is already occupied
      */
     protected void setInitialCard(InitialCard card, Side side) throws CardException {
-        if (placed.get(new Pair<>(0, 0)) != null) {
+        if (isOccupied(0, 0)) {
             throw new CardException("Tried to add initial card, but one already exists!");
         }
-        placed.put(new Pair<>(0, 0), new PlacedCard(card, side, 0));
+        putPlacedCard(0, 0, new PlacedCard(card, side, 0));
 
         increaseResources(card, side);
 
         for (Symbol s : card.getSide(side).getCenter()) {
-            if (Symbol.getBasicResources().contains(s)) {
-                availableResources.put(s, availableResources.get(s) + 1);
-            }
+            availableResources.add(s, 1);
         }
     }
 
@@ -128,21 +352,31 @@ public class Board implements Serializable {
      * @throws CardException if the card type is not known (neither a {@link ResourceCard} nor a {@link GoldCard})
      */
     protected int placeCard(Pair<Integer, Integer> coord, PlayableCard card, Side side, int turn) throws CardException {
-        PlacedCard last = new PlacedCard(card, side, turn);
-        this.placed.put(coord, last);
+        return placeCard(coord.first(), coord.second(), card, side, turn);
+    }
+
+    /**
+     * This method will add to the board the given card (assuming the positioning is valid), and update the player's resources
+     *
+     * @param x    the x coordinate in which the card must be placed
+     * @param y    the y coordinate in which the card must be placed
+     * @param card the card to be placed
+     * @param side the side of the card to be placed
+     * @param turn the turn of the game in which the card is played
+     * @return the points gained from playing card
+     * @throws CardException if the card type is not known (neither a {@link ResourceCard} nor a {@link GoldCard})
+     */
+    protected int placeCard(int x, int y, PlayableCard card, Side side, int turn) throws CardException {
+        putPlacedCard(x, y, new PlacedCard(card, side, turn));
         int points = 0;
 
         Symbol cornerSymbol;
-        Integer x = coord.first();
-        Integer y = coord.second();
 
-        for (Pair<Integer, Integer> diagOffset : diagonalOffsets.keySet()) {
+        for (int i = 0; i < DIAGONAL_CORNERS.length; i++) {
             try {
-                cornerSymbol = this.getSymbolIfPresent(new Pair<>(x + diagOffset.first(), y + diagOffset.second()), diagonalOffsets.get(diagOffset));
+                cornerSymbol = this.getSymbolIfPresent(x + DIAGONAL_X[i], y + DIAGONAL_Y[i], DIAGONAL_CORNERS[i]);
                 if (cornerSymbol != null) {
-                    if (Symbol.getBasicResources().contains(cornerSymbol)) {
-                        availableResources.put(cornerSymbol, availableResources.get(cornerSymbol) - 1);
-                    }
+                    availableResources.add(cornerSymbol, -1);
                 }
             } catch (CardException e) {
                 System.err.println(e.getMessage());
@@ -152,13 +386,11 @@ public class Board implements Serializable {
         increaseResources(card, side);
 
         for (Symbol s : card.getSide(side).getCenter()) {
-            if (Symbol.getBasicResources().contains(s)) {
-                availableResources.put(s, availableResources.get(s) + 1);
-            }
+            availableResources.add(s, 1);
         }
         if (side.equals(Side.FRONT)) {
             switch (card) {
-                case GoldCard gold -> points = gold.calculatePoints(this, coord);
+                case GoldCard gold -> points = gold.calculatePoints(this, x, y);
                 case ResourceCard resource -> points = resource.getPoints();
                 default -> throw new CardException("Unknown card type: " + card.getClass() + "!");
             }
@@ -167,8 +399,8 @@ public class Board implements Serializable {
         return points;
     }
 
-    private Symbol getSymbolIfPresent(Pair<Integer, Integer> coord, Corner corner) throws CardException {
-        PlacedCard placedCard = placed.get(coord);
+    private Symbol getSymbolIfPresent(int x, int y, Corner corner) throws CardException {
+        PlacedCard placedCard = getPlacedCard(x, y);
         if (placedCard == null) {
             return null;
         }
@@ -186,13 +418,28 @@ public class Board implements Serializable {
      * @throws CardException if the card is not in the player's hand
      */
     public PlacementOutcome verifyCardPlacement(Pair<Integer, Integer> coord, Card card, Side side) throws CardException {
-        if (coord.equals(new Pair<>(0, 0))) {
+        return verifyCardPlacement(coord.first(), coord.second(), card, side);
+    }
+
+    /**
+     * Checks whether the positioning is valid: the card has to be in the player's hand (note that this method won't be called on the initial card),
+     * the given coordinates must be valid, and if the card has a requirement it must be met
+     *
+     * @param x    the x coordinate in which the card should be played
+     * @param y    the y coordinate in which the card should be played
+     * @param card the card to check on
+     * @param side the side of the card (needed for requirement check)
+     * @return the outcome for the placement, which is valid only if all conditions are met
+     * @throws CardException if the card is not in the player's hand
+     */
+    public PlacementOutcome verifyCardPlacement(int x, int y, Card card, Side side) throws CardException {
+        if (x == 0 && y == 0) {
             return PlacementOutcome.INVALID_COORDS;
         }
         if (!currentHand.contains(card)) {
             throw new CardException("The card is not in the player's hand!");
         }
-        if (placed.containsKey(coord)) {
+        if (isOccupied(x, y)) {
             return PlacementOutcome.INVALID_COORDS;
         }
         if (card instanceof GoldCard gold && side == Side.FRONT) {
@@ -200,55 +447,258 @@ public class Board implements Serializable {
                 return PlacementOutcome.INVALID_ENOUGH_RESOURCES;
         }
 
+        // no card on the sides, and at least one on the diagonals with no empty corners towards (x, y)
+        if (!isLegalPosition(x, y)) {
+            return PlacementOutcome.INVALID_COORDS;
+        }
 
-        Integer[] offsets = {-1, +1};
+        return PlacementOutcome.VALID;
+    }
 
-        Pair<Integer, Integer> cmp;
+    private void increaseResources(Card card, Side side) throws CardException {
+        CardFace face = card.getSide(side);
+        for (Corner c : DIAGONAL_CORNERS) {
+            availableResources.add(face.getCorner(c), 1);
+        }
+    }
 
-        // cross-check: none exists
-        for (Integer offset : offsets) {
-            cmp = new Pair<>(coord.first() + offset, coord.second());
-            if (placed.containsKey(cmp)) {
-                return PlacementOutcome.INVALID_COORDS;
-            }
+    /**
+     * Writes the hand and the placed cards, in placement order, to a compact snapshot of the match
+     *
+     * @param out the snapshot being written
+     * @throws IOException if the snapshot couldn't be written
+     * @see MatchSnapshotCodec
+     */
+    void writeSnapshot(DataOutput out) throws IOException {
+        out.writeByte(currentHand.size());
+        for (PlayableCard card : currentHand) {
+            MatchSnapshotCodec.writeCard(out, card);
+        }
 
-            cmp = new Pair<>(coord.first(), coord.second() + offset);
-            if (placed.containsKey(cmp)) {
-                return PlacementOutcome.INVALID_COORDS;
-            }
+        out.writeShort(placedCount);
+        for (int i = 0; i < placedCount; i++) {
+            int x = getPlacedX(i);
+            int y = getPlacedY(i);
+            PlacedCard placedCard = getPlacedCard(x, y);
+            out.writeShort(x);
+            out.writeShort(y);
+            MatchSnapshotCodec.writeCard(out, placedCard.getCard());
+            out.writeByte(placedCard.getPlayedSide().ordinal());
+            out.writeShort(placedCard.getTurn());
         }
+    }
 
-        boolean hasAdjacent = false;
+    /**
+     * Reads the hand and the placed cards from a compact snapshot of the match, placing the cards again in the same
+     * order, so that the resources and the frontier are the same of the board the snapshot was written from
+     *
+     * @param in the snapshot being read, assuming this board is still empty
+     * @throws IOException if the snapshot couldn't be read or doesn't contain a valid board
+     * @see MatchSnapshotCodec
+     */
+    void readSnapshot(DataInput in) throws IOException {
+        CardsManager cards = CardsManager.getInstance();
 
-        Integer x = coord.first();
-        Integer y = coord.second();
+        int handSize = in.readByte();
+        for (int i = 0; i < handSize; i++) {
+            currentHand.add(MatchSnapshotCodec.readCard(in, cards::byId));
+        }
 
-        for (Pair<Integer, Integer> diagOffset : Board.diagonalOffsets.keySet()) {
-            cmp = new Pair<>(x + diagOffset.first(), y + diagOffset.second());
+        int count = in.readShort();
+        for (int i = 0; i < count; i++) {
+            int x = in.readShort();
+            int y = in.readShort();
+            // the initial card is always the first one placed, in (0, 0)
+            Card card = i == 0
+                    ? MatchSnapshotCodec.readCard(in, cards::initialCard)
+                    : MatchSnapshotCodec.readCard(in, cards::byId);
+            Side side = Side.values()[in.readByte()];
+            int turn = in.readShort();
 
-            if (placed.get(cmp) != null) {
-                hasAdjacent = true;
-                if (placed.get(cmp).getPlayedCardFace().getCorner(diagonalOffsets.get(diagOffset)) == Symbol.EMPTY_CORNER) {
-                    return PlacementOutcome.INVALID_COORDS;
+            try {
+                if (card == null) {
+                    throw new CardException("Missing card in (" + x + ", " + y + ")");
+                } else if (i == 0) {
+                    setInitialCard((InitialCard) card, side);
+                } else {
+                    placeCard(x, y, (PlayableCard) card, side, turn);
                 }
+            } catch (CardException e) {
+                throw new IOException("The snapshot doesn't contain a valid board", e);
             }
         }
+    }
 
-        if (!hasAdjacent) {
-            return PlacementOutcome.INVALID_COORDS;
+    /**
+     * Getter for the matcher of a position requirement on this board, which is created the first time it's needed and then
+     * kept up to date on every placement
+     *
+     * @param requirement the requirement to be matched
+     * @return the matcher of the requirement
+     */
+    PositionRequirementMatcher getMatcher(PositionRequirement requirement) {
+        PositionRequirementMatcher matcher = matchers.get(requirement);
+        if (matcher == null) {
+            matcher = new PositionRequirementMatcher(requirement, this);
+            matchers.put(requirement, matcher);
         }
+        return matcher;
+    }
 
-        return PlacementOutcome.VALID;
+    // Gets the grid index of the given coordinates, -1 if they're outside of the grid
+    private int gridIndex(int x, int y) {
+        if (x < -gridRadius || x > gridRadius || y < -gridRadius || y > gridRadius) {
+            return -1;
+        }
+        return (x + gridRadius) * gridSide + (y + gridRadius);
     }
 
-    private void increaseResources(Card card, Side side) throws CardException {
-        Symbol cornerSymbol;
-        for (Corner c : Corner.values()) {
-            cornerSymbol = card.getSide(side).getCorner(c);
-            if (Symbol.getBasicResources().contains(cornerSymbol)) {
-                availableResources.put(cornerSymbol, availableResources.get(cornerSymbol) + 1);
+    // Stores a placed card in the grid, growing it if needed, records its coordinates and updates the frontier
+    private void putPlacedCard(int x, int y, PlacedCard placedCard) throws CardException {
+        // the grid must also contain the neighbours of the card
+        int radius = Math.max(Math.abs(x), Math.abs(y)) + 1;
+        if (radius > gridRadius) {
+            growGrid(Math.max(radius, 2 * gridRadius));
+        }
+        grid[gridIndex(x, y)] = placedCard;
+
+        if (placedCount == placedCoords.length) {
+            placedCoords = Arrays.copyOf(placedCoords, 2 * placedCount);
+        }
+        placedCoords[placedCount++] = packCoords(x, y);
+
+        blockCell(x, y);
+        blockCell(x - 1, y);
+        blockCell(x + 1, y);
+        blockCell(x, y - 1);
+        blockCell(x, y + 1);
+
+        for (PositionRequirementMatcher matcher : matchers.values()) {
+            matcher.cardPlaced(this, x, y);
+        }
+
+        // the new card is the i-th diagonal neighbour of the cell in (x, y) minus the i-th offset
+        CardFace face = placedCard.getPlayedCardFace();
+        for (int i = 0; i < DIAGONAL_CORNERS.length; i++) {
+            if (face.getCorner(DIAGONAL_CORNERS[i]) == Symbol.EMPTY_CORNER) {
+                blockCell(x - DIAGONAL_X[i], y - DIAGONAL_Y[i]);
+            } else {
+                openCell(x - DIAGONAL_X[i], y - DIAGONAL_Y[i]);
             }
         }
     }
 
+    // Adds a cell to the frontier, unless it's blocked or already part of it
+    private void openCell(int x, int y) {
+        int index = gridIndex(x, y);
+        if (cellStates[index] != 0) {
+            return;
+        }
+        if (frontierCount == frontier.length) {
+            frontier = Arrays.copyOf(frontier, 2 * frontierCount);
+        }
+        frontier[frontierCount++] = packCoords(x, y);
+        cellStates[index] = frontierCount;
+    }
+
+    // Removes a cell from the frontier, if it's part of it, and prevents it from being added again
+    private void blockCell(int x, int y) {
+        int index = gridIndex(x, y);
+        int slot = cellStates[index];
+        if (slot > 0) {
+            // move the last cell of the frontier in place of the removed one
+            int last = frontier[--frontierCount];
+            frontier[slot - 1] = last;
+            cellStates[gridIndex(unpackX(last), unpackY(last))] = slot;
+        }
+        cellStates[index] = BLOCKED;
+    }
+
+    // Moves the placed cards and the cell states in a bigger grid
+    private void growGrid(int newRadius) {
+        int newSide = 2 * newRadius + 1;
+        PlacedCard[] newGrid = new PlacedCard[newSide * newSide];
+        int[] newCellStates = new int[newSide * newSide];
+
+        for (int x = -gridRadius; x <= gridRadius; x++) {
+            int from = gridIndex(x, -gridRadius);
+            int to = (x + newRadius) * newSide + (newRadius - gridRadius);
+            System.arraycopy(grid, from, newGrid, to, gridSide);
+            System.arraycopy(cellStates, from, newCellStates, to, gridSide);
+        }
+
+        grid = newGrid;
+        cellStates = newCellStates;
+        gridRadius = newRadius;
+        gridSide = newSide;
+    }
+
+    private static int packCoords(int x, int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    private static int unpackX(int packed) {
+        return packed >> 16;
+    }
+
+    private static int unpackY(int packed) {
+        return (short) packed;
+    }
+
+    /**
+     * Read-only map view of the placed cards: lookups go straight to the grid, while iterations follow the
+     * placement order.
+     */
+    private class PlacedCardsView extends AbstractMap<Pair<Integer, Integer>, PlacedCard> {
+        @Override
+        public PlacedCard get(Object key) {
+            if (key instanceof Pair<?, ?>(Integer x, Integer y)) {
+                return getPlacedCard(x, y);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return placedCount;
+        }
+
+        @Override
+        public Set<Entry<Pair<Integer, Integer>, PlacedCard>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return placedCount;
+                }
+
+                @Override
+                public Iterator<Entry<Pair<Integer, Integer>, PlacedCard>> iterator() {
+                    return new Iterator<>() {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < placedCount;
+                        }
+
+                        @Override
+                        public Entry<Pair<Integer, Integer>, PlacedCard> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int x = getPlacedX(next);
+                            int y = getPlacedY(next);
+                            next++;
+                            return new SimpleImmutableEntry<>(new Pair<>(x, y), getPlacedCard(x, y));
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
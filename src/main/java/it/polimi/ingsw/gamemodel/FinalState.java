@@ -11,6 +11,13 @@ public class FinalState extends MatchState implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Empty constructor used to restore a match in this state from a snapshot, without changing the match.
+     */
+    FinalState() {
+
+    }
+
     /**
      * Initializes this instance.
      *
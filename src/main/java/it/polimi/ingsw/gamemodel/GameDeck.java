@@ -5,6 +5,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.random.RandomGenerator;
 import it.polimi.ingsw.exceptions.DeckException;
 
 /**
@@ -25,6 +26,15 @@ public class GameDeck<T> implements Serializable {
         cardsList = new ArrayList<>();
     }
 
+    /**
+     * Class constructor restoring a deck from a snapshot of the match
+     *
+     * @param cards the cards of the deck, from the bottom to the top
+     */
+    GameDeck(List<T> cards) {
+        cardsList = new ArrayList<>(cards);
+    }
+
     /**
      * Adds a card to the bottom of the deck
      *
@@ -43,6 +53,15 @@ public class GameDeck<T> implements Serializable {
         return this.cardsList.size();
     }
 
+    /**
+     * Getter for the deck's cards, used to write a snapshot of the match
+     *
+     * @return read-only list of the cards, from the bottom to the top
+     */
+    List<T> getCards() {
+        return Collections.unmodifiableList(this.cardsList);
+    }
+
     /**
      * Removes a card from the deck's top (throws exception if the deck is empty)
      *
@@ -84,6 +103,14 @@ public class GameDeck<T> implements Serializable {
         Collections.shuffle(this.cardsList);
     }
 
+    /**
+     * Shuffles the deck with the given generator, so that the same generator state always gives the same order
+     * @param random the source of randomness of the shuffle
+     */
+    public void shuffle(RandomGenerator random) {
+        Collections.shuffle(this.cardsList, random);
+    }
+
     /**
      * Checks whether the deck is empty or not
      *
@@ -1,9 +1,6 @@
 package it.polimi.ingsw.gamemodel;
 
 import java.util.EnumSet;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 import it.polimi.ingsw.exceptions.InvalidResourceException;
 import it.polimi.ingsw.utils.Pair;
 
@@ -78,50 +75,39 @@ public final class GoldCard extends PlayableCard {
      * @return the points gained from playing the gold card
      */
     public int calculatePoints(Board board, Pair<Integer, Integer> coord) {
+        return calculatePoints(board, coord.first(), coord.second());
+    }
+
+    /**
+     * Will compute the total points this card gives based on the board it's played on.
+     * It MUST be called AFTER the placement of the gold card
+     *
+     * @param board the board on which we want to compute the points this card will give
+     * @param x     the x coordinate of the card just placed (needed fot corner objectives)
+     * @param y     the y coordinate of the card just placed (needed fot corner objectives)
+     * @return the points gained from playing the gold card
+     */
+    public int calculatePoints(Board board, int x, int y) {
         if (this.multiplier == Symbol.NO_MULT) {
             return this.points;
         }
-        Map<Symbol, Integer> availableResources = board.getAvailableResources();
-
         int totalElements = 0;
 
         // multiplier is basic resource (subset of symbols)
-        if (Symbol.getBasicResources().contains(this.multiplier)) {
-
-            for (Symbol s : availableResources.keySet()) {
-                if (s.equals(this.multiplier)) {
-                    totalElements = availableResources.get(s);
-                }
-            }
+        if (this.multiplier.isBasicResource()) {
+            totalElements = board.getAvailableResource(this.multiplier);
         } else if (this.multiplier.equals(Symbol.CORNER_OBJ)) { //multiplier is a corner_objective kind
 
-            // Pair<Integer, Integer> currentCoord = board.getCoordinatesPlacedCard();
-            Set<Pair<Integer, Integer>> edges = getEdges(coord);
-
-            Map<Pair<Integer, Integer>, PlacedCard> map = board.getPlacedCards();
-            for (Pair<Integer, Integer> p : edges) {
-
-                // check if the board has a value (card) associated to the key (coordinates)
-                if (map.get(p) != null) {
-                    totalElements++;
+            // check which diagonal neighbours have a card placed on them
+            for (int dx = -1; dx <= 1; dx += 2) {
+                for (int dy = -1; dy <= 1; dy += 2) {
+                    if (board.isOccupied(x + dx, y + dy)) {
+                        totalElements++;
+                    }
                 }
             }
         }
 
         return totalElements * this.points;
     }
-
-    private static Set<Pair<Integer, Integer>> getEdges(Pair<Integer, Integer> currentCoord) {
-        Pair<Integer, Integer> tr = new Pair<>(currentCoord.first() + 1, currentCoord.second() + 1);
-        Pair<Integer, Integer> br = new Pair<>(currentCoord.first() + 1, currentCoord.second() - 1);
-        Pair<Integer, Integer> tl = new Pair<>(currentCoord.first() - 1, currentCoord.second() - 1);
-        Pair<Integer, Integer> bl = new Pair<>(currentCoord.first() - 1, currentCoord.second() + 1);
-
-        Set<Pair<Integer, Integer>> edges = new HashSet<>();
-        edges.add(tr);
-        edges.add(br);
-        edges.add(tl);
-        edges.add(bl);
-        return edges;
-    }
 }
@@ -1,11 +1,15 @@
 package it.polimi.ingsw.gamemodel;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 import it.polimi.ingsw.exceptions.*;
+import it.polimi.ingsw.utils.CardsManager;
 import it.polimi.ingsw.utils.Pair;
 
 /**
@@ -49,15 +53,32 @@ public class Match implements Serializable {
     // Current match turn as an integer (incremental)
     private int turn;
 
+    // Number of cards played and drawn since the match creation (incremental)
+    private int actionsCount;
+
+    // Seed of every shuffle of the match: the same seed and the same actions always lead to the same match
+    private final long seed;
+
     // Players ranking of the match at the end of it.
     // The List order represents the ranking order, the Boolean represent if the related player is a winner.
     // This is needed since the match can end in a tie, in such case the first two/three players of the List will have a
     // True flag.
-    private List<Pair<Player, Boolean>> playersFinalRanking;
+    // Published once complete, since it's read by other threads while the match is played
+    private volatile List<Pair<Player, Boolean>> playersFinalRanking;
 
     // List of observers
     private transient List<MatchObserver> observers;
 
+    // Name of the system property setting the number of events kept for the players who rejoin
+    private static final String EVENT_HISTORY_PROPERTY = "match.eventHistory";
+    private static final int DEFAULT_EVENT_HISTORY = 256;
+
+    // Last events, sent again to the players who rejoin, so that they don't need the whole match state
+    private transient MatchEventHistory history;
+
+    // Mailbox of the commands changing the match, created again when the match is restored from disk
+    private transient volatile MatchMailbox mailbox;
+
     /**
      * Initializes main Match attributes and allocate the attribute players List, assuming no parameter is null.
      *
@@ -69,7 +90,25 @@ public class Match implements Serializable {
      * @throws IllegalArgumentException if the decks provided do not have enough cards to start a game or maxPlayers are not 2,3,4
      */
     public Match(int maxPlayers, GameDeck<InitialCard> initialsDeck, GameDeck<ResourceCard> resourcesDeck, GameDeck<GoldCard> goldsDeck, GameDeck<Objective> objectivesDeck) throws IllegalArgumentException {
+        this(maxPlayers, initialsDeck, resourcesDeck, goldsDeck, objectivesDeck, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Initializes main Match attributes and allocate the attribute players List, assuming no parameter is null.
+     * Every shuffle of the match is driven by the given seed, so that the match can be reproduced from the seed, the
+     * initial decks and the ordered list of the actions performed by the players.
+     *
+     * @param maxPlayers     maximum number of players to be added to the match, chosen by the first player joining the match
+     * @param initialsDeck   deck of initial cards
+     * @param resourcesDeck  deck of resource cards
+     * @param goldsDeck      deck of gold cards
+     * @param objectivesDeck deck of objectives
+     * @param seed           seed of the shuffles of the decks and of the players order
+     * @throws IllegalArgumentException if the decks provided do not have enough cards to start a game or maxPlayers are not 2,3,4
+     */
+    public Match(int maxPlayers, GameDeck<InitialCard> initialsDeck, GameDeck<ResourceCard> resourcesDeck, GameDeck<GoldCard> goldsDeck, GameDeck<Objective> objectivesDeck, long seed) throws IllegalArgumentException {
         this.maxPlayers = maxPlayers;
+        this.seed = seed;
         this.initialsDeck = initialsDeck;
         this.resourcesDeck = resourcesDeck;
         this.goldsDeck = goldsDeck;
@@ -91,6 +130,121 @@ public class Match implements Serializable {
         this.visiblePlayableCards = new HashMap<>();
     }
 
+    /**
+     * Restores a match from a compact snapshot, see {@link #writeSnapshot(DataOutput)}.
+     *
+     * @param in the snapshot being read
+     * @throws IOException if the snapshot couldn't be read or doesn't contain a valid match
+     */
+    private Match(DataInput in) throws IOException {
+        CardsManager cards = CardsManager.getInstance();
+
+        this.maxPlayers = in.readByte();
+        this.seed = in.readLong();
+        this.turn = in.readInt();
+        this.actionsCount = in.readInt();
+
+        byte flags = in.readByte();
+        this.started = (flags & 1) != 0;
+        this.initialTurnFinished = (flags & 2) != 0;
+        this.lastTurn = (flags & 4) != 0;
+        this.finished = (flags & 8) != 0;
+
+        this.initialsDeck = MatchSnapshotCodec.readDeck(in, cards::initialCard);
+        this.resourcesDeck = MatchSnapshotCodec.readDeck(in, cards::resourceCard);
+        this.goldsDeck = MatchSnapshotCodec.readDeck(in, cards::goldCard);
+        this.objectivesDeck = MatchSnapshotCodec.readDeck(in, cards::objective);
+
+        this.visiblePlayableCards = new HashMap<>();
+        int visibleCount = in.readByte();
+        for (int i = 0; i < visibleCount; i++) {
+            DrawSource source = DrawSource.values()[in.readByte()];
+            visiblePlayableCards.put(source, MatchSnapshotCodec.readCard(in, cards::byId));
+        }
+        this.visibleObjectives = MatchSnapshotCodec.readObjectives(in);
+        this.currentProposedObjectives = MatchSnapshotCodec.readObjectives(in);
+        this.currentGivenInitialCard = MatchSnapshotCodec.readCard(in, cards::initialCard);
+
+        this.players = new ArrayList<>();
+        int playersCount = in.readByte();
+        for (int i = 0; i < playersCount; i++)
+            players.add(Player.readSnapshot(in, this));
+
+        int currentPlayerIndex = in.readByte();
+        this.currentPlayer = currentPlayerIndex < 0 ? null : players.get(currentPlayerIndex);
+        this.currentState = MatchSnapshotCodec.restoreState(in.readByte(), this);
+
+        int rankingSize = in.readByte();
+        if (rankingSize >= 0) {
+            List<Pair<Player, Boolean>> ranking = new ArrayList<>(rankingSize);
+            for (int i = 0; i < rankingSize; i++)
+                ranking.add(new Pair<>(players.get(in.readByte()), in.readBoolean()));
+            this.playersFinalRanking = ranking;
+        }
+    }
+
+    /**
+     * Reads a match from a compact snapshot, written by {@link #writeSnapshot(DataOutput)}.
+     *
+     * @param in the snapshot being read
+     * @return the restored match, without observers
+     * @throws IOException if the snapshot couldn't be read or doesn't contain a valid match
+     */
+    public static Match readSnapshot(DataInput in) throws IOException {
+        try {
+            return new Match(in);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("The snapshot doesn't contain a valid match", e);
+        }
+    }
+
+    /**
+     * Writes a compact snapshot of the match: the cards are written as their ids, resolved through the
+     * {@link CardsManager} when the snapshot is read, and the boards as their placements, so that the snapshot is much
+     * smaller and faster to read than the serialized match.
+     * Note: the match must not change meanwhile, so it has to be called by the match mailbox or holding its lock.
+     *
+     * @param out the stream the snapshot is written to
+     * @throws IOException if the snapshot couldn't be written
+     */
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeByte(maxPlayers);
+        out.writeLong(seed);
+        out.writeInt(turn);
+        out.writeInt(actionsCount);
+        out.writeByte((started ? 1 : 0) | (initialTurnFinished ? 2 : 0) | (lastTurn ? 4 : 0) | (finished ? 8 : 0));
+
+        MatchSnapshotCodec.writeDeck(out, initialsDeck, Card::getId);
+        MatchSnapshotCodec.writeDeck(out, resourcesDeck, Card::getId);
+        MatchSnapshotCodec.writeDeck(out, goldsDeck, Card::getId);
+        MatchSnapshotCodec.writeDeck(out, objectivesDeck, Objective::getID);
+
+        out.writeByte(visiblePlayableCards.size());
+        for (Map.Entry<DrawSource, PlayableCard> visible : visiblePlayableCards.entrySet()) {
+            out.writeByte(visible.getKey().ordinal());
+            MatchSnapshotCodec.writeCard(out, visible.getValue());
+        }
+        MatchSnapshotCodec.writeObjectives(out, visibleObjectives);
+        MatchSnapshotCodec.writeObjectives(out, currentProposedObjectives);
+        MatchSnapshotCodec.writeCard(out, currentGivenInitialCard);
+
+        out.writeByte(players.size());
+        for (Player player : players)
+            player.writeSnapshot(out);
+
+        out.writeByte(currentPlayer == null ? -1 : players.indexOf(currentPlayer));
+        out.writeByte(MatchSnapshotCodec.stateTag(currentState));
+
+        List<Pair<Player, Boolean>> ranking = playersFinalRanking;
+        out.writeByte(ranking == null ? -1 : ranking.size());
+        if (ranking != null) {
+            for (Pair<Player, Boolean> position : ranking) {
+                out.writeByte(players.indexOf(position.first()));
+                out.writeBoolean(position.second());
+            }
+        }
+    }
+
     /**
      * Adds a new player to the match, assuming it's not null.
      * Note: Called by the Controller when a player joins the match.
@@ -130,6 +284,38 @@ public class Match implements Serializable {
         }
     }
 
+    /**
+     * Marks a player as disconnected, so that the player can rejoin the match later, if the match is being played.
+     * Note: Called by the Controller when the connection with a player is lost.
+     *
+     * @param player player whose connection has been lost
+     * @return true if the player has been marked as disconnected, false if the match isn't being played or the player
+     * isn't in the match, so the player has to be removed instead
+     */
+    public boolean disconnectPlayer(Player player) {
+        synchronized (this) {
+            if (!started || finished || !players.contains(player))
+                return false;
+
+            player.setConnected(false);
+            notifyObservers(observer -> observer.someoneDisconnected(player));
+            return true;
+        }
+    }
+
+    /**
+     * Marks a disconnected player as connected again, assuming the player is in the match.
+     * Note: Called by the Controller when a player rejoins the match.
+     *
+     * @param player player who rejoined the match
+     */
+    public void rejoinPlayer(Player player) {
+        synchronized (this) {
+            player.setConnected(true);
+            notifyObservers(observer -> observer.someoneRejoined(player));
+        }
+    }
+
     /**
      * Verifies if the match is full, thus no more players can join.
      * Note: Used by the Controller
@@ -316,13 +502,27 @@ public class Match implements Serializable {
         currentState.transition();
     }
 
+    /**
+     * Creates the generator of one of the shuffles of the match. Each shuffle has its own stream, derived from the match
+     * seed, so that changing a shuffle (e.g. the size of a deck) doesn't change the others.
+     *
+     * @param stream the index of the shuffle
+     * @return a generator depending only on the match seed and on the given index
+     */
+    private SplittableRandom shuffleRandom(int stream) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < stream; i++)
+            random.split();
+        return random.split();
+    }
+
     /**
      * Shuffles the players turns order and gives them their pawn color.
      * Note: Called by SetupState.
      */
     protected void setupPlayers() {
-        // Shuffle players List
-        Collections.shuffle(players);
+        // Shuffle players List, with a generator of its own so that it doesn't depend on the decks size
+        Collections.shuffle(players, shuffleRandom(4));
 
         // Set players' colors
         for (int i = 0; i < maxPlayers; i++) {
@@ -335,11 +535,11 @@ public class Match implements Serializable {
      * Note: Called by SetupState.
      */
     protected void setupDecks() {
-        // Shuffle each deck
-        initialsDeck.shuffle();
-        resourcesDeck.shuffle();
-        goldsDeck.shuffle();
-        objectivesDeck.shuffle();
+        // Shuffle each deck, each with a generator of its own
+        initialsDeck.shuffle(shuffleRandom(0));
+        resourcesDeck.shuffle(shuffleRandom(1));
+        goldsDeck.shuffle(shuffleRandom(2));
+        objectivesDeck.shuffle(shuffleRandom(3));
 
         try {
             // Pop two resources to be placed on the common table
@@ -443,6 +643,8 @@ public class Match implements Serializable {
                 if (currentPlayer.getPoints() >= 20)
                     lastTurn = true;
 
+                actionsCount++;
+
                 // Notify observers and trigger state transition
                 Player copy = new Player(currentPlayer);
                 notifyObservers(observer -> observer.someonePlayedCard(copy, coords, card, side));
@@ -553,6 +755,8 @@ public class Match implements Serializable {
         if (currentPlayer.equals(players.getLast()) && lastTurn)
             finished = true;
 
+        actionsCount++;
+
         // Notify observers and trigger state transition
         PlayableCard replacementCardFinal = replacementCard;
         Player copy = new Player(currentPlayer);
@@ -599,19 +803,16 @@ public class Match implements Serializable {
             int numAchievedObjectives = 0;
 
             // Add to the player the points of the specific objective MULTIPLIED BY how many times they met the
-            // objective requirement
-            if (secretObjective != null)
-                p.addPoints(secretObjective.getPoints() * secretObjective.getReq().timesMet(board));
-            p.addPoints(firstObjective.getPoints() * firstObjective.getReq().timesMet(board));
-            p.addPoints(secondObjective.getPoints() * secondObjective.getReq().timesMet(board));
-
-            // Count the number of achieved objectives by the player
-            if (secretObjective != null && secretObjective.getReq().timesMet(board) >= 1)
-                numAchievedObjectives++;
-            if (firstObjective.getReq().timesMet(board) >= 1)
-                numAchievedObjectives++;
-            if (secondObjective.getReq().timesMet(board) >= 1)
-                numAchievedObjectives++;
+            // objective requirement, and count the number of achieved objectives
+            List<Objective> objectives = secretObjective != null
+                    ? List.of(secretObjective, firstObjective, secondObjective)
+                    : List.of(firstObjective, secondObjective);
+            for (Objective objective : objectives) {
+                int timesMet = objective.getReq().timesMet(board);
+                p.addPoints(objective.getPoints() * timesMet);
+                if (timesMet >= 1)
+                    numAchievedObjectives++;
+            }
 
             playersAchievedObjectives.put(p, numAchievedObjectives);
         }
@@ -624,7 +825,7 @@ public class Match implements Serializable {
      */
     protected void decideWinner() {
         finished = true;
-        playersFinalRanking = new ArrayList<>();
+        List<Pair<Player, Boolean>> ranking = new ArrayList<>();
         Map<Player, Integer> achievedObjectives = checkObjectivesAchievement();
 
         List<Player> sortedPlayers = players.stream()
@@ -649,8 +850,9 @@ public class Match implements Serializable {
             // then they're winner too
             isWinner = p.getPoints() == bestPoints && achievedObjectives.get(p) == bestAchievedObjectives;
 
-            playersFinalRanking.add(new Pair<>(p, isWinner));
+            ranking.add(new Pair<>(p, isWinner));
         }
+        playersFinalRanking = ranking;
 
         // Notify observers
         notifyObservers(MatchObserver::matchFinished);
@@ -726,6 +928,44 @@ public class Match implements Serializable {
         return new Pair<>(goldReign, resourceReign);
     }
 
+    /**
+     * Lists the sources a card can currently be drawn from: the non-empty decks and the visible cards still present.
+     *
+     * @return the available draw sources, empty if there are no cards left
+     */
+    public List<DrawSource> getAvailableDrawSources() {
+        List<DrawSource> sources = new ArrayList<>();
+        if (!goldsDeck.isEmpty())
+            sources.add(DrawSource.GOLDS_DECK);
+        if (!resourcesDeck.isEmpty())
+            sources.add(DrawSource.RESOURCES_DECK);
+        for (DrawSource source : List.of(DrawSource.FIRST_VISIBLE, DrawSource.SECOND_VISIBLE, DrawSource.THIRD_VISIBLE, DrawSource.FOURTH_VISIBLE)) {
+            if (visiblePlayableCards.get(source) != null)
+                sources.add(source);
+        }
+        return sources;
+    }
+
+    /**
+     * Getter for the seed of the match shuffles.
+     * Note: a match created with the same seed and decks, on which the same actions are performed, is identical.
+     *
+     * @return The seed of the match
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Getter for the number of actions (cards played and cards drawn) performed in the match so far.
+     * Note: Used to tell which journaled actions are already part of a match snapshot.
+     *
+     * @return The number of actions performed
+     */
+    public int getActionsCount() {
+        return actionsCount;
+    }
+
     /**
      * Getter for the maximum number of player for the match
      *
@@ -735,6 +975,23 @@ public class Match implements Serializable {
         return maxPlayers;
     }
 
+    /**
+     * Gets the mailbox through which the match is changed by the players and the server (see {@link MatchMailbox}).
+     *
+     * @return Always the same mailbox for this match instance
+     */
+    public MatchMailbox getMailbox() {
+        MatchMailbox current = mailbox;
+        if (current == null) {
+            synchronized (this) {
+                if (mailbox == null)
+                    mailbox = new MatchMailbox(this);
+                current = mailbox;
+            }
+        }
+        return current;
+    }
+
     /**
      * Adds the given MatchObserver to those observers notified on match events.
      *
@@ -742,18 +999,53 @@ public class Match implements Serializable {
      */
     public void subscribeObserver(MatchObserver observer) {
         if (observers == null) {
-            observers = new ArrayList<>();
+            observers = new CopyOnWriteArrayList<>();
         }
         observers.add(observer);
     }
 
+    /**
+     * Adds the given MatchObserver to those observers notified on match events, first notifying it of the events which
+     * followed the given one, so that it doesn't need the whole match state.
+     * Note: Called by the Controller when a player rejoins the match.
+     *
+     * @param observer     The observer to be notified from now on when an event occurs
+     * @param lastSequence The sequence number of the last event the observer knows of, null if unknown
+     * @return true if the observer has been notified of the missed events, false if some of them aren't kept anymore
+     * (or the sequence number is unknown), so the observer has been subscribed but needs the whole match state
+     */
+    public boolean resumeObserver(MatchObserver observer, Long lastSequence) {
+        synchronized (this) {
+            subscribeObserver(observer);
+            if (lastSequence == null)
+                return false;
+
+            MatchEventDispatcher dispatcher = MatchEventDispatcher.getInstance();
+            return getHistory().replayAfter(lastSequence,
+                    (event, observerCallable) -> dispatcher.dispatch(observer, event, observerCallable));
+        }
+    }
+
+    /**
+     * Gets the sequence number of the last event of the match (see {@link MatchEvent#getSequence()}), the one a
+     * player knowing the whole match state is up to.
+     *
+     * @return The sequence number of the last event
+     */
+    public long getLastEventSequence() {
+        synchronized (this) {
+            return getHistory().getLastSequence();
+        }
+    }
+
     /**
      * Removes the given MatchObserver to those observers notified on match events.
      *
      * @param observer The observer to be removed
      */
     public void unsubscribeObserver(MatchObserver observer) {
-        observers.remove(observer);
+        if (observers != null && observers.remove(observer))
+            MatchEventDispatcher.getInstance().release(observer);
     }
 
     /**
@@ -789,21 +1081,35 @@ public class Match implements Serializable {
 
     /**
      * Notifies asynchronously all match observers, calling the passed MatchObserverCallable on each of them.
-     * To be more specific: creates a thread for each match observer, each thread is appointed to call the passed callable
-     * on a MatchObserver instance; then runs all of them; finally joins on them (waiting each of them to return and exit).
+     * To be more specific: enqueues the callable on the {@link MatchEventDispatcher} queue of each observer, so that
+     * every observer receives the match events in the same order they occurred, without waiting for the others.
+     * Every observer gets the same {@link MatchEvent} context, through which they can share their work.
+     * The event is recorded even without observers, for the players who will rejoin the match.
      *
      * @param observerCallable The "method" to be called on each observer of the match
      */
     private void notifyObservers(MatchObserverCallable observerCallable) {
-        if(observers == null || observers.isEmpty())
-            return;
-
-        ExecutorService executor = Executors.newFixedThreadPool(observers.size());
+        synchronized (this) {
+            MatchEvent event = getHistory().record(observerCallable);
+            if (observers == null || observers.isEmpty())
+                return;
 
-        for (MatchObserver observer : observers)
-            executor.submit(() -> observerCallable.call(observer));
+            MatchEventDispatcher dispatcher = MatchEventDispatcher.getInstance();
+            for (MatchObserver observer : observers)
+                dispatcher.dispatch(observer, event, observerCallable);
+        }
+    }
 
-        executor.shutdown();
+    /**
+     * Gets the history of the match events, created on first use since it isn't saved with the match.
+     * Note: to be called while holding the match lock.
+     *
+     * @return The history of the match events
+     */
+    private MatchEventHistory getHistory() {
+        if (history == null)
+            history = new MatchEventHistory(Integer.getInteger(EVENT_HISTORY_PROPERTY, DEFAULT_EVENT_HISTORY));
+        return history;
     }
 
     /**
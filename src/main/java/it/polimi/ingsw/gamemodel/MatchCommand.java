@@ -0,0 +1,18 @@
+package it.polimi.ingsw.gamemodel;
+
+/**
+ * Functional interface used to represent a command ({@link #run()}) executed on a {@link Match} by its
+ * {@link MatchMailbox}, such as a player's move.
+ *
+ * @param <T> The type of the command result, {@link Void} if there's none
+ */
+@FunctionalInterface
+public interface MatchCommand<T> {
+    /**
+     * Executes the command, while no other command of the same match is running.
+     *
+     * @return The result of the command
+     * @throws Exception If the command was rejected by the match
+     */
+    T run() throws Exception;
+}
@@ -0,0 +1,58 @@
+package it.polimi.ingsw.gamemodel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A single event fired by a {@link Match}: the same instance is given to every observer of the match (see
+ * {@link MatchObserver#beforeEvent(MatchEvent)}), so that observers can share the work which depends only on the
+ * event, such as encoding the message sent to every player, instead of repeating it once per observer.
+ * Each event of a match carries a sequence number, greater than the one of the previous event, which players can
+ * give back when they rejoin the match, to get only the events they missed (see
+ * {@link Match#resumeObserver(MatchObserver, Long)}).
+ */
+public final class MatchEvent {
+    // Values shared by the observers of this event, usually one or two
+    private final Map<Object, Object> shared = new HashMap<>(2);
+    private final long sequence;
+
+    /**
+     * Creates the context of a notification which isn't a match event, e.g. the state sent to a rejoining player.
+     */
+    public MatchEvent() {
+        this(0);
+    }
+
+    /**
+     * Creates the context of a match event.
+     *
+     * @param sequence The sequence number of the event
+     */
+    MatchEvent(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Gets the sequence number of the event.
+     *
+     * @return The sequence number of the event, 0 if it's not a match event
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets a value shared by the observers of this event, creating it if no observer has created it yet.
+     * The factory is called at most once per key.
+     *
+     * @param key     What the value is, e.g. the encoding of a message
+     * @param factory Creates the value, called by the first observer asking for it
+     * @param <T>     The type of the value
+     * @return The value for the given key
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T shared(Object key, Supplier<T> factory) {
+        return (T) shared.computeIfAbsent(key, k -> factory.get());
+    }
+}
@@ -0,0 +1,150 @@
+package it.polimi.ingsw.gamemodel;
+
+import it.polimi.ingsw.utils.OrderedTaskQueue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Singleton shared by every {@link Match} of the server, appointed to deliver match events to {@link MatchObserver}
+ * instances.
+ * Each observer owns a FIFO queue, so it receives the events in the same order they were fired by its match, while
+ * different observers are notified in parallel. Queues are drained on virtual threads, so no platform thread is
+ * created per event and an observer blocked on a slow network call only delays itself.
+ */
+public final class MatchEventDispatcher {
+    private static final MatchEventDispatcher singletonInstance = new MatchEventDispatcher();
+
+    private final ExecutorService executor;
+    private final Map<MatchObserver, OrderedTaskQueue> queues;
+
+    // Metrics
+    private final AtomicLong dispatchedEvents;
+    private final AtomicLong deliveredEvents;
+    private final AtomicInteger maxQueueDepth;
+
+    /**
+     * Private constructor since the singleton pattern is being used.
+     */
+    private MatchEventDispatcher() {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("match-events-", 0).factory());
+        queues = new ConcurrentHashMap<>();
+        dispatchedEvents = new AtomicLong();
+        deliveredEvents = new AtomicLong();
+        maxQueueDepth = new AtomicInteger();
+    }
+
+    /**
+     * Getter for the only possible instance available of this class, so used instead of a constructor.
+     *
+     * @return Always the same MatchEventDispatcher instance
+     */
+    public static MatchEventDispatcher getInstance() {
+        return singletonInstance;
+    }
+
+    /**
+     * Enqueues the given event for the given observer: it will be delivered after every event previously dispatched
+     * to the same observer.
+     *
+     * @param observer         The observer to notify
+     * @param observerCallable The "method" to be called on the observer
+     */
+    public void dispatch(MatchObserver observer, MatchObserverCallable observerCallable) {
+        dispatch(observer, new MatchEvent(), observerCallable);
+    }
+
+    /**
+     * Enqueues the given event for the given observer: it will be delivered after every event previously dispatched
+     * to the same observer. The same event context has to be given for every observer notified of the same event.
+     *
+     * @param observer         The observer to notify
+     * @param event            The context of the event, shared with the other observers
+     * @param observerCallable The "method" to be called on the observer
+     */
+    public void dispatch(MatchObserver observer, MatchEvent event, MatchObserverCallable observerCallable) {
+        OrderedTaskQueue queue = queues.computeIfAbsent(observer, o -> new OrderedTaskQueue(executor));
+
+        dispatchedEvents.incrementAndGet();
+        queue.submit(() -> {
+            try {
+                observer.beforeEvent(event);
+                observerCallable.call(observer);
+            } finally {
+                deliveredEvents.incrementAndGet();
+            }
+        });
+
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    /**
+     * Forgets the queue of the given observer. Events already dispatched to it are still delivered.
+     * Note: Called by Match when an observer unsubscribes.
+     *
+     * @param observer The observer whose queue has to be released
+     */
+    public void release(MatchObserver observer) {
+        queues.remove(observer);
+    }
+
+    /**
+     * Gets the number of events waiting to be delivered to the given observer.
+     *
+     * @param observer The observer
+     * @return The number of pending events, 0 if the observer has no queue
+     */
+    public int getQueueDepth(MatchObserver observer) {
+        OrderedTaskQueue queue = queues.get(observer);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Gets the number of events waiting to be delivered, summed over all observers.
+     *
+     * @return The number of pending events
+     */
+    public int getPendingEvents() {
+        return queues.values().stream().mapToInt(OrderedTaskQueue::size).sum();
+    }
+
+    /**
+     * Gets the deepest queue observed since the server started.
+     *
+     * @return The maximum number of events that have been pending at once for a single observer
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * Gets the number of observers currently owning a queue.
+     *
+     * @return The number of queues
+     */
+    public int getActiveQueues() {
+        return queues.size();
+    }
+
+    /**
+     * Gets the number of events dispatched since the server started.
+     *
+     * @return The number of dispatched events
+     */
+    public long getDispatchedEvents() {
+        return dispatchedEvents.get();
+    }
+
+    /**
+     * Gets the number of events delivered since the server started.
+     *
+     * @return The number of delivered events
+     */
+    public long getDeliveredEvents() {
+        return deliveredEvents.get();
+    }
+}
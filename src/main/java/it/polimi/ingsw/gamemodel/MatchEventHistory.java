@@ -0,0 +1,79 @@
+package it.polimi.ingsw.gamemodel;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * The most recent events of a {@link Match}, kept in a ring of fixed size so that a player who rejoins the match can
+ * be sent only the events missed while disconnected, as long as they're still there.
+ * Sequence numbers start from a random value for each history, so that a sequence number of another match, or of
+ * this match before the server restarted, is never mistaken for one of this history.
+ * Note: not thread safe, the match guards it with its lock.
+ */
+final class MatchEventHistory {
+    private final MatchObserverCallable[] events;
+    // Sequence number of the last recorded event
+    private long lastSequence;
+    // Sequence number of the oldest event still recorded
+    private long firstSequence;
+
+    /**
+     * Creates an empty history.
+     *
+     * @param capacity The number of events kept
+     */
+    MatchEventHistory(int capacity) {
+        this(capacity, (long) ThreadLocalRandom.current().nextInt(1, 1 << 24) << 24);
+    }
+
+    /**
+     * Creates an empty history, whose first event gets the sequence number following the given one.
+     *
+     * @param capacity     The number of events kept
+     * @param lastSequence The sequence number preceding the first one
+     */
+    MatchEventHistory(int capacity, long lastSequence) {
+        this.events = new MatchObserverCallable[capacity];
+        this.lastSequence = lastSequence;
+        this.firstSequence = lastSequence + 1;
+    }
+
+    /**
+     * Records a new event, forgetting the oldest one if the history is full.
+     *
+     * @param event The "method" to call on the observers
+     * @return The context of the event, with its sequence number
+     */
+    MatchEvent record(MatchObserverCallable event) {
+        long sequence = ++lastSequence;
+        events[(int) (sequence % events.length)] = event;
+        firstSequence = Math.max(firstSequence, sequence - events.length + 1);
+        return new MatchEvent(sequence);
+    }
+
+    /**
+     * Gets the sequence number of the last recorded event.
+     *
+     * @return The sequence number of the last event, or the one preceding the first event if none has been recorded
+     */
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Gives the events following the given one, oldest first, if all of them are still recorded.
+     *
+     * @param sequence The sequence number of the last event known
+     * @param consumer Receives the context and the "method" of each following event
+     * @return true if the following events have been given, false if some of them have been forgotten or the sequence
+     * number doesn't belong to this history
+     */
+    boolean replayAfter(long sequence, BiConsumer<MatchEvent, MatchObserverCallable> consumer) {
+        if (sequence < firstSequence - 1 || sequence > lastSequence)
+            return false;
+
+        for (long s = sequence + 1; s <= lastSequence; s++)
+            consumer.accept(new MatchEvent(s), events[(int) (s % events.length)]);
+        return true;
+    }
+}
@@ -0,0 +1,225 @@
+package it.polimi.ingsw.gamemodel;
+
+import it.polimi.ingsw.utils.OrderedTaskQueue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Mailbox of the commands changing a {@link Match}, owned by the match itself: the network threads, the bots and the
+ * server submit commands instead of contending for the match lock, and get their result as a
+ * {@link CompletableFuture}.
+ * In the default "actor" execution mode the commands of a match are run one at a time, in submission order, by a
+ * single logical thread; the mailboxes of all the matches share a pool with a thread per core, which spreads the
+ * matches over the cores, and each drain runs a short batch of commands before yielding its thread, so that a busy
+ * match cannot starve the other ones. In the "locked" mode, selected by setting the {@value #EXECUTION_PROPERTY} system property to
+ * "locked", the commands are run right away by the submitting thread, as before.
+ * In both modes a command holds the match lock while running: since every writer goes through the mailbox, the lock is
+ * never contended in actor mode, yet the model stays safe for the code using it directly (e.g. the simulator).
+ */
+public final class MatchMailbox {
+    /**
+     * System property selecting how the commands are run, either "actor" (default) or "locked"
+     */
+    public static final String EXECUTION_PROPERTY = "match.execution";
+
+    // Commands run by a single drain before letting another match use the thread
+    private static final int BATCH_SIZE = 8;
+    private static final boolean ACTOR_MODE = !"locked".equalsIgnoreCase(System.getProperty(EXECUTION_PROPERTY));
+    // One slot per core; platform threads, since the commands run holding the match lock, and virtual threads blocked
+    // on a monitor would pin their carriers and could leave no carrier for the mailboxes
+    private static final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            Thread.ofPlatform().daemon().name("match-mailbox-", 0).factory());
+
+    private final Match match;
+    private final OrderedTaskQueue commands;
+    // The thread running the commands right now, so that a command can submit further commands without waiting itself
+    private volatile Thread runner;
+
+    /**
+     * Initializes the empty mailbox of a match.
+     * Note: Called by Match.
+     *
+     * @param match The match changed by the commands
+     */
+    MatchMailbox(Match match) {
+        this.match = match;
+        this.commands = new OrderedTaskQueue(executor, BATCH_SIZE);
+    }
+
+    /**
+     * Submits a command, which will run after every command previously submitted to this mailbox.
+     * A command submitted by a running command of the same match runs right away instead.
+     *
+     * @param command The command to run
+     * @param <T>     The type of the command result
+     * @return The future result of the command, completed exceptionally with the exception thrown by the command
+     */
+    public <T> CompletableFuture<T> submit(MatchCommand<T> command) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        if (!ACTOR_MODE || Thread.currentThread() == runner)
+            run(command, result);
+        else
+            commands.submit(() -> {
+                runner = Thread.currentThread();
+                try {
+                    run(command, result);
+                } finally {
+                    runner = null;
+                }
+            });
+
+        return result;
+    }
+
+    /**
+     * Submits a command and waits for its result.
+     *
+     * @param command The command to run
+     * @param <T>     The type of the command result
+     * @return The result of the command
+     * @throws Exception The exception thrown by the command
+     */
+    public <T> T call(MatchCommand<T> command) throws Exception {
+        try {
+            return submit(command).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Submits a command and waits for its result, like {@link #call(MatchCommand)}, rethrowing only the given checked
+     * exception: any other checked exception thrown by the command is wrapped in an {@link IllegalStateException}.
+     *
+     * @param command The command to run
+     * @param a       The checked exception the caller declares, {@link RuntimeException} if none
+     * @param <T>     The type of the command result
+     * @param <A>     The type of the checked exception
+     * @return The result of the command
+     * @throws A The exception thrown by the command, if of the given type
+     */
+    public <T, A extends Exception> T call(MatchCommand<T> command, Class<A> a) throws A {
+        return call(command, a, a, a, a);
+    }
+
+    /**
+     * Submits a command and waits for its result, see {@link #call(MatchCommand, Class, Class, Class, Class)}.
+     *
+     * @param command The command to run
+     * @param a       A checked exception the caller declares
+     * @param b       Another checked exception the caller declares
+     * @param <T>     The type of the command result
+     * @param <A>     The type of the first checked exception
+     * @param <B>     The type of the second checked exception
+     * @return The result of the command
+     * @throws A The exception thrown by the command, if of the first type
+     * @throws B The exception thrown by the command, if of the second type
+     */
+    public <T, A extends Exception, B extends Exception> T call(MatchCommand<T> command, Class<A> a, Class<B> b)
+            throws A, B {
+        return call(command, a, b, b, b);
+    }
+
+    /**
+     * Submits a command and waits for its result, see {@link #call(MatchCommand, Class, Class, Class, Class)}.
+     *
+     * @param command The command to run
+     * @param a       A checked exception the caller declares
+     * @param b       Another checked exception the caller declares
+     * @param c       Another checked exception the caller declares
+     * @param <T>     The type of the command result
+     * @param <A>     The type of the first checked exception
+     * @param <B>     The type of the second checked exception
+     * @param <C>     The type of the third checked exception
+     * @return The result of the command
+     * @throws A The exception thrown by the command, if of the first type
+     * @throws B The exception thrown by the command, if of the second type
+     * @throws C The exception thrown by the command, if of the third type
+     */
+    public <T, A extends Exception, B extends Exception, C extends Exception> T call(MatchCommand<T> command,
+            Class<A> a, Class<B> b, Class<C> c) throws A, B, C {
+        return call(command, a, b, c, c);
+    }
+
+    /**
+     * Submits a command and waits for its result, like {@link #call(MatchCommand)}, rethrowing only the given checked
+     * exceptions, the ones declared by the caller: any other checked exception thrown by the command is wrapped in an
+     * {@link IllegalStateException}, while unchecked exceptions are rethrown as they are.
+     *
+     * @param command The command to run
+     * @param a       A checked exception the caller declares
+     * @param b       Another checked exception the caller declares
+     * @param c       Another checked exception the caller declares
+     * @param d       Another checked exception the caller declares
+     * @param <T>     The type of the command result
+     * @param <A>     The type of the first checked exception
+     * @param <B>     The type of the second checked exception
+     * @param <C>     The type of the third checked exception
+     * @param <D>     The type of the fourth checked exception
+     * @return The result of the command
+     * @throws A The exception thrown by the command, if of the first type
+     * @throws B The exception thrown by the command, if of the second type
+     * @throws C The exception thrown by the command, if of the third type
+     * @throws D The exception thrown by the command, if of the fourth type
+     */
+    public <T, A extends Exception, B extends Exception, C extends Exception, D extends Exception> T call(
+            MatchCommand<T> command, Class<A> a, Class<B> b, Class<C> c, Class<D> d) throws A, B, C, D {
+        try {
+            return call(command);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            rethrowIf(e, a);
+            rethrowIf(e, b);
+            rethrowIf(e, c);
+            rethrowIf(e, d);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Throws the given exception if it's of the given type
+    private static <E extends Exception> void rethrowIf(Exception e, Class<E> type) throws E {
+        if (type.isInstance(e))
+            throw type.cast(e);
+    }
+
+    /**
+     * Gets the number of commands submitted and not yet started.
+     *
+     * @return The number of pending commands
+     */
+    public int getPendingCommands() {
+        return commands.size();
+    }
+
+    /**
+     * Tells whether the commands are run by the mailboxes or by the submitting threads.
+     *
+     * @return true in actor mode, false in locked mode
+     */
+    public static boolean isActorMode() {
+        return ACTOR_MODE;
+    }
+
+    // Runs a command holding the match lock, then completes its result without the lock, since completing it may run
+    // the actions of the caller (e.g. sending a reply)
+    private <T> void run(MatchCommand<T> command, CompletableFuture<T> result) {
+        T value;
+        try {
+            synchronized (match) {
+                value = command.run();
+            }
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        result.complete(value);
+    }
+}
@@ -32,6 +32,26 @@ public interface MatchObserver {
      */
     void someoneQuit(Player someone);
 
+    /**
+     * Notifies that the connection with a player has been lost, the player can join the match again for a while.
+     * Observers not interested in the event don't have to implement it, since the other players can't tell a
+     * disconnected player from a slow one.
+     *
+     * @param someone The Player instance that has disconnected
+     */
+    default void someoneDisconnected(Player someone) {
+    }
+
+    /**
+     * Notifies that a disconnected player has joined the match again (e.g. after a server crash).
+     * Observers not interested in the event don't have to implement it, since players are notified of a rejoin
+     * through the resumed match.
+     *
+     * @param someone The Player instance that has rejoined
+     */
+    default void someoneRejoined(Player someone) {
+    }
+
     /**
      * Notifies that someone has drawn its initial card.
      * Note that Match calls this method on all MatchObservers instance subscribed to itself, then
@@ -120,4 +140,14 @@ public interface MatchObserver {
      * Notifies that the match has just finished.
      */
     void matchFinished();
+
+    /**
+     * Called right before each event is notified to this observer, with the context of the event, which is shared by
+     * all the observers notified of the same event. Observers not sharing any work with the others don't have to
+     * implement it.
+     *
+     * @param event The event about to be notified
+     */
+    default void beforeEvent(MatchEvent event) {
+    }
 }
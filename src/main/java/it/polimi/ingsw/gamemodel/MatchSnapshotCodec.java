@@ -0,0 +1,187 @@
+package it.polimi.ingsw.gamemodel;
+
+import it.polimi.ingsw.utils.CardsManager;
+import it.polimi.ingsw.utils.Pair;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Helpers of the compact snapshots of a {@link Match} (see {@link Match#writeSnapshot(DataOutput)}), which store the
+ * cards as their ids and resolve them through the {@link CardsManager} when read, instead of serializing every face,
+ * corner and requirement of every card.
+ * The other parts of a snapshot are written by the classes they belong to:
+ * <ul>
+ * <li>the match: seed, counters, flags, decks (as arrays of ids from the bottom to the top), visible and proposed
+ * cards, players, current player, state tag and final ranking
+ * <li>each player: username, points, pawn color, secret objective and board
+ * <li>each board: the hand and the placed cards as (x, y, id, side, turn) in placement order, placed again when read,
+ * so that the resources, the frontier and the matchers of the board are rebuilt exactly as they were
+ * </ul>
+ */
+final class MatchSnapshotCodec {
+    // Written instead of the id of a missing card
+    private static final short NO_CARD = -1;
+
+    // Tags of the match states, in the order of the states in a match
+    private static final byte WAIT = 0;
+    private static final byte NEXT_TURN = 1;
+    private static final byte CHOOSE_INITIAL_SIDE = 2;
+    private static final byte CHOOSE_SECRET_OBJECTIVE = 3;
+    private static final byte AFTER_MOVE = 4;
+    private static final byte AFTER_DRAW = 5;
+    private static final byte FINAL = 6;
+
+    private MatchSnapshotCodec() {
+    }
+
+    /**
+     * Writes the id of a card.
+     *
+     * @param out  The snapshot being written
+     * @param card The card, possibly null
+     * @throws IOException If the snapshot couldn't be written
+     */
+    static void writeCard(DataOutput out, Card card) throws IOException {
+        out.writeShort(card == null ? NO_CARD : card.getId());
+    }
+
+    /**
+     * Writes the id of an objective.
+     *
+     * @param out       The snapshot being written
+     * @param objective The objective, possibly null
+     * @throws IOException If the snapshot couldn't be written
+     */
+    static void writeObjective(DataOutput out, Objective objective) throws IOException {
+        out.writeShort(objective == null ? NO_CARD : objective.getID());
+    }
+
+    /**
+     * Writes a pair of objectives.
+     *
+     * @param out        The snapshot being written
+     * @param objectives The objectives, possibly null
+     * @throws IOException If the snapshot couldn't be written
+     */
+    static void writeObjectives(DataOutput out, Pair<Objective, Objective> objectives) throws IOException {
+        out.writeBoolean(objectives != null);
+        if (objectives != null) {
+            writeObjective(out, objectives.first());
+            writeObjective(out, objectives.second());
+        }
+    }
+
+    /**
+     * Writes the cards of a deck, from the bottom to the top.
+     *
+     * @param out  The snapshot being written
+     * @param deck The deck
+     * @param id   The id of a card of the deck
+     * @throws IOException If the snapshot couldn't be written
+     */
+    static <T> void writeDeck(DataOutput out, GameDeck<T> deck, ToIntFunction<T> id) throws IOException {
+        List<T> cards = deck.getCards();
+        out.writeShort(cards.size());
+        for (T card : cards)
+            out.writeShort(id.applyAsInt(card));
+    }
+
+    /**
+     * Reads the id of a card and resolves it.
+     *
+     * @param in     The snapshot being read
+     * @param lookup The cards of the expected type by id, returning null for unknown ids
+     * @return The card, null if the card was missing
+     * @throws IOException If the snapshot couldn't be read or refers to an unknown card
+     */
+    static <T> T readCard(DataInput in, IntFunction<T> lookup) throws IOException {
+        short id = in.readShort();
+        if (id == NO_CARD)
+            return null;
+
+        T card = lookup.apply(id);
+        if (card == null)
+            throw new IOException("The snapshot refers to the unknown card " + id);
+        return card;
+    }
+
+    /**
+     * Reads a pair of objectives.
+     *
+     * @param in The snapshot being read
+     * @return The objectives, null if they were missing
+     * @throws IOException If the snapshot couldn't be read or refers to an unknown card
+     */
+    static Pair<Objective, Objective> readObjectives(DataInput in) throws IOException {
+        if (!in.readBoolean())
+            return null;
+
+        CardsManager cards = CardsManager.getInstance();
+        return new Pair<>(readCard(in, cards::objective), readCard(in, cards::objective));
+    }
+
+    /**
+     * Reads the cards of a deck.
+     *
+     * @param in     The snapshot being read
+     * @param lookup The cards of the deck type by id
+     * @return The deck
+     * @throws IOException If the snapshot couldn't be read or refers to an unknown card
+     */
+    static <T> GameDeck<T> readDeck(DataInput in, IntFunction<T> lookup) throws IOException {
+        int size = in.readShort();
+        List<T> cards = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            cards.add(readCard(in, lookup));
+        return new GameDeck<>(cards);
+    }
+
+    /**
+     * Gets the tag of a match state.
+     *
+     * @param state The state
+     * @return The tag written in the snapshot
+     */
+    static byte stateTag(MatchState state) {
+        return switch (state) {
+            case WaitState ignored -> WAIT;
+            case NextTurnState ignored -> NEXT_TURN;
+            case ChooseInitialSideState ignored -> CHOOSE_INITIAL_SIDE;
+            case ChooseSecretObjectiveState ignored -> CHOOSE_SECRET_OBJECTIVE;
+            case AfterMoveState ignored -> AFTER_MOVE;
+            case AfterDrawState ignored -> AFTER_DRAW;
+            case FinalState ignored -> FINAL;
+            default -> throw new IllegalArgumentException("Unknown match state: " + state.getClass());
+        };
+    }
+
+    /**
+     * Creates the state of a restored match, without the side effects of entering the state (e.g. the next player of
+     * {@link NextTurnState}), already contained in the snapshot.
+     *
+     * @param tag   The tag read from the snapshot
+     * @param match The restored match
+     * @return The state of the match
+     * @throws IOException If the tag is unknown
+     */
+    static MatchState restoreState(byte tag, Match match) throws IOException {
+        MatchState state = switch (tag) {
+            case WAIT -> new WaitState(match);
+            case NEXT_TURN -> new NextTurnState();
+            case CHOOSE_INITIAL_SIDE -> new ChooseInitialSideState(match);
+            case CHOOSE_SECRET_OBJECTIVE -> new ChooseSecretObjectiveState(match);
+            case AFTER_MOVE -> new AfterMoveState(match);
+            case AFTER_DRAW -> new AfterDrawState(match);
+            case FINAL -> new FinalState();
+            default -> throw new IOException("The snapshot contains the unknown match state " + tag);
+        };
+        state.match = match;
+        return state;
+    }
+}
@@ -13,6 +13,13 @@ public class NextTurnState extends MatchState implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Empty constructor used to restore a match in this state from a snapshot, without changing the match.
+     */
+    NextTurnState() {
+
+    }
+
     /**
      * Initializes this instance.
      *
@@ -0,0 +1,14 @@
+package it.polimi.ingsw.gamemodel;
+
+import it.polimi.ingsw.utils.Pair;
+
+/**
+ * A legal placement of a card from a player's hand
+ *
+ * @param coords the coordinates in which the card can be placed
+ * @param card   the card to be placed
+ * @param side   the side the card can be placed on
+ * @see Board#legalMoves(java.util.List)
+ */
+public record PlacementMove(Pair<Integer, Integer> coords, PlayableCard card, Side side) {
+}
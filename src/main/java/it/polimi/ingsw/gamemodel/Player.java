@@ -6,6 +6,11 @@ import it.polimi.ingsw.exceptions.WrongStateException;
 import it.polimi.ingsw.exceptions.WrongTurnException;
 import it.polimi.ingsw.utils.Pair;
 
+import it.polimi.ingsw.utils.CardsManager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.Objects;
@@ -59,6 +64,42 @@ public class Player implements Serializable {
         this.secretObjective = player.secretObjective;
     }
 
+    /**
+     * Writes the player to a compact snapshot of the match.
+     *
+     * @param out the snapshot being written
+     * @throws IOException if the snapshot couldn't be written
+     * @see MatchSnapshotCodec
+     */
+    void writeSnapshot(DataOutput out) throws IOException {
+        out.writeUTF(username);
+        out.writeShort(points);
+        out.writeByte(pawnColor == null ? -1 : pawnColor.ordinal());
+        MatchSnapshotCodec.writeObjective(out, secretObjective);
+        out.writeBoolean(connected);
+        board.writeSnapshot(out);
+    }
+
+    /**
+     * Reads a player from a compact snapshot of the match.
+     *
+     * @param in    the snapshot being read
+     * @param match the restored match the player belongs to
+     * @return the restored player
+     * @throws IOException if the snapshot couldn't be read or doesn't contain a valid player
+     * @see MatchSnapshotCodec
+     */
+    static Player readSnapshot(DataInput in, Match match) throws IOException {
+        Player player = new Player(in.readUTF(), match);
+        player.points = in.readShort();
+        byte color = in.readByte();
+        player.pawnColor = color < 0 ? null : Color.values()[color];
+        player.secretObjective = MatchSnapshotCodec.readCard(in, CardsManager.getInstance()::objective);
+        player.connected = in.readBoolean();
+        player.board.readSnapshot(in);
+        return player;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -2,9 +2,7 @@ package it.polimi.ingsw.gamemodel;
 
 import java.io.Serial;
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.EnumSet;
-import java.util.List;
 import java.util.Map;
 import it.polimi.ingsw.exceptions.InvalidResourceException;
 import it.polimi.ingsw.utils.Pair;
@@ -36,48 +34,16 @@ public class PositionRequirement extends Requirement implements Serializable {
     }
 
     /**
-     * The requirement will be satisfied if the board has cards of the specified faction in the correct relative positions
+     * The requirement will be satisfied if the board has cards of the specified faction in the correct relative positions.
+     * Each card can be part of a single pattern; the count is kept up to date by the board as cards are placed, so after the
+     * first call this takes constant time
      *
      * @param board the {@link Board} on which the requirement must be checked
-     * @return whether the board actually meets the requirement or not
+     * @return how many times the board meets the requirement
      */
     @Override
     public int timesMet(Board board) {
-        Map<Pair<Integer, Integer>, PlacedCard> placedCards = board.getPlacedCards();
-        List<Pair<Integer, Integer>> alreadyUsed = new ArrayList<>();
-
-        PlacedCard cmpPlaced;
-        Card cmp;
-
-        boolean requirementMatched;
-        int timesMet = 0;
-
-        Pair<Integer, Integer> tmp;
-
-        for (Pair<Integer, Integer> coord : placedCards.keySet()) {
-            requirementMatched = true;
-            // for each card in the board
-            for (Pair<Integer, Integer> offset : this.reqs.keySet()) {
-                tmp = new Pair<>(coord.first() + offset.first(), coord.second() + offset.second());
-                cmpPlaced = placedCards.get(tmp);
-                if (cmpPlaced != null) { // card in required position does not exist so go next
-                    cmp = cmpPlaced.getCard();
-                    // if the card is not a playable it is the initial (so go next), and if the reign is not matched go next
-                    if ((!(cmp instanceof PlayableCard)) || ((PlayableCard) cmp).getReign() != this.reqs.get(offset) || alreadyUsed.indexOf(tmp) != -1) {
-                        requirementMatched = false;
-                    }
-                } else {
-                    requirementMatched = false;
-                }
-            }
-            if (requirementMatched) {
-                for (Pair<Integer, Integer> offset : reqs.keySet()) {
-                    alreadyUsed.add(new Pair<>(coord.first() + offset.first(), coord.second() + offset.second()));
-                }
-                timesMet++;
-            }
-        }
-        return timesMet;
+        return board.getMatcher(this).getTimesMet();
     }
 
     /**
@@ -0,0 +1,117 @@
+package it.polimi.ingsw.gamemodel;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import it.polimi.ingsw.utils.Pair;
+
+/**
+ * Keeps count of how many times a {@link PositionRequirement} is met on a {@link Board}, updating it every time a card
+ * is placed: only the patterns the new card can be part of are checked.
+ * Overlapping patterns are resolved in placement order: each card is counted in at most one pattern, and a pattern is
+ * locked in as soon as its last card is placed, even if leaving it out would let more patterns be counted later. When
+ * the new card completes several patterns at once, the one in which it takes the first cell of the requirement, sorted
+ * by x and then by y, is counted. The count therefore depends only on the cards and their placement order
+ */
+class PositionRequirementMatcher implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // Offsets and reigns of the requirement's cells
+    private final int[] offsetsX;
+    private final int[] offsetsY;
+    private final Symbol[] reigns;
+
+    // Coordinates of the cards already used by a pattern, packed in a long
+    private final Set<Long> used;
+    private int timesMet;
+
+    /**
+     * Class constructor. The cards already on the board are checked in the order they were placed
+     *
+     * @param requirement the requirement to be matched
+     * @param board       the board on which the requirement is matched
+     */
+    PositionRequirementMatcher(PositionRequirement requirement, Board board) {
+        Map<Pair<Integer, Integer>, Symbol> reqs = requirement.getReqs();
+        offsetsX = new int[reqs.size()];
+        offsetsY = new int[reqs.size()];
+        reigns = new Symbol[reqs.size()];
+
+        // the cells are sorted, so that the pattern counted doesn't depend on the iteration order of the map
+        List<Map.Entry<Pair<Integer, Integer>, Symbol>> cells = new ArrayList<>(reqs.entrySet());
+        cells.sort(Comparator.comparing((Map.Entry<Pair<Integer, Integer>, Symbol> cell) -> cell.getKey().first())
+                .thenComparing(cell -> cell.getKey().second()));
+
+        int i = 0;
+        for (Map.Entry<Pair<Integer, Integer>, Symbol> req : cells) {
+            offsetsX[i] = req.getKey().first();
+            offsetsY[i] = req.getKey().second();
+            reigns[i] = req.getValue();
+            i++;
+        }
+
+        used = new HashSet<>();
+        for (i = 0; i < board.getPlacedCardsCount(); i++) {
+            cardPlaced(board, board.getPlacedX(i), board.getPlacedY(i));
+        }
+    }
+
+    /**
+     * Getter for the PositionRequirementMatcher class
+     *
+     * @return how many times the requirement is met, without overlapping patterns
+     */
+    int getTimesMet() {
+        return timesMet;
+    }
+
+    /**
+     * Checks whether the card just placed completes a pattern, counting it if none of its cards have been used yet.
+     * The cards of the counted pattern can't be used by any later pattern
+     *
+     * @param board the board on which the card has been placed
+     * @param x     the x coordinate of the card
+     * @param y     the y coordinate of the card
+     */
+    void cardPlaced(Board board, int x, int y) {
+        // the new card can take the place of each cell of the requirement
+        for (int anchor = 0; anchor < reigns.length; anchor++) {
+            int anchorX = x - offsetsX[anchor];
+            int anchorY = y - offsetsY[anchor];
+
+            if (matches(board, anchorX, anchorY)) {
+                for (int i = 0; i < reigns.length; i++) {
+                    used.add(pack(anchorX + offsetsX[i], anchorY + offsetsY[i]));
+                }
+                timesMet++;
+                // the new card is now used, so no other pattern can include it
+                return;
+            }
+        }
+    }
+
+    private boolean matches(Board board, int anchorX, int anchorY) {
+        for (int i = 0; i < reigns.length; i++) {
+            int cellX = anchorX + offsetsX[i];
+            int cellY = anchorY + offsetsY[i];
+            PlacedCard placed = board.getPlacedCard(cellX, cellY);
+
+            // the initial card is not playable, so it has no reign
+            if (placed == null || !(placed.getCard() instanceof PlayableCard card) || card.getReign() != reigns[i]
+                    || used.contains(pack(cellX, cellY))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+}
@@ -13,8 +13,14 @@ public class QuantityRequirement extends Requirement implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    private static final Symbol[] SYMBOLS = Symbol.values();
+
     private Map<Symbol, Integer> reqs;
 
+    // Required amount of each symbol indexed by its ordinal, so that checking the requirement doesn't box the amounts.
+    // Built on first use, since cards parsed from json skip the constructor
+    private transient volatile int[] reqAmounts;
+
     /**
      * Class constructor. Only valid symbols are the ones returned by {@link Symbol#getBasicResources()}
      *
@@ -39,20 +45,31 @@ public class QuantityRequirement extends Requirement implements Serializable {
      */
     @Override
     public int timesMet(Board board) {
-        Map<Symbol, Integer> availableResources = board.getAvailableResources();
-        Integer min = null;
-        Integer curr;
+        int[] amounts = getReqAmounts();
+        int min = Integer.MAX_VALUE;
 
-        for (Symbol req : reqs.keySet()) {
-            curr = availableResources.get(req) / reqs.get(req);
-            if (min == null || curr < min) {
-                min = curr;
+        for (Symbol symbol : SYMBOLS) {
+            int amount = amounts[symbol.ordinal()];
+            if (amount > 0) {
+                min = Math.min(min, board.getAvailableResource(symbol) / amount);
             }
         }
 
         return min;
     }
 
+    private int[] getReqAmounts() {
+        int[] amounts = this.reqAmounts;
+        if (amounts == null) {
+            amounts = new int[SYMBOLS.length];
+            for (Map.Entry<Symbol, Integer> req : this.reqs.entrySet()) {
+                amounts[req.getKey().ordinal()] = req.getValue();
+            }
+            this.reqAmounts = amounts;
+        }
+        return amounts;
+    }
+
     /**
      * Getter for the QuantityRequirement class
      *
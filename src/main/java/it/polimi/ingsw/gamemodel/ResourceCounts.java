@@ -0,0 +1,66 @@
+package it.polimi.ingsw.gamemodel;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Amount of each basic resource owned by a player, stored in an array indexed by the symbols' ordinal so that
+ * reading and updating it never boxes the counts
+ *
+ * @see Symbol#isBasicResource()
+ */
+final class ResourceCounts implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final Symbol[] SYMBOLS = Symbol.values();
+
+    private final int[] counts;
+
+    /**
+     * Class constructor. Every resource starts from 0
+     */
+    ResourceCounts() {
+        this.counts = new int[SYMBOLS.length];
+    }
+
+    /**
+     * Getter for the ResourceCounts class
+     *
+     * @param symbol the resource
+     * @return the amount of the resource, always 0 if the symbol is not a basic resource
+     */
+    int get(Symbol symbol) {
+        return this.counts[symbol.ordinal()];
+    }
+
+    /**
+     * Changes the amount of a resource. Symbols that are not basic resources are ignored
+     *
+     * @param symbol the resource
+     * @param amount how much the resource changes, negative if it decreases
+     */
+    void add(Symbol symbol, int amount) {
+        if (symbol.isBasicResource()) {
+            this.counts[symbol.ordinal()] += amount;
+        }
+    }
+
+    /**
+     * Creates a read-only copy of the counts, to be sent to the clients
+     *
+     * @return an unmodifiable map from each basic resource to its amount
+     */
+    Map<Symbol, Integer> toMap() {
+        Map<Symbol, Integer> map = new EnumMap<>(Symbol.class);
+        for (Symbol symbol : SYMBOLS) {
+            if (symbol.isBasicResource()) {
+                map.put(symbol, this.counts[symbol.ordinal()]);
+            }
+        }
+        return Collections.unmodifiableMap(map);
+    }
+}
@@ -21,6 +21,17 @@ public enum Symbol {
     NO_MULT,
     CORNER_OBJ;
 
+    /**
+     * Checks whether the symbol is a basic resource (one of the 4 reigns or of the 3 "symbols"), without creating a new set
+     * like {@link #getBasicResources()} does
+     *
+     * @return true if the symbol is a basic resource, false otherwise
+     */
+    public boolean isBasicResource() {
+        // the basic resources are the first constants
+        return this.ordinal() <= PARCHMENT.ordinal();
+    }
+
     /**
      * Generates subset containing only the four basic reigns
      *
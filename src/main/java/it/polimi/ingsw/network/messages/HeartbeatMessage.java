@@ -0,0 +1,30 @@
+package it.polimi.ingsw.network.messages;
+
+/**
+ * Ping sent by the clients to check the connection, and pong answered by the server. In the JSON format they're
+ * sent as the plain lines "ping" and "pong", not as JSON objects.
+ */
+public final class HeartbeatMessage extends Message {
+    public static final HeartbeatMessage PING = new HeartbeatMessage("ping");
+    public static final HeartbeatMessage PONG = new HeartbeatMessage("pong");
+
+    private final String line;
+
+    private HeartbeatMessage(String line) {
+        this.line = line;
+    }
+
+    /**
+     * @return the line sent in the JSON format
+     */
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * @return true if this is the ping, false if it's the pong
+     */
+    public boolean isPing() {
+        return this == PING;
+    }
+}
@@ -6,9 +6,9 @@ import it.polimi.ingsw.network.messages.Message;
  * Messages sent by clients to the server to express a user intention to do an
  * action
  */
-public sealed abstract class ActionMessage extends Message permits ChooseInitialCardSideMessage, ChooseSecretObjectiveMessage,
+public sealed abstract class ActionMessage extends Message permits AddBotMessage, ChooseInitialCardSideMessage, ChooseSecretObjectiveMessage,
         CreateMatchMessage, DrawCardMessage, DrawInitialCardMessage, DrawSecretObjectivesMessage, GetAvailableMatchesMessage,
-        JoinMatchMessage, PlayCardMessage, SendBroadcastTextMessage, SendPrivateTextMessage {
+        JoinMatchMessage, PlayCardMessage, SendBroadcastTextMessage, SendPrivateTextMessage, SubscribeLobbyMessage {
     private String action;
     private String username;
 
@@ -0,0 +1,21 @@
+package it.polimi.ingsw.network.messages.actions;
+
+/**
+ * The action communicates (to the server) the intention of a client to fill a seat of a match with a bot.
+ */
+public final class AddBotMessage extends ActionMessage {
+    private final String matchName;
+
+    public AddBotMessage(String username, String matchName) {
+        super(username);
+        this.matchName = matchName;
+    }
+
+    /***
+     *
+     * @return Name of the match
+     */
+    public String getMatchName() {
+        return matchName;
+    }
+}
@@ -5,10 +5,17 @@ package it.polimi.ingsw.network.messages.actions;
  */
 public final class JoinMatchMessage extends ActionMessage {
     private final String matchName;
+    // Sequence number of the last match event received, when rejoining the match
+    private final Long lastSequence;
 
     public JoinMatchMessage(String username, String matchName) {
+        this(username, matchName, null);
+    }
+
+    public JoinMatchMessage(String username, String matchName, Long lastSequence) {
         super(username);
         this.matchName = matchName;
+        this.lastSequence = lastSequence;
     }
 
     /**
@@ -17,4 +24,12 @@ public final class JoinMatchMessage extends ActionMessage {
     public String getMatchName() {
         return matchName;
     }
+
+    /**
+     * @return Sequence number of the last match event received before the disconnection, null if
+     * unknown, in which case the whole match state is sent when rejoining the match
+     */
+    public Long getLastSequence() {
+        return lastSequence;
+    }
 }
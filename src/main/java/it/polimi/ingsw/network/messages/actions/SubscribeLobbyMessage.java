@@ -0,0 +1,12 @@
+package it.polimi.ingsw.network.messages.actions;
+
+/**
+ * The action communicates (to the server) the intention of a client in the lobby to receive the changes of the
+ * available matches, instead of asking for them: the server answers with an AvailableMatchesMessage, then sends a
+ * LobbyUpdateMessage for each change, until the client joins a match.
+ */
+public final class SubscribeLobbyMessage extends ActionMessage {
+    public SubscribeLobbyMessage(String username) {
+        super(username);
+    }
+}
@@ -1,9 +1,6 @@
 package it.polimi.ingsw.network.messages.responses;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import it.polimi.ingsw.gamemodel.Match;
 import it.polimi.ingsw.utils.AvailableMatch;
 
 /**
@@ -19,10 +16,9 @@ public final class AvailableMatchesMessage extends ResponseMessage {
      * 
      * @param availableMatches The available matches present on server
      */
-    public AvailableMatchesMessage(Map<String, Match> availableMatches) {
+    public AvailableMatchesMessage(List<AvailableMatch> availableMatches) {
         super(null);
-        matches = new ArrayList<>();
-        availableMatches.forEach((n, m) -> matches.add(encodeMatch(n, m)));
+        matches = availableMatches;
     }
 
     /**
@@ -34,8 +30,4 @@ public final class AvailableMatchesMessage extends ResponseMessage {
     public List<AvailableMatch> getMatches() {
         return matches;
     }
-
-    private final AvailableMatch encodeMatch(String name, Match match) {
-        return new AvailableMatch(name, match.getMaxPlayers(), match.getPlayers().size(), match.isRejoinable());
-    }
 }
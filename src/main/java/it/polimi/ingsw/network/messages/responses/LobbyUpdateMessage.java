@@ -0,0 +1,30 @@
+package it.polimi.ingsw.network.messages.responses;
+
+import it.polimi.ingsw.utils.AvailableMatch;
+import it.polimi.ingsw.utils.LobbyUpdate;
+
+/**
+ * This response is sent to the clients subscribed to the lobby when an available match changes.
+ */
+public final class LobbyUpdateMessage extends ResponseMessage {
+    private final String matchName;
+    private final AvailableMatch match;
+
+    /**
+     * Class constructor.
+     *
+     * @param update The change of the available match
+     */
+    public LobbyUpdateMessage(LobbyUpdate update) {
+        super(null);
+        this.matchName = update.matchName();
+        this.match = update.match();
+    }
+
+    /**
+     * @return the change of the available match
+     */
+    public LobbyUpdate getUpdate() {
+        return new LobbyUpdate(matchName, match);
+    }
+}
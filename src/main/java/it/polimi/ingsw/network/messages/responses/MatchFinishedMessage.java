@@ -1,10 +1,7 @@
 package it.polimi.ingsw.network.messages.responses;
 
 import java.util.List;
-import java.util.stream.Collectors;
-import it.polimi.ingsw.gamemodel.Player;
 import it.polimi.ingsw.utils.LeaderboardEntry;
-import it.polimi.ingsw.utils.Pair;
 
 /**
  * This response is sent to each player when the match is finished
@@ -22,13 +19,9 @@ public final class MatchFinishedMessage extends ResponseMessage {
         return ranking;
     }
 
-    public MatchFinishedMessage(List<Pair<Player, Boolean>> finalRanking) {
+    public MatchFinishedMessage(List<LeaderboardEntry> ranking) {
         super(null);
-        ranking = finalRanking.stream().map(p -> createLeaderboardEntry(p.first(), p.second())).collect(Collectors.toList());
-    }
-
-    private LeaderboardEntry createLeaderboardEntry(Player p, Boolean b) {
-        return new LeaderboardEntry(p.getUsername(), p.getPoints(), b);
+        this.ranking = ranking;
     }
 
 }
@@ -86,4 +86,22 @@ public final class MatchStartedMessage extends ResponseMessage {
         }
     }
 
+    /**
+     * Constructor taking the content of the message as it's sent, e.g. when decoded.
+     *
+     * @param visibleObjectives IDs of the visible objectives
+     * @param visibleCards      Map that for each visible draw source maps the ID of the visible card
+     * @param visibleDeckReigns Reigns of the cards on top of the golds deck and of the resources deck
+     * @param playerHands       Map that for each player maps the IDs of the cards in their hand
+     * @param playerPawnColors  Map that for each player maps the color of their pawn
+     */
+    public MatchStartedMessage(Integer[] visibleObjectives, Map<DrawSource, Integer> visibleCards, Symbol[] visibleDeckReigns,
+            Map<String, Integer[]> playerHands, Map<String, Color> playerPawnColors) {
+        super(null);
+        this.visibleObjectives = visibleObjectives;
+        this.visibleCards = visibleCards;
+        this.visibleDeckReigns = visibleDeckReigns;
+        this.playerHands = playerHands;
+        this.playerPawnColors = playerPawnColors;
+    }
 }
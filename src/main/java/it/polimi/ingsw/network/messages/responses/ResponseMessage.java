@@ -6,12 +6,14 @@ import it.polimi.ingsw.network.messages.Message;
  * Messages sent from the server to the clients to update them about another
  * user's move or to the consequence of their action
  */
-public sealed class ResponseMessage extends Message permits AvailableMatchesMessage, MatchFinishedMessage, MatchStartedMessage,
+public sealed class ResponseMessage extends Message permits AvailableMatchesMessage, LobbyUpdateMessage, MatchFinishedMessage, MatchStartedMessage,
         SomeoneJoinedMessage, SomeoneQuitMessage, SomeoneChoseSecretObjectiveMessage, SomeoneDrewCardMessage, SomeoneDrewInitialCardMessage,
         SomeoneDrewSecretObjectivesMessage, SomeonePlayedCardMessage, SomeoneSetInitialSideMessage,
         SomeoneSentBroadcastTextMessage, SomeoneSentPrivateTextMessage, MatchResumedMessage {
     private final String username;
     private final String response = this.getClass().getSimpleName().replace("Message", "");
+    // Sequence number of the match event the message is about, null if it isn't about one
+    private Long sequence;
 
     /**
      * @return username of the user that did the action
@@ -28,6 +30,21 @@ public sealed class ResponseMessage extends Message permits AvailableMatchesMess
         return response;
     }
 
+    /**
+     * @return sequence number of the match event the message is about, to be given back when
+     * rejoining the match, null if the message isn't about a match event
+     */
+    public Long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @param sequence sequence number of the match event the message is about
+     */
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
     public ResponseMessage(String username) {
         this.username = username;
     }
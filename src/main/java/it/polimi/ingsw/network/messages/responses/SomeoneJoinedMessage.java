@@ -1,7 +1,5 @@
 package it.polimi.ingsw.network.messages.responses;
 
-import it.polimi.ingsw.gamemodel.Player;
-
 import java.util.List;
 
 /**
@@ -11,9 +9,9 @@ public final class SomeoneJoinedMessage extends ResponseMessage {
     private final List<String> joinedPlayers;
     private final int maxPlayers;
 
-    public SomeoneJoinedMessage(String username, List<Player> joinedPlayers, int maxPlayers) {
+    public SomeoneJoinedMessage(String username, List<String> joinedPlayers, int maxPlayers) {
         super(username);
-        this.joinedPlayers = joinedPlayers.stream().map(Player::getUsername).toList();
+        this.joinedPlayers = joinedPlayers;
         this.maxPlayers = maxPlayers;
     }
 
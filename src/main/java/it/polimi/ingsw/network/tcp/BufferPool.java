@@ -0,0 +1,60 @@
+package it.polimi.ingsw.network.tcp;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct {@link ByteBuffer} instances of the same size, shared by the {@link NioTCPServer}
+ * selector threads. Buffers are only held while a read or a write is in progress, so idle
+ * connections don't own any buffer.
+ */
+public class BufferPool {
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+    private final Queue<ByteBuffer> buffers;
+    private final AtomicInteger pooledBuffers;
+
+    /**
+     * Class constructor.
+     *
+     * @param bufferSize the size in bytes of each buffer
+     * @param maxPooledBuffers the maximum number of released buffers kept for reuse
+     */
+    public BufferPool(int bufferSize, int maxPooledBuffers) {
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.buffers = new ConcurrentLinkedQueue<>();
+        this.pooledBuffers = new AtomicInteger();
+    }
+
+    /**
+     * Takes a cleared buffer from the pool, allocating a new one if the pool is empty.
+     *
+     * @return a direct buffer ready to be written
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = this.buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(this.bufferSize);
+        }
+
+        this.pooledBuffers.decrementAndGet();
+        return buffer.clear();
+    }
+
+    /**
+     * Gives a buffer back to the pool. If the pool is full the buffer is left to the garbage
+     * collector.
+     *
+     * @param buffer the buffer, which must not be used anymore by the caller
+     */
+    public void release(ByteBuffer buffer) {
+        if (this.pooledBuffers.incrementAndGet() <= this.maxPooledBuffers) {
+            this.buffers.add(buffer);
+        } else {
+            this.pooledBuffers.decrementAndGet();
+        }
+    }
+}
@@ -2,22 +2,25 @@ package it.polimi.ingsw.network.tcp;
 
 import java.io.IOException;
 import java.net.Socket;
-import java.util.HashMap;
-import java.util.Map;
-import com.google.gson.JsonParseException;
+import java.util.List;
 import it.polimi.ingsw.controllers.PlayerControllerTCP;
 import it.polimi.ingsw.exceptions.AlreadyUsedUsernameException;
 import it.polimi.ingsw.exceptions.ChosenMatchException;
 import it.polimi.ingsw.exceptions.WrongNameException;
 import it.polimi.ingsw.exceptions.WrongStateException;
 import it.polimi.ingsw.gamemodel.*;
+import it.polimi.ingsw.network.messages.HeartbeatMessage;
+import it.polimi.ingsw.network.messages.Message;
 import it.polimi.ingsw.network.messages.actions.*;
 import it.polimi.ingsw.network.messages.errors.ErrorMessage;
 import it.polimi.ingsw.network.messages.responses.AvailableMatchesMessage;
+import it.polimi.ingsw.network.messages.responses.LobbyUpdateMessage;
 import it.polimi.ingsw.network.messages.responses.ResponseMessage;
+import it.polimi.ingsw.server.LobbySubscriber;
 import it.polimi.ingsw.server.Server;
+import it.polimi.ingsw.utils.AvailableMatch;
 import it.polimi.ingsw.utils.CardsManager;
-import it.polimi.ingsw.utils.MessageJsonParser;
+import it.polimi.ingsw.utils.LobbyUpdate;
 import it.polimi.ingsw.utils.Pair;
 
 /*
@@ -38,17 +41,19 @@ import it.polimi.ingsw.utils.Pair;
  * </ul>
  * 
  * Note that this will just require the action to be executed, but it's {@link PlayerControllerTCP}
- * that actually calls the {@link Player} methods
+ * that actually calls the {@link Player} methods.
+ * A ClientListener can either be run on its own thread, blocking on the socket reads (see
+ * {@link #run()}), or be fed with the messages read by someone else (see
+ * {@link #handleMessage(Message)}), e.g. by the {@link NioTCPServer} selector threads.
  */
-public class ClientListener extends Thread {
+public class ClientListener implements Runnable {
     private Socket socket;
     private PlayerControllerTCP playerController;
-    private MessageJsonParser parser;
     private IOHandler io;
     private Server server;
     private Match match;
-    private Map<Integer, Objective> objectives;
-    private Map<Integer, PlayableCard> playableCards;
+    private CardsManager cards;
+    private LobbySubscriber lobbySubscriber;
 
     /**
      * Class constructor. Needs to have a reference to the server instance since it needs to handle
@@ -58,25 +63,32 @@ public class ClientListener extends Thread {
      * @param server the instance of {@link Server} that's running
      */
     public ClientListener(Socket socket, Server server) {
+        this.socket = socket;
         try {
-            this.socket = socket;
-            this.io = new IOHandler(this.socket);
-            this.server = server;
-            this.parser = new MessageJsonParser();
-
-            this.objectives = CardsManager.getInstance().getObjectives();
-            Map<Integer, ResourceCard> resources = CardsManager.getInstance().getResourceCards();
-            Map<Integer, GoldCard> golds = CardsManager.getInstance().getGoldCards();
-
-            this.playableCards = new HashMap<>();
-            resources.forEach((id, card) -> this.playableCards.put(id, card));
-            golds.forEach((id, card) -> this.playableCards.put(id, card));
-
+            this.initialize(new IOHandler(this.socket), server);
         } catch (IOException e) {
             this.sendError("Failed to create Listener thread", e);
         }
     }
 
+    /**
+     * Class constructor for a connection whose messages are read by someone else and given to
+     * {@link #handleMessage(Message)}.
+     *
+     * @param io the I/O handler of the connection
+     * @param server the instance of {@link Server} that's running
+     */
+    public ClientListener(IOHandler io, Server server) {
+        this.initialize(io, server);
+    }
+
+    // Initializes the attributes shared by both constructors
+    private void initialize(IOHandler io, Server server) {
+        this.io = io;
+        this.server = server;
+        this.cards = CardsManager.getInstance();
+    }
+
 
     /**
      * Sends error message with custom text
@@ -94,62 +106,74 @@ public class ClientListener extends Thread {
 
     /**
      * Loops until a player controller is created
-     *
-     * @throws IOException if there was an I/O error
      */
     private void setPlayerController() {
-        ActionMessage msg;
-        String username = null;
-        Match match = null;
-        ResponseMessage availableMatches;
         boolean shouldLoop = true;
 
         while (shouldLoop) {
             try {
-                msg = (ActionMessage) this.parser.toMessage(this.io.readMsg());
-                if (msg == null) {
-                    shouldLoop = false;
-                } else {
-                    switch (msg) {
-                        case GetAvailableMatchesMessage getAvailableMatchesMessage:
-                            username = getAvailableMatchesMessage.getUsername();
-                            availableMatches = new AvailableMatchesMessage(
-                                    this.server.getJoinableMatchesMap());
-                            this.io.writeMsg(availableMatches);
-                            break;
-
-                        case CreateMatchMessage createMatchMessage:
-                            username = createMatchMessage.getUsername();
-                            this.server.createMatch(createMatchMessage.getMatchName(),
-                                    createMatchMessage.getMaxPlayers());
-                            match = this.server.getMatch(createMatchMessage.getMatchName());
-
-                            this.createPlayerController(username, match);
-                            shouldLoop = false;
-                            break;
-
-                        case JoinMatchMessage joinMatchMessage:
-                            username = joinMatchMessage.getUsername();
-                            match = this.server.getMatch(joinMatchMessage.getMatchName());
-
-                            this.createPlayerController(username, match);
-                            shouldLoop = false;
-                            break;
-
-                        default:
-                            break;
-                    }
-                }
-            } catch (JsonParseException | ClassNotFoundException e) {
-                // message is not correctly formatted, ignore
-            } catch (ChosenMatchException | WrongStateException | AlreadyUsedUsernameException
-                    | IllegalArgumentException | WrongNameException e) {
-                this.sendError(e.getMessage(), e);
+                Message msg = this.io.readMessage();
+                shouldLoop = msg != null && !this.executeLobbyRequest(msg);
             } catch (IOException e) {
                 this.close(match);
+                shouldLoop = false;
             }
         }
-        this.match = match;
+    }
+
+    /**
+     * Executes a request received before the player controller is created, i.e. a request about
+     * the available matches or the match to join
+     *
+     * @param msg The received message
+     * @return true if the player controller has been created, false otherwise
+     * @throws IOException if there was an I/O error
+     */
+    private boolean executeLobbyRequest(Message msg) throws IOException {
+        String username;
+        Match match;
+
+        try {
+            switch (msg) {
+                case GetAvailableMatchesMessage getAvailableMatchesMessage:
+                    ResponseMessage availableMatches = new AvailableMatchesMessage(
+                            this.server.getJoinableMatches());
+                    this.io.writeMsg(availableMatches);
+                    return false;
+
+                case CreateMatchMessage createMatchMessage:
+                    username = createMatchMessage.getUsername();
+                    this.server.createMatch(createMatchMessage.getMatchName(),
+                            createMatchMessage.getMaxPlayers());
+                    match = this.server.getMatch(createMatchMessage.getMatchName());
+
+                    this.createPlayerController(username, match, null);
+                    return true;
+
+                case AddBotMessage addBotMessage:
+                    this.server.addBot(addBotMessage.getMatchName());
+                    return false;
+
+                case SubscribeLobbyMessage subscribeLobbyMessage:
+                    this.subscribeLobby();
+                    return false;
+
+                case JoinMatchMessage joinMatchMessage:
+                    username = joinMatchMessage.getUsername();
+                    match = this.server.getMatch(joinMatchMessage.getMatchName());
+
+                    this.createPlayerController(username, match, joinMatchMessage.getLastSequence());
+                    return true;
+
+                case null, default:
+                    // not a lobby request, ignore
+                    return false;
+            }
+        } catch (ChosenMatchException | WrongStateException | AlreadyUsedUsernameException
+                | IllegalArgumentException | WrongNameException e) {
+            this.sendError(e.getMessage(), e);
+        }
+        return false;
     }
 
 
@@ -158,105 +182,176 @@ public class ClientListener extends Thread {
      *
      * @param username The chosen username
      * @param match The match to join
+     * @param lastSequence The sequence number of the last match event received by the client, when
+     *        rejoining the match, null if unknown
      * @throws AlreadyUsedUsernameException If the match already contains the chosen username
      * @throws WrongStateException If the match currently does not accept new players
      * @throws ChosenMatchException If the match does not exist or is not valid
      */
-    private void createPlayerController(String username, Match match)
+    private void createPlayerController(String username, Match match, Long lastSequence)
             throws AlreadyUsedUsernameException, IllegalArgumentException, WrongStateException,
             ChosenMatchException, WrongNameException {
-        this.playerController = new PlayerControllerTCP(username, match, this.io);
-        this.playerController.sendJoined();
+        PlayerControllerTCP controller = new PlayerControllerTCP(username, match, this.io);
+        controller.sendJoined(lastSequence);
+        // Only set once joined, since it tells whether the next messages are lobby requests or actions
+        this.playerController = controller;
+        this.match = match;
+        this.unsubscribeLobby();
+    }
+
+    /**
+     * Subscribes the connection to the lobby changes, unless already subscribed: the available matches are sent
+     * right away, then a {@link LobbyUpdateMessage} for each change, until a match is joined.
+     */
+    private void subscribeLobby() {
+        if (this.lobbySubscriber != null)
+            return;
+
+        this.lobbySubscriber = new LobbySubscriber() {
+            @Override
+            public void lobbySnapshot(List<AvailableMatch> matches) throws IOException {
+                io.writeMsg(new AvailableMatchesMessage(matches));
+            }
+
+            @Override
+            public void lobbyUpdated(LobbyUpdate update) throws IOException {
+                io.writeMsg(new LobbyUpdateMessage(update));
+            }
+        };
+        this.server.subscribeLobby(this.lobbySubscriber);
+    }
+
+    /**
+     * Stops sending the lobby changes to the connection, if subscribed.
+     */
+    private void unsubscribeLobby() {
+        if (this.lobbySubscriber != null) {
+            this.server.unsubscribeLobby(this.lobbySubscriber);
+            this.lobbySubscriber = null;
+        }
     }
 
     /**
-     * This parses the message received from socket's input stream and executes the request such
-     * message carried. If the message is not one of the expected types, it will just be ignored
+     * This executes the request carried by the message received from socket's input stream. If
+     * the message is not one of the expected types, it will just be ignored
      *
-     * @param msg The received message (received as a string)
+     * @param message The received message
      *
      * @see ActionMessage
      */
-    private void executeRequest(String msg) {
-        try {
-            if (msg.equals("ping")) {
-                this.playerController.ping();
-                try {
-                    io.writeMsg("pong");
-                } catch (IOException e ) {
-                    // Not supposed to be handled
-                }
-                return;
-            }
-            ActionMessage message = (ActionMessage) parser.toMessage(msg);
-            if (msg != null) {
-                switch (message) {
-                    case ChooseSecretObjectiveMessage actionMsg:
-                        this.playerController.chooseSecretObjective(
-                                this.objectives.get(actionMsg.getObjectiveID()));
-                        break;
-                    case ChooseInitialCardSideMessage actionMsg:
-                        this.playerController.chooseInitialCardSide(actionMsg.getSide());
-                        break;
-                    case DrawCardMessage actionMsg:
-                        this.playerController.drawCard(actionMsg.getSource());
-                        break;
-                    case DrawInitialCardMessage actionMsg:
-                        this.playerController.drawInitialCard();
-                        break;
-                    case DrawSecretObjectivesMessage actionMsg:
-                        this.playerController.drawSecretObjectives();
-                        break;
-                    case SendBroadcastTextMessage actionMsg:
-                        this.playerController.sendBroadcastText(actionMsg.getText());
-                        break;
-                    case SendPrivateTextMessage actionMsg:
-                        this.playerController.sendPrivateText(actionMsg.getRecipient(),
-                                actionMsg.getText());
-                        break;
-                    case PlayCardMessage actionMsg:
-                        Pair<Integer, Integer> coords =
-                                new Pair<>(actionMsg.getX(), actionMsg.getY());
-                        PlayableCard card = this.playableCards.get(actionMsg.getCardID());
-                        this.playerController.playCard(coords, card, actionMsg.getSide());
-                        break;
-                    default:
-                        break;
-                }
+    private void executeRequest(Message message) {
+        if (message instanceof HeartbeatMessage heartbeat && heartbeat.isPing()) {
+            this.playerController.ping();
+            try {
+                io.writeMsg(HeartbeatMessage.PONG);
+            } catch (IOException e ) {
+                // Not supposed to be handled
             }
-        } catch (JsonParseException e) {
-            // Nothing to do here: it was either a ping or a wrongly formatted message
+            return;
         }
 
+        switch (message) {
+            case ChooseSecretObjectiveMessage actionMsg:
+                Integer objectiveID = actionMsg.getObjectiveID();
+                this.playerController.chooseSecretObjective(
+                        objectiveID == null ? null : this.cards.objective(objectiveID));
+                break;
+            case ChooseInitialCardSideMessage actionMsg:
+                this.playerController.chooseInitialCardSide(actionMsg.getSide());
+                break;
+            case DrawCardMessage actionMsg:
+                this.playerController.drawCard(actionMsg.getSource());
+                break;
+            case DrawInitialCardMessage actionMsg:
+                this.playerController.drawInitialCard();
+                break;
+            case DrawSecretObjectivesMessage actionMsg:
+                this.playerController.drawSecretObjectives();
+                break;
+            case SendBroadcastTextMessage actionMsg:
+                this.playerController.sendBroadcastText(actionMsg.getText());
+                break;
+            case SendPrivateTextMessage actionMsg:
+                this.playerController.sendPrivateText(actionMsg.getRecipient(),
+                        actionMsg.getText());
+                break;
+            case AddBotMessage actionMsg:
+                try {
+                    this.server.addBot(actionMsg.getMatchName());
+                } catch (ChosenMatchException | WrongStateException e) {
+                    this.sendError(e.getMessage(), e);
+                }
+                break;
+            case PlayCardMessage actionMsg:
+                Pair<Integer, Integer> coords =
+                        new Pair<>(actionMsg.getX(), actionMsg.getY());
+                Integer cardID = actionMsg.getCardID();
+                PlayableCard card = cardID == null ? null : this.cards.byId(cardID);
+                this.playerController.playCard(coords, card, actionMsg.getSide());
+                break;
+            default:
+                break;
+        }
     }
 
     /**
      * Main loop. This will just wait for anything to be put on the input stream and then call
-     * {@link ClientListener#executeRequest(String)}
+     * {@link ClientListener#executeRequest(Message)}
      */
     public void listen() {
         try {
             while (!this.socket.isClosed() && this.socket.isConnected()) {
-                String msg = this.io.readMsg();
+                Message msg = this.io.readMessage();
                 // if msg is null, it means the socket was closed client side. Quit all
                 if (msg == null) {
                     throw new IOException("Socket closed");
                 }
                 this.executeRequest(msg);
             }
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
+            this.close(match);
+        }
+    }
+
+    /**
+     * Handles a single message read from the connection: until the player controller is created
+     * the message is a request about the match to join, afterwards it's an action to execute.
+     * Note: messages of the same connection must be given one at a time and in the order they were
+     * received.
+     *
+     * @param msg The received message
+     */
+    public void handleMessage(Message msg) {
+        try {
+            if (this.playerController == null)
+                this.executeLobbyRequest(msg);
+            else
+                this.executeRequest(msg);
+        } catch (IOException e) {
             this.close(match);
         }
     }
 
+    /**
+     * Notifies that the connection has been closed by the client, so the player has to leave
+     * its match.
+     */
+    public void disconnected() {
+        this.close(match);
+    }
+
     /**
      * This will close socket and input/output handlers, if not null
      */
     private void close(Match match) {
+        this.unsubscribeLobby();
+        if (match != null && this.playerController != null) {
+            // The player can rejoin a started match for a while
+            this.playerController.connectionLost();
+        }
         try {
-            match.removePlayer(this.playerController.getPlayer());
+            this.io.close();
             if (this.socket != null && !this.socket.isClosed()) {
-                this.io.close();
                 this.socket.close();
             }
         } catch (IOException | NullPointerException e) {
@@ -264,12 +359,14 @@ public class ClientListener extends Thread {
     }
 
     /**
-     * Since the class extends {@link Thread} it needs to implement {@link Thread#run()}.
-     * Specifically, this will just run {@link ClientListener#listen()}
+     * Runs the listener on the calling thread, blocking on the socket reads.
+     * Specifically, this will just run {@link ClientListener#listen()} once the player controller
+     * has been created
      */
     @Override
     public void run() {
         this.setPlayerController();
-        this.listen();
+        if (this.playerController != null)
+            this.listen();
     }
 }
@@ -9,6 +9,8 @@ import java.util.stream.Collectors;
 import it.polimi.ingsw.client.frontend.GraphicalView;
 import it.polimi.ingsw.client.network.NetworkHandlerTCP;
 import it.polimi.ingsw.gamemodel.*;
+import it.polimi.ingsw.network.messages.HeartbeatMessage;
+import it.polimi.ingsw.network.messages.Message;
 import it.polimi.ingsw.network.messages.errors.ErrorMessage;
 import it.polimi.ingsw.network.messages.responses.*;
 import it.polimi.ingsw.utils.CardsManager;
@@ -22,10 +24,8 @@ public class ClientReceiver implements Runnable {
     private NetworkHandlerTCP networkHandler;
     private Socket socket;
     private IOHandler io;
-    private Map<Integer, InitialCard> initialCards;
-    private Map<Integer, ResourceCard> resourceCards;
-    private Map<Integer, GoldCard> goldCards;
-    private Map<Integer, Objective> objectives;
+    private final CardsManager cards;
+    private final ConnectionThreadMode threadMode;
 
 
     /**
@@ -42,11 +42,8 @@ public class ClientReceiver implements Runnable {
         this.io = new IOHandler(socket);
         this.io = networkHandler.getIO();
 
-        CardsManager cardsManager = CardsManager.getInstance();
-        this.initialCards = cardsManager.getInitialCards();
-        this.resourceCards = cardsManager.getResourceCards();
-        this.goldCards = cardsManager.getGoldCards();
-        this.objectives = cardsManager.getObjectives();
+        this.cards = CardsManager.getInstance();
+        this.threadMode = ConnectionThreadMode.fromSystemProperty();
     }
 
 
@@ -58,11 +55,29 @@ public class ClientReceiver implements Runnable {
      * @return The playable card
      */
     private PlayableCard getPlayable(Integer cardID) {
-        PlayableCard card = this.resourceCards.get(cardID);
-        if (card == null) {
-            return this.goldCards.get(cardID);
-        }
-        return card;
+        return cardID == null ? null : this.cards.byId(cardID);
+    }
+
+    /**
+     * Get an initial card by its ID.
+     * 
+     * @param cardID The card ID
+     * 
+     * @return The initial card
+     */
+    private InitialCard getInitial(Integer cardID) {
+        return cardID == null ? null : this.cards.initialCard(cardID);
+    }
+
+    /**
+     * Get an objective by its ID.
+     * 
+     * @param objectiveID The objective ID
+     * 
+     * @return The objective
+     */
+    private Objective getObjective(Integer objectiveID) {
+        return objectiveID == null ? null : this.cards.objective(objectiveID);
     }
 
     /**
@@ -80,7 +95,7 @@ public class ClientReceiver implements Runnable {
         board.forEach((turn, placedCardRecord) -> {
             if (placedCardRecord.x().equals(0) && placedCardRecord.y().equals(0)) {
                 result.put(new Pair<Integer, Integer>(placedCardRecord.x(), placedCardRecord.y()),
-                        new PlacedCard(this.initialCards.get(placedCardRecord.cardID()),
+                        new PlacedCard(this.getInitial(placedCardRecord.cardID()),
                                 placedCardRecord.side(), turn));
             } else {
                 result.put(new Pair<Integer, Integer>(placedCardRecord.x(), placedCardRecord.y()),
@@ -119,12 +134,12 @@ public class ClientReceiver implements Runnable {
                         .map(cardID -> this.getPlayable(cardID)).collect(Collectors.toList())));
         Pair<Integer, Integer> visibleObjectivesID = msg.getVisibleObjectives();
         visibleObjectives =
-                new Pair<Objective, Objective>(this.objectives.get(visibleObjectivesID.first()),
-                        this.objectives.get(visibleObjectivesID.second()));
+                new Pair<Objective, Objective>(this.getObjective(visibleObjectivesID.first()),
+                        this.getObjective(visibleObjectivesID.second()));
         visiblePlayableCards = msg.getVisiblePlayableCards().entrySet().stream().collect(
                 Collectors.toMap(Map.Entry::getKey, entry -> this.getPlayable(entry.getValue())));
         decksTopReigns = msg.getDecksTopReigns();
-        secretObjective = this.objectives.get(msg.getSecretObjective());
+        secretObjective = this.getObjective(msg.getSecretObjective());
         availableResources = msg.getAvailableResources();
         msg.getPlacedCards()
                 .forEach((player, board) -> placedCards.put(player, this.getPlacedMap(board)));
@@ -138,22 +153,36 @@ public class ClientReceiver implements Runnable {
     }
 
     /**
-     * Parses a message and calls the corresponding
+     * Handles a message and calls the corresponding
      * {@link it.polimi.ingsw.client.network.NetworkHandler}'s view.
      * 
-     * @param message The message to be parsed
+     * @param message The message to be handled
      */
-    private void parseMessage(String message) {
+    private void parseMessage(Message message) {
+        if (message instanceof HeartbeatMessage) {
+            this.networkHandler.pong();
+            return;
+        }
+        if (message instanceof ErrorMessage error) {
+            this.networkHandler.notifyError(new Exception(error.getMessage()));
+            return;
+        }
+        if (!(message instanceof ResponseMessage response)) {
+            return;
+        }
+        if (response.getSequence() != null) {
+            this.networkHandler.setLastSequence(response.getSequence());
+        }
+
         try {
-            if (message.equals("pong")) {
-                this.networkHandler.pong();
-            }
-            ResponseMessage response = (ResponseMessage) io.stringToMsg(message);
             String username = response.getUsername();
             switch (response) {
                 case AvailableMatchesMessage msg:
                     this.networkHandler.receiveAvailableMatches(msg.getMatches());
                     break;
+                case LobbyUpdateMessage msg:
+                    this.networkHandler.lobbyUpdated(msg.getUpdate());
+                    break;
                 case MatchResumedMessage msg:
                     this.resumeMatch(msg);
                     break;
@@ -165,8 +194,8 @@ public class ClientReceiver implements Runnable {
                                             .collect(Collectors.toList())));
 
                     Pair<Objective, Objective> objectives = new Pair<Objective, Objective>(
-                            this.objectives.get(msg.getVisibleObjectives()[0]),
-                            this.objectives.get(msg.getVisibleObjectives()[1]));
+                            this.getObjective(msg.getVisibleObjectives()[0]),
+                            this.getObjective(msg.getVisibleObjectives()[1]));
 
                     Map<DrawSource, PlayableCard> visibles = new HashMap<>();
                     msg.getVisibleCards().forEach(
@@ -181,17 +210,17 @@ public class ClientReceiver implements Runnable {
                 case SomeoneDrewInitialCardMessage msg:
                     if (username.equals(this.networkHandler.getUsername())) {
                         this.networkHandler
-                                .giveInitialCard(this.initialCards.get(msg.getInitialCardID()));
+                                .giveInitialCard(this.getInitial(msg.getInitialCardID()));
                     } else {
                         this.networkHandler.someoneDrewInitialCard(username,
-                                this.initialCards.get(msg.getInitialCardID()));
+                                this.getInitial(msg.getInitialCardID()));
                     }
                     break;
                 case SomeoneDrewSecretObjectivesMessage msg:
                     if (username.equals(this.networkHandler.getUsername())) {
                         Pair<Objective, Objective> objs =
-                                new Pair<>(this.objectives.get(msg.getFirstID()),
-                                        this.objectives.get(msg.getSecondID()));
+                                new Pair<>(this.getObjective(msg.getFirstID()),
+                                        this.getObjective(msg.getSecondID()));
                         this.networkHandler.giveSecretObjectives(objs);
                     } else {
                         this.networkHandler.someoneDrewSecretObjective(username);
@@ -235,42 +264,27 @@ public class ClientReceiver implements Runnable {
                     break;
             }
         } catch (Exception e) {
-            this.sendError(message);
-        }
-
-    }
-
-
-    /**
-     * Sends an error to the server.
-     * 
-     * @param message The error message
-     */
-    private void sendError(String message) {
-        try {
-            ErrorMessage msg = (ErrorMessage) this.io.stringToMsg(message);
-            Exception exception = new Exception(msg.getMessage());
-            this.networkHandler.notifyError(exception);
-        } catch (Exception e) {
-            // Nothing to do, received an invalid object
+            // Nothing to do, received an invalid message
         }
     }
 
     
     /**
-     * Receives answers from the server and tries to parse it (in a new thread)
+     * Receives answers from the server and handles them (in a new thread, of the kind chosen
+     * through {@link ConnectionThreadMode#fromSystemProperty()}), until the connection is closed
      */
     @Override
     public void run() {
-        String message;
         while (!this.socket.isClosed() && this.socket.isConnected()) {
             try {
-                message = this.io.readMsg();
-                final String finalMessage = message;
-                new Thread(() -> {
-                    this.parseMessage(finalMessage);
-                }).start();
-            } catch (IOException | ClassNotFoundException e) {
+                Message message = this.io.readMessage();
+                if (message == null) {
+                    break;
+                }
+                this.threadMode.start("tcp-message", () -> {
+                    this.parseMessage(message);
+                });
+            } catch (IOException e) {
                 
             }
         }
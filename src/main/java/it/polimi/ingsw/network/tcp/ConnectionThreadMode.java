@@ -0,0 +1,41 @@
+package it.polimi.ingsw.network.tcp;
+
+/**
+ * Kind of threads on which the blocking TCP connections are run, both server side ({@link TCPServer})
+ * and client side ({@link ClientReceiver}).
+ * Virtual threads let a single process hold thousands of connections, since a connection blocked on a
+ * socket read doesn't occupy a platform thread; that's also why the blocking code run on them must
+ * not hold a monitor ({@code synchronized}) while doing I/O.
+ */
+public enum ConnectionThreadMode {
+    PLATFORM,
+    VIRTUAL;
+
+    /**
+     * Name of the system property used to choose the mode, either "platform" (default) or "virtual".
+     */
+    public static final String PROPERTY = "tcp.threads";
+
+    /**
+     * Gets the mode chosen through the {@value #PROPERTY} system property.
+     *
+     * @return The chosen mode, PLATFORM if the property is missing or not valid
+     */
+    public static ConnectionThreadMode fromSystemProperty() {
+        if ("virtual".equalsIgnoreCase(System.getProperty(PROPERTY)))
+            return VIRTUAL;
+        return PLATFORM;
+    }
+
+    /**
+     * Starts a new thread of this kind running the given task.
+     *
+     * @param name The name of the thread
+     * @param task The task to run
+     * @return The started thread
+     */
+    public Thread start(String name, Runnable task) {
+        Thread.Builder builder = this == VIRTUAL ? Thread.ofVirtual() : Thread.ofPlatform();
+        return builder.name(name).start(task);
+    }
+}
@@ -0,0 +1,43 @@
+package it.polimi.ingsw.network.tcp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A message already encoded in a {@link WireFormat}, framing included, so that it can be written to any number of
+ * connections using that format without being serialized again (see {@link IOHandler#writeEncoded(EncodedMessage)}).
+ * Instances are immutable, so they can be shared by all the connections of a match.
+ */
+public final class EncodedMessage {
+    private final WireFormat format;
+    // The whole frame, never modified
+    private final byte[] bytes;
+
+    /**
+     * Class constructor.
+     *
+     * @param format The format of the message
+     * @param bytes  The encoded message, framing included
+     */
+    EncodedMessage(WireFormat format, byte[] bytes) {
+        this.format = format;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Gets the format the message is encoded in.
+     *
+     * @return The format of the message
+     */
+    public WireFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Gets the bytes to send.
+     *
+     * @return A new read-only buffer over the frame, so every connection can consume its own
+     */
+    public ByteBuffer getBytes() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+}
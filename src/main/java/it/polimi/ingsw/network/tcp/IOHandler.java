@@ -3,70 +3,260 @@ package it.polimi.ingsw.network.tcp;
 import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import it.polimi.ingsw.network.messages.Message;
 import it.polimi.ingsw.utils.MessageJsonParser;
 
 /**
- * This class will handle all the IO operations for a certain socket.
+ * This class will handle all the IO operations for a certain socket, in the {@link WireFormat} of the
+ * connection: messages are read and written as JSON lines until the binary format is negotiated
+ * (see {@link #negotiate(WireFormat)}).
+ * Writing never blocks the calling thread, e.g. the one notifying a match event: frames are put in
+ * a bounded {@link OutboundQueue}, and written by a writer task of the connection, which gathers
+ * all the pending frames in as few socket writes as possible and flushes them once. A client too
+ * slow to read its frames exceeds the limits of the queue, and gets disconnected.
  *
- * @see ObjectInputStream
- * @see ObjectOutputStream
+ * @see WireFormat
  * @see MessageJsonParser
  */
 public class IOHandler {
-    private final BufferedReader inputReader;
-    private final BufferedWriter outputWriter;
+    // Time given to the server to accept the binary format
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 5000;
+    // Size of the buffer in which the writer gathers the pending frames
+    private static final int WRITE_BUFFER_SIZE = 16 * 1024;
+
+    // Runs the writer tasks of all the connections, each one only while it has frames to write
+    private static final ExecutorService writers =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tcp-writer-", 0).factory());
+
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
 
     private final MessageJsonParser parser;
 
     private final Socket socket;
 
+    // Bytes read from the socket and not consumed yet (reading thread only)
+    private final byte[] inputBuffer;
+    private int inputPosition;
+    private int inputLimit;
+    // Content of the last frame read (reading thread only)
+    private byte[] frame;
+
+    // Changed only once, by the reading thread, when the binary format is negotiated
+    private volatile WireFormat wireFormat;
+    // Whether the first frame, which may be the handshake, has been read (reading thread only)
+    private boolean firstFrameRead;
+
+    // Frames waiting for the writer task, which is scheduled when the first one is queued
+    private final OutboundQueue outbound;
+    private final AtomicBoolean writerScheduled;
+    private volatile boolean closed;
+
     /**
-     * Class constructor. It takes a {@link Socket} as a parameter to open its
-     * {@link ObjectOutputStream} and {@link ObjectInputStream}.
+     * Class constructor. It takes a {@link Socket} as a parameter to read from its
+     * {@link InputStream} and write to its {@link OutputStream}.
      */
     public IOHandler(Socket socket) throws IOException {
+        this(socket, new OutboundQueue());
+    }
 
+    /**
+     * Class constructor, with the given limits on the frames waiting to be written.
+     *
+     * @param socket the connected socket
+     * @param outbound the queue of the frames waiting to be written
+     */
+    IOHandler(Socket socket, OutboundQueue outbound) throws IOException {
         this.socket = socket;
-        this.outputWriter = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
-        this.inputReader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        this.outputStream = socket.getOutputStream();
+        this.inputStream = socket.getInputStream();
+        this.inputBuffer = new byte[8192];
+        this.frame = new byte[256];
+        this.wireFormat = WireFormat.JSON;
+        this.outbound = outbound;
+        this.writerScheduled = new AtomicBoolean();
 
-        this.parser = new MessageJsonParser();
+        this.parser = MessageJsonParser.getInstance();
     }
 
     /**
-     * Acquires a {@link Message} from the socket's input stream.
+     * Class constructor for subclasses that don't read and write through the socket streams.
+     */
+    protected IOHandler() {
+        this.socket = null;
+        this.outputStream = null;
+        this.inputStream = null;
+        this.inputBuffer = null;
+        this.wireFormat = WireFormat.JSON;
+        this.outbound = null;
+        this.writerScheduled = null;
+
+        this.parser = MessageJsonParser.getInstance();
+    }
+
+    /**
+     * Gets the format in which the messages are currently read and written.
+     *
+     * @return The format of the connection
+     */
+    public WireFormat getWireFormat() {
+        return this.wireFormat;
+    }
+
+    /**
+     * Changes the format in which the messages are read and written.
+     *
+     * @param wireFormat The new format
+     */
+    void setWireFormat(WireFormat wireFormat) {
+        this.wireFormat = wireFormat;
+    }
+
+    /**
+     * Asks the server to use the given format, client side. Must be called right after connecting,
+     * before sending or receiving anything else.
+     *
+     * @param wanted The format the client wants to use
+     * @return The format in use: the wanted one if the server accepted it, JSON otherwise
+     * @throws IOException if the remote communication failed
+     */
+    public WireFormat negotiate(WireFormat wanted) throws IOException {
+        this.firstFrameRead = true;
+        if (wanted == WireFormat.JSON)
+            return WireFormat.JSON;
+
+        this.writeMsg(WireFormat.HANDSHAKE);
+        int previousTimeout = this.socket.getSoTimeout();
+        this.socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+        try {
+            int length = this.readLine();
+            if (length >= 0 && this.frameEquals(length, WireFormat.HANDSHAKE))
+                this.wireFormat = wanted;
+        } catch (SocketTimeoutException e) {
+            // The server doesn't know the binary format
+        } finally {
+            this.socket.setSoTimeout(previousTimeout);
+        }
+        return this.wireFormat;
+    }
+
+    /**
+     * Acquires a {@link Message} from the socket's input stream. Messages which can't be decoded
+     * are skipped. Server side, the first line may be the handshake asking for the binary format:
+     * in that case the format is accepted, and the following message is returned.
+     *
+     * @return the message read, null if the connection has been closed
+     * @throws IOException if the remote communication failed
+     */
+    public Message readMessage() throws IOException {
+        while (true) {
+            WireFormat format = this.wireFormat;
+            int length = format == WireFormat.JSON ? this.readLine() : this.readBinaryFrame();
+            if (length < 0)
+                return null;
+
+            if (!this.firstFrameRead) {
+                this.firstFrameRead = true;
+                if (format == WireFormat.JSON && this.frameEquals(length, WireFormat.HANDSHAKE)) {
+                    this.writeMsg(WireFormat.HANDSHAKE);
+                    this.wireFormat = WireFormat.BINARY;
+                    continue;
+                }
+            }
+
+            try {
+                return format.decode(this.frame, length);
+            } catch (RuntimeException e) {
+                // Not a valid message, skip it
+            }
+        }
+    }
+
+    /**
+     * Acquires a raw line from the socket's input stream. Only meant for connections in the JSON
+     * format, e.g. while debugging.
      *
      * @return the string representing the message
      * @throws IOException if the remote communication failed
      * @throws ClassNotFoundException if the class of the received object could not be found
      */
     public String readMsg() throws IOException, ClassNotFoundException {
-        return this.inputReader.readLine();
+        this.firstFrameRead = true;
+        int length = this.readLine();
+        return length < 0 ? null : new String(this.frame, 0, length, StandardCharsets.UTF_8);
     }
 
     /**
-     * Writes a {@link Message} to the socket's output stream.
+     * Writes a raw line to the socket's output stream, whatever the format of the connection.
      *
      * @param msg The (parsed) message to write
-     * @throws IOException if the remote communication failed
+     * @throws IOException if the connection has been closed
      */
     public void writeMsg(String msg) throws IOException {
-        this.outputWriter.write(msg);
-        this.outputWriter.newLine();
-        this.outputWriter.flush();
+        this.writeFrame((msg + "\n").getBytes(StandardCharsets.UTF_8));
     }
 
     /**
-     * Writes a {@link Message} to the socket's output stream.
+     * Writes a {@link Message} to the socket's output stream, in the format of the connection.
      *
      * @param msg The (not yet parsed) message to write
-     * @throws IOException if the remote communication failed
+     * @throws IOException if the connection has been closed
      */
     public void writeMsg(Message msg) throws IOException {
-        this.outputWriter.write(this.msgToString(msg));
-        this.outputWriter.newLine();
-        this.outputWriter.flush();
+        this.writeFrame(this.wireFormat.encode(msg));
+    }
+
+    /**
+     * Writes a message already encoded, e.g. once for all the players of a match, to the socket's
+     * output stream.
+     *
+     * @param msg The encoded message to write, in the format of the connection
+     * @throws IOException if the connection has been closed
+     */
+    public void writeEncoded(EncodedMessage msg) throws IOException {
+        this.checkFormat(msg);
+        this.enqueue(msg.getBytes());
+    }
+
+    /**
+     * Encodes a {@link Message} in the format of the connection, so that it can be written to
+     * several connections using the same format.
+     *
+     * @param msg The message to encode
+     * @return the encoded message
+     */
+    public EncodedMessage encode(Message msg) {
+        WireFormat format = this.wireFormat;
+        return new EncodedMessage(format, format.encode(msg));
+    }
+
+    /**
+     * Writes a whole frame, framing included, to the socket's output stream.
+     *
+     * @param bytes The frame to write
+     * @throws IOException if the connection has been closed
+     */
+    protected void writeFrame(byte[] bytes) throws IOException {
+        this.enqueue(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Checks that an encoded message can be written to this connection.
+     *
+     * @param msg The encoded message
+     * @throws IllegalArgumentException if the message is not in the format of the connection
+     */
+    protected void checkFormat(EncodedMessage msg) {
+        if (msg.getFormat() != this.wireFormat)
+            throw new IllegalArgumentException("Message encoded as " + msg.getFormat()
+                    + " on a " + this.wireFormat + " connection");
     }
 
     /**
@@ -90,20 +280,157 @@ public class IOHandler {
     }
 
     /**
-     * Closes the input and output streams, if not null.
+     * Closes the input and output streams, if not null. The frames not written yet are discarded.
      *
      * @throws IOException if the streams could not be accessed
      */
     public void close() throws IOException {
+        this.closed = true;
+        if (this.outbound != null) {
+            this.outbound.clear();
+        }
         try {
-            if (this.inputReader != null) {
-                this.inputReader.close();
+            if (this.inputStream != null) {
+                this.inputStream.close();
             }
-            if (this.outputWriter != null) {
-                this.outputWriter.close();
+            if (this.outputStream != null) {
+                this.outputStream.close();
             }
         } catch (SocketException e) {
             // socket already closed, no need to do anything
         }
     }
+
+    // Queues a frame for the writer task, scheduling it if not running. A client too slow to read
+    // the queued frames is disconnected
+    private void enqueue(ByteBuffer frame) throws IOException {
+        if (this.closed) {
+            throw new IOException("Connection closed");
+        }
+        if (!this.outbound.offer(frame)) {
+            this.close();
+            throw new IOException("Too many frames waiting to be written, the client is too slow");
+        }
+        if (this.writerScheduled.compareAndSet(false, true)) {
+            writers.execute(this::writePending);
+        }
+    }
+
+    // Writer task: gathers the queued frames in a buffer, writing it to the socket when full, and
+    // flushes once nothing is left. Only one runs at a time for each connection
+    private void writePending() {
+        byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+        int length = 0;
+        try {
+            while (true) {
+                ByteBuffer frame;
+                while ((frame = this.outbound.poll()) != null) {
+                    while (frame.hasRemaining()) {
+                        if (length == buffer.length) {
+                            this.outputStream.write(buffer, 0, length);
+                            length = 0;
+                        }
+                        int chunk = Math.min(buffer.length - length, frame.remaining());
+                        frame.get(buffer, length, chunk);
+                        length += chunk;
+                    }
+                }
+                this.outputStream.write(buffer, 0, length);
+                this.outputStream.flush();
+                length = 0;
+
+                // Stop, unless a frame has been queued after the last poll and its sender saw
+                // the task still scheduled
+                this.writerScheduled.set(false);
+                if (this.outbound.isEmpty() || !this.writerScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // The connection is broken: the reading side will notice it
+            try {
+                this.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // Reads a line in the frame buffer, without its terminator: returns its length, -1 at the end of the stream
+    private int readLine() throws IOException {
+        int length = 0;
+        int b;
+        while ((b = this.readByte()) != '\n') {
+            if (b < 0)
+                return length > 0 ? this.trimLine(length) : -1;
+            this.appendToFrame(length++, (byte) b);
+        }
+        return this.trimLine(length);
+    }
+
+    // Removes the carriage return at the end of the line, if any
+    private int trimLine(int length) {
+        return length > 0 && this.frame[length - 1] == '\r' ? length - 1 : length;
+    }
+
+    // Reads a binary frame in the frame buffer: returns its length, -1 at the end of the stream
+    private int readBinaryFrame() throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = this.readByte();
+            if (b < 0)
+                return -1;
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                break;
+            if (shift >= 28)
+                throw new IOException("Malformed frame length");
+        }
+        if (length < 0 || length > WireFormat.MAX_FRAME_LENGTH)
+            throw new IOException("Frame too long");
+
+        if (this.frame.length < length)
+            this.frame = new byte[Math.max(length, this.frame.length * 2)];
+        for (int read = 0; read < length; ) {
+            if (this.inputPosition == this.inputLimit && !this.fillInput())
+                throw new EOFException("Truncated frame");
+            int n = Math.min(length - read, this.inputLimit - this.inputPosition);
+            System.arraycopy(this.inputBuffer, this.inputPosition, this.frame, read, n);
+            this.inputPosition += n;
+            read += n;
+        }
+        return length;
+    }
+
+    // Appends a byte to the frame buffer, growing it if needed
+    private void appendToFrame(int position, byte b) throws IOException {
+        if (position == this.frame.length) {
+            if (position >= WireFormat.MAX_FRAME_LENGTH)
+                throw new IOException("Line too long");
+            this.frame = Arrays.copyOf(this.frame, position * 2);
+        }
+        this.frame[position] = b;
+    }
+
+    // Reads a byte: returns -1 at the end of the stream
+    private int readByte() throws IOException {
+        if (this.inputPosition == this.inputLimit && !this.fillInput())
+            return -1;
+        return this.inputBuffer[this.inputPosition++] & 0xFF;
+    }
+
+    // Reads more bytes from the socket: returns false at the end of the stream
+    private boolean fillInput() throws IOException {
+        int read = this.inputStream.read(this.inputBuffer);
+        if (read < 0)
+            return false;
+        this.inputPosition = 0;
+        this.inputLimit = read;
+        return true;
+    }
+
+    // Tells whether the frame buffer contains the given line
+    private boolean frameEquals(int length, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return Arrays.equals(this.frame, 0, length, bytes, 0, bytes.length);
+    }
 }
@@ -0,0 +1,320 @@
+package it.polimi.ingsw.network.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import it.polimi.ingsw.network.messages.Message;
+import it.polimi.ingsw.utils.OrderedTaskQueue;
+
+/**
+ * A client connection handled by a {@link NioTCPServer} selector thread. Messages are framed
+ * according to the {@link WireFormat} of the connection, like {@link IOHandler} does:
+ * <ul>
+ * <li>Bytes read from the socket are split in frames (lines, until the client asks for the binary
+ * format with its first line), and each complete frame is handed off to the game executor, where
+ * it's decoded, in the same order it was received
+ * <li>Frames sent from any thread are put in a bounded {@link OutboundQueue} and written by the
+ * selector thread when the socket is writable, several of them in the same gathering write. A
+ * client too slow to read them exceeds the limits of the queue, and gets disconnected
+ * </ul>
+ */
+class NioConnection {
+    // Most frames written by a single gathering write
+    private static final int MAX_GATHERED_FRAMES = 64;
+
+    private final SocketChannel channel;
+    private final BufferPool bufferPool;
+    private final OrderedTaskQueue inbound;
+    private final OutboundQueue outbound;
+    private final AtomicBoolean writeRequested;
+    private final AtomicBoolean closed;
+
+    private SelectionKey key;
+    private ClientListener listener;
+    private NioIOHandler io;
+
+    // Partial frame received so far (selector thread only)
+    private byte[] line;
+    private int lineLength;
+
+    // Framing of the received bytes (selector thread only): whether the first line has been read,
+    // whether the binary format has been chosen, and the length of the current binary frame, -1
+    // while reading it (the partial length is then accumulated in lineLength)
+    private boolean firstLineRead;
+    private boolean binary;
+    private int frameLength;
+    private int frameLengthShift;
+
+    // Frames being written to the socket (selector thread only)
+    private final ByteBuffer[] gathered;
+
+    /**
+     * Class constructor.
+     *
+     * @param channel the accepted non-blocking channel
+     * @param bufferPool the pool from which the read buffers are taken
+     * @param gameExecutor the executor on which the received frames are handled
+     */
+    NioConnection(SocketChannel channel, BufferPool bufferPool, Executor gameExecutor) {
+        this(channel, bufferPool, gameExecutor, new OutboundQueue());
+    }
+
+    /**
+     * Class constructor, with the given limits on the frames waiting to be written.
+     *
+     * @param channel the accepted non-blocking channel
+     * @param bufferPool the pool from which the read buffers are taken
+     * @param gameExecutor the executor on which the received frames are handled
+     * @param outbound the queue of the frames waiting to be written
+     */
+    NioConnection(SocketChannel channel, BufferPool bufferPool, Executor gameExecutor,
+            OutboundQueue outbound) {
+        this.channel = channel;
+        this.bufferPool = bufferPool;
+        this.inbound = new OrderedTaskQueue(gameExecutor);
+        this.outbound = outbound;
+        this.gathered = new ByteBuffer[MAX_GATHERED_FRAMES];
+        this.writeRequested = new AtomicBoolean();
+        this.closed = new AtomicBoolean();
+        this.line = new byte[256];
+        this.frameLength = -1;
+    }
+
+    /**
+     * Attaches the connection to its selection key, to the listener receiving its messages and to
+     * the handler writing them.
+     * Note: called by the selector thread when the channel gets registered.
+     *
+     * @param key the selection key of the channel
+     * @param listener the listener handling the received messages
+     * @param io the handler writing to this connection
+     */
+    void attach(SelectionKey key, ClientListener listener, NioIOHandler io) {
+        this.key = key;
+        this.listener = listener;
+        this.io = io;
+
+        if (!this.outbound.isEmpty()) {
+            this.requestWrite();
+        }
+    }
+
+    /**
+     * Queues the bytes of one or more frames, framing included, to be sent to the client. The
+     * buffer is consumed, but its content is only read, so it may be shared with other connections
+     * through a duplicate. Can be called by any thread.
+     *
+     * @param bytes the bytes to send
+     * @throws IOException if the connection has been closed, or has been closed now since the
+     *         client is too slow to read the frames already queued
+     */
+    void send(ByteBuffer bytes) throws IOException {
+        if (this.closed.get()) {
+            throw new IOException("Connection closed");
+        }
+        if (!this.outbound.offer(bytes)) {
+            this.close();
+            throw new IOException("Too many frames waiting to be written, the client is too slow");
+        }
+
+        this.requestWrite();
+    }
+
+    /**
+     * Reads the available bytes and hands off every complete frame.
+     * Note: called by the selector thread when the channel is readable.
+     */
+    void onReadable() {
+        ByteBuffer buffer = this.bufferPool.acquire();
+        try {
+            int read = this.channel.read(buffer);
+            if (read < 0) {
+                this.close();
+                return;
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                if (this.binary) {
+                    this.readFrame(buffer);
+                    continue;
+                }
+
+                byte b = buffer.get();
+                if (b == '\n') {
+                    this.emitLine();
+                } else {
+                    this.appendToLine(b);
+                }
+            }
+        } catch (IOException e) {
+            this.close();
+        } finally {
+            this.bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Writes as many queued frames as the socket accepts, gathering several of them in each write.
+     * Note: called by the selector thread when the channel is writable.
+     */
+    void onWritable() {
+        try {
+            int count;
+            while ((count = this.outbound.peek(this.gathered)) > 0) {
+                long written = this.channel.write(this.gathered, 0, count);
+                boolean full = this.gathered[count - 1].hasRemaining();
+                Arrays.fill(this.gathered, 0, count, null);
+                this.outbound.consumed(written);
+                if (full) {
+                    // The socket buffer is full, wait for the next writable event
+                    return;
+                }
+            }
+
+            // Everything has been written: stop listening for writable events, unless a frame has
+            // been queued in the meantime
+            this.key.interestOpsAnd(~SelectionKey.OP_WRITE);
+            this.writeRequested.set(false);
+            if (!this.outbound.isEmpty()) {
+                this.requestWrite();
+            }
+        } catch (IOException | RuntimeException e) {
+            this.close();
+        }
+    }
+
+    /**
+     * Closes the connection, then notifies the listener after the frames already received. Can be
+     * called by any thread, only the first call has effect.
+     */
+    void close() {
+        if (!this.closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        this.outbound.clear();
+        if (this.key != null) {
+            this.key.cancel();
+        }
+        try {
+            this.channel.close();
+        } catch (IOException ignored) {
+        }
+
+        if (this.listener != null) {
+            this.inbound.submit(this.listener::disconnected);
+        }
+    }
+
+    /**
+     * Verifies if the connection has been closed.
+     *
+     * @return true if the connection has been closed, false otherwise
+     */
+    boolean isClosed() {
+        return this.closed.get();
+    }
+
+    // Enables the writable events of the channel, if not enabled yet
+    private void requestWrite() {
+        if (this.key != null && this.writeRequested.compareAndSet(false, true)) {
+            try {
+                this.key.interestOpsOr(SelectionKey.OP_WRITE);
+                this.key.selector().wakeup();
+            } catch (RuntimeException e) {
+                // The key has been cancelled, the connection is being closed
+            }
+        }
+    }
+
+    // Appends a byte to the partial line, growing it if needed
+    private void appendToLine(byte b) throws IOException {
+        if (this.lineLength == this.line.length) {
+            if (this.lineLength >= WireFormat.MAX_FRAME_LENGTH) {
+                throw new IOException("Line too long");
+            }
+            this.line = Arrays.copyOf(this.line, this.lineLength * 2);
+        }
+        this.line[this.lineLength++] = b;
+    }
+
+    // Reads the length of a binary frame, or as much of its content as available, then hands it off
+    // if complete
+    private void readFrame(ByteBuffer buffer) throws IOException {
+        if (this.frameLength < 0) {
+            byte b = buffer.get();
+            this.lineLength |= (b & 0x7F) << this.frameLengthShift;
+            if ((b & 0x80) != 0) {
+                this.frameLengthShift += 7;
+                if (this.frameLengthShift > 28) {
+                    throw new IOException("Malformed frame length");
+                }
+                return;
+            }
+
+            if (this.lineLength < 0 || this.lineLength > WireFormat.MAX_FRAME_LENGTH) {
+                throw new IOException("Frame too long");
+            }
+            this.frameLength = this.lineLength;
+            this.frameLengthShift = 0;
+            this.lineLength = 0;
+            if (this.line.length < this.frameLength) {
+                this.line = new byte[Math.max(this.frameLength, this.line.length * 2)];
+            }
+        } else {
+            int length = Math.min(buffer.remaining(), this.frameLength - this.lineLength);
+            buffer.get(this.line, this.lineLength, length);
+            this.lineLength += length;
+        }
+
+        if (this.lineLength == this.frameLength) {
+            this.frameLength = -1;
+            this.emit(WireFormat.BINARY);
+        }
+    }
+
+    // Hands off the partial line, which is now complete, unless it's the handshake asking for the
+    // binary format: in that case the handshake is answered, and the next frames are binary
+    private void emitLine() throws IOException {
+        if (this.lineLength > 0 && this.line[this.lineLength - 1] == '\r') {
+            this.lineLength--;
+        }
+
+        if (!this.firstLineRead) {
+            this.firstLineRead = true;
+            byte[] handshake = WireFormat.HANDSHAKE.getBytes(StandardCharsets.UTF_8);
+            if (Arrays.equals(this.line, 0, this.lineLength, handshake, 0, handshake.length)) {
+                this.lineLength = 0;
+                this.io.writeMsg(WireFormat.HANDSHAKE);
+                this.io.setWireFormat(WireFormat.BINARY);
+                this.binary = true;
+                return;
+            }
+        }
+
+        this.emit(WireFormat.JSON);
+    }
+
+    // Hands off the complete frame to the listener, which gets it decoded on the game executor
+    private void emit(WireFormat format) {
+        byte[] frame = Arrays.copyOf(this.line, this.lineLength);
+        this.lineLength = 0;
+
+        this.inbound.submit(() -> {
+            Message msg;
+            try {
+                msg = format.decode(frame, frame.length);
+            } catch (RuntimeException e) {
+                // Not a valid message, ignore it
+                return;
+            }
+            this.listener.handleMessage(msg);
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package it.polimi.ingsw.network.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import it.polimi.ingsw.network.messages.Message;
+
+/**
+ * {@link IOHandler} of a connection handled by the {@link NioTCPServer}: messages are queued on the
+ * {@link NioConnection} and written by its selector thread, while the received ones are handed off
+ * to the {@link ClientListener} directly, so they can't be read through this class. The
+ * {@link WireFormat} of the connection is switched by the selector thread, when it reads the
+ * handshake.
+ */
+public class NioIOHandler extends IOHandler {
+    private final NioConnection connection;
+
+    /**
+     * Class constructor.
+     *
+     * @param connection the connection to write to
+     */
+    NioIOHandler(NioConnection connection) {
+        super();
+        this.connection = connection;
+    }
+
+    /**
+     * Not supported, since the received messages are given to the {@link ClientListener} as soon
+     * as they are read.
+     *
+     * @throws IOException always
+     */
+    @Override
+    public String readMsg() throws IOException {
+        throw new IOException("Messages are read by the selector thread");
+    }
+
+    /**
+     * Not supported, since the received messages are given to the {@link ClientListener} as soon
+     * as they are read.
+     *
+     * @throws IOException always
+     */
+    @Override
+    public Message readMessage() throws IOException {
+        throw new IOException("Messages are read by the selector thread");
+    }
+
+    /**
+     * Queues a frame to be written to the socket.
+     *
+     * @param bytes The frame to write
+     * @throws IOException if the connection has been closed
+     */
+    @Override
+    protected void writeFrame(byte[] bytes) throws IOException {
+        this.connection.send(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Queues a message already encoded to be written to the socket, sharing its bytes with the
+     * other connections it's sent to.
+     *
+     * @param msg The encoded message to write
+     * @throws IOException if the connection has been closed
+     */
+    @Override
+    public void writeEncoded(EncodedMessage msg) throws IOException {
+        this.checkFormat(msg);
+        this.connection.send(msg.getBytes());
+    }
+
+    /**
+     * Closes the connection.
+     */
+    @Override
+    public void close() {
+        this.connection.close();
+    }
+}
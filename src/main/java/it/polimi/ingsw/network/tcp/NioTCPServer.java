@@ -0,0 +1,154 @@
+package it.polimi.ingsw.network.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import it.polimi.ingsw.server.Server;
+
+/**
+ * Non-blocking alternative to {@link TCPServer}: instead of a thread per connection, a few selector
+ * threads read and write the sockets of all the clients. Each received message is handed off to the
+ * game executor, where the {@link ClientListener} of the connection handles it exactly as it would
+ * when run on its own thread; messages sent through the {@link NioIOHandler} are written by the
+ * selector threads, so a slow client never blocks a game thread.
+ */
+public class NioTCPServer {
+    // Size of the pooled direct buffers, enough for the biggest message in most cases
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 256;
+
+    private final Server server;
+    private final ServerSocketChannel serverChannel;
+    private final SelectorLoop[] selectorLoops;
+    private final BufferPool bufferPool;
+    private final ExecutorService gameExecutor;
+
+    /**
+     * Class constructor. It will open a {@link ServerSocketChannel} on the specified port.
+     *
+     * @param port the port on which the server should be started
+     * @param server the {@link Server} object that contains all the matches
+     * @param selectorThreads the number of threads handling the sockets
+     * @throws IOException if the server channel or the selectors could not be opened
+     */
+    public NioTCPServer(Integer port, Server server, int selectorThreads) throws IOException {
+        this.server = server;
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(port));
+
+        this.bufferPool = new BufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+        this.gameExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("tcp-game-", 0).factory());
+
+        this.selectorLoops = new SelectorLoop[selectorThreads];
+        for (int i = 0; i < selectorThreads; i++) {
+            this.selectorLoops[i] = new SelectorLoop(Selector.open());
+        }
+    }
+
+    /**
+     * Main loop. Starts the selector threads, then accepts any connection until the server channel
+     * is closed, assigning each of them to a selector thread in a round-robin fashion.
+     */
+    public void listen() {
+        for (int i = 0; i < this.selectorLoops.length; i++) {
+            Thread thread = new Thread(this.selectorLoops[i], "tcp-selector-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int next = 0;
+        while (this.serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = this.serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+
+                NioConnection connection =
+                        new NioConnection(channel, this.bufferPool, this.gameExecutor);
+                this.selectorLoops[next].register(connection, channel);
+                next = (next + 1) % this.selectorLoops.length;
+            } catch (IOException e) {
+                System.out.println("Failed to accept socket");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Loop run by a selector thread, which reads and writes the sockets registered to its
+     * selector.
+     */
+    private class SelectorLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<Runnable> registrations;
+
+        /**
+         * Class constructor.
+         *
+         * @param selector the selector of this thread
+         */
+        private SelectorLoop(Selector selector) {
+            this.selector = selector;
+            this.registrations = new ConcurrentLinkedQueue<>();
+        }
+
+        /**
+         * Registers an accepted channel to this selector. Since registering blocks while the
+         * selector is selecting, it's performed by the selector thread itself.
+         *
+         * @param connection the connection of the channel
+         * @param channel the accepted channel
+         */
+        private void register(NioConnection connection, SocketChannel channel) {
+            this.registrations.add(() -> {
+                try {
+                    SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ,
+                            connection);
+                    NioIOHandler io = new NioIOHandler(connection);
+                    ClientListener listener = new ClientListener(io, server);
+                    connection.attach(key, listener, io);
+                } catch (IOException e) {
+                    connection.close();
+                }
+            });
+            this.selector.wakeup();
+        }
+
+        /**
+         * Selects the ready channels and lets their connection read or write, until the selector
+         * is closed.
+         */
+        @Override
+        public void run() {
+            while (this.selector.isOpen()) {
+                try {
+                    this.selector.select(key -> {
+                        NioConnection connection = (NioConnection) key.attachment();
+
+                        if (key.isValid() && key.isReadable()) {
+                            connection.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.onWritable();
+                        }
+                    });
+
+                    Runnable registration;
+                    while ((registration = this.registrations.poll()) != null) {
+                        registration.run();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Selector failure: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
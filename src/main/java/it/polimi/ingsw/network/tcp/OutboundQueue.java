@@ -0,0 +1,167 @@
+package it.polimi.ingsw.network.tcp;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Frames waiting to be written to a connection, queued by any thread and consumed by the single
+ * writer of the connection (the writer task of an {@link IOHandler}, or the selector thread of a
+ * {@link NioConnection}).
+ * The queue is bounded both in bytes and in frames: a client reading slower than the server
+ * writes to it can't make the server run out of memory, nor block the threads sending the
+ * messages, since the frames exceeding the limits are refused and the connection is meant to be
+ * closed. A disconnected player can then rejoin its match, getting its whole state back.
+ * The limits are read from the {@value #MAX_BYTES_PROPERTY} and {@value #MAX_FRAMES_PROPERTY}
+ * system properties.
+ */
+class OutboundQueue {
+    /**
+     * Name of the system property setting the bytes that may be queued on a connection.
+     */
+    static final String MAX_BYTES_PROPERTY = "tcp.outbound.maxBytes";
+
+    /**
+     * Name of the system property setting the frames that may be queued on a connection.
+     */
+    static final String MAX_FRAMES_PROPERTY = "tcp.outbound.maxFrames";
+
+    // Enough for the events of many turns of the biggest matches
+    private static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+    private static final int DEFAULT_MAX_FRAMES = 4096;
+
+    private final Queue<ByteBuffer> frames;
+    private final long maxBytes;
+    private final int maxFrames;
+
+    // Bytes and frames queued and not completely written yet
+    private final AtomicLong queuedBytes;
+    private final AtomicInteger queuedFrames;
+
+    /**
+     * Class constructor, with the limits set by the system properties.
+     */
+    OutboundQueue() {
+        this(Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES),
+                Integer.getInteger(MAX_FRAMES_PROPERTY, DEFAULT_MAX_FRAMES));
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param maxBytes the bytes that may be queued
+     * @param maxFrames the frames that may be queued
+     */
+    OutboundQueue(long maxBytes, int maxFrames) {
+        this.frames = new ConcurrentLinkedQueue<>();
+        this.maxBytes = maxBytes;
+        this.maxFrames = maxFrames;
+        this.queuedBytes = new AtomicLong();
+        this.queuedFrames = new AtomicInteger();
+    }
+
+    /**
+     * Queues a frame, unless the limits would be exceeded. Can be called by any thread.
+     *
+     * @param frame the frame to write, consumed by the writer
+     * @return true if the frame has been queued, false if the client is too slow
+     */
+    boolean offer(ByteBuffer frame) {
+        int length = frame.remaining();
+        if (this.queuedFrames.incrementAndGet() > this.maxFrames) {
+            this.queuedFrames.decrementAndGet();
+            return false;
+        }
+        if (this.queuedBytes.addAndGet(length) > this.maxBytes) {
+            this.queuedBytes.addAndGet(-length);
+            this.queuedFrames.decrementAndGet();
+            return false;
+        }
+
+        this.frames.add(frame);
+        return true;
+    }
+
+    /**
+     * Takes the first frame, to be completely written. Writer only.
+     *
+     * @return the first frame, null if the queue is empty
+     */
+    ByteBuffer poll() {
+        ByteBuffer frame = this.frames.poll();
+        if (frame != null) {
+            this.queuedFrames.decrementAndGet();
+            this.queuedBytes.addAndGet(-frame.remaining());
+        }
+        return frame;
+    }
+
+    /**
+     * Fills the given array with the first frames, without taking them, so that they can be
+     * written together. Writer only.
+     *
+     * @param batch the array to fill
+     * @return the number of frames put in the array
+     */
+    int peek(ByteBuffer[] batch) {
+        int count = 0;
+        Iterator<ByteBuffer> iterator = this.frames.iterator();
+        while (count < batch.length && iterator.hasNext()) {
+            batch[count++] = iterator.next();
+        }
+        return count;
+    }
+
+    /**
+     * Takes the first frames which have been completely written. Writer only.
+     *
+     * @param written the bytes written since the last call
+     */
+    void consumed(long written) {
+        this.queuedBytes.addAndGet(-written);
+        ByteBuffer frame;
+        while ((frame = this.frames.peek()) != null && !frame.hasRemaining()) {
+            this.frames.poll();
+            this.queuedFrames.decrementAndGet();
+        }
+    }
+
+    /**
+     * Verifies if there are frames to write.
+     *
+     * @return true if the queue is empty, false otherwise
+     */
+    boolean isEmpty() {
+        return this.frames.isEmpty();
+    }
+
+    /**
+     * Gets the bytes queued and not written yet.
+     *
+     * @return the queued bytes
+     */
+    long getQueuedBytes() {
+        return this.queuedBytes.get();
+    }
+
+    /**
+     * Gets the frames queued and not completely written yet.
+     *
+     * @return the queued frames
+     */
+    int getQueuedFrames() {
+        return this.queuedFrames.get();
+    }
+
+    /**
+     * Discards the queued frames, when the connection is closed.
+     */
+    void clear() {
+        while (this.poll() != null) {
+            // Keep discarding
+        }
+    }
+}
@@ -13,15 +13,30 @@ import it.polimi.ingsw.server.Server;
 public class TCPServer {
     private ServerSocket serverSocketTCP;
     private Server server;
+    private final ConnectionThreadMode threadMode;
 
     /**
-     * Class constructor. It will open a {@link ServerSocket} on the specified port
+     * Class constructor. It will open a {@link ServerSocket} on the specified port, and run
+     * each connection on a platform thread
      *
      * @param port   the port on which the server should be started
      * @param server the {@link Server} object that contains all the {@link Match}
      *               objects
      */
     public TCPServer(Integer port, Server server) {
+        this(port, server, ConnectionThreadMode.PLATFORM);
+    }
+
+    /**
+     * Class constructor. It will open a {@link ServerSocket} on the specified port
+     *
+     * @param port       the port on which the server should be started
+     * @param server     the {@link Server} object that contains all the {@link Match}
+     *                   objects
+     * @param threadMode the kind of thread on which each connection is run
+     */
+    public TCPServer(Integer port, Server server, ConnectionThreadMode threadMode) {
+        this.threadMode = threadMode;
         try {
             this.serverSocketTCP = new ServerSocket(port);
             this.server = server;
@@ -33,13 +48,13 @@ public class TCPServer {
     /**
      * Main loop. Until the {@link ServerSocket} is not closed, it will listen for
      * any {@link Socket} that tries to connect and accept them. Finally, it will
-     * start a new {@link ClientListener} with it
+     * start a new {@link ClientListener} with it, on a thread of the chosen kind
      */
     public void listen() {
         while (!this.serverSocketTCP.isClosed()) {
             try {
                 Socket socket = this.serverSocketTCP.accept();
-                new ClientListener(socket, server).start();
+                threadMode.start("tcp-client-" + socket.getPort(), new ClientListener(socket, server));
             } catch (IOException e) {
                 System.out.println("Failed to accept socket");
                 e.printStackTrace();
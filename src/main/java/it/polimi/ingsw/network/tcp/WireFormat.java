@@ -0,0 +1,119 @@
+package it.polimi.ingsw.network.tcp;
+
+import java.nio.charset.StandardCharsets;
+import it.polimi.ingsw.network.messages.HeartbeatMessage;
+import it.polimi.ingsw.network.messages.Message;
+import it.polimi.ingsw.utils.MessageBinaryCodec;
+import it.polimi.ingsw.utils.MessageJsonParser;
+
+/**
+ * Format of the messages exchanged on a TCP connection, chosen by the client when it connects:
+ * <ul>
+ * <li>JSON: each message is a line of JSON (see {@link MessageJsonParser}), readable while debugging
+ * <li>BINARY: each message is a frame made of its length, as a varint, followed by the message encoded by the
+ * {@link MessageBinaryCodec}, several times smaller and faster to parse
+ * </ul>
+ * A connection starts in the JSON format. A client wanting the binary one sends the {@link #HANDSHAKE} line as its
+ * first line: the server answers with the same line, after which both sides only send binary frames. A server not
+ * knowing the binary format never answers, so the client stays with the JSON one.
+ */
+public enum WireFormat {
+    JSON {
+        @Override
+        public byte[] encode(Message msg) {
+            String line = msg instanceof HeartbeatMessage heartbeat ? heartbeat.getLine() : jsonParser.toJson(msg);
+            return (line + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Message decode(byte[] frame, int length) {
+            String line = new String(frame, 0, length, StandardCharsets.UTF_8);
+            if (line.equals(HeartbeatMessage.PING.getLine()))
+                return HeartbeatMessage.PING;
+            if (line.equals(HeartbeatMessage.PONG.getLine()))
+                return HeartbeatMessage.PONG;
+            return jsonParser.toMessage(line);
+        }
+    },
+    BINARY {
+        @Override
+        public byte[] encode(Message msg) {
+            byte[] payload = binaryCodec.encode(msg);
+            byte[] frame = new byte[varintLength(payload.length) + payload.length];
+
+            int position = 0;
+            int length = payload.length;
+            while ((length & ~0x7F) != 0) {
+                frame[position++] = (byte) ((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            frame[position++] = (byte) length;
+            System.arraycopy(payload, 0, frame, position, payload.length);
+            return frame;
+        }
+
+        @Override
+        public Message decode(byte[] frame, int length) {
+            return binaryCodec.decode(frame, 0, length);
+        }
+    };
+
+    /**
+     * Name of the system property used by the clients to choose the format, either "binary" (default) or "json".
+     */
+    public static final String PROPERTY = "tcp.wire";
+
+    /**
+     * Line sent by a client to ask for the binary format, and by the server to accept it.
+     */
+    public static final String HANDSHAKE = "wire binary";
+
+    /**
+     * Longest frame accepted, longer ones are considered malicious and close the connection.
+     */
+    public static final int MAX_FRAME_LENGTH = 1 << 20;
+
+    // Both are stateless and thread safe, so they're shared by all the connections
+    private static final MessageJsonParser jsonParser = MessageJsonParser.getInstance();
+    private static final MessageBinaryCodec binaryCodec = new MessageBinaryCodec();
+
+    /**
+     * Gets the format chosen through the {@value #PROPERTY} system property.
+     *
+     * @return The chosen format, BINARY if the property is missing or not valid
+     */
+    public static WireFormat fromSystemProperty() {
+        if ("json".equalsIgnoreCase(System.getProperty(PROPERTY)))
+            return JSON;
+        return BINARY;
+    }
+
+    /**
+     * Encodes a message, framing included.
+     *
+     * @param msg The message to encode
+     * @return The bytes to send
+     */
+    public abstract byte[] encode(Message msg);
+
+    /**
+     * Decodes the content of a frame, i.e. a line without its terminator or the bytes following the length of a
+     * binary frame.
+     *
+     * @param frame  The buffer starting with the content of the frame
+     * @param length The length of the content
+     * @return The decoded message
+     * @throws RuntimeException If the content is not a valid message
+     */
+    public abstract Message decode(byte[] frame, int length);
+
+    // Bytes taken by a value encoded as a varint
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,204 @@
+package it.polimi.ingsw.server;
+
+import it.polimi.ingsw.gamemodel.Match;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Restores the matches saved on the disk after a server crash, without keeping the server unavailable meanwhile.
+ * The snapshots found are first listed in the lobby through their {@link MatchSummary}, which is read without
+ * deserializing the match, then restored in parallel by a bounded pool of threads (see {@value #THREADS_PROPERTY}).
+ * A match requested before its turn (e.g. someone is rejoining it) is restored right away by the requesting thread.
+ * Once every match has been restored, the time taken is reported.
+ */
+class CrashRecovery {
+    /**
+     * Name of the system property setting the number of threads restoring the matches, the number of processors by
+     * default.
+     */
+    static final String THREADS_PROPERTY = "recovery.threads";
+
+    private final MatchRegistry matches;
+    private final File directory;
+    // Matches not restored yet, by name
+    private final Map<String, Restoring> restoring;
+
+    // Metrics
+    private final AtomicInteger restored;
+    private final AtomicInteger failed;
+    private long startNanos;
+
+    /**
+     * Initializes the recovery of the matches saved in the current directory.
+     *
+     * @param matches The registry the restored matches are added to
+     */
+    CrashRecovery(MatchRegistry matches) {
+        this(matches, new File("."));
+    }
+
+    /**
+     * Initializes the recovery of the matches saved in the given directory.
+     *
+     * @param matches   The registry the restored matches are added to
+     * @param directory The directory containing the snapshots
+     */
+    CrashRecovery(MatchRegistry matches, File directory) {
+        this.matches = matches;
+        this.directory = directory;
+        this.restoring = new ConcurrentHashMap<>();
+        this.restored = new AtomicInteger();
+        this.failed = new AtomicInteger();
+    }
+
+    /**
+     * Finds the saved matches and starts restoring them in the background.
+     *
+     * @return Completed once every match found has been restored, or couldn't be
+     */
+    CompletableFuture<Void> start() {
+        startNanos = System.nanoTime();
+        File[] files = directory.listFiles((file, name) -> name.toLowerCase().endsWith(".match"));
+        if (files == null || files.length == 0)
+            return CompletableFuture.completedFuture(null);
+
+        for (File file : files) {
+            String matchName = file.getName().replaceAll("(?i)(.*)\\.match", "$1");
+            restoring.put(matchName, new Restoring(matchName));
+        }
+
+        int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), task -> {
+            Thread thread = new Thread(task, "crash-recovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Summaries first, so that the lobby lists every match as soon as possible
+        restoring.values().forEach(r -> pool.execute(r::publishSummary));
+        CompletableFuture<?>[] results = restoring.values().stream()
+                .map(r -> CompletableFuture.runAsync(r::restore, pool).thenCompose(v -> r.result))
+                .toArray(CompletableFuture[]::new);
+        pool.shutdown();
+
+        return CompletableFuture.allOf(results).handle((v, e) -> {
+            report();
+            return null;
+        });
+    }
+
+    /**
+     * Gets a match being restored, restoring it right away if its turn hasn't come yet.
+     *
+     * @param matchName The unique name of the match
+     * @return The restored match, null if no match with the given name is being restored or it couldn't be restored
+     */
+    Match restoreNow(String matchName) {
+        Restoring r = restoring.get(matchName);
+        if (r == null)
+            return null;
+
+        r.restore();
+        return r.result.exceptionally(e -> null).join();
+    }
+
+    /**
+     * Verifies if a match is still being restored, so its name is taken.
+     *
+     * @param matchName The unique name of the match
+     * @return true if the match is being restored, false otherwise
+     */
+    boolean isRestoring(String matchName) {
+        return restoring.containsKey(matchName);
+    }
+
+    /**
+     * Gets the number of matches restored so far.
+     *
+     * @return The number of restored matches
+     */
+    int getRestored() {
+        return restored.get();
+    }
+
+    /**
+     * Gets the number of matches which couldn't be restored.
+     *
+     * @return The number of failed matches
+     */
+    int getFailed() {
+        return failed.get();
+    }
+
+    // Prints the time taken by the recovery
+    private void report() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("Restored %d matches (%d failed) in %.3f s, %.1f matches/s%n", restored.get(), failed.get(),
+                seconds, seconds > 0 ? restored.get() / seconds : 0);
+    }
+
+    /**
+     * A match being restored, by a thread of the pool or by the first thread requesting it.
+     */
+    private final class Restoring {
+        private final String matchName;
+        private final MatchJournal journal;
+        private final CompletableFuture<Match> result;
+        private boolean claimed;
+
+        private Restoring(String matchName) {
+            this.matchName = matchName;
+            this.journal = new MatchJournal(directory, matchName);
+            this.result = new CompletableFuture<>();
+        }
+
+        // Lists the match in the lobby, unless it's already being restored
+        private void publishSummary() {
+            synchronized (this) {
+                if (claimed)
+                    return;
+
+                try {
+                    MatchSummary summary = journal.readSummary();
+                    if (summary != null)
+                        matches.publishRestoring(matchName, summary.toAvailableMatch(matchName));
+                } catch (IOException e) {
+                    // Reported when restoring the match
+                }
+            }
+        }
+
+        // Restores the match, unless another thread is already doing it
+        private void restore() {
+            synchronized (this) {
+                if (claimed)
+                    return;
+                claimed = true;
+            }
+
+            try {
+                // Restore the match from its snapshot and journal
+                Match match = journal.recover();
+                match.getPlayers().forEach((p) -> p.setConnected(false));
+                match.subscribeObserver(new MatchStatusObserver(journal, matches, match.getActionsCount()));
+                matches.register(matchName, match);
+                restored.incrementAndGet();
+                result.complete(match);
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                System.err.println("The match \"" + matchName + "\" couldn't be loaded from disk");
+                matches.publishRestoring(matchName, null);
+                failed.incrementAndGet();
+                result.completeExceptionally(e);
+            } finally {
+                restoring.remove(matchName);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package it.polimi.ingsw.server;
+
+import it.polimi.ingsw.utils.AvailableMatch;
+import it.polimi.ingsw.utils.LobbyUpdate;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receiver of the lobby change feed of a {@link MatchRegistry}: once subscribed, it gets the list of the joinable
+ * matches and then only the changes to it, one at a time and in order. A subscriber failing to receive a change is
+ * unsubscribed.
+ */
+public interface LobbySubscriber {
+    /**
+     * Receives the joinable matches at the moment of the subscription.
+     *
+     * @param matches The joinable matches
+     * @throws IOException If the subscriber couldn't be reached
+     */
+    void lobbySnapshot(List<AvailableMatch> matches) throws IOException;
+
+    /**
+     * Receives a change of a joinable match, following the snapshot and the previous changes.
+     *
+     * @param update The change
+     * @throws IOException If the subscriber couldn't be reached
+     */
+    void lobbyUpdated(LobbyUpdate update) throws IOException;
+}
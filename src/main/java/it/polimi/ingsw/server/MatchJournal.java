@@ -0,0 +1,407 @@
+package it.polimi.ingsw.server;
+
+import it.polimi.ingsw.exceptions.HandException;
+import it.polimi.ingsw.exceptions.WrongChoiceException;
+import it.polimi.ingsw.exceptions.WrongStateException;
+import it.polimi.ingsw.exceptions.WrongTurnException;
+import it.polimi.ingsw.gamemodel.*;
+import it.polimi.ingsw.utils.Pair;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Write-ahead journal of a single match, stored on disk as two files (in the working directory, unless another one is
+ * given):
+ * <ul>
+ * <li>"matchName.match", a compact snapshot of the whole {@link Match} (see {@link Match#writeSnapshot(DataOutput)}),
+ * preceded by a small {@link MatchSummary}, which can be read without restoring the match (e.g. to list it in the
+ * lobby); snapshots written with Java serialization by older versions are still restored
+ * <li>"matchName.journal", the actions (cards played and drawn) performed after the snapshot, as small binary records
+ * </ul>
+ * Each record carries the sequence number of its action (see {@link Match#getActionsCount()}), so that records
+ * already contained in the snapshot are skipped when the match is replayed.
+ * The files are written asynchronously by the {@link PersistenceWriter}, which batches the writes of every match: the
+ * methods appending records and requesting snapshots only enqueue them.
+ */
+public class MatchJournal {
+    private static final byte PLAYED_CARD = 0;
+    private static final byte DREW_CARD = 1;
+
+    // First bytes of a snapshot preceded by its summary, older snapshots start with the Java serialization ones
+    private static final int SNAPSHOT_MAGIC = 0x434E534E;
+    // Versions of the snapshots: the match serialized by Java, then its compact snapshot
+    private static final byte SERIALIZED_SNAPSHOT_VERSION = 1;
+    private static final byte SNAPSHOT_VERSION = 2;
+    // Returned by readHeader(...) for the snapshots older than the summaries
+    private static final byte LEGACY_SNAPSHOT_VERSION = 0;
+
+    private final String matchName;
+    private final File directory;
+    private final File snapshotFile;
+    private final File journalFile;
+    private final Path temporarySnapshotFile;
+    private final PersistenceWriter writer;
+
+    // Only used by the writer thread
+    private FileChannel journalChannel;
+    private FileChannel temporarySnapshotChannel;
+
+    /**
+     * Initializes the journal of the given match, without touching the disk.
+     *
+     * @param matchName The unique name of the match
+     */
+    public MatchJournal(String matchName) {
+        this(matchName, PersistenceWriter.getInstance());
+    }
+
+    /**
+     * Initializes the journal of the given match, written by the given writer, without touching the disk.
+     *
+     * @param matchName The unique name of the match
+     * @param writer    The writer of the journal
+     */
+    MatchJournal(String matchName, PersistenceWriter writer) {
+        this(new File("."), matchName, writer);
+    }
+
+    /**
+     * Initializes the journal of the given match, stored in the given directory, without touching the disk.
+     *
+     * @param directory The directory containing the files of the journal
+     * @param matchName The unique name of the match
+     */
+    MatchJournal(File directory, String matchName) {
+        this(directory, matchName, PersistenceWriter.getInstance());
+    }
+
+    /**
+     * Initializes the journal of the given match, stored in the given directory and written by the given writer,
+     * without touching the disk.
+     *
+     * @param directory The directory containing the files of the journal
+     * @param matchName The unique name of the match
+     * @param writer    The writer of the journal
+     */
+    MatchJournal(File directory, String matchName, PersistenceWriter writer) {
+        this.matchName = matchName;
+        this.directory = directory;
+        this.snapshotFile = new File(directory, matchName + ".match");
+        this.journalFile = new File(directory, matchName + ".journal");
+        this.temporarySnapshotFile = Path.of(snapshotFile.getPath() + ".tmp");
+        this.writer = writer;
+    }
+
+    /**
+     * Gets the name of the match.
+     *
+     * @return The unique name of the match
+     */
+    public String getMatchName() {
+        return matchName;
+    }
+
+    /**
+     * Gets the directory containing the files of the journal.
+     *
+     * @return The directory of the journal
+     */
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Enqueues the record of a played card, to be appended by the next commit.
+     *
+     * @param sequence The sequence number of the action
+     * @param username The username of the player who played the card
+     * @param card     The played card
+     * @param coords   The coordinates of the placement
+     * @param side     The side of the placed card
+     */
+    public void appendPlayedCard(int sequence, String username, PlayableCard card, Pair<Integer, Integer> coords, Side side) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(record)) {
+            out.writeInt(sequence);
+            out.writeByte(PLAYED_CARD);
+            out.writeUTF(username);
+            out.writeInt(card.getId());
+            out.writeInt(coords.first());
+            out.writeInt(coords.second());
+            out.writeByte(side.ordinal());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writer.append(this, record.toByteArray());
+    }
+
+    /**
+     * Enqueues the record of a drawn card, to be appended by the next commit.
+     *
+     * @param sequence The sequence number of the action
+     * @param username The username of the player who drew the card
+     * @param source   The source the card was drawn from
+     */
+    public void appendDrewCard(int sequence, String username, DrawSource source) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(record)) {
+            out.writeInt(sequence);
+            out.writeByte(DREW_CARD);
+            out.writeUTF(username);
+            out.writeByte(source.ordinal());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writer.append(this, record.toByteArray());
+    }
+
+    /**
+     * Enqueues the request of a new snapshot: the next commit serializes the match, with the state it has at that
+     * time, however many snapshots have been requested meanwhile. The journal is then emptied.
+     *
+     * @param match The match to serialize
+     */
+    public void requestSnapshot(Match match) {
+        writer.snapshot(this, match);
+    }
+
+    /**
+     * Verifies if a snapshot of the match has already been written.
+     *
+     * @return true if the snapshot file exists, false otherwise
+     */
+    public boolean hasSnapshot() {
+        return snapshotFile.exists();
+    }
+
+    /**
+     * Encodes a compact snapshot of the match, preceded by its summary. Must be run by the match mailbox, so that the
+     * match doesn't change meanwhile.
+     *
+     * @param match The match to encode
+     * @return The encoded snapshot
+     * @throws IOException If the match couldn't be encoded
+     */
+    static byte[] encodeSnapshot(Match match) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeByte(SNAPSHOT_VERSION);
+            MatchSummary.of(match).writeTo(out);
+            match.writeSnapshot(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the summary of the match from its snapshot, without deserializing the match.
+     *
+     * @return The summary of the match, null if the snapshot is older than the summaries
+     * @throws IOException If the snapshot couldn't be read
+     */
+    public MatchSummary readSummary() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile), 512))) {
+            return readHeader(in) != LEGACY_SNAPSHOT_VERSION ? MatchSummary.readFrom(in) : null;
+        }
+    }
+
+    // Reads the first bytes of a snapshot, returning its version: if a summary follows, the stream is left before it,
+    // otherwise (legacy snapshots) the stream is left unread
+    private static byte readHeader(DataInputStream in) throws IOException {
+        in.mark(5);
+        if (in.readInt() == SNAPSHOT_MAGIC) {
+            byte version = in.readByte();
+            if (version != SERIALIZED_SNAPSHOT_VERSION && version != SNAPSHOT_VERSION)
+                throw new IOException("Unknown snapshot version");
+            return version;
+        }
+
+        in.reset();
+        return LEGACY_SNAPSHOT_VERSION;
+    }
+
+    /**
+     * Writes a new snapshot to a temporary file, without forcing it to the disk yet.
+     * Note: Called by the {@link PersistenceWriter} thread only.
+     *
+     * @param serializedMatch The match encoded by {@link #encodeSnapshot(Match)}
+     * @throws IOException If the snapshot couldn't be written
+     */
+    void writeTemporarySnapshot(byte[] serializedMatch) throws IOException {
+        closeChannels(false);
+        temporarySnapshotChannel = FileChannel.open(temporarySnapshotFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        writeFully(temporarySnapshotChannel, serializedMatch);
+    }
+
+    /**
+     * Forces the temporary snapshot to the disk.
+     * Note: Called by the {@link PersistenceWriter} thread only.
+     *
+     * @throws IOException If the snapshot couldn't be written
+     */
+    void forceTemporarySnapshot() throws IOException {
+        try (FileChannel channel = temporarySnapshotChannel) {
+            temporarySnapshotChannel = null;
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Replaces the match snapshot with the temporary one, atomically, so that a crash never leaves a partially written
+     * snapshot.
+     * Note: Called by the {@link PersistenceWriter} thread only.
+     *
+     * @throws IOException If the snapshot couldn't be replaced
+     */
+    void replaceSnapshot() throws IOException {
+        Files.move(temporarySnapshotFile, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Appends records to the journal, without forcing them to the disk yet.
+     * Note: Called by the {@link PersistenceWriter} thread only.
+     *
+     * @param records  The encoded records
+     * @param truncate Whether the journal has to be emptied first, since a new snapshot contains its records
+     * @throws IOException If the records couldn't be written
+     */
+    void writeRecords(byte[] records, boolean truncate) throws IOException {
+        if (journalChannel == null)
+            journalChannel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (truncate)
+            journalChannel.truncate(0);
+
+        journalChannel.position(journalChannel.size());
+        writeFully(journalChannel, records);
+    }
+
+    /**
+     * Forces the journal to the disk.
+     * Note: Called by the {@link PersistenceWriter} thread only.
+     *
+     * @throws IOException If the records couldn't be written
+     */
+    void forceRecords() throws IOException {
+        journalChannel.force(false);
+    }
+
+    /**
+     * Reads the match snapshot from the disk, then replays on it the journaled actions that it doesn't contain yet.
+     * A truncated last record (e.g. because of a crash while writing it) is ignored.
+     * Note: no observer should be subscribed to the match yet, since replayed actions notify them again.
+     *
+     * @return The restored match
+     * @throws IOException            If the snapshot couldn't be read
+     * @throws ClassNotFoundException If an older snapshot doesn't contain a valid serialized match
+     */
+    public Match recover() throws IOException, ClassNotFoundException {
+        Match match;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            byte version = readHeader(in);
+            if (version != LEGACY_SNAPSHOT_VERSION)
+                MatchSummary.readFrom(in);
+
+            if (version == SNAPSHOT_VERSION)
+                match = Match.readSnapshot(in);
+            else
+                match = (Match) new ObjectInputStream(in).readObject();
+        }
+
+        if (!journalFile.exists())
+            return match;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            while (true) {
+                int sequence = in.readInt();
+                byte type = in.readByte();
+                String username = in.readUTF();
+
+                if (type == PLAYED_CARD) {
+                    int cardId = in.readInt();
+                    Pair<Integer, Integer> coords = new Pair<>(in.readInt(), in.readInt());
+                    Side side = Side.values()[in.readByte()];
+
+                    if (sequence > match.getActionsCount())
+                        replayPlayedCard(match, username, cardId, coords, side);
+                } else {
+                    DrawSource source = DrawSource.values()[in.readByte()];
+
+                    if (sequence > match.getActionsCount())
+                        getPlayer(match, username).drawCard(source);
+                }
+            }
+        } catch (EOFException e) {
+            // End of the journal reached
+        } catch (WrongTurnException | WrongStateException | WrongChoiceException | HandException e) {
+            throw new IOException("The journal doesn't match the snapshot", e);
+        }
+
+        return match;
+    }
+
+    /**
+     * Enqueues the removal of the snapshot and the journal from the disk, discarding the writes not committed yet.
+     */
+    public void delete() {
+        writer.delete(this);
+    }
+
+    /**
+     * Removes the snapshot and the journal from the disk.
+     * Note: Called by the {@link PersistenceWriter} thread only.
+     */
+    void deleteFiles() {
+        closeChannels(true);
+        snapshotFile.delete();
+        journalFile.delete();
+        temporarySnapshotFile.toFile().delete();
+    }
+
+    // Closes the temporary snapshot channel and, if requested, the journal one
+    private void closeChannels(boolean journal) {
+        try {
+            if (temporarySnapshotChannel != null)
+                temporarySnapshotChannel.close();
+            if (journal && journalChannel != null)
+                journalChannel.close();
+        } catch (IOException ignored) {
+        }
+        temporarySnapshotChannel = null;
+        if (journal)
+            journalChannel = null;
+    }
+
+    private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    // Plays again the card with the given id, taking it from the player's hand
+    private static void replayPlayedCard(Match match, String username, int cardId, Pair<Integer, Integer> coords, Side side) throws WrongTurnException, WrongStateException, WrongChoiceException {
+        Player player = getPlayer(match, username);
+        PlayableCard card = player.getBoard().getCurrentHand().stream()
+                .filter(c -> c.getId() == cardId)
+                .findFirst()
+                .orElseThrow(() -> new WrongChoiceException("The journaled card is not in the player's hand"));
+
+        player.playCard(coords, card, side);
+    }
+
+    // Gets the match player with the given username
+    private static Player getPlayer(Match match, String username) throws WrongChoiceException {
+        return match.getPlayers().stream()
+                .filter(p -> p.getUsername().equals(username))
+                .findFirst()
+                .orElseThrow(() -> new WrongChoiceException("The journaled player is not in the match"));
+    }
+}
@@ -0,0 +1,314 @@
+package it.polimi.ingsw.server;
+
+import it.polimi.ingsw.gamemodel.*;
+import it.polimi.ingsw.utils.AvailableMatch;
+import it.polimi.ingsw.utils.LobbyUpdate;
+import it.polimi.ingsw.utils.OrderedTaskQueue;
+import it.polimi.ingsw.utils.Pair;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Registry of all the matches of the {@link Server}, safe to be read and modified by any thread without locking.
+ * Besides the matches themselves, it keeps an index of the joinable ones (waiting for players, or having disconnected
+ * players, e.g. after a server crash) as immutable {@link AvailableMatch} entries: each match is followed by a
+ * {@link LobbyEntry} observer, which updates its entry when someone joins, quits, disconnects or rejoins and when the
+ * match starts or finishes. Listing the joinable matches therefore costs only a copy of the index, without touching any
+ * match lock.
+ * Since match events are delivered asynchronously, the index may briefly lag behind a match: joining it still checks
+ * the actual match state.
+ * Every change of the index is also pushed to the {@link LobbySubscriber} instances, so that clients in the lobby
+ * don't need to poll the whole list: each subscriber has its own FIFO queue, drained on virtual threads, so a slow
+ * client never delays the matches nor the other subscribers.
+ */
+public class MatchRegistry {
+    private final Map<String, Match> matches;
+    private final Map<String, LobbyEntry> entries;
+    private final Map<String, AvailableMatch> joinable;
+    private final Map<LobbySubscriber, OrderedTaskQueue> subscribers;
+    private final ExecutorService feedExecutor;
+    // Orders the changes of the index and the subscriptions, so that every subscriber gets each change exactly once
+    private final Object feedLock;
+
+    /**
+     * Initializes an empty registry.
+     */
+    public MatchRegistry() {
+        matches = new ConcurrentHashMap<>();
+        entries = new ConcurrentHashMap<>();
+        joinable = new ConcurrentHashMap<>();
+        subscribers = new ConcurrentHashMap<>();
+        feedExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("lobby-feed-", 0).factory());
+        feedLock = new Object();
+    }
+
+    /**
+     * Adds a match to the registry, unless a match with the same name is already registered, and starts following it
+     * to keep the joinable index updated.
+     *
+     * @param name  The unique name of the match
+     * @param match The match to register
+     * @return true if the match has been registered, false if the name was already taken
+     */
+    public boolean register(String name, Match match) {
+        if (matches.putIfAbsent(name, match) != null)
+            return false;
+
+        // The match may be restored from disk, so its state is read once by a command of the match, while it can't change
+        LobbyEntry entry = match.getMailbox().submit(() -> {
+            LobbyEntry created = new LobbyEntry(name, match);
+            match.subscribeObserver(created);
+            entries.put(name, created);
+            return created;
+        }).join();
+        entry.publish();
+        return true;
+    }
+
+    /**
+     * Gets a registered match.
+     *
+     * @param name The unique name of the match
+     * @return The match, null if there's no match with the given name
+     */
+    public Match get(String name) {
+        return matches.get(name);
+    }
+
+    /**
+     * Removes a match from the registry and from the joinable index, and stops following it, so that the event queue
+     * of its {@link LobbyEntry} is released.
+     *
+     * @param name The unique name of the match
+     */
+    public void remove(String name) {
+        Match match = matches.remove(name);
+        LobbyEntry entry = entries.remove(name);
+        if (match != null && entry != null)
+            match.unsubscribeObserver(entry);
+        updateJoinable(name, null);
+    }
+
+    /**
+     * Lists the joinable matches, i.e. the ones waiting for players and the ones with disconnected players.
+     *
+     * @return An immutable snapshot of the joinable matches
+     */
+    public List<AvailableMatch> getJoinable() {
+        return List.copyOf(joinable.values());
+    }
+
+    /**
+     * Subscribes to the lobby change feed: the subscriber will receive the joinable matches, then every change to them.
+     *
+     * @param subscriber The subscriber
+     */
+    public void subscribe(LobbySubscriber subscriber) {
+        OrderedTaskQueue queue = new OrderedTaskQueue(feedExecutor);
+
+        synchronized (feedLock) {
+            List<AvailableMatch> snapshot = getJoinable();
+            if (subscribers.putIfAbsent(subscriber, queue) == null)
+                queue.submit(() -> deliver(subscriber, s -> s.lobbySnapshot(snapshot)));
+        }
+    }
+
+    /**
+     * Stops sending the lobby changes to a subscriber. Changes already queued may still be delivered.
+     *
+     * @param subscriber The subscriber
+     */
+    public void unsubscribe(LobbySubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Gets the number of registered matches.
+     *
+     * @return The number of matches
+     */
+    public int size() {
+        return matches.size();
+    }
+
+    /**
+     * Lists a match being restored from the disk among the joinable ones, with the entry it will have once restored,
+     * unless it has already been registered.
+     *
+     * @param name  The unique name of the match
+     * @param entry The index entry of the match, null if it isn't joinable
+     */
+    public void publishRestoring(String name, AvailableMatch entry) {
+        synchronized (feedLock) {
+            if (!matches.containsKey(name))
+                updateJoinable(name, entry);
+        }
+    }
+
+    /**
+     * Gets the index entry of a match: a match is listed while it's waiting for players, or when it has disconnected
+     * players who can join it again.
+     *
+     * @param name         The unique name of the match
+     * @param maxPlayers   The maximum number of players
+     * @param players      The number of players
+     * @param disconnected The number of disconnected players
+     * @param started      Whether the match has started
+     * @param finished     Whether the match has finished
+     * @return The index entry, null if the match isn't joinable
+     */
+    static AvailableMatch lobbyEntry(String name, int maxPlayers, int players, int disconnected, boolean started,
+                                     boolean finished) {
+        boolean waiting = !started && players < maxPlayers;
+        boolean rejoinable = started && disconnected > 0;
+
+        return !finished && (waiting || rejoinable) ? new AvailableMatch(name, maxPlayers, players, rejoinable) : null;
+    }
+
+    // Changes the index entry of a match, removing it if null, and pushes the change to the subscribers
+    private void updateJoinable(String name, AvailableMatch entry) {
+        synchronized (feedLock) {
+            AvailableMatch previous = entry == null ? joinable.remove(name) : joinable.put(name, entry);
+            if (Objects.equals(previous, entry))
+                return;
+
+            LobbyUpdate update = new LobbyUpdate(name, entry);
+            subscribers.forEach((subscriber, queue) ->
+                    queue.submit(() -> deliver(subscriber, s -> s.lobbyUpdated(update))));
+        }
+    }
+
+    // Sends something to a subscriber, unsubscribing it if it can't be reached
+    private void deliver(LobbySubscriber subscriber, Delivery delivery) {
+        if (!subscribers.containsKey(subscriber))
+            return;
+
+        try {
+            delivery.sendTo(subscriber);
+        } catch (IOException e) {
+            unsubscribe(subscriber);
+        }
+    }
+
+    /**
+     * Something to send to a {@link LobbySubscriber}.
+     */
+    @FunctionalInterface
+    private interface Delivery {
+        void sendTo(LobbySubscriber subscriber) throws IOException;
+    }
+
+    /**
+     * Observer keeping the joinable index entry of a single match. Its fields are only modified by the events of its
+     * match, which are delivered in order (see {@link MatchEventDispatcher}); they're guarded by the entry itself,
+     * since the first publication comes from the registering thread instead.
+     */
+    private class LobbyEntry implements MatchObserver {
+        private final String name;
+        private final int maxPlayers;
+        private int players;
+        private int disconnected;
+        private boolean started;
+        private boolean finished;
+
+        /**
+         * Reads the current state of the match. Must be run by the match mailbox.
+         *
+         * @param name  The unique name of the match
+         * @param match The followed match
+         */
+        private LobbyEntry(String name, Match match) {
+            this.name = name;
+            this.maxPlayers = match.getMaxPlayers();
+            this.players = match.getPlayers().size();
+            this.disconnected = (int) match.getPlayers().stream().filter(p -> !p.isConnected()).count();
+            this.started = match.isStarted();
+            this.finished = match.isFinished();
+        }
+
+        /**
+         * Updates the index entry of the match (see {@link #lobbyEntry}).
+         */
+        private synchronized void publish() {
+            updateJoinable(name, matches.containsKey(name)
+                    ? lobbyEntry(name, maxPlayers, players, disconnected, started, finished)
+                    : null);
+        }
+
+        @Override
+        public synchronized void matchStarted() {
+            started = true;
+            publish();
+        }
+
+        @Override
+        public synchronized void someoneJoined(Player someone) {
+            players++;
+            publish();
+        }
+
+        @Override
+        public synchronized void someoneQuit(Player someone) {
+            players--;
+            if (!someone.isConnected())
+                disconnected--;
+            publish();
+        }
+
+        @Override
+        public synchronized void someoneDisconnected(Player someone) {
+            disconnected++;
+            publish();
+        }
+
+        @Override
+        public synchronized void someoneRejoined(Player someone) {
+            disconnected--;
+            publish();
+        }
+
+        @Override
+        public void someoneDrewInitialCard(Player someone, InitialCard card) {
+        }
+
+        @Override
+        public void someoneSetInitialSide(Player someone, Side side, Map<Symbol, Integer> availableResources) {
+        }
+
+        @Override
+        public void someoneDrewSecretObjective(Player someone, Pair<Objective, Objective> objectives) {
+        }
+
+        @Override
+        public void someoneChoseSecretObjective(Player someone, Objective objective) {
+        }
+
+        @Override
+        public void someonePlayedCard(Player someone, Pair<Integer, Integer> coords, PlayableCard card, Side side) {
+        }
+
+        @Override
+        public void someoneDrewCard(Player someone, DrawSource source, PlayableCard card, PlayableCard replacementCard) {
+        }
+
+        @Override
+        public void someoneSentBroadcastText(Player someone, String text) {
+        }
+
+        @Override
+        public void someoneSentPrivateText(Player someone, Player recipient, String text) {
+        }
+
+        @Override
+        public synchronized void matchFinished() {
+            finished = true;
+            publish();
+        }
+    }
+}
@@ -3,27 +3,62 @@ package it.polimi.ingsw.server;
 import it.polimi.ingsw.gamemodel.*;
 import it.polimi.ingsw.utils.Pair;
 
-import java.io.*;
 import java.util.Map;
 
 /**
  * Subclass of {@link MatchObserver} supposed to perform routine actions, which means actions that are to be
  * performed when there's a state transition, BUT that are not related to a specific player.
- * It's current main function is to serialize the match from which it receives notifications.
+ * It's current main function is to persist the match from which it receives notifications: each card played or drawn
+ * is appended to the {@link MatchJournal} of the match, and every {@value #SNAPSHOT_INTERVAL} actions a snapshot of
+ * the whole match replaces the journaled ones. Both are only enqueued, the {@link PersistenceWriter} writes them.
  */
 public class MatchStatusObserver implements MatchObserver {
+    // Number of journaled actions after which a new snapshot is written
+    private static final int SNAPSHOT_INTERVAL = 20;
+
     private final String matchName;
-    private final Map<String, Match> matches;
+    private final MatchRegistry matches;
+    private final MatchJournal journal;
+
+    // Sequence number of the last action notified
+    private int lastAction;
+    private int actionsSinceSnapshot;
 
     /**
      * Initializes this instance main attributes.
      *
      * @param matchName The match name to which this instance is attached and listens to.
-     * @param matches All the matches of the server
+     * @param matches The registry of all the matches of the server
+     */
+    public MatchStatusObserver(String matchName, MatchRegistry matches) {
+        this(matchName, matches, 0);
+    }
+
+    /**
+     * Initializes this instance main attributes, for a match that has already performed some actions (e.g. restored
+     * from the disk).
+     *
+     * @param matchName     The match name to which this instance is attached and listens to.
+     * @param matches       The registry of all the matches of the server
+     * @param actionsCount  The number of actions already performed by the match, see {@link Match#getActionsCount()}
+     */
+    public MatchStatusObserver(String matchName, MatchRegistry matches, int actionsCount) {
+        this(new MatchJournal(matchName), matches, actionsCount);
+    }
+
+    /**
+     * Initializes this instance main attributes, for a match persisted by the given journal (e.g. the one it has been
+     * restored from, so that the match keeps being written to the same files).
+     *
+     * @param journal       The journal of the match to which this instance is attached and listens to.
+     * @param matches       The registry of all the matches of the server
+     * @param actionsCount  The number of actions already performed by the match, see {@link Match#getActionsCount()}
      */
-    public MatchStatusObserver(String matchName, Map<String, Match> matches) {
-        this.matchName = matchName;
+    MatchStatusObserver(MatchJournal journal, MatchRegistry matches, int actionsCount) {
+        this.matchName = journal.getMatchName();
         this.matches = matches;
+        this.journal = journal;
+        this.lastAction = actionsCount;
     }
 
     /**
@@ -76,27 +111,34 @@ public class MatchStatusObserver implements MatchObserver {
     }
 
     /**
-     * Serializes the match and saves it in the disk. This method parameters are not used.
+     * Appends the played card to the match journal.
      *
-     * @param someone Not used by this method.
-     * @param coords  Not used by this method.
-     * @param card    Not used by this method.
-     * @param side    Not used by this method.
+     * @param someone The player who played the card
+     * @param coords  The coordinates of the placement
+     * @param card    The played card
+     * @param side    The side of the placed card
      */
     @Override
     public void someonePlayedCard(Player someone, Pair<Integer, Integer> coords, PlayableCard card, Side side) {
-        serializeMatch();
+        lastAction++;
+        journal.appendPlayedCard(lastAction, someone.getUsername(), card, coords, side);
+        actionPersisted();
     }
 
     /**
-     * Serializes the match and saves it in the disk. This method parameters are not used.
+     * Appends the drawn card source to the match journal. The cards are not used by this method, since the decks are
+     * part of the match snapshot.
      *
-     * @param someone Not used by this method.
-     * @param card    Not used by this method.
+     * @param someone         The player who drew the card
+     * @param source          The source the card was drawn from
+     * @param card            Not used by this method.
+     * @param replacementCard Not used by this method.
      */
     @Override
     public void someoneDrewCard(Player someone, DrawSource source, PlayableCard card, PlayableCard replacementCard) {
-        serializeMatch();
+        lastAction++;
+        journal.appendDrewCard(lastAction, someone.getUsername(), source);
+        actionPersisted();
     }
 
     /**
@@ -115,36 +157,30 @@ public class MatchStatusObserver implements MatchObserver {
 
     /**
      * Removes this match serialization file from the disk and removes this match instance from the list of matches
-     * available in the {@link Server}.
+     * available in the {@link Server}. This instance stops observing the match, so that its event queue is released.
      */
     @Override
     public void matchFinished() {
+        Match m = matches.get(matchName);
+        if (m != null)
+            m.unsubscribeObserver(this);
+
         matches.remove(matchName);
-        removeSerializedMatch();
+        journal.delete();
     }
 
-    /**
-     * Utility method that serializes the match and saves it in the disk.
-     */
-    private void serializeMatch() {
-        try {
-            FileOutputStream fileOut = new FileOutputStream(matchName + ".match");
-            ObjectOutputStream out = new ObjectOutputStream(fileOut);
-            Match m = matches.get(matchName);
-            synchronized (m) {
-                out.writeObject(m);
-                out.close();
-                fileOut.close();
-            }
-        } catch (IOException e) {
-            System.err.println("The match \"" + matchName + "\" cannot be serialized due to I/O errors");
-        }
-    }
-
-    // Utility method that removes a serialized match from the disk.
-    private void removeSerializedMatch() {
-        File file = new File(matchName + ".match");
-        file.delete();
+    // Requests a new snapshot if there's none yet or enough actions have been journaled since the last one
+    private void actionPersisted() {
+        actionsSinceSnapshot++;
+        if (journal.hasSnapshot() && actionsSinceSnapshot < SNAPSHOT_INTERVAL)
+            return;
+
+        Match m = matches.get(matchName);
+        if (m == null)
+            return;
+
+        // Serialized by the writer once per commit, however many snapshots are requested meanwhile
+        journal.requestSnapshot(m);
+        actionsSinceSnapshot = 0;
     }
 }
-
@@ -0,0 +1,63 @@
+package it.polimi.ingsw.server;
+
+import it.polimi.ingsw.gamemodel.Match;
+import it.polimi.ingsw.gamemodel.Player;
+import it.polimi.ingsw.utils.AvailableMatch;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the lobby needs to know about a match saved on the disk, stored before its snapshot (see {@link MatchJournal}),
+ * so that a restarted server can list the match before deserializing it.
+ *
+ * @param maxPlayers The maximum number of players of the match
+ * @param players    The usernames of the players of the match
+ * @param started    Whether the match had started
+ * @param finished   Whether the match had finished
+ */
+public record MatchSummary(int maxPlayers, List<String> players, boolean started, boolean finished) {
+    /**
+     * Reads the summary of a match. Must be run by the match mailbox.
+     *
+     * @param match The match
+     * @return The summary of the match
+     */
+    static MatchSummary of(Match match) {
+        return new MatchSummary(match.getMaxPlayers(), match.getPlayers().stream().map(Player::getUsername).toList(),
+                match.isStarted(), match.isFinished());
+    }
+
+    /**
+     * Gets the lobby entry of the match once restored, when every player is disconnected.
+     *
+     * @param name The unique name of the match
+     * @return The lobby entry, null if the match isn't joinable
+     */
+    AvailableMatch toAvailableMatch(String name) {
+        return MatchRegistry.lobbyEntry(name, maxPlayers, players.size(), players.size(), started, finished);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeByte(maxPlayers);
+        out.writeBoolean(started);
+        out.writeBoolean(finished);
+        out.writeByte(players.size());
+        for (String player : players)
+            out.writeUTF(player);
+    }
+
+    static MatchSummary readFrom(DataInputStream in) throws IOException {
+        int maxPlayers = in.readByte();
+        boolean started = in.readBoolean();
+        boolean finished = in.readBoolean();
+        int count = in.readByte();
+        List<String> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            players.add(in.readUTF());
+        return new MatchSummary(maxPlayers, List.copyOf(players), started, finished);
+    }
+}
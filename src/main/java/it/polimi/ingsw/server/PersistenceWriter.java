@@ -0,0 +1,284 @@
+package it.polimi.ingsw.server;
+
+import it.polimi.ingsw.gamemodel.Match;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Singleton writing the {@link MatchJournal} of every match of the server, on a single thread, in group commits.
+ * Matches only enqueue what has to be persisted (journal records, requests of a new snapshot, deletions) and go on;
+ * the writer waits for a commit window (see {@value #COMMIT_WINDOW_PROPERTY}) after the first request, so that the
+ * requests of many actions and many matches are written together:
+ * <ul>
+ * <li>a match is serialized at most once per commit, however many snapshots it requested, with its latest state
+ * <li>the snapshots are written to temporary files, forced to the disk all together, then atomically renamed
+ * <li>the journal records are appended to their files, which are forced to the disk all together
+ * </ul>
+ * Since every journal record carries the sequence number of its action, the records of a journal emptied after the
+ * snapshot was renamed are never replayed twice (see {@link MatchJournal#recover()}).
+ */
+public final class PersistenceWriter {
+    /**
+     * Name of the system property setting the milliseconds waited to collect the requests of a commit, 50 by default.
+     */
+    public static final String COMMIT_WINDOW_PROPERTY = "persistence.commitWindow";
+
+    private static final PersistenceWriter singletonInstance =
+            new PersistenceWriter(Duration.ofMillis(Long.getLong(COMMIT_WINDOW_PROPERTY, 50)));
+
+    private final long commitWindowMillis;
+    // Requests not committed yet, by journal, in the order the journals were first touched
+    private Map<MatchJournal, Pending> pending;
+    // Commits taken by the writer, and the ones completed, to let callers wait for their requests
+    private long takenCommits;
+    private long completedCommits;
+
+    // Metrics
+    private final AtomicLong commits;
+    private final AtomicLong snapshotsWritten;
+    private final AtomicLong recordsWritten;
+
+    /**
+     * Initializes and starts a writer.
+     * Note: Only the singleton instance is used by the application, tests can create a writer with another window.
+     *
+     * @param commitWindow The time waited to collect the requests of a commit
+     */
+    PersistenceWriter(Duration commitWindow) {
+        this.commitWindowMillis = commitWindow.toMillis();
+        this.pending = new LinkedHashMap<>();
+        this.commits = new AtomicLong();
+        this.snapshotsWritten = new AtomicLong();
+        this.recordsWritten = new AtomicLong();
+
+        Thread.ofPlatform().daemon().name("persistence-writer").start(this::run);
+    }
+
+    /**
+     * Getter for the only possible instance available of this class, so used instead of a constructor.
+     *
+     * @return Always the same PersistenceWriter instance
+     */
+    public static PersistenceWriter getInstance() {
+        return singletonInstance;
+    }
+
+    /**
+     * Enqueues a record to be appended to a journal.
+     *
+     * @param journal The journal of the match
+     * @param record  The encoded record
+     */
+    void append(MatchJournal journal, byte[] record) {
+        synchronized (this) {
+            Pending requests = pendingOf(journal);
+            requests.records.writeBytes(record);
+            requests.recordsCount++;
+        }
+    }
+
+    /**
+     * Enqueues a request of a new snapshot of a match: the match is serialized by the next commit, with the state it
+     * has at that time.
+     *
+     * @param journal The journal of the match
+     * @param match   The match to serialize
+     */
+    void snapshot(MatchJournal journal, Match match) {
+        synchronized (this) {
+            pendingOf(journal).snapshotOf = match;
+        }
+    }
+
+    /**
+     * Enqueues the deletion of a journal, discarding its requests not committed yet.
+     *
+     * @param journal The journal to delete
+     */
+    void delete(MatchJournal journal) {
+        synchronized (this) {
+            Pending requests = pendingOf(journal);
+            requests.records.reset();
+            requests.recordsCount = 0;
+            requests.snapshotOf = null;
+            requests.delete = true;
+        }
+    }
+
+    /**
+     * Waits until every request enqueued so far has been committed.
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        synchronized (this) {
+            long target = pending.isEmpty() ? takenCommits : takenCommits + 1;
+            while (completedCommits < target)
+                wait();
+        }
+    }
+
+    /**
+     * Gets the number of commits since the server started.
+     *
+     * @return The number of commits
+     */
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * Gets the number of snapshots written since the server started.
+     *
+     * @return The number of snapshots
+     */
+    public long getSnapshotsWritten() {
+        return snapshotsWritten.get();
+    }
+
+    /**
+     * Gets the number of journal records written since the server started.
+     *
+     * @return The number of records
+     */
+    public long getRecordsWritten() {
+        return recordsWritten.get();
+    }
+
+    // Gets the requests of a journal, to be called holding the writer lock
+    private Pending pendingOf(MatchJournal journal) {
+        if (pending.isEmpty())
+            notifyAll();
+        return pending.computeIfAbsent(journal, j -> new Pending());
+    }
+
+    // Commits the requests, a window at a time, forever
+    private void run() {
+        while (true) {
+            try {
+                synchronized (this) {
+                    while (pending.isEmpty())
+                        wait();
+                }
+                Thread.sleep(commitWindowMillis);
+            } catch (InterruptedException e) {
+                // Commit what has been collected so far
+            }
+
+            Map<MatchJournal, Pending> batch;
+            synchronized (this) {
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                takenCommits++;
+            }
+
+            commit(batch);
+
+            synchronized (this) {
+                completedCommits++;
+                notifyAll();
+            }
+        }
+    }
+
+    // Writes a batch of requests, forcing the files to the disk once for the whole batch
+    private void commit(Map<MatchJournal, Pending> batch) {
+        List<MatchJournal> snapshotted = new ArrayList<>();
+        List<MatchJournal> written = new ArrayList<>();
+
+        // Snapshots first, to temporary files
+        batch.forEach((journal, requests) -> {
+            if (requests.delete) {
+                journal.deleteFiles();
+                return;
+            }
+            if (requests.snapshotOf == null)
+                return;
+
+            try {
+                journal.writeTemporarySnapshot(serialize(requests.snapshotOf));
+                snapshotted.add(journal);
+            } catch (Exception e) {
+                System.err.println("The match \"" + journal.getMatchName() + "\" cannot be serialized due to I/O errors");
+            }
+        });
+
+        // Every temporary snapshot is on the disk before any of them replaces the previous one
+        snapshotted.removeIf(journal -> !persisted(journal, "serialized", journal::forceTemporarySnapshot));
+        snapshotted.removeIf(journal -> !persisted(journal, "serialized", journal::replaceSnapshot));
+        snapshotsWritten.addAndGet(snapshotted.size());
+        snapshotted.stream().map(MatchJournal::getDirectory).distinct().forEach(PersistenceWriter::forceDirectory);
+
+        // Then the journals, emptied if their match has a new snapshot: the records of this batch are appended anyway,
+        // since the ones already contained in the snapshot are skipped when replayed
+        batch.forEach((journal, requests) -> {
+            if (requests.delete || (requests.recordsCount == 0 && !snapshotted.contains(journal)))
+                return;
+
+            try {
+                journal.writeRecords(requests.records.toByteArray(), snapshotted.contains(journal));
+                written.add(journal);
+                recordsWritten.addAndGet(requests.recordsCount);
+            } catch (IOException e) {
+                System.err.println("The match \"" + journal.getMatchName() + "\" cannot be journaled due to I/O errors");
+            }
+        });
+        written.forEach(journal -> persisted(journal, "journaled", journal::forceRecords));
+
+        commits.incrementAndGet();
+    }
+
+    // Runs a step of the commit of a journal, reporting its failure
+    private static boolean persisted(MatchJournal journal, String what, Step step) {
+        try {
+            step.run();
+            return true;
+        } catch (IOException e) {
+            System.err.println("The match \"" + journal.getMatchName() + "\" cannot be " + what + " due to I/O errors");
+            return false;
+        }
+    }
+
+    // Serializes a match as a command of the match, so that it doesn't change meanwhile
+    private static byte[] serialize(Match match) throws Exception {
+        return match.getMailbox().call(() -> MatchJournal.encodeSnapshot(match));
+    }
+
+    // Makes the renames in a directory durable, where the file system allows forcing a directory
+    private static void forceDirectory(File path) {
+        try (FileChannel directory = FileChannel.open(path.toPath(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform, the renames are still atomic
+        }
+    }
+
+    /**
+     * A step of the commit of a journal.
+     */
+    @FunctionalInterface
+    private interface Step {
+        void run() throws IOException;
+    }
+
+    /**
+     * The requests of a single journal waiting for a commit.
+     */
+    private static final class Pending {
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private int recordsCount;
+        // The match to serialize, null if no snapshot has been requested
+        private Match snapshotOf;
+        private boolean delete;
+    }
+}
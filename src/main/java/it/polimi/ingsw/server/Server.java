@@ -2,7 +2,9 @@ package it.polimi.ingsw.server;
 
 import it.polimi.ingsw.client.network.NetworkHandler;
 import it.polimi.ingsw.client.network.NetworkHandlerRMI;
+import it.polimi.ingsw.client.network.RemoteViewInterface;
 import it.polimi.ingsw.controllers.PlayerController;
+import it.polimi.ingsw.controllers.PlayerControllerBot;
 import it.polimi.ingsw.controllers.PlayerControllerRMI;
 import it.polimi.ingsw.controllers.PlayerControllerRMIInterface;
 import it.polimi.ingsw.exceptions.AlreadyUsedUsernameException;
@@ -10,20 +12,25 @@ import it.polimi.ingsw.exceptions.ChosenMatchException;
 import it.polimi.ingsw.exceptions.WrongNameException;
 import it.polimi.ingsw.exceptions.WrongStateException;
 import it.polimi.ingsw.gamemodel.Match;
+import it.polimi.ingsw.network.tcp.ConnectionThreadMode;
+import it.polimi.ingsw.network.tcp.NioTCPServer;
 import it.polimi.ingsw.network.tcp.TCPServer;
 import it.polimi.ingsw.utils.AvailableMatch;
 import it.polimi.ingsw.utils.DeckCreator;
 import it.polimi.ingsw.utils.GuiUtil;
+import it.polimi.ingsw.utils.LobbyUpdate;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The server class of this application. It's appointed with managing remote interactions with clients
@@ -34,9 +41,25 @@ import java.util.*;
  * Server crash.
  */
 public class Server extends UnicastRemoteObject implements ServerRMIInterface {
-    private final Map<String, Match> matches;
+    /**
+     * Name of the system property setting after how many seconds a match still waiting for players is filled with
+     * bots; if missing or not positive, bots join only when requested through {@link #addBot(String)}.
+     */
+    public static final String BOTS_LOBBY_TIMEOUT_PROPERTY = "bots.lobbyTimeout";
+    /**
+     * Name of the system property setting the milliseconds a bot can spend choosing a move, 50 by default.
+     */
+    public static final String BOTS_MOVE_BUDGET_PROPERTY = "bots.moveBudget";
+    private static final String BOT_USERNAME_PREFIX = "bot";
+
+    private final MatchRegistry matches;
+    private final CrashRecovery recovery;
+    private final Map<RemoteViewInterface, LobbySubscriber> lobbyViews;
     private final int portRMI;
     private final int portTCP;
+    private final Duration botsLobbyTimeout;
+    private final Duration botsMoveBudget;
+    private final ScheduledExecutorService lobbyTimer;
 
     /**
      * Initializes this Server instance and its attributes.
@@ -52,32 +75,96 @@ public class Server extends UnicastRemoteObject implements ServerRMIInterface {
         this.portRMI = portRMI;
         this.portTCP = portTCP;
 
-        matches = new HashMap<>();
+        matches = new MatchRegistry();
+        recovery = new CrashRecovery(matches);
+        lobbyViews = new ConcurrentHashMap<>();
+        botsLobbyTimeout = Duration.ofSeconds(Long.getLong(BOTS_LOBBY_TIMEOUT_PROPERTY, 0));
+        botsMoveBudget = Duration.ofMillis(Long.getLong(BOTS_MOVE_BUDGET_PROPERTY, 50));
+        lobbyTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "lobby-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
-     * Returns the available matches as {@link AvailableMatch} instances.
-     * This method is called just by remote {@link NetworkHandlerRMI} instances.
+     * Returns the available matches as {@link AvailableMatch} instances, read from the index kept by the
+     * {@link MatchRegistry}, so no match is locked.
+     * This method is called by remote {@link NetworkHandlerRMI} instances and by TCP connections in the lobby.
      *
-     * @return The list of Match which are not full yet.
+     * @return The list of Match which are waiting for players or have disconnected players.
      */
     @Override
     public List<AvailableMatch> getJoinableMatches() {
-        // List of names of matches that are not full (then joinable)
-        List<String> joinableMatches = matches.keySet().stream()
-                .filter(name -> !matches.get(name).isFull())
-                .toList();
-        List<AvailableMatch> result = new ArrayList<>();
-
-        for (String name : matches.keySet()) {
-            Match match = matches.get(name);
-            int maxPlayers = match.getMaxPlayers();
-            int currentPlayers = match.getPlayers().size();
-
-            result.add(new AvailableMatch(name, maxPlayers, currentPlayers, match.isRejoinable()));
-        }
+        return matches.getJoinable();
+    }
 
-        return result;
+    /**
+     * Subscribes a local receiver (e.g. a TCP connection in the lobby) to the lobby change feed: it will receive the
+     * joinable matches, then every change to them.
+     *
+     * @param subscriber The receiver of the feed
+     */
+    public void subscribeLobby(LobbySubscriber subscriber) {
+        matches.subscribe(subscriber);
+    }
+
+    /**
+     * Stops sending the lobby changes to a local receiver.
+     *
+     * @param subscriber The receiver of the feed
+     */
+    public void unsubscribeLobby(LobbySubscriber subscriber) {
+        matches.unsubscribe(subscriber);
+    }
+
+    /**
+     * Subscribes a remote view to the lobby change feed: the joinable matches are sent through
+     * {@link RemoteViewInterface#receiveAvailableMatches(List)}, then every change to them through
+     * {@link RemoteViewInterface#lobbyUpdated(LobbyUpdate)}.
+     * This method is called just by remote {@link NetworkHandlerRMI} instances.
+     *
+     * @param view The remote view of the client
+     */
+    @Override
+    public void subscribeLobby(RemoteViewInterface view) {
+        LobbySubscriber subscriber = new LobbySubscriber() {
+            @Override
+            public void lobbySnapshot(List<AvailableMatch> joinable) throws IOException {
+                try {
+                    view.receiveAvailableMatches(joinable);
+                } catch (RemoteException e) {
+                    lobbyViews.remove(view);
+                    throw e;
+                }
+            }
+
+            @Override
+            public void lobbyUpdated(LobbyUpdate update) throws IOException {
+                try {
+                    view.lobbyUpdated(update);
+                } catch (RemoteException e) {
+                    lobbyViews.remove(view);
+                    throw e;
+                }
+            }
+        };
+
+        if (lobbyViews.putIfAbsent(view, subscriber) == null)
+            matches.subscribe(subscriber);
+    }
+
+    /**
+     * Stops sending the lobby changes to a remote view.
+     * This method is called just by remote {@link NetworkHandlerRMI} instances.
+     *
+     * @param view The remote view of the client
+     */
+    @Override
+    public void unsubscribeLobby(RemoteViewInterface view) {
+        LobbySubscriber subscriber = lobbyViews.remove(view);
+        if (subscriber != null)
+            matches.unsubscribe(subscriber);
     }
 
     /**
@@ -98,12 +185,12 @@ public class Server extends UnicastRemoteObject implements ServerRMIInterface {
     public PlayerControllerRMIInterface joinMatch(String matchName, String username) throws ChosenMatchException, WrongStateException, AlreadyUsedUsernameException, WrongNameException, RemoteException {
         if (!GuiUtil.isValidName(username))
             throw new WrongNameException("The username must be alphanumeric with maximum 32 characters");
-        if (!matches.containsKey(matchName))
+        Match chosenMatch = getMatch(matchName);
+        if (chosenMatch == null)
             throw new ChosenMatchException("The chosen match doesn't exist");
-        if (matches.get(matchName).isFull() && !matches.get(matchName).isRejoinable())
+        if (chosenMatch.isFull() && !chosenMatch.isRejoinable())
             throw new ChosenMatchException("The chosen match is already full");
 
-        Match chosenMatch = matches.get(matchName);
         PlayerControllerRMI controller = new PlayerControllerRMI(username, chosenMatch);
 
         UnicastRemoteObject.exportObject(controller, portRMI);
@@ -124,37 +211,97 @@ public class Server extends UnicastRemoteObject implements ServerRMIInterface {
         if (!GuiUtil.isValidName(matchName)) {
             throw new WrongNameException("The match name must be alphanumeric with maximum 32 characters");
         }
-        synchronized (matches) {
-            if (matches.containsKey(matchName))
-                throw new ChosenMatchException("A match with the chosen name already exists");
+        if (matches.get(matchName) != null || recovery.isRestoring(matchName))
+            throw new ChosenMatchException("A match with the chosen name already exists");
 
-            Match newMatch = getNewMatch(maxPlayers);
-            newMatch.subscribeObserver(new MatchStatusObserver(matchName, matches));
-            matches.put(matchName, newMatch);
-        }
+        Match newMatch = getNewMatch(maxPlayers);
+        newMatch.subscribeObserver(new MatchStatusObserver(matchName, matches));
+        if (!matches.register(matchName, newMatch))
+            throw new ChosenMatchException("A match with the chosen name already exists");
+
+        if (botsLobbyTimeout.isPositive())
+            lobbyTimer.schedule(() -> fillWithBots(newMatch), botsLobbyTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds a bot to a match still waiting for players. The bot plays on the server, as any other player, until the end
+     * of the match (see {@link PlayerControllerBot}).
+     *
+     * @param matchName The unique name of the match to which the bot is added
+     * @throws ChosenMatchException If the chosen match is either already full or doesn't exist
+     * @throws WrongStateException  If the match doesn't accept new players any more
+     */
+    @Override
+    public void addBot(String matchName) throws ChosenMatchException, WrongStateException {
+        Match match = getMatch(matchName);
+        if (match == null)
+            throw new ChosenMatchException("The chosen match doesn't exist");
+
+        match.getMailbox().call(() -> {
+            if (match.isFull())
+                throw new ChosenMatchException("The chosen match is already full");
+
+            addBotTo(match);
+            return null;
+        }, ChosenMatchException.class, WrongStateException.class);
     }
 
     /**
-     * @return
+     * Fills the empty seats of a match with bots, if it's still waiting for players. A match nobody joined is left
+     * as it is.
+     *
+     * @param match The match to fill
      */
-    public Map<String, Match> getJoinableMatchesMap() {
-        synchronized (matches) {
-            HashMap<String, Match> result = new HashMap<>();
-            for (String name : matches.keySet()) {
-                result.put(name, matches.get(name));
+    private void fillWithBots(Match match) {
+        match.getMailbox().submit(() -> {
+            try {
+                while (!match.getPlayers().isEmpty() && !match.isFull())
+                    addBotTo(match);
+            } catch (WrongStateException e) {
+                // The match isn't waiting for players any more
             }
-            return result;
+            return null;
+        });
+    }
+
+    /**
+     * Lets a new bot join the given match, with the first username not already used in it. Must be run by the
+     * match mailbox.
+     *
+     * @param match The match to which the bot is added
+     * @throws WrongStateException If the match doesn't accept new players any more
+     */
+    private void addBotTo(Match match) throws WrongStateException {
+        Set<String> usernames = new HashSet<>();
+        match.getPlayers().forEach(p -> usernames.add(p.getUsername()));
+
+        int number = 1;
+        while (usernames.contains(BOT_USERNAME_PREFIX + number))
+            number++;
+
+        try {
+            new PlayerControllerBot(BOT_USERNAME_PREFIX + number, match, botsMoveBudget).sendJoined();
+        } catch (AlreadyUsedUsernameException | ChosenMatchException | WrongNameException e) {
+            // The username is new and valid, and the match exists
+            throw new IllegalStateException(e);
         }
     }
 
     /**
-     * Gets a {@link Match} from those saved in the server.
+     * Gets a {@link Match} from those saved in the server. A match still being restored after a crash is restored
+     * right away.
      *
      * @param name The unique name of the match
-     * @return The match instance
+     * @return The match instance, null if there's no match with the given name
      */
     public Match getMatch(String name) {
-        return matches.get(name);
+        Match match = matches.get(name);
+        if (match != null)
+            return match;
+
+        match = recovery.restoreNow(name);
+        // The match may have just been restored by another thread
+        return match != null ? match : matches.get(name);
     }
 
     /**
@@ -168,10 +315,23 @@ public class Server extends UnicastRemoteObject implements ServerRMIInterface {
     }
 
     /**
-     * Starts the TCP server.
+     * Starts the TCP server. By default each connection is handled by its own thread, either a platform or a virtual
+     * one according to the "tcp.threads" system property (see {@link ConnectionThreadMode}); if the "tcp.mode" system
+     * property is set to "nio", a few selector threads handle all the connections instead (see {@link NioTCPServer}).
      */
     public void startTCPServer() {
-        TCPServer tcpServer = new TCPServer(portTCP, this);
+        if ("nio".equals(System.getProperty("tcp.mode"))) {
+            try {
+                int selectorThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+                NioTCPServer nioServer = new NioTCPServer(portTCP, this, selectorThreads);
+                new Thread(nioServer::listen).start();
+            } catch (IOException e) {
+                System.err.println("The TCP server couldn't be started: " + e.getMessage());
+            }
+            return;
+        }
+
+        TCPServer tcpServer = new TCPServer(portTCP, this, ConnectionThreadMode.fromSystemProperty());
         new Thread(tcpServer::listen).start();
     }
 
@@ -198,33 +358,13 @@ public class Server extends UnicastRemoteObject implements ServerRMIInterface {
     }
 
     /**
-     * Utility method used to restore all the matches saved in the disk after the server crashed.
+     * Utility method used to restore all the matches saved in the disk after the server crashed, without waiting for
+     * them: the matches are listed in the lobby right away, then restored in the background, or as soon as someone
+     * joins them (see {@link CrashRecovery}). Each match snapshot is read and the actions journaled after it are
+     * replayed (see {@link MatchJournal}).
      */
     private void loadCrashedMatches() {
-        // Look for *.match files in the current directory
-        File dir = new File(".");
-        File[] files = dir.listFiles((file, name) -> name.toLowerCase().endsWith(".match"));
-        // If any file is found
-        if (files != null) {
-            for (File file : files) {
-                try {
-                    // Read each .match file from disk
-                    FileInputStream fileIn = new FileInputStream(file);
-                    ObjectInputStream in = new ObjectInputStream(fileIn);
-
-                    // Deserialize the .match file in a Match object
-                    String matchName = file.getName().replaceAll("(?i)(.*)\\.match", "$1");
-                    Match match = (Match) in.readObject();
-                    matches.put(matchName, match);
-                    match.getPlayers().forEach((p) -> p.setConnected(false));
-                    match.subscribeObserver(new MatchStatusObserver(matchName, matches));
-                    in.close();
-                    fileIn.close();
-                } catch (IOException | ClassNotFoundException e) {
-                    System.err.println("A match couldn't be loaded from disk");
-                }
-            }
-        }
+        recovery.start();
     }
 
     /**
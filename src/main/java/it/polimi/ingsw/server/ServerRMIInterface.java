@@ -1,5 +1,6 @@
 package it.polimi.ingsw.server;
 
+import it.polimi.ingsw.client.network.RemoteViewInterface;
 import it.polimi.ingsw.controllers.PlayerControllerRMIInterface;
 import it.polimi.ingsw.exceptions.AlreadyUsedUsernameException;
 import it.polimi.ingsw.exceptions.ChosenMatchException;
@@ -26,6 +27,23 @@ public interface ServerRMIInterface extends Remote {
      */
     List<AvailableMatch> getJoinableMatches() throws RemoteException;
 
+    /**
+     * Subscribes the calling view to the lobby changes: it receives the available matches once, then only the changes
+     * to them, so that it doesn't need to poll {@link #getJoinableMatches()}.
+     *
+     * @param view The exported view of the client
+     * @throws RemoteException If the remote server is considered not to be reachable any more and cannot return as usual
+     */
+    void subscribeLobby(RemoteViewInterface view) throws RemoteException;
+
+    /**
+     * Stops sending the lobby changes to the calling view (e.g. because it joined a match).
+     *
+     * @param view The exported view of the client
+     * @throws RemoteException If the remote server is considered not to be reachable any more and cannot return as usual
+     */
+    void unsubscribeLobby(RemoteViewInterface view) throws RemoteException;
+
     /**
      * Lets the calling view join on a match with the given player username, if possible; gives back to the client
      * an instance of its PlayerControllerRMI, to start communicating through it with the match.
@@ -51,4 +69,14 @@ public interface ServerRMIInterface extends Remote {
      * @throws WrongNameException   If the chosen player username doesn't meet the alphanumerical criteria
      */
     void createMatch(String matchName, int maxPlayers) throws RemoteException, ChosenMatchException, WrongNameException;
+
+    /**
+     * Adds a bot, played by the server, to a match still waiting for players.
+     *
+     * @param matchName The unique name of the match to which the bot is added
+     * @throws RemoteException      If the remote server is considered not to be reachable any more and cannot return as usual
+     * @throws ChosenMatchException If the chosen match is either already full or doesn't exist
+     * @throws WrongStateException  If the match is in a state during which doesn't allow players to join any more
+     */
+    void addBot(String matchName) throws RemoteException, ChosenMatchException, WrongStateException;
 }
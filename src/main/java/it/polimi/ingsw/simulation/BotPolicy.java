@@ -0,0 +1,94 @@
+package it.polimi.ingsw.simulation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+import it.polimi.ingsw.exceptions.CardException;
+import it.polimi.ingsw.gamemodel.*;
+import it.polimi.ingsw.utils.Pair;
+
+/**
+ * Policy of the server-side bots. Like {@link GreedyPolicy} it plays the move giving the most points, but it also
+ * rewards the moves bringing the player closer to the objectives requiring a quantity of resources, either its secret
+ * one or the common ones. The evaluation of the moves is bounded in time: once the budget of a move is spent, the best
+ * move found so far is played.
+ * Since it keeps the state of the move being chosen, an instance must not be shared among players
+ */
+public class BotPolicy extends GreedyPolicy {
+    // Score of a point, so that the progress towards an objective can be rewarded with a fraction of it
+    private static final int POINT_SCORE = 100;
+
+    private final Match match;
+    private final long budgetNanos;
+    private long deadline;
+    private List<Objective> objectives;
+
+    /**
+     * Class constructor
+     *
+     * @param match  the match played, whose common objectives are considered
+     * @param budget the maximum time spent evaluating the moves of a turn
+     */
+    public BotPolicy(Match match, Duration budget) {
+        this.match = match;
+        this.budgetNanos = budget.toNanos();
+        this.objectives = List.of();
+    }
+
+    @Override
+    public PlacementMove chooseMove(Player player, List<PlacementMove> moves, RandomGenerator random) throws CardException {
+        deadline = System.nanoTime() + budgetNanos;
+
+        objectives = new ArrayList<>(3);
+        if (player.getSecretObjective() != null) {
+            objectives.add(player.getSecretObjective());
+        }
+        Pair<Objective, Objective> visible = match.getVisibleObjectives();
+        if (visible != null) {
+            objectives.add(visible.first());
+            objectives.add(visible.second());
+        }
+
+        return super.chooseMove(player, moves, random);
+    }
+
+    @Override
+    protected boolean outOfTime() {
+        return System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * Evaluates a move: each point is worth {@value #POINT_SCORE}, each resource gained towards an objective requiring
+     * N of them is worth the points of the objective divided by N, halved since the objective is yet to be completed.
+     * Objectives requiring a position of the cards aren't considered, since evaluating them requires placing the card
+     *
+     * @param board the board of the player
+     * @param move  the move to evaluate
+     * @return the score of the move, the higher the better
+     * @throws CardException if the card is of unknown type
+     */
+    @Override
+    protected int score(Board board, PlacementMove move) throws CardException {
+        int x = move.coords().first();
+        int y = move.coords().second();
+        int score = board.previewPoints(x, y, move.card(), move.side()) * POINT_SCORE;
+
+        for (Objective objective : objectives) {
+            if (objective.getReq() instanceof QuantityRequirement requirement) {
+                for (Map.Entry<Symbol, Integer> entry : requirement.getReqs().entrySet()) {
+                    if (entry.getValue() <= 0) {
+                        continue;
+                    }
+                    int gained = board.previewResource(x, y, move.card(), move.side(), entry.getKey())
+                            - board.getAvailableResource(entry.getKey());
+                    score += gained * objective.getPoints() * POINT_SCORE / (2 * entry.getValue());
+                }
+            }
+        }
+
+        // same tie break of the greedy policy
+        return score + (move.card() instanceof GoldCard || move.side() == Side.FRONT ? 0 : 1);
+    }
+}
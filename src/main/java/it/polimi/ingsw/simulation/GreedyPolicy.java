@@ -0,0 +1,89 @@
+package it.polimi.ingsw.simulation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+import it.polimi.ingsw.exceptions.CardException;
+import it.polimi.ingsw.gamemodel.*;
+import it.polimi.ingsw.utils.Pair;
+
+/**
+ * Policy that plays the move giving the most points right away, breaking ties at random. Among the moves giving no
+ * points it prefers keeping gold cards for later, playing the others on their back; it draws the visible gold cards
+ * when available, since they're the ones giving more points
+ */
+public class GreedyPolicy implements MovePolicy {
+    @Override
+    public Side chooseInitialSide(Player player, InitialCard card, RandomGenerator random) {
+        return random.nextBoolean() ? Side.FRONT : Side.BACK;
+    }
+
+    @Override
+    public Objective chooseSecretObjective(Player player, Pair<Objective, Objective> objectives, RandomGenerator random) {
+        return objectives.first().getPoints() >= objectives.second().getPoints()
+                ? objectives.first()
+                : objectives.second();
+    }
+
+    @Override
+    public PlacementMove chooseMove(Player player, List<PlacementMove> moves, RandomGenerator random) throws CardException {
+        Board board = player.getBoard();
+        PlacementMove best = null;
+        int bestScore = Integer.MIN_VALUE;
+        int ties = 0;
+
+        for (PlacementMove move : moves) {
+            int score = score(board, move);
+            if (score > bestScore) {
+                best = move;
+                bestScore = score;
+                ties = 1;
+            } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                // reservoir sampling, so that each of the best moves is equally likely
+                best = move;
+            }
+
+            if (outOfTime()) {
+                break;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Tells whether the evaluation of the moves should stop, playing the best move found so far. This policy always
+     * evaluates every move
+     *
+     * @return true if no more moves should be evaluated
+     */
+    protected boolean outOfTime() {
+        return false;
+    }
+
+    /**
+     * Evaluates a move: points are what matters, then playing resource cards on their back keeps their resources
+     * available for the gold cards
+     *
+     * @param board the board of the player
+     * @param move  the move to evaluate
+     * @return the score of the move, the higher the better
+     * @throws CardException if the card is of unknown type
+     */
+    protected int score(Board board, PlacementMove move) throws CardException {
+        int points = board.previewPoints(move.coords().first(), move.coords().second(), move.card(), move.side());
+        int tieBreak = move.card() instanceof GoldCard || move.side() == Side.FRONT ? 0 : 1;
+        return points * 2 + tieBreak;
+    }
+
+    @Override
+    public DrawSource chooseDrawSource(Match match, Player player, List<DrawSource> sources, RandomGenerator random) {
+        Map<DrawSource, PlayableCard> visible = match.getVisiblePlayableCards();
+        for (DrawSource source : sources) {
+            if (visible.get(source) instanceof GoldCard) {
+                return source;
+            }
+        }
+        return sources.get(random.nextInt(sources.size()));
+    }
+}
@@ -0,0 +1,213 @@
+package it.polimi.ingsw.simulation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+import it.polimi.ingsw.gamemodel.*;
+import it.polimi.ingsw.utils.DeckCreator;
+import it.polimi.ingsw.utils.Pair;
+
+/**
+ * Plays whole matches with no network nor user interface, letting a {@link MovePolicy} make every choice of each
+ * player, from the initial card to the final ranking. Batches of matches are spread over the cores by a
+ * {@link ForkJoinPool}, and every exception thrown by the model, as well as any broken invariant, is counted as a
+ * failure, reporting the seed needed to replay the match.
+ * It can be run from the command line:
+ * <pre>
+ * java -cp Server.jar it.polimi.ingsw.simulation.MatchSimulator [matches] [random|greedy] [players] [threads] [seed]
+ * </pre>
+ */
+public class MatchSimulator {
+    private static final int MAX_FAILURE_SAMPLES = 10;
+
+    /**
+     * How a single simulated match ended
+     */
+    public enum Outcome {
+        /**
+         * The match reached the final ranking
+         */
+        FINISHED,
+        /**
+         * The current player had no legal move, or no card to draw
+         */
+        STALLED
+    }
+
+    private final List<MovePolicy> policies;
+    private final ForkJoinPool pool;
+
+    /**
+     * Class constructor
+     *
+     * @param policies the policy of each player, whose number is the number of players of the matches
+     * @param pool     the pool on which the matches are simulated
+     * @throws IllegalArgumentException if the number of players is not valid
+     */
+    public MatchSimulator(List<MovePolicy> policies, ForkJoinPool pool) throws IllegalArgumentException {
+        if (policies.size() < 2 || policies.size() > 4)
+            throw new IllegalArgumentException("A match must have between 2 and 4 players");
+
+        this.policies = List.copyOf(policies);
+        this.pool = pool;
+    }
+
+    /**
+     * Simulates a batch of matches in parallel. The i-th match is played with seed + i as seed
+     *
+     * @param matches how many matches to simulate
+     * @param seed    the seed of the first match
+     * @return the results of the batch
+     */
+    public SimulationReport run(long matches, long seed) {
+        LongAdder finished = new LongAdder();
+        LongAdder stalled = new LongAdder();
+        LongAdder failures = new LongAdder();
+        LongAdder allocated = new LongAdder();
+        ConcurrentLinkedQueue<String> failureSamples = new ConcurrentLinkedQueue<>();
+        AtomicInteger sampled = new AtomicInteger();
+        boolean measureAllocations = allocatedBytes() >= 0;
+
+        long start = System.nanoTime();
+        pool.submit(() -> LongStream.range(0, matches).parallel().forEach(i -> {
+            long matchSeed = seed + i;
+            long allocatedBefore = measureAllocations ? allocatedBytes() : 0;
+
+            try {
+                switch (play(matchSeed)) {
+                    case FINISHED -> finished.increment();
+                    case STALLED -> stalled.increment();
+                }
+            } catch (Exception e) {
+                failures.increment();
+                if (sampled.getAndIncrement() < MAX_FAILURE_SAMPLES)
+                    failureSamples.add("seed " + matchSeed + ": " + e);
+            }
+
+            if (measureAllocations)
+                allocated.add(allocatedBytes() - allocatedBefore);
+        })).join();
+        long elapsed = System.nanoTime() - start;
+
+        return new SimulationReport(matches, finished.sum(), stalled.sum(), failures.sum(),
+                List.copyOf(failureSamples), elapsed, measureAllocations ? allocated.sum() : -1);
+    }
+
+    /**
+     * Simulates a single match
+     *
+     * @param seed the seed of the match shuffles and of the players' choices, so that the same seed always plays the
+     *             same match
+     * @return how the match ended
+     * @throws Exception if the model rejected a choice that should have been valid, or an invariant was broken
+     */
+    public Outcome play(long seed) throws Exception {
+        SplittableRandom random = new SplittableRandom(seed);
+        DeckCreator creator = new DeckCreator();
+        Match match = new Match(policies.size(), creator.createInitialDeck(), creator.createResourceDeck(),
+                creator.createGoldDeck(), creator.createObjectiveDeck(), random.nextLong());
+
+        Map<Player, MovePolicy> seats = new IdentityHashMap<>();
+        for (int i = 0; i < policies.size(); i++) {
+            Player player = new Player("player" + i, match);
+            seats.put(player, policies.get(i));
+            match.addPlayer(player);
+        }
+
+        for (int i = 0; i < policies.size(); i++) {
+            Player player = match.getCurrentPlayer();
+            InitialCard card = player.drawInitialCard();
+            player.chooseInitialCardSide(seats.get(player).chooseInitialSide(player, card, random));
+        }
+        for (int i = 0; i < policies.size(); i++) {
+            Player player = match.getCurrentPlayer();
+            Pair<Objective, Objective> objectives = player.drawSecretObjectives();
+            player.chooseSecretObjective(seats.get(player).chooseSecretObjective(player, objectives, random));
+        }
+
+        while (!match.isFinished()) {
+            Player player = match.getCurrentPlayer();
+            MovePolicy policy = seats.get(player);
+            Board board = player.getBoard();
+
+            List<PlacementMove> moves = board.legalMoves(board.getCurrentHand());
+            if (moves.isEmpty())
+                return Outcome.STALLED;
+
+            PlacementMove move = policy.chooseMove(player, moves, random);
+            int points = player.getPoints();
+            int placed = board.getPlacedCardsCount();
+            player.playCard(move.coords(), move.card(), move.side());
+            check(board.getPlacedCardsCount() == placed + 1, "the played card was not placed", move);
+            check(player.getPoints() >= points, "the points decreased", move);
+
+            List<DrawSource> sources = match.getAvailableDrawSources();
+            if (sources.isEmpty())
+                return Outcome.STALLED;
+
+            player.drawCard(policy.chooseDrawSource(match, player, sources, random));
+            check(board.getCurrentHand().size() == 3, "the hand has " + board.getCurrentHand().size() + " cards", move);
+        }
+
+        check(match.getPlayersFinalRanking() != null
+                && match.getPlayersFinalRanking().size() == policies.size(), "the final ranking is missing", null);
+        return Outcome.FINISHED;
+    }
+
+    // Throws an exception describing a broken invariant
+    private static void check(boolean condition, String description, PlacementMove move) {
+        if (!condition)
+            throw new IllegalStateException(description + (move == null ? "" : " after " + move));
+    }
+
+    // Bytes allocated so far by the current thread, -1 if the JVM can't measure it
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean allocationBean
+                && allocationBean.isThreadAllocatedMemorySupported()
+                && allocationBean.isThreadAllocatedMemoryEnabled())
+            return allocationBean.getCurrentThreadAllocatedBytes();
+        return -1;
+    }
+
+    /**
+     * Runs a batch of simulations and prints the report.
+     *
+     * @param args number of matches, policy (random or greedy), number of players, number of threads and seed, all
+     *             optional
+     */
+    public static void main(String[] args) {
+        long matches = args.length > 0 ? Long.parseLong(args[0]) : 10_000;
+        String policyName = args.length > 1 ? args[1] : "greedy";
+        int players = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+        List<MovePolicy> policies = new ArrayList<>();
+        for (int i = 0; i < players; i++)
+            policies.add(policyName.equalsIgnoreCase("random") ? new RandomPolicy() : new GreedyPolicy());
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        MatchSimulator simulator = new MatchSimulator(policies, pool);
+
+        // A first short batch lets the JIT compile the model before measuring
+        simulator.run(Math.min(matches, 1_000), seed);
+
+        SimulationReport report = simulator.run(matches, seed);
+        System.out.println("policy=" + policyName + " players=" + players + " threads=" + threads + " seed=" + seed);
+        System.out.println(report);
+        report.failureSamples().forEach(failure -> System.out.println("  " + failure));
+
+        pool.shutdown();
+        System.exit(report.failures() == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,55 @@
+package it.polimi.ingsw.simulation;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+import it.polimi.ingsw.exceptions.CardException;
+import it.polimi.ingsw.gamemodel.*;
+import it.polimi.ingsw.utils.Pair;
+
+/**
+ * Strategy used by a simulated player to make every choice of a match. The options given are always valid, so a
+ * policy only has to pick one of them
+ */
+public interface MovePolicy {
+    /**
+     * Chooses the side of the initial card
+     *
+     * @param player the player choosing
+     * @param card   the initial card drawn
+     * @param random the source of randomness of the match
+     * @return the chosen side
+     */
+    Side chooseInitialSide(Player player, InitialCard card, RandomGenerator random);
+
+    /**
+     * Chooses the secret objective
+     *
+     * @param player     the player choosing
+     * @param objectives the two proposed objectives
+     * @param random     the source of randomness of the match
+     * @return the chosen objective
+     */
+    Objective chooseSecretObjective(Player player, Pair<Objective, Objective> objectives, RandomGenerator random);
+
+    /**
+     * Chooses the card to play, where and on which side
+     *
+     * @param player the player choosing
+     * @param moves  the legal moves, never empty
+     * @param random the source of randomness of the match
+     * @return the chosen move
+     * @throws CardException if a card of unknown type is found while evaluating the moves
+     */
+    PlacementMove chooseMove(Player player, List<PlacementMove> moves, RandomGenerator random) throws CardException;
+
+    /**
+     * Chooses where to draw a card from
+     *
+     * @param match   the match
+     * @param player  the player choosing
+     * @param sources the sources that still have cards, never empty
+     * @param random  the source of randomness of the match
+     * @return the chosen source
+     */
+    DrawSource chooseDrawSource(Match match, Player player, List<DrawSource> sources, RandomGenerator random);
+}
@@ -0,0 +1,31 @@
+package it.polimi.ingsw.simulation;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+import it.polimi.ingsw.gamemodel.*;
+import it.polimi.ingsw.utils.Pair;
+
+/**
+ * Policy that makes every choice uniformly at random
+ */
+public class RandomPolicy implements MovePolicy {
+    @Override
+    public Side chooseInitialSide(Player player, InitialCard card, RandomGenerator random) {
+        return random.nextBoolean() ? Side.FRONT : Side.BACK;
+    }
+
+    @Override
+    public Objective chooseSecretObjective(Player player, Pair<Objective, Objective> objectives, RandomGenerator random) {
+        return random.nextBoolean() ? objectives.first() : objectives.second();
+    }
+
+    @Override
+    public PlacementMove chooseMove(Player player, List<PlacementMove> moves, RandomGenerator random) {
+        return moves.get(random.nextInt(moves.size()));
+    }
+
+    @Override
+    public DrawSource chooseDrawSource(Match match, Player player, List<DrawSource> sources, RandomGenerator random) {
+        return sources.get(random.nextInt(sources.size()));
+    }
+}
@@ -0,0 +1,41 @@
+package it.polimi.ingsw.simulation;
+
+import java.util.List;
+
+/**
+ * Results of a batch of simulated matches
+ *
+ * @param matches        the number of simulated matches
+ * @param finished       how many matches reached the final ranking
+ * @param stalled        how many matches stopped because a player had no legal move or nothing to draw
+ * @param failures       how many matches were interrupted by an exception, i.e. a rule violation or a bug
+ * @param failureSamples the description of the first failures, with the seed needed to replay them
+ * @param elapsedNanos   the wall clock time of the whole batch
+ * @param allocatedBytes the bytes allocated by all the simulations, -1 if the JVM can't measure it
+ */
+public record SimulationReport(long matches, long finished, long stalled, long failures, List<String> failureSamples,
+                               long elapsedNanos, long allocatedBytes) {
+    /**
+     * Computes the throughput of the batch
+     *
+     * @return the simulated matches per second
+     */
+    public double matchesPerSecond() {
+        return matches * 1e9 / Math.max(1, elapsedNanos);
+    }
+
+    /**
+     * Computes the average allocation of a match
+     *
+     * @return the bytes allocated per match, -1 if unknown
+     */
+    public long bytesPerMatch() {
+        return allocatedBytes < 0 ? -1 : allocatedBytes / Math.max(1, matches);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("matches=%d finished=%d stalled=%d failures=%d time=%.1fs throughput=%.0f matches/s alloc=%d B/match",
+                matches, finished, stalled, failures, elapsedNanos / 1e9, matchesPerSecond(), bytesPerMatch());
+    }
+}
@@ -7,6 +7,7 @@ import it.polimi.ingsw.gamemodel.*;
 import java.io.FileReader;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -15,6 +16,8 @@ import java.util.Map;
  * in the Match instances.
  * It's appointed to initialise them with instances to be de-serialized from a file and make them available
  * through getters.
+ * The collection is immutable and shared by every match and connection: besides the read-only maps, each kind of card
+ * is stored in an array indexed by id, so that looking a card up from a message takes a single array access.
  */
 public final class CardsManager {
     private static final CardsManager singletonInstance = new CardsManager();
@@ -23,6 +26,12 @@ public final class CardsManager {
     private final Map<Integer, GoldCard> goldCards;
     private final Map<Integer, ResourceCard> resourceCards;
     private final Map<Integer, Objective> objectives;
+    private final Map<Integer, PlayableCard> playableCards;
+
+    // The cards indexed by id, null where no card has such id. Resource and gold cards share the same ids
+    private final InitialCard[] initialCardsById;
+    private final PlayableCard[] playableCardsById;
+    private final Objective[] objectivesById;
 
     /**
      * Private constructor since the singleton pattern is being used.
@@ -39,13 +48,39 @@ public final class CardsManager {
         Type objectivesType = new TypeToken<Map<Integer, Objective>>() {}.getType();
 
         try {
-            initialCards = gson.fromJson(getResource("/json/initial_card.json"), initialCardsType);
-            goldCards = gson.fromJson(getResource("/json/gold_card.json"), goldCardsType);
-            resourceCards = gson.fromJson(getResource("/json/resource_card.json"), resourceCardsType);
-            objectives = gson.fromJson(getResource("/json/objective_card.json"), objectivesType);
+            initialCards = Collections.unmodifiableMap(
+                    gson.<Map<Integer, InitialCard>>fromJson(getResource("/json/initial_card.json"), initialCardsType));
+            goldCards = Collections.unmodifiableMap(
+                    gson.<Map<Integer, GoldCard>>fromJson(getResource("/json/gold_card.json"), goldCardsType));
+            resourceCards = Collections.unmodifiableMap(
+                    gson.<Map<Integer, ResourceCard>>fromJson(getResource("/json/resource_card.json"), resourceCardsType));
+            objectives = Collections.unmodifiableMap(
+                    gson.<Map<Integer, Objective>>fromJson(getResource("/json/objective_card.json"), objectivesType));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+
+        Map<Integer, PlayableCard> playable = new HashMap<>();
+        playable.putAll(goldCards);
+        playable.putAll(resourceCards);
+        playableCards = Collections.unmodifiableMap(playable);
+
+        initialCardsById = toArray(initialCards, new InitialCard[maxId(initialCards) + 1]);
+        playableCardsById = toArray(playableCards, new PlayableCard[maxId(playableCards) + 1]);
+        objectivesById = toArray(objectives, new Objective[maxId(objectives) + 1]);
+    }
+
+    private static int maxId(Map<Integer, ?> cards) {
+        return cards.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    private static <T> T[] toArray(Map<Integer, ? extends T> cards, T[] array) {
+        cards.forEach((id, card) -> array[id] = card);
+        return array;
+    }
+
+    private static <T> T lookup(T[] cards, int id) {
+        return id >= 0 && id < cards.length ? cards[id] : null;
     }
 
     private String getResource(String path) {
@@ -65,10 +100,60 @@ public final class CardsManager {
         return singletonInstance;
     }
 
+    /**
+     * Gets a playable card, either a resource or a gold one, given its id
+     *
+     * @param id the id of the card
+     * @return the card with such id, null if there's none
+     */
+    public PlayableCard byId(int id) {
+        return lookup(playableCardsById, id);
+    }
+
+    /**
+     * Gets an initial card given its id
+     *
+     * @param id the id of the card
+     * @return the initial card with such id, null if there's none
+     */
+    public InitialCard initialCard(int id) {
+        return lookup(initialCardsById, id);
+    }
+
+    /**
+     * Gets a resource card given its id
+     *
+     * @param id the id of the card
+     * @return the resource card with such id, null if there's none
+     */
+    public ResourceCard resourceCard(int id) {
+        return lookup(playableCardsById, id) instanceof ResourceCard card ? card : null;
+    }
+
+    /**
+     * Gets a gold card given its id
+     *
+     * @param id the id of the card
+     * @return the gold card with such id, null if there's none
+     */
+    public GoldCard goldCard(int id) {
+        return lookup(playableCardsById, id) instanceof GoldCard card ? card : null;
+    }
+
+    /**
+     * Gets an objective given its id
+     *
+     * @param id the id of the objective
+     * @return the objective with such id, null if there's none
+     */
+    public Objective objective(int id) {
+        return lookup(objectivesById, id);
+    }
+
     /**
      * Getter for the initial cards
      *
-     * @return Map that matches an int ID to the corresponding initial card
+     * @return Read-only map that matches an int ID to the corresponding initial card
      */
     public Map<Integer, InitialCard> getInitialCards() {
         return initialCards;
@@ -77,7 +162,7 @@ public final class CardsManager {
     /**
      * Getter for the gold cards
      *
-     * @return Map that matches an int ID to the corresponding gold card
+     * @return Read-only map that matches an int ID to the corresponding gold card
      */
     public Map<Integer, GoldCard> getGoldCards() {
         return goldCards;
@@ -86,7 +171,7 @@ public final class CardsManager {
     /**
      * Getter for the resource cards
      *
-     * @return Map that matches an int ID to the corresponding resource card
+     * @return Read-only map that matches an int ID to the corresponding resource card
      */
     public Map<Integer, ResourceCard> getResourceCards() {
         return resourceCards;
@@ -95,7 +180,7 @@ public final class CardsManager {
     /**
      * Getter for the objectives
      *
-     * @return Map that matches an int ID to the corresponding objective
+     * @return Read-only map that matches an int ID to the corresponding objective
      */
     public Map<Integer, Objective> getObjectives() {
         return objectives;
@@ -104,13 +189,9 @@ public final class CardsManager {
     /**
      * Getter for the playable cards
      *
-     * @return Map that matches an int ID to the corresponding playable card
+     * @return Read-only map that matches an int ID to the corresponding playable card
      */
     public Map<Integer, PlayableCard> getPlayableCards() {
-        Map<Integer, PlayableCard> playableCards = new HashMap<>();
-        playableCards.putAll(goldCards);
-        playableCards.putAll(resourceCards);
-
         return playableCards;
     }
 }
@@ -0,0 +1,180 @@
+package it.polimi.ingsw.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Singleton hashed timing wheel tracking the heartbeats of every connection of the process, on both the server and the
+ * client: a single thread advances the wheel, however many connections are watched.
+ * Each {@link Heartbeat} is stored in the slot of the tick when it has to be checked next; beating only records the
+ * current {@link System#nanoTime()}, so the wheel doesn't move the heartbeat on every beat, but finds out whether it
+ * expired when its slot comes. The callbacks of the heartbeats are run on virtual threads, so a slow one (e.g. a ping
+ * sent over the network) never delays the wheel.
+ */
+public final class HeartbeatWheel {
+    private static final HeartbeatWheel singletonInstance = new HeartbeatWheel(Duration.ofMillis(250), 256);
+
+    private final long tickNanos;
+    private final List<List<Heartbeat>> slots;
+    private final Queue<Heartbeat> added;
+    private final ExecutorService callbacks;
+    private final long startNanos;
+    // Last tick processed, only changed by the wheel thread
+    private long currentTick;
+
+    /**
+     * Initializes and starts a wheel.
+     * Note: Only the singleton instance is used by the application, tests can create a faster wheel.
+     *
+     * @param tick      The duration of a tick, i.e. the precision of the wheel
+     * @param slotCount The number of slots of the wheel, heartbeats further than a turn of the wheel wait more turns
+     */
+    HeartbeatWheel(Duration tick, int slotCount) {
+        this.tickNanos = tick.toNanos();
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++)
+            slots.add(new ArrayList<>());
+        this.added = new ConcurrentLinkedQueue<>();
+        this.callbacks = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("heartbeat-", 0).factory());
+        this.startNanos = System.nanoTime();
+
+        Thread.ofPlatform().daemon().name("heartbeat-wheel").start(this::run);
+    }
+
+    /**
+     * Getter for the only possible instance available of this class, so used instead of a constructor.
+     *
+     * @return Always the same HeartbeatWheel instance
+     */
+    public static HeartbeatWheel getInstance() {
+        return singletonInstance;
+    }
+
+    /**
+     * Starts watching a connection, which expires when it doesn't beat for the given time. The time is counted from
+     * the first beat: a heartbeat that never beat doesn't expire.
+     *
+     * @param timeout  The maximum time between two beats
+     * @param onExpiry Run once, when the heartbeat expires
+     * @return The heartbeat of the connection
+     */
+    public Heartbeat watch(Duration timeout, Runnable onExpiry) {
+        return watch(timeout, timeout, null, onExpiry);
+    }
+
+    /**
+     * Starts watching a connection, which expires when it doesn't beat for the given time, and which is checked at
+     * regular intervals until then (e.g. to send a ping). The time is counted from the first beat: a heartbeat that
+     * never beat doesn't expire.
+     *
+     * @param timeout       The maximum time between two beats
+     * @param checkInterval The time between two checks
+     * @param onCheck       Run at each check, if not null
+     * @param onExpiry      Run once, when the heartbeat expires
+     * @return The heartbeat of the connection
+     */
+    public Heartbeat watch(Duration timeout, Duration checkInterval, Runnable onCheck, Runnable onExpiry) {
+        Heartbeat heartbeat = new Heartbeat(timeout.toNanos(), checkInterval.toNanos(), onCheck, onExpiry);
+        heartbeat.dueNanos = System.nanoTime() + heartbeat.checkIntervalNanos;
+        added.add(heartbeat);
+        return heartbeat;
+    }
+
+    // Advances the wheel a tick at a time, forever
+    private void run() {
+        while (true) {
+            long nextTickNanos = startNanos + (currentTick + 1) * tickNanos;
+            long waiting;
+            while ((waiting = nextTickNanos - System.nanoTime()) > 0)
+                LockSupport.parkNanos(waiting);
+
+            currentTick++;
+            Heartbeat heartbeat;
+            while ((heartbeat = added.poll()) != null)
+                place(heartbeat);
+
+            List<Heartbeat> slot = slots.get((int) (currentTick % slots.size()));
+            List<Heartbeat> due = new ArrayList<>();
+            slot.removeIf(h -> h.cancelled || (h.dueTick <= currentTick && due.add(h)));
+            long now = System.nanoTime();
+            due.forEach(h -> check(h, now));
+        }
+    }
+
+    // Stores a heartbeat in the slot of the tick when it's due, or of the next tick if it's already due
+    private void place(Heartbeat heartbeat) {
+        long dueTick = Math.max(currentTick + 1, Math.ceilDiv(heartbeat.dueNanos - startNanos, tickNanos));
+        heartbeat.dueTick = dueTick;
+        slots.get((int) (dueTick % slots.size())).add(heartbeat);
+    }
+
+    // Expires a due heartbeat, or checks it and places it again
+    private void check(Heartbeat heartbeat, long now) {
+        long lastBeat = heartbeat.lastBeatNanos;
+
+        if (lastBeat != 0 && now - lastBeat >= heartbeat.timeoutNanos) {
+            heartbeat.cancelled = true;
+            callbacks.execute(heartbeat.onExpiry);
+            return;
+        }
+
+        if (heartbeat.onCheck != null)
+            callbacks.execute(heartbeat.onCheck);
+
+        long next = now + heartbeat.checkIntervalNanos;
+        heartbeat.dueNanos = lastBeat == 0 ? next : Math.min(next, lastBeat + heartbeat.timeoutNanos);
+        place(heartbeat);
+    }
+
+    /**
+     * Heartbeat of a single connection watched by the {@link HeartbeatWheel}.
+     */
+    public static final class Heartbeat {
+        private final long timeoutNanos;
+        private final long checkIntervalNanos;
+        private final Runnable onCheck;
+        private final Runnable onExpiry;
+        // 0 until the first beat
+        private volatile long lastBeatNanos;
+        private volatile boolean cancelled;
+        // Only used by the wheel thread, after the heartbeat has been added
+        private long dueNanos;
+        private long dueTick;
+
+        private Heartbeat(long timeoutNanos, long checkIntervalNanos, Runnable onCheck, Runnable onExpiry) {
+            this.timeoutNanos = timeoutNanos;
+            this.checkIntervalNanos = checkIntervalNanos;
+            this.onCheck = onCheck;
+            this.onExpiry = onExpiry;
+        }
+
+        /**
+         * Records that the connection is alive.
+         */
+        public void beat() {
+            lastBeatNanos = System.nanoTime();
+        }
+
+        /**
+         * Stops watching the connection: no callback will run any more, except the ones already started.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Tells whether the heartbeat is not watched any more, because it expired or it was cancelled.
+         *
+         * @return true if the heartbeat is not watched any more
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
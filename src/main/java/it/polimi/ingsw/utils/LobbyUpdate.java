@@ -0,0 +1,25 @@
+package it.polimi.ingsw.utils;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Change of a single match in the list of the joinable ones, sent to the clients subscribed to the lobby.
+ *
+ * @param matchName The name of the changed match
+ * @param match     The new state of the match (e.g. a match just created, or with a different number of players), null
+ *                  if it's not joinable any more since it's full, started or finished
+ */
+public record LobbyUpdate(String matchName, AvailableMatch match) implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Tells whether the match must be removed from the list of the joinable ones.
+     *
+     * @return true if the match is not joinable any more
+     */
+    public boolean isRemoval() {
+        return match == null;
+    }
+}
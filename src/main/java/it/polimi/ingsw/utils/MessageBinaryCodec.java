@@ -0,0 +1,652 @@
+package it.polimi.ingsw.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import it.polimi.ingsw.gamemodel.Color;
+import it.polimi.ingsw.gamemodel.DrawSource;
+import it.polimi.ingsw.gamemodel.Side;
+import it.polimi.ingsw.gamemodel.Symbol;
+import it.polimi.ingsw.network.messages.HeartbeatMessage;
+import it.polimi.ingsw.network.messages.Message;
+import it.polimi.ingsw.network.messages.actions.*;
+import it.polimi.ingsw.network.messages.errors.ErrorMessage;
+import it.polimi.ingsw.network.messages.responses.*;
+
+/**
+ * Compact binary alternative to {@link MessageJsonParser}, used by the connections which chose the binary wire format
+ * (see {@link it.polimi.ingsw.network.tcp.WireFormat}). A message is encoded as a tag identifying its class, followed
+ * by its fields in a fixed order, without names:
+ * <ul>
+ * <li>integers (card IDs, coordinates, points...) are zigzag varints, so small values take a single byte
+ * <li>enums are their ordinal, resource maps are a bit mask of the symbols they contain followed by the amounts
+ * <li>usernames and match names are written once per message, then referenced by their index
+ * <li>null values, collections and strings are marked by a leading 0
+ * <li>fields appended to a message are optional: they're null when missing
+ * </ul>
+ * The tags and the field orders are part of the protocol: a new field has to be appended, so that older decoders can
+ * ignore it.
+ */
+public class MessageBinaryCodec {
+    private static final int PING = 1;
+    private static final int PONG = 2;
+    private static final int ERROR = 3;
+
+    private static final int ADD_BOT = 10;
+    private static final int CHOOSE_INITIAL_CARD_SIDE = 11;
+    private static final int CHOOSE_SECRET_OBJECTIVE = 12;
+    private static final int CREATE_MATCH = 13;
+    private static final int DRAW_CARD = 14;
+    private static final int DRAW_INITIAL_CARD = 15;
+    private static final int DRAW_SECRET_OBJECTIVES = 16;
+    private static final int GET_AVAILABLE_MATCHES = 17;
+    private static final int JOIN_MATCH = 18;
+    private static final int PLAY_CARD = 19;
+    private static final int SEND_BROADCAST_TEXT = 20;
+    private static final int SEND_PRIVATE_TEXT = 21;
+    private static final int SUBSCRIBE_LOBBY = 22;
+
+    private static final int AVAILABLE_MATCHES = 40;
+    private static final int LOBBY_UPDATE = 41;
+    private static final int MATCH_FINISHED = 42;
+    private static final int MATCH_STARTED = 43;
+    private static final int SOMEONE_JOINED = 44;
+    private static final int SOMEONE_QUIT = 45;
+    private static final int SOMEONE_CHOSE_SECRET_OBJECTIVE = 46;
+    private static final int SOMEONE_DREW_CARD = 47;
+    private static final int SOMEONE_DREW_INITIAL_CARD = 48;
+    private static final int SOMEONE_DREW_SECRET_OBJECTIVES = 49;
+    private static final int SOMEONE_PLAYED_CARD = 50;
+    private static final int SOMEONE_SET_INITIAL_SIDE = 51;
+    private static final int SOMEONE_SENT_BROADCAST_TEXT = 52;
+    private static final int SOMEONE_SENT_PRIVATE_TEXT = 53;
+    private static final int MATCH_RESUMED = 54;
+
+    private static final Symbol[] SYMBOLS = Symbol.values();
+    private static final Side[] SIDES = Side.values();
+    private static final DrawSource[] DRAW_SOURCES = DrawSource.values();
+    private static final Color[] COLORS = Color.values();
+
+    /**
+     * Encodes a message.
+     *
+     * @param message The message to encode
+     * @return The encoded message, without any framing
+     * @throws IllegalArgumentException If the message class is not part of the protocol
+     */
+    public byte[] encode(Message message) {
+        Output out = new Output();
+
+        switch (message) {
+            case HeartbeatMessage m -> out.writeVarint(m.isPing() ? PING : PONG);
+            case ErrorMessage m -> {
+                out.writeVarint(ERROR);
+                out.writeString(m.getMessage());
+                out.writeString(m.getError());
+            }
+            case ActionMessage m -> encodeAction(m, out);
+            case ResponseMessage m -> encodeResponse(m, out);
+            default -> throw new IllegalArgumentException("Unknown message " + message.getClass().getName());
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a message.
+     *
+     * @param bytes  The buffer containing the message
+     * @param offset The position of the message in the buffer
+     * @param length The length of the message
+     * @return The decoded message
+     * @throws IllegalArgumentException If the bytes are not a valid message
+     */
+    public Message decode(byte[] bytes, int offset, int length) {
+        Input in = new Input(bytes, offset, length);
+        int tag = in.readVarint();
+
+        return switch (tag) {
+            case PING -> HeartbeatMessage.PING;
+            case PONG -> HeartbeatMessage.PONG;
+            case ERROR -> new ErrorMessage(in.readString(), in.readString());
+            default -> tag < AVAILABLE_MATCHES ? decodeAction(tag, in) : decodeResponse(tag, in);
+        };
+    }
+
+    // Writes the tag and the fields of an action
+    private void encodeAction(ActionMessage message, Output out) {
+        switch (message) {
+            case AddBotMessage m -> {
+                out.writeHeader(ADD_BOT, m.getUsername());
+                out.writeName(m.getMatchName());
+            }
+            case ChooseInitialCardSideMessage m -> {
+                out.writeHeader(CHOOSE_INITIAL_CARD_SIDE, m.getUsername());
+                out.writeEnum(m.getSide());
+            }
+            case ChooseSecretObjectiveMessage m -> {
+                out.writeHeader(CHOOSE_SECRET_OBJECTIVE, m.getUsername());
+                out.writeInt(m.getObjectiveID());
+            }
+            case CreateMatchMessage m -> {
+                out.writeHeader(CREATE_MATCH, m.getUsername());
+                out.writeName(m.getMatchName());
+                out.writeInt(m.getMaxPlayers());
+            }
+            case DrawCardMessage m -> {
+                out.writeHeader(DRAW_CARD, m.getUsername());
+                out.writeEnum(m.getSource());
+            }
+            case DrawInitialCardMessage m -> out.writeHeader(DRAW_INITIAL_CARD, m.getUsername());
+            case DrawSecretObjectivesMessage m -> out.writeHeader(DRAW_SECRET_OBJECTIVES, m.getUsername());
+            case GetAvailableMatchesMessage m -> out.writeHeader(GET_AVAILABLE_MATCHES, m.getUsername());
+            case JoinMatchMessage m -> {
+                out.writeHeader(JOIN_MATCH, m.getUsername());
+                out.writeName(m.getMatchName());
+                out.writeLong(m.getLastSequence());
+            }
+            case PlayCardMessage m -> {
+                out.writeHeader(PLAY_CARD, m.getUsername());
+                out.writeInt(m.getX());
+                out.writeInt(m.getY());
+                out.writeInt(m.getCardID());
+                out.writeEnum(m.getSide());
+            }
+            case SendBroadcastTextMessage m -> {
+                out.writeHeader(SEND_BROADCAST_TEXT, m.getUsername());
+                out.writeString(m.getText());
+            }
+            case SendPrivateTextMessage m -> {
+                out.writeHeader(SEND_PRIVATE_TEXT, m.getUsername());
+                out.writeName(m.getRecipient());
+                out.writeString(m.getText());
+            }
+            case SubscribeLobbyMessage m -> out.writeHeader(SUBSCRIBE_LOBBY, m.getUsername());
+        }
+    }
+
+    // Reads the fields of an action, whose tag has already been read
+    private ActionMessage decodeAction(int tag, Input in) {
+        String username = in.readName();
+
+        return switch (tag) {
+            case ADD_BOT -> new AddBotMessage(username, in.readName());
+            case CHOOSE_INITIAL_CARD_SIDE -> new ChooseInitialCardSideMessage(username, in.readEnum(SIDES));
+            case CHOOSE_SECRET_OBJECTIVE -> new ChooseSecretObjectiveMessage(username, in.readInt());
+            case CREATE_MATCH -> new CreateMatchMessage(username, in.readName(), in.readInt());
+            case DRAW_CARD -> new DrawCardMessage(username, in.readEnum(DRAW_SOURCES));
+            case DRAW_INITIAL_CARD -> new DrawInitialCardMessage(username);
+            case DRAW_SECRET_OBJECTIVES -> new DrawSecretObjectivesMessage(username);
+            case GET_AVAILABLE_MATCHES -> new GetAvailableMatchesMessage(username);
+            case JOIN_MATCH -> new JoinMatchMessage(username, in.readName(), in.readOptionalLong());
+            case PLAY_CARD -> new PlayCardMessage(username, new Pair<>(in.readInt(), in.readInt()), in.readInt(),
+                    in.readEnum(SIDES));
+            case SEND_BROADCAST_TEXT -> new SendBroadcastTextMessage(username, in.readString());
+            case SEND_PRIVATE_TEXT -> new SendPrivateTextMessage(username, in.readName(), in.readString());
+            case SUBSCRIBE_LOBBY -> new SubscribeLobbyMessage(username);
+            default -> throw new IllegalArgumentException("Unknown message tag " + tag);
+        };
+    }
+
+    // Writes the tag and the fields of a response
+    private void encodeResponse(ResponseMessage message, Output out) {
+        switch (message) {
+            case AvailableMatchesMessage m -> {
+                out.writeHeader(AVAILABLE_MATCHES, m.getUsername());
+                out.writeList(m.getMatches(), out::writeAvailableMatch);
+            }
+            case LobbyUpdateMessage m -> {
+                out.writeHeader(LOBBY_UPDATE, m.getUsername());
+                out.writeName(m.getUpdate().matchName());
+                out.writeAvailableMatch(m.getUpdate().match());
+            }
+            case MatchFinishedMessage m -> {
+                out.writeHeader(MATCH_FINISHED, m.getUsername());
+                out.writeList(m.getRanking(), entry -> {
+                    out.writeName(entry.username());
+                    out.writeInt(entry.points());
+                    out.writeBoolean(entry.winner());
+                });
+            }
+            case MatchStartedMessage m -> {
+                out.writeHeader(MATCH_STARTED, m.getUsername());
+                out.writeList(arrayToList(m.getVisibleObjectives()), out::writeInt);
+                out.writeMap(m.getVisibleCards(), out::writeEnum, out::writeInt);
+                out.writeList(arrayToList(m.getVisibleDeckReigns()), out::writeEnum);
+                out.writeMap(m.getPlayerHands(), out::writeName, hand -> out.writeList(arrayToList(hand), out::writeInt));
+                out.writeMap(m.getPlayerPawnColors(), out::writeName, out::writeEnum);
+            }
+            case SomeoneJoinedMessage m -> {
+                out.writeHeader(SOMEONE_JOINED, m.getUsername());
+                out.writeList(m.getJoinedPlayers(), out::writeName);
+                out.writeInt(m.getMaxPlayers());
+            }
+            case SomeoneQuitMessage m -> {
+                out.writeHeader(SOMEONE_QUIT, m.getUsername());
+                out.writeInt(m.getJoinedPlayers());
+                out.writeBoolean(m.isEndMatch());
+            }
+            case SomeoneChoseSecretObjectiveMessage m -> {
+                out.writeHeader(SOMEONE_CHOSE_SECRET_OBJECTIVE, m.getUsername());
+                out.writeInt(m.getObjectiveID());
+            }
+            case SomeoneDrewCardMessage m -> {
+                out.writeHeader(SOMEONE_DREW_CARD, m.getUsername());
+                out.writeEnum(m.getDrawSource());
+                out.writeInt(m.getCardID());
+                out.writeInt(m.getReplacementCardID());
+                out.writePair(m.getDeckTopReigns(), out::writeEnum);
+            }
+            case SomeoneDrewInitialCardMessage m -> {
+                out.writeHeader(SOMEONE_DREW_INITIAL_CARD, m.getUsername());
+                out.writeInt(m.getInitialCardID());
+            }
+            case SomeoneDrewSecretObjectivesMessage m -> {
+                out.writeHeader(SOMEONE_DREW_SECRET_OBJECTIVES, m.getUsername());
+                out.writeInt(m.getFirstID());
+                out.writeInt(m.getSecondID());
+            }
+            case SomeonePlayedCardMessage m -> {
+                out.writeHeader(SOMEONE_PLAYED_CARD, m.getUsername());
+                out.writeInt(m.getX());
+                out.writeInt(m.getY());
+                out.writeInt(m.getCardID());
+                out.writeEnum(m.getSide());
+                out.writeInt(m.getPoints());
+                out.writeResources(m.getAvailableResources());
+            }
+            case SomeoneSetInitialSideMessage m -> {
+                out.writeHeader(SOMEONE_SET_INITIAL_SIDE, m.getUsername());
+                out.writeEnum(m.getSide());
+                out.writeResources(m.getAvailableResources());
+            }
+            case SomeoneSentBroadcastTextMessage m -> {
+                out.writeHeader(SOMEONE_SENT_BROADCAST_TEXT, m.getUsername());
+                out.writeString(m.getText());
+            }
+            case SomeoneSentPrivateTextMessage m -> {
+                out.writeHeader(SOMEONE_SENT_PRIVATE_TEXT, m.getUsername());
+                out.writeName(m.getRecipient());
+                out.writeString(m.getText());
+            }
+            case MatchResumedMessage m -> {
+                out.writeHeader(MATCH_RESUMED, m.getUsername());
+                out.writeMap(m.getPlayersUsernamesAndPawns(), out::writeName, out::writeEnum);
+                out.writeMap(m.getPlayersHands(), out::writeName, hand -> out.writeList(hand, out::writeInt));
+                out.writePair(m.getVisibleObjectives(), out::writeInt);
+                out.writeMap(m.getVisiblePlayableCards(), out::writeEnum, out::writeInt);
+                out.writePair(m.getDecksTopReigns(), out::writeEnum);
+                out.writeInt(m.getSecretObjective());
+                out.writeMap(m.getAvailableResources(), out::writeName, out::writeResources);
+                out.writeMap(m.getPlacedCards(), out::writeName, board -> out.writeMap(board, out::writeInt, placed -> {
+                    out.writeInt(placed.cardID());
+                    out.writeInt(placed.x());
+                    out.writeInt(placed.y());
+                    out.writeEnum(placed.side());
+                }));
+                out.writeMap(m.getPlayerPoints(), out::writeName, out::writeInt);
+                out.writeName(m.getCurrentPlayer());
+                out.writeBoolean(m.isDrawPhase());
+            }
+            default -> throw new IllegalArgumentException("Unknown message " + message.getClass().getName());
+        }
+        out.writeLong(message.getSequence());
+    }
+
+    // Reads the fields of a response, whose tag has already been read
+    private ResponseMessage decodeResponse(int tag, Input in) {
+        ResponseMessage response = decodeResponseFields(tag, in);
+        response.setSequence(in.readOptionalLong());
+        return response;
+    }
+
+    private ResponseMessage decodeResponseFields(int tag, Input in) {
+        String username = in.readName();
+
+        return switch (tag) {
+            case AVAILABLE_MATCHES -> new AvailableMatchesMessage(in.readList(in::readAvailableMatch));
+            case LOBBY_UPDATE -> new LobbyUpdateMessage(new LobbyUpdate(in.readName(), in.readAvailableMatch()));
+            case MATCH_FINISHED -> new MatchFinishedMessage(
+                    in.readList(() -> new LeaderboardEntry(in.readName(), in.readInt(), in.readBoolean())));
+            case MATCH_STARTED -> new MatchStartedMessage(
+                    listToArray(in.readList(in::readInt), Integer[]::new),
+                    in.readMap(() -> in.readEnum(DRAW_SOURCES), in::readInt),
+                    listToArray(in.readList(() -> in.readEnum(SYMBOLS)), Symbol[]::new),
+                    in.readMap(in::readName, () -> listToArray(in.readList(in::readInt), Integer[]::new)),
+                    in.readMap(in::readName, () -> in.readEnum(COLORS)));
+            case SOMEONE_JOINED -> new SomeoneJoinedMessage(username, in.readList(in::readName), in.readInt());
+            case SOMEONE_QUIT -> new SomeoneQuitMessage(username, in.readInt(), in.readBoolean());
+            case SOMEONE_CHOSE_SECRET_OBJECTIVE -> new SomeoneChoseSecretObjectiveMessage(username, in.readInt());
+            case SOMEONE_DREW_CARD -> new SomeoneDrewCardMessage(username, in.readEnum(DRAW_SOURCES), in.readInt(),
+                    in.readInt(), in.readPair(() -> in.readEnum(SYMBOLS)));
+            case SOMEONE_DREW_INITIAL_CARD -> new SomeoneDrewInitialCardMessage(username, in.readInt());
+            case SOMEONE_DREW_SECRET_OBJECTIVES ->
+                    new SomeoneDrewSecretObjectivesMessage(username, new Pair<>(in.readInt(), in.readInt()));
+            case SOMEONE_PLAYED_CARD -> new SomeonePlayedCardMessage(username, new Pair<>(in.readInt(), in.readInt()),
+                    in.readInt(), in.readEnum(SIDES), in.readInt(), in.readResources());
+            case SOMEONE_SET_INITIAL_SIDE ->
+                    new SomeoneSetInitialSideMessage(username, in.readEnum(SIDES), in.readResources());
+            case SOMEONE_SENT_BROADCAST_TEXT -> new SomeoneSentBroadcastTextMessage(username, in.readString());
+            case SOMEONE_SENT_PRIVATE_TEXT ->
+                    new SomeoneSentPrivateTextMessage(username, in.readName(), in.readString());
+            case MATCH_RESUMED -> new MatchResumedMessage(
+                    in.readMap(in::readName, () -> in.readEnum(COLORS)),
+                    in.readMap(in::readName, () -> in.readList(in::readInt)),
+                    in.readPair(in::readInt),
+                    in.readMap(() -> in.readEnum(DRAW_SOURCES), in::readInt),
+                    in.readPair(() -> in.readEnum(SYMBOLS)),
+                    in.readInt(),
+                    in.readMap(in::readName, in::readResources),
+                    in.readMap(in::readName, () -> in.readMap(in::readInt,
+                            () -> new PlacedCardRecord(in.readInt(), in.readInt(), in.readInt(), in.readEnum(SIDES)))),
+                    in.readMap(in::readName, in::readInt),
+                    in.readName(),
+                    in.readBoolean());
+            default -> throw new IllegalArgumentException("Unknown message tag " + tag);
+        };
+    }
+
+    private static <T> List<T> arrayToList(T[] array) {
+        return array == null ? null : Arrays.asList(array);
+    }
+
+    private static <T> T[] listToArray(List<T> list, IntFunction<T[]> constructor) {
+        return list == null ? null : list.toArray(constructor.apply(0));
+    }
+
+    /**
+     * Growable buffer the messages are encoded to.
+     */
+    private static class Output {
+        private byte[] bytes = new byte[64];
+        private int length;
+        // Names already written, with their index
+        private final Map<String, Integer> names = new HashMap<>();
+
+        private void ensureCapacity(int additional) {
+            if (length + additional > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + additional));
+        }
+
+        private void writeByte(int b) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) b;
+        }
+
+        private void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void writeHeader(int tag, String username) {
+            writeVarint(tag);
+            writeName(username);
+        }
+
+        private void writeBoolean(boolean value) {
+            writeByte(value ? 1 : 0);
+        }
+
+        // 0 for null, otherwise the zigzag encoding plus one
+        private void writeInt(Integer value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            int v = value;
+            writeVarint((((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL) + 1);
+        }
+
+        // 0 for null, otherwise the value plus one, which can't be negative
+        private void writeLong(Long value) {
+            writeVarint(value == null ? 0 : value + 1);
+        }
+
+        private void writeEnum(Enum<?> value) {
+            writeVarint(value == null ? 0 : value.ordinal() + 1);
+        }
+
+        // 0 for null, otherwise the length in bytes plus one and the UTF-8 bytes
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(encoded.length + 1L);
+            ensureCapacity(encoded.length);
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            length += encoded.length;
+        }
+
+        // 0 for null, 1 followed by the string the first time, otherwise its index plus two
+        private void writeName(String name) {
+            if (name == null) {
+                writeVarint(0);
+                return;
+            }
+            Integer index = names.get(name);
+            if (index != null) {
+                writeVarint(index + 2L);
+            } else {
+                names.put(name, names.size());
+                writeVarint(1);
+                writeString(name);
+            }
+        }
+
+        // The mask of the symbols in the map (shifted, so that 0 is null), followed by their amounts
+        private void writeResources(Map<Symbol, Integer> resources) {
+            if (resources == null) {
+                writeVarint(0);
+                return;
+            }
+            long mask = 0;
+            for (Symbol symbol : resources.keySet())
+                mask |= 1L << symbol.ordinal();
+            writeVarint((mask << 1) | 1);
+            for (Symbol symbol : SYMBOLS)
+                if ((mask & (1L << symbol.ordinal())) != 0)
+                    writeInt(resources.get(symbol));
+        }
+
+        private void writeAvailableMatch(AvailableMatch match) {
+            writeBoolean(match != null);
+            if (match != null) {
+                writeName(match.name());
+                writeInt(match.maxPlayers());
+                writeInt(match.currentPlayers());
+                writeBoolean(match.isRejoinable());
+            }
+        }
+
+        private <T> void writePair(Pair<T, T> pair, Consumer<T> writer) {
+            writeBoolean(pair != null);
+            if (pair != null) {
+                writer.accept(pair.first());
+                writer.accept(pair.second());
+            }
+        }
+
+        private <T> void writeList(List<T> list, Consumer<T> writer) {
+            writeVarint(list == null ? 0 : list.size() + 1L);
+            if (list != null)
+                list.forEach(writer);
+        }
+
+        private <K, V> void writeMap(Map<K, V> map, Consumer<K> keyWriter, Consumer<V> valueWriter) {
+            writeVarint(map == null ? 0 : map.size() + 1L);
+            if (map != null) {
+                map.forEach((key, value) -> {
+                    keyWriter.accept(key);
+                    valueWriter.accept(value);
+                });
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    /**
+     * Reader of an encoded message.
+     */
+    private static class Input {
+        private final byte[] bytes;
+        private final int end;
+        private int position;
+        // Names already read, by index
+        private final List<String> names = new ArrayList<>();
+
+        private Input(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        private int readByte() {
+            if (position >= end)
+                throw new IllegalArgumentException("Truncated message");
+            return bytes[position++] & 0xFF;
+        }
+
+        private long readVarlong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        private int readVarint() {
+            long value = readVarlong();
+            if (value < 0 || value > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Varint out of range");
+            return (int) value;
+        }
+
+        private boolean readBoolean() {
+            return readByte() != 0;
+        }
+
+        // Null if missing, since it's appended to messages which were once complete without it
+        private Long readOptionalLong() {
+            if (position >= end)
+                return null;
+            long value = readVarlong();
+            if (value < 0)
+                throw new IllegalArgumentException("Varint out of range");
+            return value == 0 ? null : value - 1;
+        }
+
+        private Integer readInt() {
+            long value = readVarlong();
+            if (value == 0)
+                return null;
+            long zigzag = value - 1;
+            return (int) (zigzag >>> 1) ^ -(int) (zigzag & 1);
+        }
+
+        private <E extends Enum<E>> E readEnum(E[] values) {
+            int value = readVarint();
+            if (value > values.length)
+                throw new IllegalArgumentException("Unknown enum value " + value);
+            return value == 0 ? null : values[value - 1];
+        }
+
+        private String readString() {
+            int value = readVarint();
+            if (value == 0)
+                return null;
+            int length = value - 1;
+            if (length > end - position)
+                throw new IllegalArgumentException("Truncated message");
+            String string = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return string;
+        }
+
+        private String readName() {
+            int value = readVarint();
+            if (value == 0)
+                return null;
+            if (value > 1) {
+                if (value - 2 >= names.size())
+                    throw new IllegalArgumentException("Unknown name " + value);
+                return names.get(value - 2);
+            }
+            String name = readString();
+            names.add(name);
+            return name;
+        }
+
+        private Map<Symbol, Integer> readResources() {
+            long value = readVarlong();
+            if (value == 0)
+                return null;
+            long mask = value >>> 1;
+            Map<Symbol, Integer> resources = new HashMap<>();
+            for (Symbol symbol : SYMBOLS)
+                if ((mask & (1L << symbol.ordinal())) != 0)
+                    resources.put(symbol, readInt());
+            return resources;
+        }
+
+        private AvailableMatch readAvailableMatch() {
+            if (!readBoolean())
+                return null;
+            return new AvailableMatch(readName(), readInt(), readInt(), readBoolean());
+        }
+
+        private <T> Pair<T, T> readPair(Supplier<T> reader) {
+            if (!readBoolean())
+                return null;
+            T first = reader.get();
+            return new Pair<>(first, reader.get());
+        }
+
+        private int readSize() {
+            int size = readVarint() - 1;
+            // Every element takes at least a byte, so a bigger size can only come from a malformed message
+            if (size > end - position)
+                throw new IllegalArgumentException("Truncated message");
+            return size;
+        }
+
+        private <T> List<T> readList(Supplier<T> reader) {
+            int size = readSize();
+            if (size < 0)
+                return null;
+            List<T> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++)
+                list.add(reader.get());
+            return list;
+        }
+
+        private <K, V> Map<K, V> readMap(Supplier<K> keyReader, Supplier<V> valueReader) {
+            int size = readSize();
+            if (size < 0)
+                return null;
+            Map<K, V> map = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                K key = keyReader.get();
+                map.put(key, valueReader.get());
+            }
+            return map;
+        }
+    }
+}
@@ -1,21 +1,61 @@
 package it.polimi.ingsw.utils;
 
 import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import it.polimi.ingsw.network.messages.Message;
 import it.polimi.ingsw.network.messages.actions.ActionMessage;
 import it.polimi.ingsw.network.messages.errors.ErrorMessage;
 import it.polimi.ingsw.network.messages.responses.ResponseMessage;
 
-import java.lang.reflect.Type;
-import java.util.Arrays;
-import java.util.Optional;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Converts the {@link Message}s to and from JSON. The concrete class of a message is told by its "action", "response"
+ * or "error" field, looked up in a table built once from the permitted subclasses of {@link ActionMessage} and
+ * {@link ResponseMessage}.
+ * A message is parsed in two streaming passes, without building a tree: the first one skips the values to find the
+ * discriminator, the second one reads the fields through the adapter of the class, which Gson builds once.
+ * Instances are thread safe, so a single one (see {@link #getInstance()}) is shared by all the connections.
+ */
 public class MessageJsonParser {
+    private static final String ACTION = "action";
+    private static final String RESPONSE = "response";
+    private static final String ERROR = "error";
+
+    // Discriminator -> class, e.g. "PlayCard" -> PlayCardMessage
+    private static final Map<String, Class<? extends Message>> actionTypes = messageTypes(ActionMessage.class);
+    private static final Map<String, Class<? extends Message>> responseTypes = messageTypes(ResponseMessage.class);
+
+    private static final MessageJsonParser singletonInstance = new MessageJsonParser();
 
     Gson messageBuilder;
 
+    // Discriminator -> adapter of the class, built from the tables above
+    private final Map<String, TypeAdapter<? extends Message>> actionAdapters;
+    private final Map<String, TypeAdapter<? extends Message>> responseAdapters;
+    private final TypeAdapter<ErrorMessage> errorAdapter;
+
     public MessageJsonParser() {
-        messageBuilder = new GsonBuilder().registerTypeAdapter(Message.class, new MessageTypeAdapter()).create();
+        messageBuilder = new GsonBuilder().registerTypeAdapterFactory(new MessageTypeAdapterFactory()).create();
+        actionAdapters = adapters(actionTypes);
+        responseAdapters = adapters(responseTypes);
+        errorAdapter = messageBuilder.getAdapter(ErrorMessage.class);
+    }
+
+    /**
+     * Gets the instance shared by all the connections.
+     *
+     * @return the shared parser
+     */
+    public static MessageJsonParser getInstance() {
+        return singletonInstance;
     }
 
     public Gson getMessageBuilder() {
@@ -25,7 +65,13 @@ public class MessageJsonParser {
 
     public Message toMessage(String json) {
         try {
-            return messageBuilder.fromJson(json, Message.class);
+            TypeAdapter<? extends Message> adapter = adapterFor(json);
+            JsonReader reader = newReader(json);
+            Message message = adapter.read(reader);
+            if (message == null || reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonParseException("Not a single message");
+            }
+            return message;
         } catch (Exception e) {
             throw new JsonParseException("Error converting to message");
         }
@@ -35,37 +81,113 @@ public class MessageJsonParser {
         return messageBuilder.toJson(m);
     }
 
-    private class MessageTypeAdapter implements JsonDeserializer<Message> {
+    // The permitted subclasses of a message class, by the name of their type
+    private static Map<String, Class<? extends Message>> messageTypes(Class<? extends Message> mainClass) {
+        Map<String, Class<? extends Message>> types = new HashMap<>();
+        for (Class<?> type : mainClass.getPermittedSubclasses()) {
+            types.put(type.getSimpleName().replace("Message", ""), type.asSubclass(Message.class));
+        }
+        return Collections.unmodifiableMap(types);
+    }
 
-        @Override
-        public Message deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-            JsonObject messageObject = json.getAsJsonObject();
-
-            if (messageObject.has("action")) {
-                return convertClass(ActionMessage.class, messageObject.get("action").getAsString(), messageObject, context);
-            } else if (messageObject.has("response")) {
-                return convertClass(ResponseMessage.class, messageObject.get("response").getAsString(), messageObject, context);
-            } else if (messageObject.has("error")) {
-                return convertError(messageObject.get("error").getAsString(), messageObject, context);
+    private Map<String, TypeAdapter<? extends Message>> adapters(Map<String, Class<? extends Message>> types) {
+        Map<String, TypeAdapter<? extends Message>> adapters = new HashMap<>();
+        types.forEach((name, type) -> adapters.put(name, messageBuilder.getAdapter(type)));
+        return Collections.unmodifiableMap(adapters);
+    }
+
+    private static JsonReader newReader(String json) {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        // Same leniency as Gson.fromJson
+        reader.setLenient(true);
+        return reader;
+    }
+
+    // Finds the discriminator of a message by skipping the other values, then the adapter of its class
+    private TypeAdapter<? extends Message> adapterFor(String json) throws IOException {
+        JsonReader reader = newReader(json);
+        String response = null;
+        boolean error = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals(ACTION)) {
+                return adapterFor(actionAdapters, reader.nextString());
+            } else if (name.equals(RESPONSE) && response == null) {
+                response = reader.nextString();
             } else {
-                throw new JsonParseException("Wrong message type");
+                error |= name.equals(ERROR);
+                reader.skipValue();
             }
         }
 
-        private Message convertError(String type, JsonObject messageObject, JsonDeserializationContext context) {
-            return context.deserialize(messageObject, ErrorMessage.class);
+        if (response != null) {
+            return adapterFor(responseAdapters, response);
+        } else if (error) {
+            return errorAdapter;
+        } else {
+            throw new JsonParseException("Wrong message type");
         }
+    }
 
-        private Message convertClass(Class<?> mainClass, String type, JsonObject messageObject, JsonDeserializationContext context) {
-            Class<?>[] classes = mainClass.getPermittedSubclasses();
-            Optional<Class<?>> resultClass = Arrays.stream(classes)
-                    .filter(a -> type.equals(a.getSimpleName().replace("Message", "")))
-                    .findFirst();
-            if (resultClass.isEmpty()) {
-                throw new JsonParseException("Value is not found");
-            } else {
-                return context.deserialize(messageObject, resultClass.get());
+    private TypeAdapter<? extends Message> adapterFor(JsonObject messageObject) {
+        if (messageObject.has(ACTION)) {
+            return adapterFor(actionAdapters, messageObject.get(ACTION).getAsString());
+        } else if (messageObject.has(RESPONSE)) {
+            return adapterFor(responseAdapters, messageObject.get(RESPONSE).getAsString());
+        } else if (messageObject.has(ERROR)) {
+            return errorAdapter;
+        } else {
+            throw new JsonParseException("Wrong message type");
+        }
+    }
+
+    private static TypeAdapter<? extends Message> adapterFor(Map<String, TypeAdapter<? extends Message>> adapters,
+                                                            String type) {
+        TypeAdapter<? extends Message> adapter = adapters.get(type);
+        if (adapter == null) {
+            throw new JsonParseException("Value is not found");
+        }
+        return adapter;
+    }
+
+    /**
+     * Lets {@link #getMessageBuilder()} convert JSON to a {@link Message}, through the same table. Only a single pass
+     * is possible there, so the JSON goes through a tree.
+     */
+    private class MessageTypeAdapterFactory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != Message.class) {
+                return null;
             }
+            return (TypeAdapter<T>) new TypeAdapter<Message>() {
+                @Override
+                public void write(JsonWriter out, Message value) throws IOException {
+                    if (value == null) {
+                        out.nullValue();
+                    } else {
+                        writeAs(gson.getAdapter(value.getClass()), out, value);
+                    }
+                }
+
+                @Override
+                public Message read(JsonReader in) throws IOException {
+                    JsonElement json = JsonParser.parseReader(in);
+                    if (json.isJsonNull()) {
+                        return null;
+                    }
+                    return adapterFor(json.getAsJsonObject()).fromJsonTree(json);
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private <M extends Message> void writeAs(TypeAdapter<M> adapter, JsonWriter out, Message value)
+                throws IOException {
+            adapter.write(out, (M) value);
         }
     }
 }
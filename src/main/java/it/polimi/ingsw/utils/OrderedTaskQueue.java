@@ -0,0 +1,102 @@
+package it.polimi.ingsw.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FIFO queue of tasks drained on a shared {@link Executor}, so that tasks submitted to the same queue are run one at a
+ * time and in submission order, while tasks of different queues can run in parallel.
+ * At most one drain of a queue is scheduled at any time, and each drain runs a bounded batch of tasks before yielding
+ * the executor thread, so that a busy queue cannot starve the other ones.
+ */
+public class OrderedTaskQueue {
+    // Default maximum number of tasks run by a single drain before rescheduling
+    private static final int DEFAULT_BATCH_SIZE = 32;
+
+    private final Executor executor;
+    private final int batchSize;
+    private final Queue<Runnable> tasks;
+    private final AtomicInteger size;
+    private final AtomicBoolean scheduled;
+
+    /**
+     * Initializes an empty queue.
+     *
+     * @param executor The executor on which the tasks of this queue are run
+     */
+    public OrderedTaskQueue(Executor executor) {
+        this(executor, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Initializes an empty queue whose drains run at most the given number of tasks before yielding the executor
+     * thread: a smaller batch makes the queues sharing the executor take turns more often.
+     *
+     * @param executor  The executor on which the tasks of this queue are run
+     * @param batchSize The maximum number of tasks run by a single drain
+     * @throws IllegalArgumentException If the batch size is not positive
+     */
+    public OrderedTaskQueue(Executor executor, int batchSize) throws IllegalArgumentException {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("The batch size must be positive");
+
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.size = new AtomicInteger();
+        this.scheduled = new AtomicBoolean();
+    }
+
+    /**
+     * Appends a task to this queue, it will run after every task previously submitted to this queue.
+     *
+     * @param task The task to run
+     */
+    public void submit(Runnable task) {
+        tasks.add(task);
+        size.incrementAndGet();
+        schedule();
+    }
+
+    /**
+     * Gets the number of tasks submitted and not yet started.
+     *
+     * @return The number of pending tasks
+     */
+    public int size() {
+        return size.get();
+    }
+
+    // Schedules a drain of the queue, unless one is already scheduled or running
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true))
+            executor.execute(this::drain);
+    }
+
+    // Runs a batch of tasks, then schedules itself again if more tasks are pending
+    private void drain() {
+        Runnable task;
+        int executed = 0;
+
+        while (executed < batchSize && (task = tasks.poll()) != null) {
+            size.decrementAndGet();
+            executed++;
+
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // A failing task must not prevent the following ones from running
+                System.err.println("A queued task failed: " + e.getMessage());
+            }
+        }
+
+        scheduled.set(false);
+
+        // Tasks submitted while the flag was still set would otherwise stay in the queue
+        if (!tasks.isEmpty())
+            schedule();
+    }
+}
@@ -0,0 +1,94 @@
+package it.polimi.ingsw.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.random.RandomGenerator;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import it.polimi.ingsw.exceptions.ChosenMatchException;
+import it.polimi.ingsw.gamemodel.*;
+import it.polimi.ingsw.server.Server;
+import it.polimi.ingsw.simulation.RandomPolicy;
+import it.polimi.ingsw.utils.Pair;
+
+public class PlayerControllerBotTest {
+    @Test
+    public void botsPlayWholeMatch() throws Exception {
+        Server server = new Server(15, 9995);
+        server.createMatch("bots", 2);
+        server.addBot("bots");
+        server.addBot("bots");
+        assertThrows(ChosenMatchException.class, () -> server.addBot("bots"));
+
+        // The players order is shuffled when the match starts
+        Match match = server.getMatch("bots");
+        assertEquals(Set.of("bot1", "bot2"),
+                match.getPlayers().stream().map(Player::getUsername).collect(Collectors.toSet()));
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        // The match is marked as finished before the ranking is computed
+        while (match.getPlayersFinalRanking() == null && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+
+        assertTrue(match.isFinished());
+        assertNotNull(match.getPlayersFinalRanking());
+        assertEquals(2, match.getPlayersFinalRanking().size());
+    }
+
+    @Test
+    public void rejectedMoveIsReplaced() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        Match match = playBots(rejecting(1, rejected));
+
+        assertEquals(1, rejected.get());
+        assertEquals(2, match.getPlayers().size());
+        assertEquals(2, match.getPlayersFinalRanking().size());
+    }
+
+    @Test
+    public void botLeavesWhenEveryMoveIsRejected() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        Match match = playBots(rejecting(Integer.MAX_VALUE, rejected));
+
+        // The match ends instead of waiting for the bot forever
+        assertTrue(rejected.get() > 0);
+        assertFalse(match.getPlayers().stream().anyMatch(p -> p.getUsername().equals("rejecting")));
+        assertEquals(1, match.getPlayersFinalRanking().size());
+    }
+
+    // Plays a match between a bot choosing through the given policy and a random one, until its ranking is published
+    private static Match playBots(RandomPolicy policy) throws Exception {
+        Match match = MatchFixtures.newMatch(2);
+        new PlayerControllerBot("rejecting", match, policy).sendJoined();
+        new PlayerControllerBot("random", match, new RandomPolicy()).sendJoined();
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (match.getPlayersFinalRanking() == null && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+
+        assertNotNull(match.getPlayersFinalRanking());
+        return match;
+    }
+
+    // A random policy whose first moves are placed on the initial card, so they're rejected by the match
+    private static RandomPolicy rejecting(int rejections, AtomicInteger rejected) {
+        return new RandomPolicy() {
+            @Override
+            public PlacementMove chooseMove(Player player, List<PlacementMove> moves, RandomGenerator random) {
+                PlacementMove move = super.chooseMove(player, moves, random);
+                if (rejected.get() >= rejections)
+                    return move;
+
+                rejected.incrementAndGet();
+                return new PlacementMove(new Pair<>(0, 0), move.card(), move.side());
+            }
+        };
+    }
+}
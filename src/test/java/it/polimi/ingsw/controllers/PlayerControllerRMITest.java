@@ -1,6 +1,7 @@
 package it.polimi.ingsw.controllers;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -14,7 +15,9 @@ import java.util.regex.PatternSyntaxException;
 import it.polimi.ingsw.exceptions.*;
 import it.polimi.ingsw.gamemodel.*;
 import it.polimi.ingsw.utils.AvailableMatch;
+import it.polimi.ingsw.utils.HeartbeatWheel;
 import it.polimi.ingsw.utils.LeaderboardEntry;
+import it.polimi.ingsw.utils.LobbyUpdate;
 import org.junit.Test;
 
 import it.polimi.ingsw.client.network.RemoteViewInterface;
@@ -555,7 +558,6 @@ public class PlayerControllerRMITest {
     @Test
     public void matchFinished() throws RemoteException, WrongStateException, AlreadyUsedUsernameException, ChosenMatchException, InterruptedException {
         this.initializeTwoPlayerFinishedMatch();
-        view1.waitingCall = "matchFinished";
         view1.waitForCall("matchFinished");
         Map<String, Object> args = view1.getLastCallArguments();
         List<LeaderboardEntry> ranking = (List<LeaderboardEntry>) args.get("ranking");
@@ -645,8 +647,41 @@ public class PlayerControllerRMITest {
         }
     }
 
+    @Test
+    public void rejectedJoinStopsWatchingConnection() throws Exception {
+        this.initializeUnstartedMatch(2);
+        player1 = new PlayerControllerRMI("player1", match);
+        player1.registerView(new TestView());
+
+        PlayerControllerRMI taken = new PlayerControllerRMI("player1", match);
+        PlayerControllerRMI invalid = new PlayerControllerRMI("player 2!", match);
+        try {
+            taken.registerView(new TestView());
+            fail("The join with a taken username should have been rejected");
+        } catch (AlreadyUsedUsernameException e) {
+            // this exception should be thrown
+        }
+        try {
+            invalid.registerView(new TestView());
+            fail("The join with an invalid username should have been rejected");
+        } catch (WrongNameException e) {
+            // this exception should be thrown
+        }
+
+        assertTrue(getHeartbeat(taken).isCancelled());
+        assertTrue(getHeartbeat(invalid).isCancelled());
+        assertFalse(getHeartbeat(player1).isCancelled());
+    }
+
     // Utility methods
 
+    private HeartbeatWheel.Heartbeat getHeartbeat(PlayerController controller) throws NoSuchFieldException, IllegalAccessException {
+        Field heartbeat = PlayerController.class.getDeclaredField("heartbeat");
+        heartbeat.setAccessible(true);
+
+        return (HeartbeatWheel.Heartbeat) heartbeat.get(controller);
+    }
+
     private Object getPrivateAttribute(Object object, String privateAttr) throws NoSuchFieldException, IllegalAccessException {
         Field privateField = object.getClass().getDeclaredField(privateAttr);
         privateField.setAccessible(true);
@@ -703,6 +738,8 @@ public class PlayerControllerRMITest {
         try {
             player1 = new PlayerControllerRMI("Oingo", match);
             view1 = new TestView();
+            // The notification may be delivered before the match initialization returns
+            view1.waitingCall = "matchFinished";
             player1.registerView(view1);
 
             player2 = new PlayerControllerRMI("Boingo", match);
@@ -822,6 +859,9 @@ public class PlayerControllerRMITest {
         public void receiveAvailableMatches(List<AvailableMatch> availableMatchs) throws RemoteException {
         }
 
+        public void lobbyUpdated(LobbyUpdate update) throws RemoteException {
+        }
+
         public synchronized void someoneDrewInitialCard(String someoneUsername, InitialCard card) throws RemoteException {
             if (waitingCall != null && waitingCall.equals("someoneDrewInitialCard")) {
                 lastCall = "someoneDrewInitialCard";
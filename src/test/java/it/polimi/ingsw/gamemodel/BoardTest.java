@@ -1,9 +1,12 @@
 package it.polimi.ingsw.gamemodel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -116,6 +119,51 @@ public class BoardTest {
         }
     }
 
+    @Test
+    public void placedCardsOutsideInitialGrid() throws Exception {
+        // (1, -7) is already past half of the initial grid: keep going until it has to grow
+        for (int i = 1; i <= 12; i++) {
+            board.placeCard(i + 1, -7 - i, nores, Side.FRONT, 1);
+        }
+
+        assertEquals(27, board.getPlacedCardsCount());
+        assertTrue(board.isOccupied(13, -19));
+        assertEquals(nores, board.getPlacedCard(1, -7).getCard());
+        assertEquals(brempty, board.getPlacedCards().get(new Pair<>(1, 1)).getCard());
+        assertEquals(null, board.getPlacedCard(100, 100));
+
+        // the map view follows the placement order
+        assertEquals(new Pair<>(0, 0), board.getPlacedCards().keySet().iterator().next());
+        assertEquals(13, board.getPlacedX(26));
+        assertEquals(-19, board.getPlacedY(26));
+        assertEquals(PlacementOutcome.VALID, board.verifyCardPlacement(14, -20, base, Side.FRONT));
+    }
+
+    @Test
+    public void legalPositionsMatchVerification() throws Exception {
+        Set<Pair<Integer, Integer>> expected = new HashSet<>();
+        for (int x = -10; x <= 10; x++) {
+            for (int y = -10; y <= 10; y++) {
+                if (board.verifyCardPlacement(x, y, base, Side.BACK) == PlacementOutcome.VALID) {
+                    expected.add(new Pair<>(x, y));
+                }
+            }
+        }
+
+        assertEquals(expected, new HashSet<>(board.legalPositions()));
+        // (2, 0) is next to the empty corner of (1, 1)
+        assertFalse(board.isLegalPosition(2, 0));
+
+        board.removeHandCard(validGold);
+        board.addHandCard(invalidGold);
+        List<PlacementMove> moves = board.legalMoves(List.of(base, invalidGold));
+        assertEquals(3 * expected.size(), moves.size());
+        assertTrue(moves.stream().noneMatch(m -> m.card() == invalidGold && m.side() == Side.FRONT));
+        for (PlacementMove move : moves) {
+            assertEquals(PlacementOutcome.VALID, board.verifyCardPlacement(move.coords(), move.card(), move.side()));
+        }
+    }
+
     public void verifyResources(Symbol s, Integer expected) {
         assertEquals(expected, board.getAvailableResources().get(s));
     }
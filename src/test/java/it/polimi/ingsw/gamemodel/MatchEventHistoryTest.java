@@ -0,0 +1,75 @@
+package it.polimi.ingsw.gamemodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class MatchEventHistoryTest {
+    private final List<Long> replayedSequences = new ArrayList<>();
+    private final List<MatchObserverCallable> replayedEvents = new ArrayList<>();
+
+    private boolean replayAfter(MatchEventHistory history, long sequence) {
+        replayedSequences.clear();
+        replayedEvents.clear();
+        return history.replayAfter(sequence, (event, callable) -> {
+            replayedSequences.add(event.getSequence());
+            replayedEvents.add(callable);
+        });
+    }
+
+    @Test
+    public void missedEventsAreReplayedInOrder() {
+        MatchEventHistory history = new MatchEventHistory(4, 100);
+        List<MatchObserverCallable> events = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            MatchObserverCallable event = MatchObserver::matchStarted;
+            events.add(event);
+            assertEquals(101 + i, history.record(event).getSequence());
+        }
+        assertEquals(106, history.getLastSequence());
+
+        // Only the last four events are kept
+        assertTrue(replayAfter(history, 102));
+        assertEquals(List.of(103L, 104L, 105L, 106L), replayedSequences);
+        for (int i = 0; i < 4; i++)
+            assertSame(events.get(2 + i), replayedEvents.get(i));
+
+        assertTrue(replayAfter(history, 105));
+        assertEquals(List.of(106L), replayedSequences);
+
+        // Up to date, nothing to replay
+        assertTrue(replayAfter(history, 106));
+        assertTrue(replayedSequences.isEmpty());
+    }
+
+    @Test
+    public void unknownSequencesAreRejected() {
+        MatchEventHistory history = new MatchEventHistory(4, 100);
+        for (int i = 0; i < 6; i++)
+            history.record(MatchObserver::matchStarted);
+
+        // Event 102 has been forgotten
+        assertFalse(replayAfter(history, 101));
+        assertFalse(replayAfter(history, 0));
+        // Not an event of this history, e.g. of the match before the server restarted
+        assertFalse(replayAfter(history, 107));
+        assertTrue(replayedSequences.isEmpty());
+    }
+
+    @Test
+    public void historiesStartFromDifferentSequences() {
+        MatchEventHistory first = new MatchEventHistory(4);
+        MatchEventHistory second = new MatchEventHistory(4);
+        assertTrue(first.getLastSequence() > 0);
+        assertTrue(first.getLastSequence() != second.getLastSequence());
+
+        // An empty history is up to date with its own start only
+        assertTrue(replayAfter(first, first.getLastSequence()));
+        assertFalse(replayAfter(first, second.getLastSequence()));
+    }
+}
@@ -0,0 +1,74 @@
+package it.polimi.ingsw.gamemodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class MatchEventTest {
+    // An observer encoding a shared value on every event, and counting down the latch when the match finishes
+    private MatchObserver newObserver(List<MatchEvent> events, List<String> values, AtomicInteger encodings,
+            CountDownLatch finished) {
+        return (MatchObserver) Proxy.newProxyInstance(MatchObserver.class.getClassLoader(),
+                new Class<?>[] { MatchObserver.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "beforeEvent" -> events.add((MatchEvent) args[0]);
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        default -> {
+                            MatchEvent event = events.get(events.size() - 1);
+                            values.add(event.shared("encoded", () -> method.getName() + encodings.incrementAndGet()));
+                            if (method.getName().equals("matchFinished"))
+                                finished.countDown();
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    @Test
+    public void observersShareTheEventsWork() throws InterruptedException {
+        int observersNumber = 5;
+        AtomicInteger encodings = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(observersNumber);
+        MatchEventDispatcher dispatcher = MatchEventDispatcher.getInstance();
+
+        List<List<MatchEvent>> events = new ArrayList<>();
+        List<List<String>> values = new ArrayList<>();
+        List<MatchObserver> observers = new ArrayList<>();
+        for (int i = 0; i < observersNumber; i++) {
+            events.add(new ArrayList<>());
+            values.add(new ArrayList<>());
+            observers.add(newObserver(events.get(i), values.get(i), encodings, finished));
+        }
+
+        MatchEvent started = new MatchEvent();
+        MatchEvent ended = new MatchEvent();
+        observers.forEach(o -> dispatcher.dispatch(o, started, MatchObserver::matchStarted));
+        observers.forEach(o -> dispatcher.dispatch(o, ended, MatchObserver::matchFinished));
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        observers.forEach(dispatcher::release);
+
+        // Each value has been created once per event, and every observer got the same one
+        assertEquals(2, encodings.get());
+        for (int i = 0; i < observersNumber; i++) {
+            assertEquals(List.of(started, ended), events.get(i));
+            assertEquals(values.get(0), values.get(i));
+        }
+        assertNotSame(values.get(0).get(0), values.get(0).get(1));
+        assertSame(started.shared("encoded", () -> "again"), values.get(0).get(0));
+    }
+}
@@ -0,0 +1,169 @@
+package it.polimi.ingsw.gamemodel;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import it.polimi.ingsw.exceptions.*;
+import it.polimi.ingsw.utils.DeckCreator;
+import it.polimi.ingsw.utils.Pair;
+
+/**
+ * Builds the matches used by the tests and the benchmarks, with the real cards. The played ones have two players, who
+ * play random legal moves chosen through a seeded {@link Random}, so that the boards look like the ones of an actual
+ * match. The same generator seeds the match shuffles, so that every run measures the very same matches
+ */
+public final class MatchFixtures {
+    // Turns played (by both players) to reach the middle and the end of a match
+    public static final int MID_GAME_TURNS = 20;
+    public static final int LATE_GAME_TURNS = 44;
+
+    private MatchFixtures() {
+    }
+
+    /**
+     * Creates an empty match, waiting for its players
+     *
+     * @param maxPlayers the number of players starting the match
+     * @return the created match
+     */
+    public static Match newMatch(int maxPlayers) {
+        return newMatch(maxPlayers, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Creates an empty match, waiting for its players, whose decks are shuffled through the given seed
+     *
+     * @param maxPlayers the number of players starting the match
+     * @param seed       the seed of the match
+     * @return the created match
+     */
+    public static Match newMatch(int maxPlayers, long seed) {
+        DeckCreator creator = new DeckCreator();
+        return new Match(maxPlayers, creator.createInitialDeck(), creator.createResourceDeck(), creator.createGoldDeck(),
+                creator.createObjectiveDeck(), seed);
+    }
+
+    /**
+     * Creates a two players match, ready for the first move: the initial cards and the secret objectives have already
+     * been chosen
+     *
+     * @param random the source of the match seed and of the players' choices
+     * @return the created match
+     */
+    public static Match startedMatch(Random random) throws Exception {
+        Match match = newMatch(2, random.nextLong());
+        match.addPlayer(new Player("first", match));
+        match.addPlayer(new Player("second", match));
+
+        for (int i = 0; i < 2; i++) {
+            Player player = match.getCurrentPlayer();
+            player.drawInitialCard();
+            player.chooseInitialCardSide(random.nextBoolean() ? Side.FRONT : Side.BACK);
+        }
+        for (int i = 0; i < 2; i++) {
+            Player player = match.getCurrentPlayer();
+            Pair<Objective, Objective> objectives = player.drawSecretObjectives();
+            player.chooseSecretObjective(random.nextBoolean() ? objectives.first() : objectives.second());
+        }
+
+        return match;
+    }
+
+    /**
+     * Creates a match and plays the given number of turns
+     *
+     * @param turns how many turns to play, less if the match ends before
+     * @param seed  the seed of the match and of the players' choices
+     * @return the created match
+     */
+    public static Match matchAfter(int turns, long seed) throws Exception {
+        Random random = new Random(seed);
+        Match match = startedMatch(random);
+        playTurns(match, random, turns);
+        return match;
+    }
+
+    /**
+     * Lets the players of a match play random moves, each followed by a draw from a random source
+     *
+     * @param match  the match
+     * @param random the source of the players' choices
+     * @param turns  how many turns to play, less if the match ends or a player can't move before
+     */
+    public static void playTurns(Match match, Random random, int turns) throws Exception {
+        for (int i = 0; i < turns && !match.isFinished(); i++) {
+            if (!playRandomMove(match, random) || !drawRandomCard(match, random)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Lets the current player play a random legal move
+     *
+     * @param match  the match
+     * @param random the source of the player's choices
+     * @return false if the player has no legal moves, true otherwise
+     */
+    public static boolean playRandomMove(Match match, Random random)
+            throws WrongTurnException, WrongStateException, WrongChoiceException {
+        Player player = match.getCurrentPlayer();
+        List<PlacementMove> moves = player.getBoard().legalMoves(player.getBoard().getCurrentHand());
+        if (moves.isEmpty()) {
+            return false;
+        }
+
+        PlacementMove move = moves.get(random.nextInt(moves.size()));
+        player.playCard(move.coords(), move.card(), move.side());
+        return true;
+    }
+
+    /**
+     * Lets the current player draw from a random source that still has cards
+     *
+     * @param match  the match
+     * @param random the source of the player's choices
+     * @return false if every source is empty, true otherwise
+     */
+    public static boolean drawRandomCard(Match match, Random random)
+            throws HandException, WrongStateException, WrongTurnException {
+        Player player = match.getCurrentPlayer();
+        List<DrawSource> sources = new ArrayList<>(List.of(DrawSource.values()));
+        Collections.shuffle(sources, random);
+
+        for (DrawSource source : sources) {
+            try {
+                player.drawCard(source);
+                return true;
+            } catch (WrongChoiceException e) {
+                // empty source, try the next one
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a deep copy of a match, board or card, so that a benchmark can change it without affecting the next
+     * invocations
+     *
+     * @param object the object to copy
+     * @return the copy
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Serializable> T copy(T object) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(object);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (T) in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new UncheckedIOException(new IOException(e));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package it.polimi.ingsw.gamemodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import it.polimi.ingsw.exceptions.WrongChoiceException;
+import it.polimi.ingsw.exceptions.WrongStateException;
+import it.polimi.ingsw.exceptions.WrongTurnException;
+import org.junit.Test;
+
+public class MatchMailboxTest {
+    @Test
+    public void runsCommandsOneAtATimeInOrder() {
+        Match match = MatchFixtures.newMatch(2);
+        MatchMailbox mailbox = match.getMailbox();
+        assertSame(mailbox, match.getMailbox());
+
+        int commandsNumber = 1000;
+        AtomicInteger running = new AtomicInteger();
+        List<Integer> results = new ArrayList<>();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        for (int i = 0; i < commandsNumber; i++) {
+            int value = i;
+            futures.add(mailbox.submit(() -> {
+                if (running.incrementAndGet() != 1)
+                    throw new IllegalStateException("Two commands of the same match are running at once");
+                results.add(value);
+                running.decrementAndGet();
+                return value;
+            }));
+        }
+
+        for (int i = 0; i < commandsNumber; i++)
+            assertEquals(Integer.valueOf(i), futures.get(i).join());
+        for (int i = 0; i < commandsNumber; i++)
+            assertEquals(Integer.valueOf(i), results.get(i));
+    }
+
+    @Test
+    public void nestedCommandsAndFailures() throws Exception {
+        Match match = MatchFixtures.newMatch(2);
+        MatchMailbox mailbox = match.getMailbox();
+
+        // A command submitting another command of the same match must not wait for itself
+        int result = mailbox.call(() -> mailbox.call(() -> 42));
+        assertEquals(42, result);
+
+        try {
+            mailbox.call(() -> {
+                throw new WrongTurnException("Not your turn");
+            });
+            fail("The exception of the command should have been thrown");
+        } catch (WrongTurnException e) {
+            assertEquals("Not your turn", e.getMessage());
+        }
+
+        // The mailbox still works after a failed command
+        assertEquals("done", mailbox.call(() -> "done"));
+    }
+
+    @Test
+    public void declaredExceptionsAreRethrown() throws Exception {
+        MatchMailbox mailbox = MatchFixtures.newMatch(2).getMailbox();
+
+        try {
+            mailbox.call(() -> {
+                throw new WrongTurnException("Not your turn");
+            }, WrongStateException.class, WrongTurnException.class);
+            fail("The declared exception should have been thrown");
+        } catch (WrongTurnException e) {
+            assertEquals("Not your turn", e.getMessage());
+        }
+
+        // Undeclared checked exceptions are wrapped, the unchecked ones are thrown as they are
+        try {
+            mailbox.call(() -> {
+                throw new WrongChoiceException("Wrong card");
+            }, WrongStateException.class, WrongTurnException.class);
+            fail("The undeclared exception should have been wrapped");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof WrongChoiceException);
+        }
+        try {
+            mailbox.call(() -> {
+                throw new IllegalArgumentException("Wrong argument");
+            }, RuntimeException.class);
+            fail("The unchecked exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Wrong argument", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package it.polimi.ingsw.gamemodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.io.*;
+import java.util.*;
+import org.junit.Test;
+import it.polimi.ingsw.utils.Pair;
+
+public class MatchSnapshotCodecTest {
+
+    @Test
+    public void restoredMatchPlaysOnIdentically() throws Exception {
+        Match original = MatchFixtures.startedMatch(new Random(7));
+        Random random = new Random(7);
+        MatchFixtures.playTurns(original, random, 12);
+
+        byte[] snapshot = write(original);
+        Match restored = read(snapshot);
+        assertEquals(describe(original), describe(restored));
+
+        // Both matches take the same choices from here on
+        long choices = random.nextLong();
+        MatchFixtures.playTurns(original, new Random(choices), 100);
+        MatchFixtures.playTurns(restored, new Random(choices), 100);
+        assertEquals(describe(original), describe(restored));
+        assertTrue(restored.isFinished());
+    }
+
+    @Test
+    public void snapshotIsMuchSmallerThanSerializedMatch() throws Exception {
+        Match match = MatchFixtures.startedMatch(new Random(11));
+        MatchFixtures.playTurns(match, new Random(11), 20);
+
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(match);
+        }
+
+        assertTrue(write(match).length * 10 < serialized.size());
+    }
+
+    @Test
+    public void finishedAndWaitingMatches() throws Exception {
+        Match finished = MatchFixtures.startedMatch(new Random(3));
+        MatchFixtures.playTurns(finished, new Random(3), 100);
+        Match restored = read(write(finished));
+
+        // The ranking isn't computed again, so the objectives points aren't given twice
+        assertTrue(restored.getCurrentState() instanceof FinalState);
+        assertEquals(describe(finished), describe(restored));
+        assertSame(restored.getPlayers().get(1), restored.getPlayersFinalRanking().stream()
+                .map(Pair::first)
+                .filter(p -> p.getUsername().equals(finished.getPlayers().get(1).getUsername()))
+                .findFirst()
+                .orElseThrow());
+
+        Match waiting = MatchFixtures.newMatch(2, 5);
+        waiting.addPlayer(new Player("Oingo", waiting));
+        Match restoredWaiting = read(write(waiting));
+        restoredWaiting.addPlayer(new Player("Boingo", restoredWaiting));
+        waiting.addPlayer(new Player("Boingo", waiting));
+        assertEquals(describe(waiting), describe(restoredWaiting));
+        assertTrue(restoredWaiting.getCurrentState() instanceof NextTurnState);
+    }
+
+    private static byte[] write(Match match) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            match.writeSnapshot(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Match read(byte[] snapshot) throws IOException {
+        return Match.readSnapshot(new DataInputStream(new ByteArrayInputStream(snapshot)));
+    }
+
+    // Describes everything a snapshot contains, and what the boards derive from it
+    private static List<String> describe(Match match) {
+        List<String> description = new ArrayList<>();
+        description.add(match.getMaxPlayers() + " " + match.getSeed() + " " + match.getActionsCount() + " "
+                + match.isStarted() + " " + match.isInitialTurnFinished() + " " + match.isFinished() + " "
+                + match.getCurrentState().getClass().getSimpleName() + " "
+                + (match.getCurrentPlayer() == null ? null : match.getCurrentPlayer().getUsername()));
+        description.add("decks " + match.getAvailableDrawSources() + " " + match.getDecksTopReigns());
+        for (DrawSource source : DrawSource.values()) {
+            PlayableCard card = match.getVisiblePlayableCards().get(source);
+            description.add(source + " " + (card == null ? null : card.getId()));
+        }
+        if (match.getVisibleObjectives() != null)
+            description.add("objectives " + match.getVisibleObjectives().first().getID() + " "
+                    + match.getVisibleObjectives().second().getID());
+
+        for (Player player : match.getPlayers()) {
+            Board board = player.getBoard();
+            description.add(player.getUsername() + " " + player.getPoints() + " " + player.getPawnColor() + " "
+                    + (player.getSecretObjective() == null ? null : player.getSecretObjective().getID()) + " "
+                    + player.isConnected() + " " + board.getAvailableResources() + " "
+                    + board.getCurrentHand().stream().map(Card::getId).toList());
+            for (int i = 0; i < board.getPlacedCardsCount(); i++) {
+                PlacedCard placed = board.getPlacedCard(board.getPlacedX(i), board.getPlacedY(i));
+                description.add(board.getPlacedX(i) + " " + board.getPlacedY(i) + " " + placed.getCard().getId() + " "
+                        + placed.getPlayedSide() + " " + placed.getTurn());
+            }
+            description.add("legal " + new HashSet<>(board.legalPositions()));
+        }
+
+        if (match.getPlayersFinalRanking() != null)
+            match.getPlayersFinalRanking().forEach(p -> description.add(p.first().getUsername() + " " + p.second()));
+        return description;
+    }
+}
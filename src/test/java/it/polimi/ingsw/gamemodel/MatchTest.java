@@ -14,6 +14,7 @@ import it.polimi.ingsw.exceptions.WrongChoiceException;
 import it.polimi.ingsw.exceptions.WrongStateException;
 import it.polimi.ingsw.network.messages.Message;
 import it.polimi.ingsw.network.messages.responses.MatchStartedMessage;
+import it.polimi.ingsw.utils.DeckCreator;
 import it.polimi.ingsw.utils.MessageJsonParser;
 import it.polimi.ingsw.utils.Pair;
 
@@ -26,6 +27,36 @@ public class MatchTest {
     private GameDeck<GoldCard> goldsDeck;
     private GameDeck<Objective> objectivesDeck;
 
+    @Test
+    public void sameSeedSameMatch() throws Exception {
+        List<String> first = seededMatchSetup(42);
+        List<String> second = seededMatchSetup(42);
+
+        assertEquals(first, second);
+    }
+
+    // Starts a seeded match and describes its setup: players order, visible cards and objectives, first initial card
+    private List<String> seededMatchSetup(long seed) throws Exception {
+        DeckCreator creator = new DeckCreator();
+        Match seeded = new Match(3, creator.createInitialDeck(), creator.createResourceDeck(), creator.createGoldDeck(),
+                creator.createObjectiveDeck(), seed);
+        for (String username : List.of("Oingo", "Boingo", "Foingo"))
+            seeded.addPlayer(new Player(username, seeded));
+
+        List<String> setup = new ArrayList<>();
+        seeded.getPlayers().forEach(p -> setup.add(p.getUsername() + " " + p.getPawnColor()));
+        for (DrawSource source : DrawSource.values()) {
+            PlayableCard card = seeded.getVisiblePlayableCards().get(source);
+            setup.add(source + " " + (card == null ? null : card.getId()));
+        }
+        setup.add("objectives " + seeded.getVisibleObjectives().first().getID() + " "
+                + seeded.getVisibleObjectives().second().getID());
+        setup.add("initial " + seeded.getCurrentPlayer().drawInitialCard().getId());
+
+        assertEquals(seed, seeded.getSeed());
+        return setup;
+    }
+
     @Test
     public void constructor() {
         player1 = new Player("Oingo", match);
@@ -232,6 +263,64 @@ public class MatchTest {
 
     }
 
+    @Test
+    public void disconnectPlayer() throws Exception {
+        initializeBlankMatch(2);
+        Player player = match.getPlayers().get(0);
+
+        // Before the match is started, the player has to be removed
+        assertFalse(match.disconnectPlayer(player));
+        assertTrue(player.isConnected());
+
+        initializeBlankStartedMatch(2);
+        player = match.getPlayers().get(0);
+        Player other = match.getPlayers().get(1);
+        long lastSeen = match.getLastEventSequence();
+
+        assertTrue(match.disconnectPlayer(player));
+        assertFalse(player.isConnected());
+        assertTrue(match.isRejoinable());
+
+        // The events missed while disconnected are the only ones sent when resuming
+        other.sendBroadcastText("first");
+        other.sendBroadcastText("second");
+        List<String> texts = Collections.synchronizedList(new ArrayList<>());
+        MatchObserver observer = newTextObserver(texts);
+        match.rejoinPlayer(player);
+        assertTrue(match.resumeObserver(observer, lastSeen));
+        other.sendBroadcastText("third");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (texts.size() < 3 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(List.of("first", "second", "third"), texts);
+        match.unsubscribeObserver(observer);
+
+        // Unknown sequence numbers need the whole match state
+        assertFalse(match.resumeObserver(observer, match.getLastEventSequence() + 1));
+        assertFalse(match.resumeObserver(observer, null));
+        match.unsubscribeObserver(observer);
+    }
+
+    // An observer collecting the broadcast texts
+    private MatchObserver newTextObserver(List<String> texts) {
+        return (MatchObserver) java.lang.reflect.Proxy.newProxyInstance(MatchObserver.class.getClassLoader(),
+                new Class<?>[] { MatchObserver.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "someoneSentBroadcastText" -> texts.add((String) args[1]);
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        default -> {
+                        }
+                    }
+                    return null;
+                });
+    }
+
     @Test
     public void drawInitialCard() {
         initializeBlankMatch(2);
@@ -110,4 +110,79 @@ public class PositionRequirementTest {
             assertTrue(false);
         }
     }
+
+    @Test
+    public void countUpdatedOnPlacement() throws Exception {
+        PositionRequirement diagonal = new PositionRequirement(
+            Map.of(
+                new Pair<>(0, 0), Symbol.FUNGUS,
+                new Pair<>(1, 1), Symbol.FUNGUS,
+                new Pair<>(2, 2), Symbol.FUNGUS
+            )
+        );
+        assertEquals(0, diagonal.timesMet(board));
+
+        // the middle card is placed last, each card can only be used once
+        board.placeCard(new Pair<>(-1, -1), fungus, Side.FRONT, 1);
+        board.placeCard(new Pair<>(-2, -2), fungus, Side.FRONT, 2);
+        board.placeCard(new Pair<>(-4, -4), fungus, Side.FRONT, 3);
+        board.placeCard(new Pair<>(-5, -5), fungus, Side.FRONT, 4);
+        board.placeCard(new Pair<>(-6, -6), fungus, Side.FRONT, 5);
+        assertEquals(1, diagonal.timesMet(board));
+        board.placeCard(new Pair<>(-3, -3), fungus, Side.FRONT, 6);
+        assertEquals(2, diagonal.timesMet(board));
+
+        // a requirement checked for the first time sees the same count
+        assertEquals(2, new PositionRequirement(
+            Map.of(
+                new Pair<>(0, 0), Symbol.FUNGUS,
+                new Pair<>(1, 1), Symbol.FUNGUS,
+                new Pair<>(2, 2), Symbol.FUNGUS
+            )
+        ).timesMet(board));
+    }
+
+    @Test
+    public void overlappingPatternsLockedInPlacementOrder() throws Exception {
+        PositionRequirement diagonal = new PositionRequirement(
+            Map.of(
+                new Pair<>(0, 0), Symbol.FUNGUS,
+                new Pair<>(1, 1), Symbol.FUNGUS,
+                new Pair<>(2, 2), Symbol.FUNGUS
+            )
+        );
+
+        // the middle cards complete a pattern first, so six cards in a row count only once
+        board.placeCard(new Pair<>(-2, -2), fungus, Side.FRONT, 1);
+        board.placeCard(new Pair<>(-3, -3), fungus, Side.FRONT, 2);
+        board.placeCard(new Pair<>(-4, -4), fungus, Side.FRONT, 3);
+        assertEquals(1, diagonal.timesMet(board));
+        board.placeCard(new Pair<>(-1, -1), fungus, Side.FRONT, 4);
+        board.placeCard(new Pair<>(-5, -5), fungus, Side.FRONT, 5);
+        board.placeCard(new Pair<>(-6, -6), fungus, Side.FRONT, 6);
+        assertEquals(1, diagonal.timesMet(board));
+    }
+
+    @Test
+    public void cardCompletingSeveralPatterns() throws Exception {
+        PositionRequirement diagonal = new PositionRequirement(
+            Map.of(
+                new Pair<>(0, 0), Symbol.FUNGUS,
+                new Pair<>(1, 1), Symbol.FUNGUS,
+                new Pair<>(2, 2), Symbol.FUNGUS
+            )
+        );
+
+        // (-3, -3) completes three patterns, the one in which it's the first cell is counted
+        board.placeCard(new Pair<>(-1, -1), fungus, Side.FRONT, 1);
+        board.placeCard(new Pair<>(-2, -2), fungus, Side.FRONT, 2);
+        board.placeCard(new Pair<>(-4, -4), fungus, Side.FRONT, 3);
+        board.placeCard(new Pair<>(-5, -5), fungus, Side.FRONT, 4);
+        board.placeCard(new Pair<>(-3, -3), fungus, Side.FRONT, 5);
+        assertEquals(1, diagonal.timesMet(board));
+
+        // so the two cards below it are still free
+        board.placeCard(new Pair<>(-6, -6), fungus, Side.FRONT, 6);
+        assertEquals(2, diagonal.timesMet(board));
+    }
 }
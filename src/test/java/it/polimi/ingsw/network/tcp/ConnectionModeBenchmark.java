@@ -0,0 +1,73 @@
+package it.polimi.ingsw.network.tcp;
+
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import it.polimi.ingsw.network.messages.actions.GetAvailableMatchesMessage;
+import it.polimi.ingsw.server.Server;
+import it.polimi.ingsw.utils.MessageJsonParser;
+
+/**
+ * Compares the platform and virtual thread modes of {@link TCPServer} holding many idle lobby
+ * connections. Not a unit test: run it once per mode, so that the two modes don't share the JVM,
+ * e.g. with arguments "virtual 1000 5000 10000".
+ * For each number of connections it reports the time needed to accept them, the time needed to
+ * answer one request on each of them, the live threads and the used heap.
+ */
+public class ConnectionModeBenchmark {
+    public static void main(String[] args) throws Exception {
+        ConnectionThreadMode mode = args.length > 0 && args[0].equalsIgnoreCase("virtual")
+                ? ConnectionThreadMode.VIRTUAL
+                : ConnectionThreadMode.PLATFORM;
+        List<Integer> counts = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+            counts.add(Integer.parseInt(args[i]));
+        if (counts.isEmpty())
+            counts = List.of(1000, 5000, 10000);
+
+        int port = 9990 + mode.ordinal();
+        TCPServer tcpServer = new TCPServer(port, new Server(14, port), mode);
+        Thread listener = new Thread(tcpServer::listen);
+        listener.setDaemon(true);
+        listener.start();
+
+        MessageJsonParser parser = new MessageJsonParser();
+        String request = parser.toJson(new GetAvailableMatchesMessage("bench"));
+
+        System.out.println("mode=" + mode);
+        for (int count : counts) {
+            List<Socket> sockets = new ArrayList<>();
+            List<IOHandler> clients = new ArrayList<>();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                Socket socket = new Socket("localhost", port);
+                sockets.add(socket);
+                clients.add(new IOHandler(socket));
+            }
+            long connected = System.nanoTime();
+
+            for (IOHandler client : clients)
+                client.writeMsg(request);
+            for (IOHandler client : clients)
+                client.readMsg();
+            long answered = System.nanoTime();
+
+            System.gc();
+            Runtime runtime = Runtime.getRuntime();
+            long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+            int liveThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            System.out.printf("connections=%d connect=%dms roundtrip=%dms liveThreads=%d heap=%dMB%n",
+                    count, (connected - start) / 1_000_000, (answered - connected) / 1_000_000,
+                    liveThreads, usedHeap / (1024 * 1024));
+
+            for (Socket socket : sockets)
+                socket.close();
+            // Let the server threads notice the closed connections before the next round
+            Thread.sleep(2000);
+        }
+        System.exit(0);
+    }
+}
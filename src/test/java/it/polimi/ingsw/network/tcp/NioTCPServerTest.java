@@ -0,0 +1,120 @@
+package it.polimi.ingsw.network.tcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import it.polimi.ingsw.network.messages.Message;
+import it.polimi.ingsw.network.messages.actions.*;
+import it.polimi.ingsw.network.messages.errors.ErrorMessage;
+import it.polimi.ingsw.network.messages.responses.*;
+import it.polimi.ingsw.server.Server;
+import it.polimi.ingsw.utils.MessageJsonParser;
+
+public class NioTCPServerTest {
+    static MessageJsonParser messageParser = new MessageJsonParser();
+    static Integer port = 9998;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        NioTCPServer tcpServer = new NioTCPServer(port, new Server(13, port), 2);
+        Thread thread = new Thread(tcpServer::listen);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private Message readUntil(IOHandler io, Class<? extends Message> type) throws Exception {
+        Message msg;
+        do {
+            msg = messageParser.toMessage(io.readMsg());
+        } while (!type.isInstance(msg));
+        return msg;
+    }
+
+    @Test
+    public void lobbyAndChat() throws Exception {
+        IOHandler creator = new IOHandler(new Socket("localhost", port));
+        creator.writeMsg(new CreateMatchMessage("Davide", "nio", 2));
+        SomeoneJoinedMessage joined = (SomeoneJoinedMessage) readUntil(creator, SomeoneJoinedMessage.class);
+        assertTrue(joined.getJoinedPlayers().contains("Davide"));
+
+        IOHandler joinee = new IOHandler(new Socket("localhost", port));
+        joinee.writeMsg(new GetAvailableMatchesMessage("Luca"));
+        AvailableMatchesMessage available = (AvailableMatchesMessage) readUntil(joinee, AvailableMatchesMessage.class);
+        assertTrue(available.getMatches().stream().anyMatch(m -> m.name().equals("nio")));
+
+        joinee.writeMsg(new JoinMatchMessage("Luca", "nio"));
+        readUntil(joinee, SomeoneJoinedMessage.class);
+
+        creator.writeMsg(new SendBroadcastTextMessage("Davide", "ciao bimbi"));
+        SomeoneSentBroadcastTextMessage text = (SomeoneSentBroadcastTextMessage) readUntil(joinee, SomeoneSentBroadcastTextMessage.class);
+        assertEquals("ciao bimbi", text.getText());
+    }
+
+    @Test(timeout = 10000)
+    public void joinAgainAfterTakenUsername() throws Exception {
+        IOHandler creator = new IOHandler(new Socket("localhost", port));
+        creator.writeMsg(new CreateMatchMessage("Davide", "taken", 3));
+        readUntil(creator, SomeoneJoinedMessage.class);
+
+        IOHandler joinee = new IOHandler(new Socket("localhost", port));
+        joinee.writeMsg(new JoinMatchMessage("Davide", "taken"));
+        readUntil(joinee, ErrorMessage.class);
+
+        // The failed join leaves the client in the lobby, so it can retry with another username
+        joinee.writeMsg(new JoinMatchMessage("Luca", "taken"));
+        SomeoneJoinedMessage joined = (SomeoneJoinedMessage) readUntil(joinee, SomeoneJoinedMessage.class);
+        assertTrue(joined.getJoinedPlayers().contains("Luca"));
+    }
+
+    @Test
+    public void linesSplitAcrossWrites() throws Exception {
+        Socket socket = new Socket("localhost", port);
+        IOHandler io = new IOHandler(socket);
+        OutputStream out = socket.getOutputStream();
+        byte[] request = (messageParser.toJson(new GetAvailableMatchesMessage("Split")) + "\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+
+        // Send the same request twice, byte by byte
+        for (int i = 0; i < 2; i++) {
+            for (byte b : request) {
+                out.write(b);
+                out.flush();
+            }
+        }
+
+        assertTrue(messageParser.toMessage(io.readMsg()) instanceof AvailableMatchesMessage);
+        assertTrue(messageParser.toMessage(io.readMsg()) instanceof AvailableMatchesMessage);
+    }
+
+    @Test
+    public void binaryWireFormat() throws Exception {
+        IOHandler creator = new IOHandler(new Socket("localhost", port));
+        assertEquals(WireFormat.BINARY, creator.negotiate(WireFormat.BINARY));
+        creator.writeMsg(new CreateMatchMessage("Davide", "binary", 2));
+        Message msg;
+        do {
+            msg = creator.readMessage();
+        } while (!(msg instanceof SomeoneJoinedMessage));
+        assertTrue(((SomeoneJoinedMessage) msg).getJoinedPlayers().contains("Davide"));
+
+        // A JSON client joins the same match, and both receive the same chat message
+        IOHandler joinee = new IOHandler(new Socket("localhost", port));
+        assertEquals(WireFormat.JSON, joinee.negotiate(WireFormat.JSON));
+        joinee.writeMsg(new JoinMatchMessage("Luca", "binary"));
+        readUntil(joinee, SomeoneJoinedMessage.class);
+
+        joinee.writeMsg(new SendBroadcastTextMessage("Luca", "ciao bimbi"));
+        do {
+            msg = creator.readMessage();
+        } while (!(msg instanceof SomeoneSentBroadcastTextMessage));
+        assertEquals("ciao bimbi", ((SomeoneSentBroadcastTextMessage) msg).getText());
+        SomeoneSentBroadcastTextMessage text = (SomeoneSentBroadcastTextMessage) readUntil(joinee, SomeoneSentBroadcastTextMessage.class);
+        assertEquals("ciao bimbi", text.getText());
+    }
+}
@@ -0,0 +1,150 @@
+package it.polimi.ingsw.network.tcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+public class OutboundQueueTest {
+    private static final String LINE = "x".repeat(1023);
+
+    @Test
+    public void limitsAreEnforced() {
+        OutboundQueue queue = new OutboundQueue(100, 3);
+        for (int i = 0; i < 3; i++)
+            assertTrue(queue.offer(ByteBuffer.allocate(10)));
+        assertFalse("Too many frames", queue.offer(ByteBuffer.allocate(10)));
+        assertEquals(3, queue.getQueuedFrames());
+        assertEquals(30, queue.getQueuedBytes());
+
+        assertEquals(10, queue.poll().remaining());
+        assertFalse("Too many bytes", queue.offer(ByteBuffer.allocate(81)));
+        assertTrue(queue.offer(ByteBuffer.allocate(80)));
+        assertEquals(100, queue.getQueuedBytes());
+
+        // A gathering write takes the first frame and part of the second one
+        ByteBuffer[] batch = new ByteBuffer[2];
+        assertEquals(2, queue.peek(batch));
+        batch[0].position(10);
+        batch[1].position(5);
+        queue.consumed(15);
+        assertEquals(2, queue.getQueuedFrames());
+        assertEquals(85, queue.getQueuedBytes());
+
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.getQueuedFrames());
+        assertEquals(0, queue.getQueuedBytes());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void framesAreWrittenInOrder() throws Exception {
+        try (ServerSocket server = new ServerSocket(0);
+                Socket client = new Socket("localhost", server.getLocalPort());
+                Socket accepted = server.accept()) {
+            IOHandler writer = new IOHandler(accepted);
+            IOHandler reader = new IOHandler(client);
+
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int thread = t;
+                threads[t] = Thread.ofVirtual().start(() -> {
+                    try {
+                        for (int i = 0; i < 500; i++)
+                            writer.writeMsg(thread + " " + i);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+            }
+
+            // Lines of different threads are interleaved, but never mixed, and each thread's ones are in order
+            int[] next = new int[threads.length];
+            for (int i = 0; i < threads.length * 500; i++) {
+                String[] line = reader.readMsg().split(" ");
+                int thread = Integer.parseInt(line[0]);
+                assertEquals(next[thread]++, Integer.parseInt(line[1]));
+            }
+            for (Thread thread : threads)
+                thread.join();
+        }
+    }
+
+    @Test
+    public void slowClientIsDisconnected() throws Exception {
+        try (ServerSocket server = new ServerSocket(0);
+                Socket client = new Socket()) {
+            client.setReceiveBufferSize(4096);
+            client.connect(new InetSocketAddress("localhost", server.getLocalPort()));
+            Socket accepted = server.accept();
+            accepted.setSendBufferSize(4096);
+            IOHandler io = new IOHandler(accepted, new OutboundQueue(64 * 1024, 1000));
+
+            // The client never reads: the writes don't block, until the limits are exceeded
+            assertSlowClientRejected(() -> io.writeMsg(LINE));
+            try {
+                io.writeMsg("too late");
+                fail("The connection is still open");
+            } catch (IOException e) {
+                // Expected
+            }
+
+            // What has been written is followed by the end of the stream
+            client.setSoTimeout(10_000);
+            InputStream in = client.getInputStream();
+            try {
+                while (in.read(new byte[8192]) >= 0) {
+                    // Skip the lines written before the disconnection
+                }
+            } catch (SocketException e) {
+                // Reset by the server, as good as closed
+            }
+        }
+    }
+
+    @Test
+    public void slowNioClientIsDisconnected() throws Exception {
+        try (ServerSocket server = new ServerSocket(0);
+                SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", server.getLocalPort()));
+                Socket client = server.accept()) {
+            // Never attached to a selector, so nothing is ever written
+            NioConnection connection = new NioConnection(channel, new BufferPool(1024, 1),
+                    Executors.newSingleThreadExecutor(), new OutboundQueue(64 * 1024, 1000));
+            ByteBuffer frame = ByteBuffer.wrap((LINE + "\n").getBytes());
+
+            assertSlowClientRejected(() -> connection.send(frame.duplicate()));
+            assertTrue(connection.isClosed());
+        }
+    }
+
+    private interface Write {
+        void write() throws IOException;
+    }
+
+    // Writes until the connection is closed, which must happen when the queue is full
+    private static void assertSlowClientRejected(Write write) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        for (int i = 0; i < 100_000; i++) {
+            try {
+                write.write();
+            } catch (IOException e) {
+                assertTrue("Writes blocked by the slow client", System.currentTimeMillis() < deadline);
+                return;
+            }
+        }
+        fail("The slow client has not been disconnected");
+    }
+}
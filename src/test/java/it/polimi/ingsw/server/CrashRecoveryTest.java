@@ -0,0 +1,83 @@
+package it.polimi.ingsw.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import it.polimi.ingsw.gamemodel.Match;
+import it.polimi.ingsw.gamemodel.MatchFixtures;
+import it.polimi.ingsw.gamemodel.Player;
+import it.polimi.ingsw.utils.AvailableMatch;
+
+public class CrashRecoveryTest {
+    // Only the matches of the test are found, and the restored ones keep being written there
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Match newMatch() throws Exception {
+        Match match = MatchFixtures.newMatch(4);
+        match.addPlayer(new Player("Oingo", match));
+        return match;
+    }
+
+    @Test
+    public void matchesAreListedThenRestored() throws Exception {
+        PersistenceWriter writer = new PersistenceWriter(Duration.ofMillis(10));
+        List<MatchJournal> journals = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            MatchJournal journal = new MatchJournal(folder.getRoot(), "recovery-test-" + i, writer);
+            journal.requestSnapshot(newMatch());
+            journals.add(journal);
+        }
+        writer.flush();
+
+        // A snapshot written before the summaries existed
+        File legacy = new File(folder.getRoot(), "recovery-test-legacy.match");
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(legacy))) {
+            out.writeObject(newMatch());
+        }
+        MatchJournal legacyJournal = new MatchJournal(folder.getRoot(), "recovery-test-legacy", writer);
+        journals.add(legacyJournal);
+
+        try {
+            assertEquals(new MatchSummary(4, List.of("Oingo"), false, false), journals.getFirst().readSummary());
+            assertNull(legacyJournal.readSummary());
+
+            MatchRegistry registry = new MatchRegistry();
+            CrashRecovery recovery = new CrashRecovery(registry, folder.getRoot());
+            var done = recovery.start();
+
+            // Requested before its turn, so restored right away
+            Match requested = recovery.restoreNow("recovery-test-7");
+            assertNotNull(requested);
+            assertFalse(requested.getPlayers().getFirst().isConnected());
+
+            done.get(30, TimeUnit.SECONDS);
+            assertSame(requested, registry.get("recovery-test-7"));
+            for (MatchJournal journal : journals) {
+                assertNotNull(registry.get(journal.getMatchName()));
+                assertFalse(recovery.isRestoring(journal.getMatchName()));
+            }
+            assertEquals(journals.size(), recovery.getRestored());
+            assertEquals(0, recovery.getFailed());
+            assertTrue(registry.getJoinable().contains(new AvailableMatch("recovery-test-0", 4, 1, false)));
+            assertNull(recovery.restoreNow("recovery-test-missing"));
+        } finally {
+            journals.forEach(MatchJournal::delete);
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package it.polimi.ingsw.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import it.polimi.ingsw.gamemodel.Match;
+import it.polimi.ingsw.gamemodel.MatchFixtures;
+import it.polimi.ingsw.gamemodel.Player;
+import it.polimi.ingsw.utils.AvailableMatch;
+import it.polimi.ingsw.utils.LobbyUpdate;
+
+public class MatchRegistryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // The index is updated by match events, which are delivered asynchronously
+    private boolean eventually(MatchRegistry registry, Predicate<List<AvailableMatch>> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.test(registry.getJoinable())) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @Test
+    public void joinableIndexFollowsMatches() throws Exception {
+        Match match = MatchFixtures.newMatch(2);
+        MatchRegistry registry = new MatchRegistry();
+
+        assertTrue(registry.register("lobby", match));
+        assertFalse(registry.register("lobby", match));
+        assertEquals(List.of(new AvailableMatch("lobby", 2, 0, false)), registry.getJoinable());
+
+        match.addPlayer(new Player("Oingo", match));
+        assertTrue(eventually(registry, joinable -> joinable.equals(List.of(new AvailableMatch("lobby", 2, 1, false)))));
+
+        // A full match starts, so it's not joinable any more
+        match.addPlayer(new Player("Boingo", match));
+        assertTrue(eventually(registry, List::isEmpty));
+        assertEquals(match, registry.get("lobby"));
+
+        registry.remove("lobby");
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void finishedMatchIsNotObservedAnyMore() throws Exception {
+        Match match = MatchFixtures.newMatch(2);
+        MatchRegistry registry = new MatchRegistry();
+        assertTrue(registry.register("finished", match));
+        MatchStatusObserver status = new MatchStatusObserver(new MatchJournal(folder.getRoot(), "finished"), registry, 0);
+        match.subscribeObserver(status);
+        assertEquals(2, getObservers(match).size());
+
+        // Both the status observer and the lobby entry release their event queues
+        status.matchFinished();
+        assertEquals(0, registry.size());
+        assertTrue(getObservers(match).isEmpty());
+    }
+
+    @Test
+    public void subscribersReceiveSnapshotThenChanges() throws Exception {
+        Match first = MatchFixtures.newMatch(2);
+        Match second = MatchFixtures.newMatch(3);
+        MatchRegistry registry = new MatchRegistry();
+        registry.register("first", first);
+
+        BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+        LobbySubscriber subscriber = new LobbySubscriber() {
+            @Override
+            public void lobbySnapshot(List<AvailableMatch> matches) {
+                received.add(matches);
+            }
+
+            @Override
+            public void lobbyUpdated(LobbyUpdate update) {
+                received.add(update);
+            }
+        };
+        registry.subscribe(subscriber);
+        assertEquals(List.of(new AvailableMatch("first", 2, 0, false)), received.poll(5, TimeUnit.SECONDS));
+
+        registry.register("second", second);
+        assertEquals(new LobbyUpdate("second", new AvailableMatch("second", 3, 0, false)),
+                received.poll(5, TimeUnit.SECONDS));
+
+        first.addPlayer(new Player("Oingo", first));
+        assertEquals(new LobbyUpdate("first", new AvailableMatch("first", 2, 1, false)),
+                received.poll(5, TimeUnit.SECONDS));
+
+        registry.remove("second");
+        LobbyUpdate removal = (LobbyUpdate) received.poll(5, TimeUnit.SECONDS);
+        assertEquals("second", removal.matchName());
+        assertTrue(removal.isRemoval());
+
+        // Once unsubscribed, nothing else is received
+        registry.unsubscribe(subscriber);
+        first.addPlayer(new Player("Boingo", first));
+        assertTrue(eventually(registry, List::isEmpty));
+        assertEquals(null, received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    private static List<?> getObservers(Match match) throws NoSuchFieldException, IllegalAccessException {
+        Field observers = Match.class.getDeclaredField("observers");
+        observers.setAccessible(true);
+
+        return (List<?>) observers.get(match);
+    }
+}
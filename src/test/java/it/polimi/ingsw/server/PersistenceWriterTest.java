@@ -0,0 +1,78 @@
+package it.polimi.ingsw.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import it.polimi.ingsw.gamemodel.DrawSource;
+import it.polimi.ingsw.gamemodel.Match;
+import it.polimi.ingsw.gamemodel.MatchFixtures;
+import it.polimi.ingsw.gamemodel.Player;
+
+public class PersistenceWriterTest {
+    @Test
+    public void snapshotsAreCommittedTogether() throws Exception {
+        // Long enough for every request to be collected by the same commit
+        PersistenceWriter writer = new PersistenceWriter(Duration.ofMillis(500));
+        List<MatchJournal> journals = new ArrayList<>();
+        List<Match> matches = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 50; i++) {
+                MatchJournal journal = new MatchJournal("persistence-test-" + i, writer);
+                Match match = MatchFixtures.newMatch(4);
+                match.addPlayer(new Player("Oingo", match));
+                journals.add(journal);
+                matches.add(match);
+            }
+
+            // Many requests per match, each one serialized once with its latest state
+            for (int request = 0; request < 20; request++) {
+                for (int i = 0; i < journals.size(); i++)
+                    journals.get(i).requestSnapshot(matches.get(i));
+            }
+            matches.getFirst().addPlayer(new Player("Boingo", matches.getFirst()));
+            // Already contained in the snapshot, so written after it but skipped when recovering
+            journals.get(1).appendDrewCard(0, "Oingo", DrawSource.GOLDS_DECK);
+            writer.flush();
+
+            assertEquals(1, writer.getCommits());
+            assertEquals(50, writer.getSnapshotsWritten());
+            assertEquals(1, writer.getRecordsWritten());
+            assertTrue(new File(journals.get(1).getMatchName() + ".journal").length() > 0);
+            assertEquals(2, journals.getFirst().recover().getPlayers().size());
+            for (MatchJournal journal : journals) {
+                assertTrue(journal.hasSnapshot());
+                assertFalse(new File(journal.getMatchName() + ".match.tmp").exists());
+                assertEquals("Oingo", journal.recover().getPlayers().getFirst().getUsername());
+            }
+        } finally {
+            journals.forEach(MatchJournal::delete);
+            writer.flush();
+        }
+
+        for (MatchJournal journal : journals)
+            assertFalse(journal.hasSnapshot());
+    }
+
+    @Test
+    public void deletionDiscardsPendingWrites() throws Exception {
+        PersistenceWriter writer = new PersistenceWriter(Duration.ofMillis(50));
+        MatchJournal journal = new MatchJournal("persistence-test-deleted", writer);
+
+        journal.requestSnapshot(MatchFixtures.newMatch(2));
+        journal.delete();
+        writer.flush();
+
+        assertFalse(journal.hasSnapshot());
+        assertEquals(0, writer.getSnapshotsWritten());
+        // Nothing left to commit
+        writer.flush();
+        assertEquals(1, writer.getCommits());
+    }
+}
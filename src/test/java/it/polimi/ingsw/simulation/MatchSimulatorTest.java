@@ -0,0 +1,29 @@
+package it.polimi.ingsw.simulation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+public class MatchSimulatorTest {
+    @Test
+    public void randomMatchesEndWithoutFailures() {
+        MatchSimulator simulator = new MatchSimulator(
+                List.of(new RandomPolicy(), new RandomPolicy(), new RandomPolicy()), ForkJoinPool.commonPool());
+        SimulationReport report = simulator.run(50, 42);
+
+        assertEquals(report.failureSamples().toString(), 0, report.failures());
+        assertEquals(50, report.finished() + report.stalled());
+    }
+
+    @Test
+    public void greedyMatchesEndWithoutFailures() {
+        MatchSimulator simulator = new MatchSimulator(
+                List.of(new GreedyPolicy(), new RandomPolicy()), ForkJoinPool.commonPool());
+        SimulationReport report = simulator.run(50, 7);
+
+        assertEquals(report.failureSamples().toString(), 0, report.failures());
+        assertEquals(50, report.finished() + report.stalled());
+    }
+}
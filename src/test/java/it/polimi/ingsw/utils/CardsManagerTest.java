@@ -1,6 +1,7 @@
 package it.polimi.ingsw.utils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.HashSet;
@@ -17,6 +18,7 @@ import it.polimi.ingsw.gamemodel.Corner;
 import it.polimi.ingsw.gamemodel.GoldCard;
 import it.polimi.ingsw.gamemodel.InitialCard;
 import it.polimi.ingsw.gamemodel.Objective;
+import it.polimi.ingsw.gamemodel.PlayableCard;
 import it.polimi.ingsw.gamemodel.PositionRequirement;
 import it.polimi.ingsw.gamemodel.QuantityRequirement;
 import it.polimi.ingsw.gamemodel.ResourceCard;
@@ -129,4 +131,23 @@ public class CardsManagerTest {
         assertTrue("Objective id.13 was wrong requirement type", obj.getReq() instanceof PositionRequirement);
     }
 
+    @Test
+    public void lookupById() {
+        assertEquals(cardsManager.getResourceCards().get(1), cardsManager.byId(1));
+        assertEquals(cardsManager.getResourceCards().get(1), cardsManager.resourceCard(1));
+        assertEquals(cardsManager.getGoldCards().get(64), cardsManager.byId(64));
+        assertEquals(cardsManager.getGoldCards().get(64), cardsManager.goldCard(64));
+        assertEquals(cardsManager.getInitialCards().get(1), cardsManager.initialCard(1));
+        assertEquals(cardsManager.getObjectives().get(13), cardsManager.objective(13));
+
+        // wrong type or unknown id
+        assertNull(cardsManager.goldCard(1));
+        assertNull(cardsManager.resourceCard(64));
+        assertNull(cardsManager.byId(-1));
+        assertNull(cardsManager.byId(1000));
+
+        for (Map.Entry<Integer, PlayableCard> entry : cardsManager.getPlayableCards().entrySet()) {
+            assertEquals(entry.getValue(), cardsManager.byId(entry.getKey()));
+        }
+    }
 }
@@ -0,0 +1,64 @@
+package it.polimi.ingsw.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class HeartbeatWheelTest {
+    private final HeartbeatWheel wheel = new HeartbeatWheel(Duration.ofMillis(10), 16);
+
+    @Test
+    public void expiresOnlyWithoutBeats() throws InterruptedException {
+        CountDownLatch expired = new CountDownLatch(1);
+        AtomicInteger aliveExpiries = new AtomicInteger();
+        AtomicInteger silentExpiries = new AtomicInteger();
+
+        HeartbeatWheel.Heartbeat dying = wheel.watch(Duration.ofMillis(100), expired::countDown);
+        HeartbeatWheel.Heartbeat alive = wheel.watch(Duration.ofMillis(100), aliveExpiries::incrementAndGet);
+        // Never beats, so it never expires
+        HeartbeatWheel.Heartbeat silent = wheel.watch(Duration.ofMillis(100), silentExpiries::incrementAndGet);
+
+        dying.beat();
+        long start = System.nanoTime();
+        // Longer than a turn of the wheel, to check the heartbeats due after more turns
+        while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(400)) {
+            alive.beat();
+            Thread.sleep(20);
+        }
+
+        assertTrue(expired.await(1, TimeUnit.SECONDS));
+        assertTrue(dying.isCancelled());
+        assertEquals(0, aliveExpiries.get());
+        assertFalse(alive.isCancelled());
+        assertEquals(0, silentExpiries.get());
+
+        alive.cancel();
+        silent.cancel();
+    }
+
+    @Test
+    public void checksUntilCancelled() throws InterruptedException {
+        AtomicInteger checks = new AtomicInteger();
+        AtomicInteger expiries = new AtomicInteger();
+
+        HeartbeatWheel.Heartbeat heartbeat = wheel.watch(Duration.ofSeconds(10), Duration.ofMillis(20),
+                checks::incrementAndGet, expiries::incrementAndGet);
+        heartbeat.beat();
+
+        Thread.sleep(300);
+        heartbeat.cancel();
+        Thread.sleep(50);
+        int checksAtCancel = checks.get();
+        Thread.sleep(200);
+
+        assertTrue("the heartbeat was checked " + checksAtCancel + " times", checksAtCancel >= 5);
+        assertEquals(checksAtCancel, checks.get());
+        assertEquals(0, expiries.get());
+    }
+}
@@ -11,6 +11,7 @@ import it.polimi.ingsw.network.messages.Message;
 import it.polimi.ingsw.network.messages.actions.DrawCardMessage;
 import it.polimi.ingsw.network.messages.actions.DrawInitialCardMessage;
 import it.polimi.ingsw.network.messages.actions.PlayCardMessage;
+import it.polimi.ingsw.network.messages.errors.ErrorMessage;
 import it.polimi.ingsw.network.messages.responses.SomeoneDrewSecretObjectivesMessage;
 
 public class JsonTest {
@@ -103,4 +104,36 @@ public class JsonTest {
             fail("Wrong exception thrown");
         }
     }
+
+    @Test
+    public void discriminatorInAnyPosition() {
+        MessageJsonParser parser = MessageJsonParser.getInstance();
+        String json = "{\"action\": \"DrawCard\", \"username\": \"Oingo\", \"source\": \"GOLDS_DECK\"}";
+        DrawCardMessage first = (DrawCardMessage) parser.toMessage(json);
+        assertEquals("Oingo", first.getUsername());
+        assertEquals(DrawSource.GOLDS_DECK, first.getSource());
+
+        json = "{\"username\": \"Oingo\", \"source\": {\"response\": 1}, \"action\": \"DrawCard\"}";
+        try {
+            parser.toMessage(json);
+            fail("Exception not thrown");
+        } catch (JsonParseException e) {
+            // Good: the nested response is not taken as the type, and the source is not valid
+        }
+
+        json = "{\"message\": \"Not your turn\", \"error\": \"WrongTurnException\"}";
+        ErrorMessage error = (ErrorMessage) parser.toMessage(json);
+        assertEquals("WrongTurnException", error.getError());
+    }
+
+    @Test
+    public void parseThroughMessageBuilder() {
+        MessageJsonParser parser = new MessageJsonParser();
+        String json = parser.toJson(new SomeoneDrewSecretObjectivesMessage("Boingo", new Pair<>(12, 11)));
+
+        Message convertedMessage = parser.getMessageBuilder().fromJson(json, Message.class);
+        assertTrue(convertedMessage instanceof SomeoneDrewSecretObjectivesMessage);
+        assertEquals(Integer.valueOf(11), ((SomeoneDrewSecretObjectivesMessage) convertedMessage).getSecondID());
+        assertEquals(json, parser.getMessageBuilder().toJson(convertedMessage, Message.class));
+    }
 }
@@ -0,0 +1,180 @@
+package it.polimi.ingsw.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+import com.google.gson.JsonParser;
+import it.polimi.ingsw.gamemodel.Color;
+import it.polimi.ingsw.gamemodel.DrawSource;
+import it.polimi.ingsw.gamemodel.Side;
+import it.polimi.ingsw.gamemodel.Symbol;
+import it.polimi.ingsw.network.messages.HeartbeatMessage;
+import it.polimi.ingsw.network.messages.Message;
+import it.polimi.ingsw.network.messages.actions.*;
+import it.polimi.ingsw.network.messages.errors.ErrorMessage;
+import it.polimi.ingsw.network.messages.responses.*;
+
+public class MessageBinaryCodecTest {
+    private final MessageBinaryCodec codec = new MessageBinaryCodec();
+    private final MessageJsonParser parser = new MessageJsonParser();
+
+    private static Map<Symbol, Integer> resources(int seed) {
+        Map<Symbol, Integer> resources = new HashMap<>();
+        for (Symbol symbol : List.of(Symbol.ANIMAL, Symbol.PLANT, Symbol.INSECT, Symbol.FUNGUS, Symbol.FEATHER,
+                Symbol.INKWELL, Symbol.PARCHMENT))
+            resources.put(symbol, (seed + symbol.ordinal()) % 4);
+        return resources;
+    }
+
+    // A resumed match of four players, each with twenty cards on the board
+    public static MatchResumedMessage matchResumed() {
+        List<String> players = List.of("Davide", "Luca", "Lorenzo", "Gianmarco");
+        Map<String, Color> pawns = new HashMap<>();
+        Map<String, List<Integer>> hands = new HashMap<>();
+        Map<String, Map<Symbol, Integer>> availableResources = new HashMap<>();
+        Map<String, Map<Integer, PlacedCardRecord>> placedCards = new HashMap<>();
+        Map<String, Integer> points = new HashMap<>();
+
+        for (int p = 0; p < players.size(); p++) {
+            String player = players.get(p);
+            pawns.put(player, Color.values()[p]);
+            hands.put(player, List.of(10 + p, 40 + p, 70 + p));
+            availableResources.put(player, resources(p));
+            Map<Integer, PlacedCardRecord> board = new HashMap<>();
+            board.put(0, new PlacedCardRecord(81 + p, 0, 0, Side.FRONT));
+            for (int turn = 1; turn < 20; turn++)
+                board.put(turn, new PlacedCardRecord(turn * 3 + p, turn % 5 - 2, 2 - turn % 7,
+                        turn % 2 == 0 ? Side.FRONT : Side.BACK));
+            placedCards.put(player, board);
+            points.put(player, 5 * p + 3);
+        }
+
+        Map<DrawSource, Integer> visible = new HashMap<>();
+        visible.put(DrawSource.FIRST_VISIBLE, 5);
+        visible.put(DrawSource.SECOND_VISIBLE, 17);
+        visible.put(DrawSource.THIRD_VISIBLE, 45);
+        visible.put(DrawSource.FOURTH_VISIBLE, 66);
+
+        return new MatchResumedMessage(pawns, hands, new Pair<>(87, 99), visible, new Pair<>(Symbol.ANIMAL, null),
+                95, availableResources, placedCards, points, "Luca", true);
+    }
+
+    public static SomeonePlayedCardMessage someonePlayedCard() {
+        return new SomeonePlayedCardMessage("Davide", new Pair<>(-3, 2), 27, Side.FRONT, 12, resources(1));
+    }
+
+    // One message of each class of the protocol
+    private List<Message> allMessages() {
+        Map<DrawSource, Integer> visible = new HashMap<>();
+        visible.put(DrawSource.FIRST_VISIBLE, 5);
+        visible.put(DrawSource.THIRD_VISIBLE, null);
+        Map<String, Integer[]> startHands = new HashMap<>();
+        startHands.put("Davide", new Integer[] { 1, 2, 41 });
+        startHands.put("Luca", new Integer[] { 3, 4, 42 });
+        Map<String, Color> pawns = new HashMap<>();
+        pawns.put("Davide", Color.RED);
+        pawns.put("Luca", null);
+
+        return List.of(
+                HeartbeatMessage.PING,
+                HeartbeatMessage.PONG,
+                new ErrorMessage("Not your turn", "it.polimi.ingsw.exceptions.WrongTurnException"),
+                new AddBotMessage("Davide", "partita"),
+                new ChooseInitialCardSideMessage("Davide", Side.BACK),
+                new ChooseSecretObjectiveMessage("Davide", 93),
+                new CreateMatchMessage("Davide", "partita", 4),
+                new DrawCardMessage("Davide", DrawSource.GOLDS_DECK),
+                new DrawInitialCardMessage("Davide"),
+                new DrawSecretObjectivesMessage("Davide"),
+                new GetAvailableMatchesMessage("Davide"),
+                new JoinMatchMessage("Luca", "partita"),
+                new PlayCardMessage("Davide", new Pair<>(-1, 1), 33, Side.FRONT),
+                new SendBroadcastTextMessage("Davide", "ciao bimbi è 😀"),
+                new SendPrivateTextMessage("Davide", "Luca", "psst"),
+                new SubscribeLobbyMessage(null),
+                new AvailableMatchesMessage(List.of(new AvailableMatch("partita", 4, 2, false),
+                        new AvailableMatch("altra", 2, 1, true))),
+                new LobbyUpdateMessage(new LobbyUpdate("partita", new AvailableMatch("partita", 4, 3, false))),
+                new LobbyUpdateMessage(new LobbyUpdate("finita", null)),
+                new MatchFinishedMessage(List.of(new LeaderboardEntry("Luca", 24, true),
+                        new LeaderboardEntry("Davide", 20, false))),
+                new MatchStartedMessage(new Integer[] { 87, 99 }, visible, new Symbol[] { Symbol.FUNGUS, null },
+                        startHands, pawns),
+                new SomeoneJoinedMessage("Luca", List.of("Davide", "Luca"), 4),
+                new SomeoneQuitMessage("Luca", 1, false),
+                new SomeoneChoseSecretObjectiveMessage("Luca", null),
+                new SomeoneDrewCardMessage("Luca", DrawSource.FIRST_VISIBLE, 5, 8,
+                        new Pair<>(Symbol.PLANT, Symbol.INSECT)),
+                new SomeoneDrewInitialCardMessage("Luca", 83),
+                new SomeoneDrewSecretObjectivesMessage("Luca", new Pair<>(null, null)),
+                someonePlayedCard(),
+                new SomeoneSetInitialSideMessage("Luca", Side.BACK, resources(2)),
+                new SomeoneSentBroadcastTextMessage("Luca", "ciao"),
+                new SomeoneSentPrivateTextMessage("Luca", "Davide", "psst"),
+                matchResumed());
+    }
+
+    @Test
+    public void everyMessageSurvivesTheRoundTrip() {
+        List<Message> messages = allMessages();
+
+        // Every class of the protocol is covered
+        Set<Class<?>> covered = messages.stream().map(Object::getClass).collect(Collectors.toSet());
+        Stream.concat(Stream.of(ActionMessage.class.getPermittedSubclasses()),
+                Stream.of(ResponseMessage.class.getPermittedSubclasses()))
+                .forEach(type -> assertTrue(type.getSimpleName() + " is not covered", covered.contains(type)));
+
+        for (Message message : messages) {
+            byte[] encoded = codec.encode(message);
+            Message decoded = codec.decode(encoded, 0, encoded.length);
+
+            assertSame(message.getClass(), decoded.getClass());
+            if (message instanceof HeartbeatMessage)
+                assertSame(message, decoded);
+            else
+                assertEquals(message.getClass().getSimpleName(), JsonParser.parseString(parser.toJson(message)),
+                        JsonParser.parseString(parser.toJson(decoded)));
+        }
+    }
+
+    @Test
+    public void biggestMessagesAreAtLeastFiveTimesSmaller() {
+        for (Message message : List.of(matchResumed(), someonePlayedCard())) {
+            int jsonLength = parser.toJson(message).getBytes(StandardCharsets.UTF_8).length;
+            int binaryLength = codec.encode(message).length;
+            assertTrue(message.getClass().getSimpleName() + ": " + jsonLength + " bytes as JSON, " + binaryLength
+                    + " as binary", jsonLength >= 5 * binaryLength);
+        }
+    }
+
+    @Test
+    public void malformedMessagesAreRejected() {
+        byte[] encoded = codec.encode(matchResumed());
+        List<byte[]> malformed = new ArrayList<>();
+        malformed.add(new byte[] { 99 });
+        malformed.add(new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F });
+        for (int length = 0; length < encoded.length; length += 7)
+            malformed.add(Arrays.copyOf(encoded, length));
+
+        for (byte[] bytes : malformed) {
+            try {
+                codec.decode(bytes, 0, bytes.length);
+                fail("A malformed message has been decoded");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+}
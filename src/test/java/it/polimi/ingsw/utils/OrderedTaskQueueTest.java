@@ -0,0 +1,71 @@
+package it.polimi.ingsw.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class OrderedTaskQueueTest {
+
+    @Test
+    public void preservesSubmissionOrder() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        int queuesNumber = 8;
+        int tasksNumber = 1000;
+
+        List<OrderedTaskQueue> queues = new ArrayList<>();
+        List<List<Integer>> results = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(queuesNumber * tasksNumber);
+
+        for (int i = 0; i < queuesNumber; i++) {
+            queues.add(new OrderedTaskQueue(executor));
+            results.add(new ArrayList<>());
+        }
+
+        // Interleave the submissions, so that the queues compete for the same threads
+        for (int task = 0; task < tasksNumber; task++) {
+            for (int i = 0; i < queuesNumber; i++) {
+                List<Integer> result = results.get(i);
+                int value = task;
+
+                queues.get(i).submit(() -> {
+                    result.add(value);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue("Not every task has been run", done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        for (int i = 0; i < queuesNumber; i++) {
+            List<Integer> result = results.get(i);
+
+            assertEquals(tasksNumber, result.size());
+            for (int task = 0; task < tasksNumber; task++)
+                assertEquals("Wrong order in queue " + i, task, (int) result.get(task));
+            assertEquals(0, queues.get(i).size());
+        }
+    }
+
+    @Test
+    public void failingTaskDoesNotBlockQueue() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        OrderedTaskQueue queue = new OrderedTaskQueue(executor);
+        CountDownLatch done = new CountDownLatch(1);
+
+        queue.submit(() -> {
+            throw new RuntimeException("test failure");
+        });
+        queue.submit(done::countDown);
+
+        assertTrue("The task after the failing one has not been run", done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}